@@ -0,0 +1,75 @@
+package org.sunbird.common.cacheloader;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import org.apache.commons.lang3.StringUtils;
+import org.sunbird.common.models.util.ProjectUtil;
+
+/** Builds cache keys that do not depend on map ordering or on per request headers. */
+public final class CacheKeyUtil {
+
+  public static final String CACHE_KEY_HEADERS = "sunbird_page_cache_key_headers";
+  private static final String DEFAULT_CACHE_KEY_HEADERS = "x-channel-id,x-app-id";
+
+  private static final ObjectMapper mapper =
+      new ObjectMapper().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+  private static final Set<String> cacheKeyHeaders = getCacheKeyHeaderNames();
+
+  private CacheKeyUtil() {}
+
+  /**
+   * Returns only the headers which can change the content returned by search, e.g. channel.
+   * Headers like request id, timestamp or user token are left out so that they do not split the
+   * cache.
+   *
+   * @param headers request headers
+   * @return headers to be used in the cache key, sorted by lower cased name
+   */
+  public static Map<String, String> getCacheKeyHeaders(Map<String, String> headers) {
+    Map<String, String> keyHeaders = new TreeMap<>();
+    if (headers != null) {
+      for (Map.Entry<String, String> header : headers.entrySet()) {
+        if (header.getKey() != null
+            && cacheKeyHeaders.contains(header.getKey().toLowerCase())) {
+          keyHeaders.put(header.getKey().toLowerCase(), header.getValue());
+        }
+      }
+    }
+    return keyHeaders;
+  }
+
+  /**
+   * Serialises the given value with map entries sorted by key and returns its SHA-256 hash.
+   *
+   * @param value request map
+   * @return hash of the normalised value
+   * @throws JsonProcessingException if the value cannot be serialised
+   */
+  public static String getKey(Object value) throws JsonProcessingException {
+    return Hashing.sha256()
+        .hashString(mapper.writeValueAsString(value), StandardCharsets.UTF_8)
+        .toString();
+  }
+
+  private static Set<String> getCacheKeyHeaderNames() {
+    String names = ProjectUtil.getConfigValue(CACHE_KEY_HEADERS);
+    if (StringUtils.isBlank(names)) {
+      names = DEFAULT_CACHE_KEY_HEADERS;
+    }
+    Set<String> headerNames = new HashSet<>();
+    for (String name : Arrays.asList(names.split(","))) {
+      if (StringUtils.isNotBlank(name)) {
+        headerNames.add(name.trim().toLowerCase());
+      }
+    }
+    return headerNames;
+  }
+}
@@ -0,0 +1,364 @@
+package org.sunbird.common.cacheloader;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.sunbird.cassandra.CassandraOperation;
+import org.sunbird.common.exception.ProjectCommonException;
+import org.sunbird.common.models.response.Response;
+import org.sunbird.common.models.util.GeoLocationJsonKey;
+import org.sunbird.common.models.util.JsonKey;
+import org.sunbird.common.models.util.LoggerEnum;
+import org.sunbird.common.models.util.ProjectLogger;
+import org.sunbird.common.models.util.ProjectUtil;
+import org.sunbird.common.responsecode.ResponseCode;
+import org.sunbird.helper.ServiceFactory;
+import org.sunbird.learner.util.ConfigValueUtil;
+import org.sunbird.models.location.Location;
+
+/**
+ * Memory resident index of the location hierarchy (ID to location, code to ID and order of
+ * location types), which resolves location codes and ancestor chains without I/O. The index is
+ * loaded by {@link #run()}, scheduled at startup, and kept fresh by {@link #upsert(Map)} and {@link
+ * #delete(String)} as locations are written. Locations missing from the index, e.g. created on
+ * another instance since the last load, are read with the reader given by the caller.
+ *
+ * <p>Updates and deletes handled by another instance are only seen with the next reload, so a
+ * location deleted or moved to another parent there may still be returned here for up to {@link
+ * #getRefreshInterval()} minutes. The location table holds no change timestamp to reload from, so
+ * the interval is kept short instead.
+ */
+public final class LocationTree implements Runnable {
+
+  public static final String LOCATION_TREE_REFRESH_INTERVAL =
+      "sunbird_location_tree_refresh_interval_minutes";
+  /** Interval in hours used before the interval was configured in minutes. */
+  public static final String LOCATION_TREE_REFRESH_INTERVAL_HOURS =
+      "sunbird_location_tree_refresh_interval_hours";
+  private static final long DEFAULT_REFRESH_INTERVAL = 15;
+
+  private static final String KEY_SPACE_NAME = "sunbird";
+  private static final String LOCATION_TABLE_NAME = "location";
+
+  private final CassandraOperation cassandraOperation;
+  private final Map<String, Integer> orderMap;
+  private final ObjectMapper mapper =
+      new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+  private volatile Index index = new Index();
+  private volatile boolean loaded;
+
+  /** Changes applied while a load is running, replayed on the loaded index. Guarded by this. */
+  private List<Consumer<Index>> journal;
+
+  private final AtomicLong loads = new AtomicLong();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong reads = new AtomicLong();
+
+  LocationTree(CassandraOperation cassandraOperation, Map<String, Integer> orderMap) {
+    this.cassandraOperation = cassandraOperation;
+    this.orderMap = orderMap;
+  }
+
+  private static class LazyInitializer {
+    private static LocationTree INSTANCE =
+        new LocationTree(
+            ServiceFactory.getInstance(),
+            getOrderMap(
+                ProjectUtil.getConfigValue(GeoLocationJsonKey.SUNBIRD_VALID_LOCATION_TYPES)));
+  }
+
+  public static LocationTree getInstance() {
+    return LazyInitializer.INSTANCE;
+  }
+
+  /**
+   * Returns the interval in minutes in which the index is reloaded, which bounds how long changes
+   * made on other instances are not seen.
+   */
+  public static long getRefreshInterval() {
+    long hours = ConfigValueUtil.getLongValue(LOCATION_TREE_REFRESH_INTERVAL_HOURS, 0);
+    return ConfigValueUtil.getLongValue(
+        LOCATION_TREE_REFRESH_INTERVAL,
+        hours > 0 ? TimeUnit.HOURS.toMinutes(hours) : DEFAULT_REFRESH_INTERVAL);
+  }
+
+  /**
+   * Parses the configured location types, e.g. "state,district,block;cluster", into the level of
+   * each type in its hierarchy.
+   */
+  static Map<String, Integer> getOrderMap(String locationTypes) {
+    Map<String, Integer> orderMap = new HashMap<>();
+    if (StringUtils.isBlank(locationTypes)) {
+      return orderMap;
+    }
+    for (String str : locationTypes.split(";")) {
+      List<String> typeList =
+          Arrays.stream(str.split(",")).map(String::toLowerCase).collect(Collectors.toList());
+      for (int i = 0; i < typeList.size(); i++) {
+        orderMap.put(typeList.get(i), i);
+      }
+    }
+    return orderMap;
+  }
+
+  /** Returns true once the index was loaded. Until then every lookup is read by the caller. */
+  public boolean isLoaded() {
+    return loaded;
+  }
+
+  /**
+   * Returns the locations with the given codes. Codes missing from the index are read with the
+   * given reader.
+   *
+   * @param codes location codes
+   * @param reader reads the locations with the given codes
+   * @return locations found, unknown codes are left out
+   */
+  public List<Location> getLocationsByCodes(
+      Collection<String> codes, Function<List<String>, List<Location>> reader) {
+    Index current = index;
+    return getLocations(codes, code -> current.getById(current.idByCode.get(code)), reader);
+  }
+
+  /**
+   * Returns the locations with the given IDs. IDs missing from the index are read with the given
+   * reader.
+   *
+   * @param ids location IDs
+   * @param reader reads the locations with the given IDs
+   * @return locations found, unknown IDs are left out
+   */
+  public List<Location> getLocationsByIds(
+      Collection<String> ids, Function<List<String>, List<Location>> reader) {
+    Index current = index;
+    return getLocations(ids, current::getById, reader);
+  }
+
+  /**
+   * Returns the given location followed by its ancestors, up to the top of its hierarchy.
+   *
+   * @param locationObj requested location
+   * @param reader reads a location missing from the index by its ID
+   * @return location and its ancestors
+   */
+  public Set<Location> getParentLocations(Location locationObj, Function<String, Location> reader) {
+    Set<Location> locationSet = new LinkedHashSet<>();
+    Location location = locationObj;
+    int count = getOrder(location.getType());
+    locationSet.add(location);
+    while (count > 0) {
+      Location parent = null;
+      if (getOrder(location.getType()) == 0 && StringUtils.isNotEmpty(location.getId())) {
+        parent = getLocation(location.getId(), reader);
+      } else if (StringUtils.isNotEmpty(location.getParentId())) {
+        parent = getLocation(location.getParentId(), reader);
+      }
+      if (null != parent) {
+        locationSet.add(parent);
+        location = parent;
+      }
+      count--;
+    }
+    return locationSet;
+  }
+
+  public int getOrder(String type) {
+    return orderMap.get(type);
+  }
+
+  /**
+   * Validates that the hierarchies of the given locations do not contain two locations of the same
+   * type and returns the IDs of all locations in them.
+   *
+   * @param locationList requested locations
+   * @param parentLocations returns a location followed by its ancestors
+   * @return IDs of the requested locations and their ancestors
+   */
+  public static Set<String> getValidatedLocationSet(
+      List<Location> locationList, Function<Location, Set<Location>> parentLocations) {
+    Map<String, Location> locationByType = new HashMap<>();
+    for (Location requestedLocation : locationList) {
+      for (Location currentLocation : parentLocations.apply(requestedLocation)) {
+        String type = currentLocation.getType();
+        Location location = locationByType.putIfAbsent(type.toLowerCase(), currentLocation);
+        if (location != null && !currentLocation.getId().equals(location.getId())) {
+          throw new ProjectCommonException(
+              ResponseCode.conflictingOrgLocations.getErrorCode(),
+              ProjectUtil.formatMessage(
+                  ResponseCode.conflictingOrgLocations.getErrorMessage(),
+                  requestedLocation.getCode(),
+                  location.getCode(),
+                  type),
+              ResponseCode.CLIENT_ERROR.getResponseCode());
+        }
+      }
+    }
+    return locationByType.values().stream().map(Location::getId).collect(Collectors.toSet());
+  }
+
+  /**
+   * Adds or updates a location. Only the given fields are changed, as on a partial update.
+   *
+   * @param location location fields, including its ID
+   */
+  public synchronized void upsert(Map<String, Object> location) {
+    String id = (String) location.get(JsonKey.ID);
+    if (StringUtils.isNotBlank(id)) {
+      apply(current -> current.upsert(id, location));
+    }
+  }
+
+  /**
+   * Removes a location.
+   *
+   * @param locationId ID of the location
+   */
+  public synchronized void delete(String locationId) {
+    if (StringUtils.isNotBlank(locationId)) {
+      apply(current -> current.delete(locationId));
+    }
+  }
+
+  /** Loads all locations into a new index. Changes made meanwhile are replayed on it. */
+  @Override
+  public void run() {
+    long startTime = System.currentTimeMillis();
+    synchronized (this) {
+      journal = new ArrayList<>();
+    }
+    Index loadedIndex = new Index();
+    try {
+      Response response = cassandraOperation.getAllRecords(KEY_SPACE_NAME, LOCATION_TABLE_NAME);
+      @SuppressWarnings("unchecked")
+      List<Map<String, Object>> locations =
+          (List<Map<String, Object>>) response.get(JsonKey.RESPONSE);
+      if (CollectionUtils.isNotEmpty(locations)) {
+        locations.forEach(
+            location -> loadedIndex.upsert((String) location.get(JsonKey.ID), location));
+      }
+    } catch (Exception e) {
+      ProjectLogger.log("LocationTree:run: Exception in loading locations " + e.getMessage(), e);
+      synchronized (this) {
+        journal = null;
+      }
+      return;
+    }
+    synchronized (this) {
+      journal.forEach(change -> change.accept(loadedIndex));
+      journal = null;
+      index = loadedIndex;
+      loaded = true;
+    }
+    loads.incrementAndGet();
+    ProjectLogger.log(
+        "LocationTree:run: Loaded "
+            + loadedIndex.byId.size()
+            + " locations in "
+            + (System.currentTimeMillis() - startTime)
+            + " ms",
+        LoggerEnum.INFO.name());
+  }
+
+  public Map<String, Long> getMetrics() {
+    Map<String, Long> metrics = new HashMap<>();
+    metrics.put("locations", (long) index.byId.size());
+    metrics.put("loads", loads.get());
+    metrics.put("hits", hits.get());
+    metrics.put("reads", reads.get());
+    return metrics;
+  }
+
+  private void apply(Consumer<Index> change) {
+    change.accept(index);
+    if (journal != null) {
+      journal.add(change);
+    }
+  }
+
+  private List<Location> getLocations(
+      Collection<String> keys,
+      Function<String, Location> lookup,
+      Function<List<String>, List<Location>> reader) {
+    List<Location> locations = new ArrayList<>();
+    List<String> missingKeys = new ArrayList<>();
+    for (String key : new LinkedHashSet<>(keys)) {
+      Location location = loaded && key != null ? lookup.apply(key) : null;
+      if (location != null) {
+        locations.add(location);
+      } else {
+        missingKeys.add(key);
+      }
+    }
+    hits.addAndGet(locations.size());
+    if (!missingKeys.isEmpty()) {
+      reads.incrementAndGet();
+      List<Location> readLocations = reader.apply(missingKeys);
+      if (readLocations != null) {
+        locations.addAll(readLocations);
+      }
+    }
+    return locations;
+  }
+
+  private Location getLocation(String locationId, Function<String, Location> reader) {
+    Location location = loaded ? index.getById(locationId) : null;
+    if (location != null) {
+      hits.incrementAndGet();
+      return location;
+    }
+    reads.incrementAndGet();
+    return reader.apply(locationId);
+  }
+
+  private class Index {
+    private final Map<String, Location> byId = new ConcurrentHashMap<>();
+    private final Map<String, String> idByCode = new ConcurrentHashMap<>();
+
+    private Location getById(String id) {
+      return id == null ? null : byId.get(id);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void upsert(String id, Map<String, Object> fields) {
+      Location existing = byId.get(id);
+      Map<String, Object> merged =
+          existing == null ? new HashMap<>() : mapper.convertValue(existing, Map.class);
+      fields.forEach(
+          (key, value) -> {
+            if (value != null) {
+              merged.put(key, value);
+            }
+          });
+      Location location = mapper.convertValue(merged, Location.class);
+      if (existing != null && existing.getCode() != null) {
+        idByCode.remove(existing.getCode(), id);
+      }
+      byId.put(id, location);
+      if (location.getCode() != null) {
+        idByCode.put(location.getCode(), id);
+      }
+    }
+
+    private void delete(String id) {
+      Location existing = byId.remove(id);
+      if (existing != null && existing.getCode() != null) {
+        idByCode.remove(existing.getCode(), id);
+      }
+    }
+  }
+}
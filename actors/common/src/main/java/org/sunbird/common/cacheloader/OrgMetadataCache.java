@@ -0,0 +1,141 @@
+package org.sunbird.common.cacheloader;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.lang3.StringUtils;
+import org.sunbird.actorutil.org.OrganisationClient;
+import org.sunbird.actorutil.org.impl.OrganisationClientImpl;
+import org.sunbird.common.models.util.JsonKey;
+import org.sunbird.learner.util.ConfigValueUtil;
+import org.sunbird.models.organisation.Organisation;
+
+/**
+ * Local cache of organisation names used to enrich search results. Cached organisations are
+ * answered locally and all missing ones are read from ES with one request. Entries are refreshed
+ * when an organisation is created or updated on this instance and expire after a TTL, which bounds
+ * staleness for changes made elsewhere.
+ */
+public final class OrgMetadataCache {
+
+  public static final String ORG_METADATA_CACHE_TTL = "sunbird_org_metadata_cache_ttl_seconds";
+  public static final String ORG_METADATA_CACHE_MAX_ENTRIES =
+      "sunbird_org_metadata_cache_max_entries";
+
+  private static final List<String> FIELDS = Arrays.asList(JsonKey.ID, JsonKey.ORG_NAME);
+
+  private final OrganisationClient orgClient;
+  private final Cache<String, Organisation> cache =
+      CacheBuilder.newBuilder()
+          .maximumSize(ConfigValueUtil.getLongValue(ORG_METADATA_CACHE_MAX_ENTRIES, 10000))
+          .expireAfterWrite(
+              ConfigValueUtil.getLongValue(ORG_METADATA_CACHE_TTL, 300), TimeUnit.SECONDS)
+          .build();
+
+  private final AtomicLong changes = new AtomicLong();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong lookups = new AtomicLong();
+
+  OrgMetadataCache(OrganisationClient orgClient) {
+    this.orgClient = orgClient;
+  }
+
+  private static class LazyInitializer {
+    private static OrgMetadataCache INSTANCE = new OrgMetadataCache(new OrganisationClientImpl());
+  }
+
+  public static OrgMetadataCache getInstance() {
+    return LazyInitializer.INSTANCE;
+  }
+
+  /**
+   * Returns ID and name of the given organisations.
+   *
+   * @param orgIds IDs of the organisations
+   * @return organisations found by their ID, unknown organisations are left out
+   */
+  public Map<String, Organisation> getAll(Collection<String> orgIds) {
+    Map<String, Organisation> orgs = new HashMap<>();
+    Set<String> missingIds = new LinkedHashSet<>();
+    for (String orgId : orgIds) {
+      if (StringUtils.isBlank(orgId) || orgs.containsKey(orgId)) {
+        continue;
+      }
+      Organisation org = cache.getIfPresent(orgId);
+      if (org != null) {
+        orgs.put(orgId, org);
+      } else {
+        missingIds.add(orgId);
+      }
+    }
+    hits.addAndGet(orgs.size());
+    if (missingIds.isEmpty()) {
+      return orgs;
+    }
+    misses.addAndGet(missingIds.size());
+    lookups.incrementAndGet();
+    long version = changes.get();
+    List<Organisation> loaded = orgClient.esSearchOrgByIds(new ArrayList<>(missingIds), FIELDS);
+    // Organisations changed while they were read are returned but not cached.
+    boolean unchanged = version == changes.get();
+    for (Organisation org : loaded) {
+      orgs.put(org.getId(), org);
+      if (unchanged) {
+        cache.put(org.getId(), org);
+      }
+    }
+    return orgs;
+  }
+
+  /**
+   * Updates the cached name of an organisation after it was created or updated.
+   *
+   * @param orgId ID of the organisation
+   * @param orgName new name, or null if the name was not changed
+   */
+  public void refresh(String orgId, String orgName) {
+    if (StringUtils.isBlank(orgId) || StringUtils.isBlank(orgName)) {
+      return;
+    }
+    changes.incrementAndGet();
+    Organisation org = new Organisation();
+    org.setId(orgId);
+    org.setOrgName(orgName);
+    cache.put(orgId, org);
+  }
+
+  /**
+   * Drops the cached organisation.
+   *
+   * @param orgId ID of the organisation
+   */
+  public void invalidate(String orgId) {
+    if (StringUtils.isNotBlank(orgId)) {
+      changes.incrementAndGet();
+      cache.invalidate(orgId);
+    }
+  }
+
+  /** @return hits, misses, hit ratio and number of ES lookups */
+  public Map<String, Object> getMetrics() {
+    long hitCount = hits.get();
+    long total = hitCount + misses.get();
+    Map<String, Object> metrics = new HashMap<>();
+    metrics.put("hits", hitCount);
+    metrics.put("misses", misses.get());
+    metrics.put("hitRatio", total == 0 ? 0 : (double) hitCount / total);
+    metrics.put("lookups", lookups.get());
+    metrics.put("entries", cache.size());
+    return metrics;
+  }
+}
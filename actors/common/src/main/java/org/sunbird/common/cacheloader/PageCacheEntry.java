@@ -0,0 +1,34 @@
+package org.sunbird.common.cacheloader;
+
+import java.io.Serializable;
+
+/** Assembled page response as stored in the shared cache, with the time it was stored. */
+public class PageCacheEntry implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+  private String response;
+  private long cachedOn;
+
+  public PageCacheEntry() {}
+
+  public PageCacheEntry(String response, long cachedOn) {
+    this.response = response;
+    this.cachedOn = cachedOn;
+  }
+
+  public String getResponse() {
+    return response;
+  }
+
+  public void setResponse(String response) {
+    this.response = response;
+  }
+
+  public long getCachedOn() {
+    return cachedOn;
+  }
+
+  public void setCachedOn(long cachedOn) {
+    this.cachedOn = cachedOn;
+  }
+}
@@ -24,6 +24,7 @@ public class PageCacheLoaderService implements Runnable {
 //      Boolean.parseBoolean(ProjectUtil.getConfigValue(JsonKey.SUNBIRD_CACHE_ENABLE));
 
   private static Cache cache = CacheFactory.getInstance();
+  private long rowsScanned;
 
   @SuppressWarnings("unchecked")
   public Map<String, Map<String, Object>> cacheLoader(String tableName) {
@@ -33,6 +34,7 @@ public class PageCacheLoaderService implements Runnable {
       List<Map<String, Object>> responseList =
           (List<Map<String, Object>>) response.get(JsonKey.RESPONSE);
       if (CollectionUtils.isNotEmpty(responseList)) {
+        rowsScanned += responseList.size();
         if (tableName.equalsIgnoreCase(JsonKey.PAGE_SECTION)) {
           loadPageSectionInCache(responseList, map);
         } else if (tableName.equalsIgnoreCase(JsonKey.PAGE_MANAGEMENT)) {
@@ -68,6 +70,11 @@ public class PageCacheLoaderService implements Runnable {
     }
   }
 
+  /** @return number of rows read from Cassandra by this loader */
+  public long getRowsScanned() {
+    return rowsScanned;
+  }
+
   @Override
   public void run() {
     if (isCacheEnabled) {
@@ -127,9 +134,13 @@ public class PageCacheLoaderService implements Runnable {
       cache.put(mapName, key, obj);
       return true;
     } else {
-      Map<String, Map<String, Object>> map = getDCMap(mapName);
-      if (map != null) {
-        map.put(key, (Map<String, Object>) obj);
+      switch (mapName) {
+        case "getPageData":
+          DataCacheHandler.updatePageMap(key, (Map<String, Object>) obj);
+          break;
+        case "getSection":
+          DataCacheHandler.updateSectionMap(key, (Map<String, Object>) obj);
+          break;
       }
     }
     return false;
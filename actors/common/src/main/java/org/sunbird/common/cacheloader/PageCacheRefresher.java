@@ -0,0 +1,223 @@
+package org.sunbird.common.cacheloader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.collections.CollectionUtils;
+import org.sunbird.cassandra.CassandraOperation;
+import org.sunbird.common.models.response.Response;
+import org.sunbird.common.models.util.ActorOperations;
+import org.sunbird.common.models.util.JsonKey;
+import org.sunbird.common.models.util.LoggerEnum;
+import org.sunbird.common.models.util.ProjectLogger;
+import org.sunbird.common.models.util.ProjectUtil;
+import org.sunbird.helper.ServiceFactory;
+import org.sunbird.learner.util.ConfigValueUtil;
+import org.sunbird.learner.util.DataCacheHandler;
+import org.sunbird.learner.util.Util;
+
+/**
+ * Incremental refresh of the page and section caches. Page and section writes publish the id of
+ * the changed row, and every run reloads only those rows. A full reload of both tables is still
+ * done once per reconciliation interval, to pick up changes this node has not seen (e.g. writes
+ * handled by another node or done directly on the database).
+ */
+public class PageCacheRefresher implements Runnable {
+
+  public static final String PAGE_CACHE_REFRESH_MODE = "sunbird_page_cache_refresh_mode";
+  public static final String PAGE_CACHE_REFRESH_INTERVAL =
+      "sunbird_page_cache_incremental_refresh_interval_seconds";
+  public static final String PAGE_CACHE_RECONCILIATION_INTERVAL =
+      "sunbird_page_cache_reconciliation_interval_hours";
+  private static final String INCREMENTAL = "incremental";
+  /** Same as the interval of the full page cache refresh done without change events. */
+  private static final long DEFAULT_RECONCILIATION_INTERVAL = 4;
+
+  private static final Set<String> changedPageIds = ConcurrentHashMap.newKeySet();
+  private static final Set<String> changedSectionIds = ConcurrentHashMap.newKeySet();
+  private static final AtomicLong lastRowsScanned = new AtomicLong();
+  private static final AtomicLong totalRowsScanned = new AtomicLong();
+  private static final AtomicLong refreshCount = new AtomicLong();
+  private static volatile long lastReconciliationTime = 0;
+
+  private final CassandraOperation cassandraOperation;
+  private final Util.DbInfo pageDbInfo;
+  private final Util.DbInfo sectionDbInfo;
+
+  public PageCacheRefresher() {
+    this(
+        ServiceFactory.getInstance(),
+        Util.dbInfoMap.get(JsonKey.PAGE_MGMT_DB),
+        Util.dbInfoMap.get(JsonKey.SECTION_MGMT_DB));
+  }
+
+  PageCacheRefresher(
+      CassandraOperation cassandraOperation, Util.DbInfo pageDbInfo, Util.DbInfo sectionDbInfo) {
+    this.cassandraOperation = cassandraOperation;
+    this.pageDbInfo = pageDbInfo;
+    this.sectionDbInfo = sectionDbInfo;
+  }
+
+  /** @return true if page and section caches should be refreshed from change events */
+  public static boolean isIncrementalRefreshEnabled() {
+    return INCREMENTAL.equalsIgnoreCase(ProjectUtil.getConfigValue(PAGE_CACHE_REFRESH_MODE));
+  }
+
+  /** @return delay in seconds between two incremental refresh runs */
+  public static long getRefreshInterval() {
+    return ConfigValueUtil.getLongValue(PAGE_CACHE_REFRESH_INTERVAL, 60);
+  }
+
+  /**
+   * Records that a page row has been created or updated.
+   *
+   * @param pageId page id
+   */
+  public static void publishPageChange(String pageId) {
+    if (pageId != null) {
+      changedPageIds.add(pageId);
+    }
+  }
+
+  /**
+   * Records that a page section row has been created or updated.
+   *
+   * @param sectionId section id
+   */
+  public static void publishSectionChange(String sectionId) {
+    if (sectionId != null) {
+      changedSectionIds.add(sectionId);
+    }
+  }
+
+  /** @return rows read from Cassandra by the last run */
+  public static long getLastRowsScanned() {
+    return lastRowsScanned.get();
+  }
+
+  /** @return rows read from Cassandra by all runs since startup */
+  public static long getTotalRowsScanned() {
+    return totalRowsScanned.get();
+  }
+
+  /** @return number of runs since startup */
+  public static long getRefreshCount() {
+    return refreshCount.get();
+  }
+
+  @Override
+  public void run() {
+    long startTime = System.currentTimeMillis();
+    long rowsScanned;
+    String mode;
+    try {
+      if (isReconciliationDue(startTime, lastReconciliationTime, getReconciliationInterval())) {
+        mode = "full";
+        rowsScanned = reconcile();
+        lastReconciliationTime = startTime;
+      } else {
+        mode = INCREMENTAL;
+        rowsScanned = refreshChanges();
+      }
+    } catch (Exception e) {
+      ProjectLogger.log("PageCacheRefresher:run: Exception occurred = " + e.getMessage(), e);
+      return;
+    }
+    if (rowsScanned > 0) {
+      PageResponseCache.getInstance().invalidateAll();
+    }
+    lastRowsScanned.set(rowsScanned);
+    totalRowsScanned.addAndGet(rowsScanned);
+    refreshCount.incrementAndGet();
+    ProjectLogger.log(
+        "PageCacheRefresher:run: mode = "
+            + mode
+            + " rows scanned = "
+            + rowsScanned
+            + " total rows scanned = "
+            + totalRowsScanned.get()
+            + " time taken = "
+            + (System.currentTimeMillis() - startTime),
+        LoggerEnum.INFO.name());
+  }
+
+  /** @return interval in milliseconds between two full reloads of the page tables */
+  static long getReconciliationInterval() {
+    return TimeUnit.HOURS.toMillis(
+        ConfigValueUtil.getLongValue(
+            PAGE_CACHE_RECONCILIATION_INTERVAL, DEFAULT_RECONCILIATION_INTERVAL));
+  }
+
+  /**
+   * @param now current time
+   * @param lastReconciliation time of the last full reload, 0 if there was none yet
+   * @param interval interval between two full reloads
+   * @return true if the next run has to reload the page tables fully
+   */
+  static boolean isReconciliationDue(long now, long lastReconciliation, long interval) {
+    return lastReconciliation == 0 || now - lastReconciliation >= interval;
+  }
+
+  /**
+   * Reloads the pages and sections published as changed since the last run.
+   *
+   * @return rows read from Cassandra
+   */
+  long refreshChanges() {
+    return refreshChanged(changedPageIds, pageDbInfo, ActorOperations.GET_PAGE_DATA.getValue())
+        + refreshChanged(changedSectionIds, sectionDbInfo, ActorOperations.GET_SECTION.getValue());
+  }
+
+  private long reconcile() {
+    // events published while the tables are being read are kept for the next incremental run
+    changedPageIds.clear();
+    changedSectionIds.clear();
+    DataCacheHandler pageTables = new DataCacheHandler(DataCacheHandler.PAGE_TABLES);
+    pageTables.run();
+    PageCacheLoaderService loaderService = new PageCacheLoaderService();
+    loaderService.run();
+    return pageTables.getRowsScanned() + loaderService.getRowsScanned();
+  }
+
+  @SuppressWarnings("unchecked")
+  private long refreshChanged(Set<String> changedIds, Util.DbInfo dbInfo, String mapName) {
+    long rowsScanned = 0;
+    List<String> ids = new ArrayList<>(changedIds);
+    for (String id : ids) {
+      changedIds.remove(id);
+      try {
+        Response response =
+            cassandraOperation.getRecordById(dbInfo.getKeySpace(), dbInfo.getTableName(), id);
+        List<Map<String, Object>> result =
+            (List<Map<String, Object>>) response.get(JsonKey.RESPONSE);
+        if (CollectionUtils.isEmpty(result)) {
+          continue;
+        }
+        rowsScanned += result.size();
+        Map<String, Object> row = result.get(0);
+        PageCacheLoaderService.putDataIntoCache(mapName, getCacheKey(row, mapName), row);
+      } catch (Exception e) {
+        ProjectLogger.log(
+            "PageCacheRefresher:refreshChanged: Failed to reload " + mapName + " for id = " + id,
+            e);
+        changedIds.add(id);
+      }
+    }
+    return rowsScanned;
+  }
+
+  private String getCacheKey(Map<String, Object> row, String mapName) {
+    if (ActorOperations.GET_SECTION.getValue().equals(mapName)) {
+      return (String) row.get(JsonKey.ID);
+    }
+    String orgId = (String) row.get(JsonKey.ORGANISATION_ID);
+    if (orgId == null) {
+      orgId = "NA";
+    }
+    return orgId + ":" + row.get(JsonKey.PAGE_NAME);
+  }
+}
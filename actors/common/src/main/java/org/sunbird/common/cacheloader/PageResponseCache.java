@@ -0,0 +1,352 @@
+package org.sunbird.common.cacheloader;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.actor.UntypedAbstractActor;
+import akka.dispatch.Futures;
+import akka.dispatch.Mapper;
+import akka.dispatch.OnComplete;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.CacheBuilder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import org.sunbird.cache.CacheFactory;
+import org.sunbird.cache.interfaces.Cache;
+import org.sunbird.common.models.response.Response;
+import org.sunbird.common.models.util.JsonKey;
+import org.sunbird.common.models.util.LoggerEnum;
+import org.sunbird.common.models.util.ProjectLogger;
+import org.sunbird.common.models.util.ProjectUtil;
+import org.sunbird.learner.util.ConfigValueUtil;
+import scala.concurrent.ExecutionContextExecutor;
+import scala.concurrent.Future;
+import scala.concurrent.Promise;
+
+/**
+ * Two tier cache for assembled page responses. L1 is a local cache bounded by the serialised size
+ * of the responses and expired after a TTL, L2 is the shared {@link Cache}. Concurrent requests
+ * for the same key wait on a single assembly. Every caller gets its own copy of the response.
+ *
+ * <p>{@link #invalidateAll(ActorSystem)} clears L2 and publishes a {@link
+ * PageResponseInvalidation} on the actor system event stream, on which every subscribed cache
+ * drops its L1. A node which does not receive the message serves its L1 entries until they expire,
+ * so a page change is visible on all nodes at the latest after the TTL.
+ */
+public final class PageResponseCache {
+
+  public static final String PAGE_RESPONSE_CACHE_ENABLED = "sunbird_page_response_cache_enabled";
+  public static final String PAGE_RESPONSE_CACHE_TTL = "sunbird_page_response_cache_ttl_seconds";
+  public static final String PAGE_RESPONSE_CACHE_MAX_BYTES =
+      "sunbird_page_response_cache_max_bytes";
+
+  private final boolean enabled =
+      ConfigValueUtil.getBooleanValue(PAGE_RESPONSE_CACHE_ENABLED, true);
+  private final boolean sharedCacheEnabled;
+  private final long ttl =
+      TimeUnit.SECONDS.toMillis(ConfigValueUtil.getLongValue(PAGE_RESPONSE_CACHE_TTL, 300));
+  private final com.google.common.cache.Cache<String, byte[]> localCache =
+      CacheBuilder.newBuilder()
+          .maximumWeight(ConfigValueUtil.getLongValue(PAGE_RESPONSE_CACHE_MAX_BYTES, 50000000L))
+          .weigher((String key, byte[] value) -> value.length)
+          .expireAfterWrite(ttl, TimeUnit.MILLISECONDS)
+          .build();
+  private final ConcurrentMap<String, Future<byte[]>> inFlight = new ConcurrentHashMap<>();
+  private final AtomicLong generation = new AtomicLong();
+  private final String cacheId = UUID.randomUUID().toString();
+  private final Set<ActorSystem> subscribedSystems =
+      Collections.newSetFromMap(new WeakHashMap<>());
+  private final ObjectMapper mapper =
+      new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+  private final Cache sharedCache;
+
+  private final AtomicLong lookups = new AtomicLong();
+  private final AtomicLong l1Hits = new AtomicLong();
+  private final AtomicLong l2Lookups = new AtomicLong();
+  private final AtomicLong l2Hits = new AtomicLong();
+  private final AtomicLong coalesced = new AtomicLong();
+  private final AtomicLong assemblies = new AtomicLong();
+  private final AtomicLong assemblyTime = new AtomicLong();
+  private final AtomicLong maxAssemblyTime = new AtomicLong();
+
+  /** @param sharedCache L2 cache, null if it is disabled */
+  PageResponseCache(Cache sharedCache) {
+    this.sharedCache = sharedCache;
+    this.sharedCacheEnabled = sharedCache != null;
+  }
+
+  private static class LazyInitializer {
+    private static PageResponseCache INSTANCE =
+        new PageResponseCache(
+            Boolean.parseBoolean(ProjectUtil.getConfigValue(JsonKey.SUNBIRD_CACHE_ENABLE))
+                ? CacheFactory.getInstance()
+                : null);
+  }
+
+  public static PageResponseCache getInstance() {
+    return LazyInitializer.INSTANCE;
+  }
+
+  /** @return true if page responses should be looked up in this cache */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Returns the cached response for the key, or assembles it. Only one assembly runs per key at a
+   * time, callers arriving while it runs wait for its result.
+   *
+   * @param key hash of the normalised page request
+   * @param assembler starts the assembly of the page
+   * @param cacheable decides if an assembled response is complete enough to be cached
+   * @param ec execution context for the callbacks
+   * @return future of a response instance owned by the caller
+   */
+  public Future<Response> getOrAssemble(
+      String key,
+      Callable<Future<Response>> assembler,
+      Predicate<Response> cacheable,
+      ExecutionContextExecutor ec) {
+    lookups.incrementAndGet();
+    byte[] cached = localCache.getIfPresent(key);
+    if (cached != null) {
+      l1Hits.incrementAndGet();
+      return toResponse(Futures.successful(cached), ec);
+    }
+    cached = getFromSharedCache(key);
+    if (cached != null) {
+      l2Hits.incrementAndGet();
+      localCache.put(key, cached);
+      return toResponse(Futures.successful(cached), ec);
+    }
+    Promise<byte[]> promise = Futures.promise();
+    Future<byte[]> running = inFlight.putIfAbsent(key, promise.future());
+    if (running != null) {
+      coalesced.incrementAndGet();
+      return toResponse(running, ec);
+    }
+    assemble(key, assembler, cacheable, promise, ec);
+    return toResponse(promise.future(), ec);
+  }
+
+  private void assemble(
+      String key,
+      Callable<Future<Response>> assembler,
+      Predicate<Response> cacheable,
+      Promise<byte[]> promise,
+      ExecutionContextExecutor ec) {
+    long startTime = System.currentTimeMillis();
+    long startGeneration = generation.get();
+    Future<byte[]> running = promise.future();
+    Future<Response> assembled;
+    try {
+      assembled = assembler.call();
+    } catch (Exception e) {
+      assembled = Futures.failed(e);
+    }
+    assembled.onComplete(
+        new OnComplete<Response>() {
+          @Override
+          public void onComplete(Throwable failure, Response response) {
+            // the key is released before the promise is completed, so that a request arriving
+            // after completion never joins this assembly; only this assembly's own entry is
+            // removed, a newer one started after invalidateAll is kept
+            if (failure != null) {
+              inFlight.remove(key, running);
+              promise.failure(failure);
+              return;
+            }
+            try {
+              byte[] bytes = mapper.writeValueAsBytes(response);
+              if (cacheable.test(response)) {
+                cache(key, bytes, startGeneration);
+              }
+              inFlight.remove(key, running);
+              promise.success(bytes);
+              recordAssembly(System.currentTimeMillis() - startTime);
+            } catch (Exception e) {
+              inFlight.remove(key, running);
+              promise.tryFailure(e);
+            }
+          }
+        },
+        ec);
+  }
+
+  private void cache(String key, byte[] bytes, long startGeneration) {
+    if (startGeneration != generation.get()) {
+      return;
+    }
+    localCache.put(key, bytes);
+    if (startGeneration != generation.get()) {
+      // invalidated between the check and the put
+      localCache.invalidate(key);
+      return;
+    }
+    putIntoSharedCache(key, bytes);
+  }
+
+  private Future<Response> toResponse(Future<byte[]> bytes, ExecutionContextExecutor ec) {
+    return bytes.map(
+        new Mapper<byte[], Response>() {
+          @Override
+          public Response checkedApply(byte[] value) throws Exception {
+            return mapper.readValue(value, Response.class);
+          }
+        },
+        ec);
+  }
+
+  private byte[] getFromSharedCache(String key) {
+    if (!sharedCacheEnabled) {
+      return null;
+    }
+    l2Lookups.incrementAndGet();
+    try {
+      PageCacheEntry entry =
+          (PageCacheEntry) sharedCache.get(JsonKey.PAGE_ASSEMBLE, key, PageCacheEntry.class);
+      if (entry != null && System.currentTimeMillis() - entry.getCachedOn() < ttl) {
+        return entry.getResponse().getBytes(StandardCharsets.UTF_8);
+      }
+    } catch (Exception e) {
+      ProjectLogger.log(
+          "PageResponseCache:getFromSharedCache: Error occurred = " + e.getMessage(),
+          LoggerEnum.ERROR.name());
+    }
+    return null;
+  }
+
+  private void putIntoSharedCache(String key, byte[] bytes) {
+    if (!sharedCacheEnabled) {
+      return;
+    }
+    try {
+      sharedCache.put(
+          JsonKey.PAGE_ASSEMBLE,
+          key,
+          new PageCacheEntry(new String(bytes, StandardCharsets.UTF_8), System.currentTimeMillis()));
+    } catch (Exception e) {
+      ProjectLogger.log(
+          "PageResponseCache:putIntoSharedCache: Error occurred = " + e.getMessage(),
+          LoggerEnum.ERROR.name());
+    }
+  }
+
+  private void recordAssembly(long timeTaken) {
+    assemblies.incrementAndGet();
+    assemblyTime.addAndGet(timeTaken);
+    maxAssemblyTime.accumulateAndGet(timeTaken, Math::max);
+    ProjectLogger.log(
+        "PageResponseCache:recordAssembly: Page assembled in " + timeTaken + " ms, " + getMetrics(),
+        LoggerEnum.INFO.name());
+  }
+
+  /**
+   * Drops every cached page response on this node and in the shared cache, and publishes the
+   * invalidation to the other nodes.
+   *
+   * @param system actor system on whose event stream the invalidation is published
+   */
+  public void invalidateAll(ActorSystem system) {
+    invalidateAll();
+    system.eventStream().publish(new PageResponseInvalidation(cacheId));
+  }
+
+  /**
+   * Drops every cached page response, on this node and in the shared cache. Assemblies that are
+   * running while this is called are not cached, and requests arriving afterwards start a new
+   * assembly instead of waiting for one of them.
+   */
+  public void invalidateAll() {
+    invalidateLocal();
+    if (sharedCacheEnabled) {
+      try {
+        sharedCache.clear(JsonKey.PAGE_ASSEMBLE);
+      } catch (Exception e) {
+        ProjectLogger.log(
+            "PageResponseCache:invalidateAll: Error occurred = " + e.getMessage(),
+            LoggerEnum.ERROR.name());
+      }
+    }
+  }
+
+  /**
+   * Drops the page responses of this node after an invalidation published by another node, which
+   * has already cleared the shared cache.
+   *
+   * @param invalidation published invalidation
+   * @return true if the invalidation was applied
+   */
+  public boolean apply(PageResponseInvalidation invalidation) {
+    if (cacheId.equals(invalidation.getOrigin())) {
+      return false;
+    }
+    invalidateLocal();
+    return true;
+  }
+
+  /**
+   * Subscribes this cache to the invalidations published on the event stream of the given actor
+   * system. Subscribing again to the same system has no effect.
+   */
+  public synchronized void subscribe(ActorSystem system) {
+    if (subscribedSystems.add(system)) {
+      ActorRef listener = system.actorOf(Props.create(Listener.class, this));
+      system.eventStream().subscribe(listener, PageResponseInvalidation.class);
+    }
+  }
+
+  private void invalidateLocal() {
+    generation.incrementAndGet();
+    inFlight.clear();
+    localCache.invalidateAll();
+  }
+
+  /** @return hit ratio of both tiers, coalesced requests and assembly latency */
+  public Map<String, Object> getMetrics() {
+    Map<String, Object> metrics = new HashMap<>();
+    metrics.put("lookups", lookups.get());
+    metrics.put("l1HitRatio", ratio(l1Hits.get(), lookups.get()));
+    metrics.put("l2HitRatio", ratio(l2Hits.get(), l2Lookups.get()));
+    metrics.put("l1Entries", localCache.size());
+    metrics.put("coalesced", coalesced.get());
+    metrics.put("assemblies", assemblies.get());
+    metrics.put("avgAssemblyTime", ratio(assemblyTime.get(), assemblies.get()));
+    metrics.put("maxAssemblyTime", maxAssemblyTime.get());
+    return metrics;
+  }
+
+  private static double ratio(long value, long total) {
+    return total == 0 ? 0 : (double) value / total;
+  }
+
+  /** Applies the invalidations published on the event stream of an actor system. */
+  static class Listener extends UntypedAbstractActor {
+    private final PageResponseCache cache;
+
+    public Listener(PageResponseCache cache) {
+      this.cache = cache;
+    }
+
+    @Override
+    public void onReceive(Object message) {
+      if (message instanceof PageResponseInvalidation) {
+        cache.apply((PageResponseInvalidation) message);
+      } else {
+        unhandled(message);
+      }
+    }
+  }
+}
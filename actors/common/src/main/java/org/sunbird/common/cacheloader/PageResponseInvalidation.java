@@ -0,0 +1,19 @@
+package org.sunbird.common.cacheloader;
+
+import java.io.Serializable;
+
+/** Invalidation message published after a page or section was written on one node. */
+public class PageResponseInvalidation implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+  private final String origin;
+
+  public PageResponseInvalidation(String origin) {
+    this.origin = origin;
+  }
+
+  /** Returns the ID of the cache which was invalidated first. */
+  public String getOrigin() {
+    return origin;
+  }
+}
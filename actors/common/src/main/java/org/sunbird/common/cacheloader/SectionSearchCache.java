@@ -0,0 +1,190 @@
+package org.sunbird.common.cacheloader;
+
+import akka.dispatch.Futures;
+import akka.dispatch.Mapper;
+import akka.dispatch.OnComplete;
+import com.google.common.cache.CacheBuilder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.collections4.MapUtils;
+import org.sunbird.common.models.util.LoggerEnum;
+import org.sunbird.common.models.util.ProjectLogger;
+import org.sunbird.learner.util.ConfigValueUtil;
+import scala.concurrent.ExecutionContextExecutor;
+import scala.concurrent.Future;
+import scala.concurrent.Promise;
+
+/**
+ * Local cache of content search results for page sections, with stale-while-revalidate. A fresh
+ * entry is returned as is. A stale entry is returned immediately while one background search
+ * refreshes it. Identical searches that miss the cache at the same time share one request.
+ */
+public final class SectionSearchCache {
+
+  public static final String SECTION_SEARCH_CACHE_ENABLED =
+      "sunbird_section_search_cache_enabled";
+  public static final String SECTION_SEARCH_CACHE_TTL = "sunbird_section_search_cache_ttl_seconds";
+  public static final String SECTION_SEARCH_CACHE_STALE_TTL =
+      "sunbird_section_search_cache_stale_seconds";
+  public static final String SECTION_SEARCH_CACHE_MAX_ENTRIES =
+      "sunbird_section_search_cache_max_entries";
+
+  /** Key in a section searchQuery to override the cache TTL (in seconds) of that section. */
+  public static final String SECTION_CACHE_TTL = "cacheTtl";
+
+  private final boolean enabled =
+      ConfigValueUtil.getBooleanValue(SECTION_SEARCH_CACHE_ENABLED, true);
+  private final long defaultTtl =
+      TimeUnit.SECONDS.toMillis(ConfigValueUtil.getLongValue(SECTION_SEARCH_CACHE_TTL, 120));
+  private final long staleTtl =
+      TimeUnit.SECONDS.toMillis(ConfigValueUtil.getLongValue(SECTION_SEARCH_CACHE_STALE_TTL, 60));
+  private final com.google.common.cache.Cache<String, CachedResult> cache =
+      CacheBuilder.newBuilder()
+          .maximumSize(ConfigValueUtil.getLongValue(SECTION_SEARCH_CACHE_MAX_ENTRIES, 10000))
+          .build();
+  private final ConcurrentMap<String, Future<Map<String, Object>>> inFlight =
+      new ConcurrentHashMap<>();
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong staleHits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong coalesced = new AtomicLong();
+  private final AtomicLong searches = new AtomicLong();
+
+  private SectionSearchCache() {}
+
+  private static class LazyInitializer {
+    private static SectionSearchCache INSTANCE = new SectionSearchCache();
+  }
+
+  public static SectionSearchCache getInstance() {
+    return LazyInitializer.INSTANCE;
+  }
+
+  /** @return true if section search results should be looked up in this cache */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Returns the search result for the key from cache, or runs the search.
+   *
+   * @param key hash of the normalised search request
+   * @param ttlOverride section specific TTL in seconds, null to use the default TTL
+   * @param search starts the content search
+   * @param ec execution context for the callbacks
+   * @return future of a result map owned by the caller
+   */
+  public Future<Map<String, Object>> get(
+      String key,
+      Object ttlOverride,
+      Callable<Future<Map<String, Object>>> search,
+      ExecutionContextExecutor ec) {
+    long ttl = getTtl(ttlOverride);
+    long now = System.currentTimeMillis();
+    CachedResult cached = cache.getIfPresent(key);
+    if (cached != null && now < cached.cachedOn + ttl) {
+      hits.incrementAndGet();
+      return Futures.<Map<String, Object>>successful(new HashMap<>(cached.result));
+    }
+    if (cached != null && now < cached.cachedOn + ttl + staleTtl) {
+      staleHits.incrementAndGet();
+      fetch(key, search, ec);
+      return Futures.<Map<String, Object>>successful(new HashMap<>(cached.result));
+    }
+    misses.incrementAndGet();
+    return fetch(key, search, ec)
+        .map(
+            new Mapper<Map<String, Object>, Map<String, Object>>() {
+              @Override
+              public Map<String, Object> apply(Map<String, Object> result) {
+                return result == null ? null : new HashMap<>(result);
+              }
+            },
+            ec);
+  }
+
+  private Future<Map<String, Object>> fetch(
+      String key, Callable<Future<Map<String, Object>>> search, ExecutionContextExecutor ec) {
+    Promise<Map<String, Object>> promise = Futures.promise();
+    Future<Map<String, Object>> running = inFlight.putIfAbsent(key, promise.future());
+    if (running != null) {
+      coalesced.incrementAndGet();
+      return running;
+    }
+    searches.incrementAndGet();
+    Future<Map<String, Object>> searched;
+    try {
+      searched = search.call();
+    } catch (Exception e) {
+      searched = Futures.failed(e);
+    }
+    searched.onComplete(
+        new OnComplete<Map<String, Object>>() {
+          @Override
+          public void onComplete(Throwable failure, Map<String, Object> result) {
+            // the key is released before the promise is completed, so that a request arriving
+            // after completion never joins this search and gets its result handed out again
+            // instead of starting a new search
+            if (failure != null) {
+              ProjectLogger.log(
+                  "SectionSearchCache:fetch: Search failed = " + failure.getMessage(),
+                  LoggerEnum.ERROR.name());
+              inFlight.remove(key);
+              promise.failure(failure);
+              return;
+            }
+            if (MapUtils.isNotEmpty(result)) {
+              cache.put(key, new CachedResult(result, System.currentTimeMillis()));
+            }
+            inFlight.remove(key);
+            promise.success(result);
+          }
+        },
+        ec);
+    return promise.future();
+  }
+
+  private long getTtl(Object ttlOverride) {
+    if (ttlOverride instanceof Number) {
+      return TimeUnit.SECONDS.toMillis(((Number) ttlOverride).longValue());
+    }
+    if (ttlOverride instanceof String) {
+      try {
+        return TimeUnit.SECONDS.toMillis(Long.parseLong(((String) ttlOverride).trim()));
+      } catch (NumberFormatException e) {
+        ProjectLogger.log(
+            "SectionSearchCache:getTtl: Invalid section cache TTL " + ttlOverride,
+            LoggerEnum.INFO.name());
+      }
+    }
+    return defaultTtl;
+  }
+
+  /** @return fresh, stale and missed lookups and number of searches made */
+  public Map<String, Object> getMetrics() {
+    Map<String, Object> metrics = new HashMap<>();
+    metrics.put("hits", hits.get());
+    metrics.put("staleHits", staleHits.get());
+    metrics.put("misses", misses.get());
+    metrics.put("coalesced", coalesced.get());
+    metrics.put("searches", searches.get());
+    metrics.put("entries", cache.size());
+    return metrics;
+  }
+
+  private static class CachedResult {
+    private final Map<String, Object> result;
+    private final long cachedOn;
+
+    private CachedResult(Map<String, Object> result, long cachedOn) {
+      this.result = result;
+      this.cachedOn = cachedOn;
+    }
+  }
+}
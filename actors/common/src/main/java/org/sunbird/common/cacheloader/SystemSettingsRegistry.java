@@ -0,0 +1,341 @@
+package org.sunbird.common.cacheloader;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.actor.UntypedAbstractActor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.lang3.StringUtils;
+import org.sunbird.cassandra.CassandraOperation;
+import org.sunbird.common.models.response.Response;
+import org.sunbird.common.models.util.JsonKey;
+import org.sunbird.common.models.util.LoggerEnum;
+import org.sunbird.common.models.util.ProjectLogger;
+import org.sunbird.helper.ServiceFactory;
+import org.sunbird.learner.util.ConfigValueUtil;
+import org.sunbird.learner.util.DataCacheHandler;
+import org.sunbird.models.systemsetting.SystemSetting;
+import org.sunbird.models.systemsetting.SystemSettingChange;
+
+/**
+ * Memory resident copy of the system settings table, used by the system settings actor and kept
+ * in sync with {@link DataCacheHandler#getConfigSettings()}. Settings are held in an immutable map
+ * which is replaced on every change, so reads never block.
+ *
+ * <p>Every write gets a version, taken from the clock and increasing on each registry, and is
+ * published as a {@link SystemSettingChange} on the actor system event stream. Registries apply
+ * a change only if it is newer than the version they hold for the setting, so late or repeated
+ * messages are ignored. Nodes which do not receive the message pick the change up on the next
+ * reload by {@link #run()}, scheduled every {@link #getRefreshInterval()} seconds, which also drops
+ * deleted settings.
+ */
+public final class SystemSettingsRegistry implements Runnable {
+
+  public static final String SYSTEM_SETTINGS_REFRESH_INTERVAL =
+      "sunbird_system_settings_refresh_interval_seconds";
+
+  private final CassandraOperation cassandraOperation;
+  private final String registryId = UUID.randomUUID().toString();
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final Set<ActorSystem> subscribedSystems =
+      Collections.newSetFromMap(new WeakHashMap<>());
+  private volatile Map<String, Entry> settings = Collections.emptyMap();
+  private volatile boolean loaded;
+  private volatile long lastLoadTime;
+
+  /** Highest version written or applied so far. Guarded by this. */
+  private long lastVersion;
+
+  private final AtomicLong loads = new AtomicLong();
+  private final AtomicLong writes = new AtomicLong();
+  private final AtomicLong appliedChanges = new AtomicLong();
+  private final AtomicLong ignoredChanges = new AtomicLong();
+  private final AtomicLong reloadedChanges = new AtomicLong();
+  private final AtomicLong removedSettings = new AtomicLong();
+  private final AtomicLong lastPropagationLag = new AtomicLong();
+  private final AtomicLong maxPropagationLag = new AtomicLong();
+
+  SystemSettingsRegistry(CassandraOperation cassandraOperation) {
+    this.cassandraOperation = cassandraOperation;
+  }
+
+  private static class LazyInitializer {
+    private static SystemSettingsRegistry INSTANCE =
+        new SystemSettingsRegistry(ServiceFactory.getInstance());
+  }
+
+  public static SystemSettingsRegistry getInstance() {
+    return LazyInitializer.INSTANCE;
+  }
+
+  /** Returns the interval in seconds in which the settings are reloaded. */
+  public static long getRefreshInterval() {
+    return ConfigValueUtil.getLongValue(SYSTEM_SETTINGS_REFRESH_INTERVAL, 60);
+  }
+
+  /** Returns true once the settings were loaded. */
+  public boolean isLoaded() {
+    return loaded;
+  }
+
+  /**
+   * @param field setting field
+   * @return setting with the given field, or null if it is unknown
+   */
+  public SystemSetting getSetting(String field) {
+    Entry entry = field == null ? null : settings.get(field);
+    return entry == null ? null : entry.setting;
+  }
+
+  public List<SystemSetting> getAllSettings() {
+    List<SystemSetting> allSettings = new ArrayList<>();
+    settings.values().forEach(entry -> allSettings.add(entry.setting));
+    return allSettings;
+  }
+
+  /**
+   * @param field setting field
+   * @return version of the setting with the given field, 0 if it is unknown
+   */
+  public long getVersion(String field) {
+    Entry entry = field == null ? null : settings.get(field);
+    return entry == null ? 0 : entry.version;
+  }
+
+  /**
+   * Adds a setting read on a cache miss, e.g. written on another node since the last load. A
+   * setting already held is left as it is.
+   *
+   * @param setting setting read from the database
+   */
+  public synchronized void addIfAbsent(SystemSetting setting) {
+    if (setting != null
+        && setting.getField() != null
+        && !settings.containsKey(setting.getField())) {
+      store(setting, 0);
+    }
+  }
+
+  /**
+   * Records a setting written on this node under a new version.
+   *
+   * @param setting written setting
+   * @return change to be published to the other nodes
+   */
+  public synchronized SystemSettingChange put(SystemSetting setting) {
+    long writtenAt = System.currentTimeMillis();
+    lastVersion = Math.max(writtenAt, lastVersion + 1);
+    store(setting, lastVersion);
+    writes.incrementAndGet();
+    return new SystemSettingChange(registryId, setting, lastVersion, writtenAt);
+  }
+
+  /**
+   * Applies a change written on another node, unless the setting was already changed by a newer
+   * write.
+   *
+   * @param change published change
+   * @return true if the change was applied
+   */
+  public synchronized boolean apply(SystemSettingChange change) {
+    if (registryId.equals(change.getOrigin())) {
+      return false;
+    }
+    if (change.getVersion() <= getVersion(change.getSetting().getField())) {
+      ignoredChanges.incrementAndGet();
+      return false;
+    }
+    store(change.getSetting(), change.getVersion());
+    lastVersion = Math.max(lastVersion, change.getVersion());
+    long lag = Math.max(0, System.currentTimeMillis() - change.getWrittenAt());
+    lastPropagationLag.set(lag);
+    maxPropagationLag.accumulateAndGet(lag, Math::max);
+    appliedChanges.incrementAndGet();
+    return true;
+  }
+
+  /**
+   * Subscribes this registry to the changes published on the event stream of the given actor
+   * system. Subscribing again to the same system has no effect.
+   */
+  public synchronized void subscribe(ActorSystem system) {
+    if (subscribedSystems.add(system)) {
+      ActorRef listener = system.actorOf(Props.create(Listener.class, this));
+      system.eventStream().subscribe(listener, SystemSettingChange.class);
+    }
+  }
+
+  /** Publishes a change on the event stream of the given actor system. */
+  public void publish(ActorSystem system, SystemSettingChange change) {
+    system.eventStream().publish(change);
+  }
+
+  /**
+   * Reloads all settings and rebuilds the settings map from the loaded rows, so settings deleted
+   * from the table are dropped. Changed settings get the load time as version, settings written
+   * while the load was running are kept.
+   */
+  @Override
+  public void run() {
+    long startTime = System.currentTimeMillis();
+    List<SystemSetting> loadedSettings = new ArrayList<>();
+    try {
+      Response response =
+          cassandraOperation.getAllRecords(JsonKey.SUNBIRD, JsonKey.SYSTEM_SETTINGS_DB);
+      @SuppressWarnings("unchecked")
+      List<Map<String, Object>> records =
+          (List<Map<String, Object>>) response.get(JsonKey.RESPONSE);
+      if (records != null) {
+        records.forEach(
+            record -> loadedSettings.add(mapper.convertValue(record, SystemSetting.class)));
+      }
+    } catch (Exception e) {
+      ProjectLogger.log(
+          "SystemSettingsRegistry:run: Exception in loading settings " + e.getMessage(), e);
+      return;
+    }
+    int changed = 0;
+    int removed = 0;
+    synchronized (this) {
+      Map<String, Entry> rebuilt = new HashMap<>();
+      for (SystemSetting setting : loadedSettings) {
+        if (setting.getField() == null) {
+          continue;
+        }
+        Entry entry = settings.get(setting.getField());
+        if (entry != null
+            && (entry.version >= startTime
+                || Objects.equals(entry.setting.getValue(), setting.getValue()))) {
+          rebuilt.put(setting.getField(), entry);
+        } else {
+          rebuilt.put(setting.getField(), new Entry(setting, entry == null ? 0 : startTime));
+          updateConfigSettings(setting);
+          changed++;
+        }
+      }
+      for (Map.Entry<String, Entry> entry : settings.entrySet()) {
+        if (rebuilt.containsKey(entry.getKey())) {
+          continue;
+        }
+        if (entry.getValue().version >= startTime) {
+          rebuilt.put(entry.getKey(), entry.getValue());
+        } else {
+          removeConfigSettings(entry.getKey());
+          removed++;
+        }
+      }
+      settings = Collections.unmodifiableMap(rebuilt);
+      loaded = true;
+      lastLoadTime = startTime;
+    }
+    loads.incrementAndGet();
+    reloadedChanges.addAndGet(changed);
+    removedSettings.addAndGet(removed);
+    ProjectLogger.log(
+        "SystemSettingsRegistry:run: Loaded "
+            + loadedSettings.size()
+            + " settings, "
+            + changed
+            + " changed, "
+            + removed
+            + " removed, in "
+            + (System.currentTimeMillis() - startTime)
+            + " ms, metrics = "
+            + getMetrics(),
+        LoggerEnum.INFO.name());
+  }
+
+  /**
+   * Returns the registry counters, logged on every reload. Propagation lag is the time in millis
+   * from a write on another node to its change being applied here, staleness the time since the
+   * last reload which bounds the lag of changes not received as messages.
+   */
+  public Map<String, Long> getMetrics() {
+    Map<String, Long> metrics = new HashMap<>();
+    metrics.put("settings", (long) settings.size());
+    metrics.put("loads", loads.get());
+    metrics.put("writes", writes.get());
+    metrics.put("appliedChanges", appliedChanges.get());
+    metrics.put("ignoredChanges", ignoredChanges.get());
+    metrics.put("reloadedChanges", reloadedChanges.get());
+    metrics.put("removedSettings", removedSettings.get());
+    metrics.put("lastPropagationLagMillis", lastPropagationLag.get());
+    metrics.put("maxPropagationLagMillis", maxPropagationLag.get());
+    metrics.put(
+        "stalenessMillis", loaded ? System.currentTimeMillis() - lastLoadTime : -1L);
+    return metrics;
+  }
+
+  /** Replaces the settings map with a copy holding the given setting. Called holding this. */
+  private void store(SystemSetting setting, long version) {
+    if (setting == null || setting.getField() == null) {
+      return;
+    }
+    Map<String, Entry> updated = new HashMap<>(settings);
+    updated.put(setting.getField(), new Entry(setting, version));
+    settings = Collections.unmodifiableMap(updated);
+    updateConfigSettings(setting);
+  }
+
+  /** Copies a setting to {@link DataCacheHandler#getConfigSettings()}. */
+  private static void updateConfigSettings(SystemSetting setting) {
+    String value = setting.getValue();
+    if (isUniqueFlag(setting.getField()) && StringUtils.isBlank(value)) {
+      value = String.valueOf(false);
+    }
+    DataCacheHandler.updateConfigSettings(setting.getField(), value);
+  }
+
+  /** Removes a deleted setting from {@link DataCacheHandler#getConfigSettings()}. */
+  private static void removeConfigSettings(String field) {
+    if (isUniqueFlag(field)) {
+      DataCacheHandler.updateConfigSettings(field, String.valueOf(false));
+    } else {
+      DataCacheHandler.removeConfigSettings(field);
+    }
+  }
+
+  /** Phone and email uniqueness flags default to false when they are not set. */
+  private static boolean isUniqueFlag(String field) {
+    return JsonKey.PHONE_UNIQUE.equalsIgnoreCase(field)
+        || JsonKey.EMAIL_UNIQUE.equalsIgnoreCase(field);
+  }
+
+  private static class Entry {
+    private final SystemSetting setting;
+    private final long version;
+
+    private Entry(SystemSetting setting, long version) {
+      this.setting = setting;
+      this.version = version;
+    }
+  }
+
+  /** Applies the changes published on the event stream of an actor system. */
+  static class Listener extends UntypedAbstractActor {
+    private final SystemSettingsRegistry registry;
+
+    public Listener(SystemSettingsRegistry registry) {
+      this.registry = registry;
+    }
+
+    @Override
+    public void onReceive(Object message) {
+      if (message instanceof SystemSettingChange) {
+        registry.apply((SystemSettingChange) message);
+      } else {
+        unhandled(message);
+      }
+    }
+  }
+}
@@ -0,0 +1,200 @@
+package org.sunbird.common.cacheloader;
+
+import akka.dispatch.Futures;
+import akka.dispatch.Mapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.lang3.StringUtils;
+import org.sunbird.learner.util.ConfigValueUtil;
+import scala.concurrent.ExecutionContextExecutor;
+import scala.concurrent.Future;
+
+/**
+ * Local read-through cache of assembled user profiles. Each user has one entry holding the views
+ * built for that user (e.g. public or self view with the requested fields), so that all views of a
+ * user are dropped together by {@link #invalidate(String)} when the user changes. A profile loaded
+ * while the user is invalidated is not cached, nor is a profile marked with {@link
+ * #markDegraded(Map)} because an optional part of it could not be loaded.
+ */
+public final class UserProfileCache {
+
+  public static final String USER_PROFILE_CACHE_ENABLED = "sunbird_user_profile_cache_enabled";
+  public static final String USER_PROFILE_CACHE_TTL = "sunbird_user_profile_cache_ttl_seconds";
+  public static final String USER_PROFILE_CACHE_MAX_ENTRIES =
+      "sunbird_user_profile_cache_max_entries";
+
+  private static final String DEGRADED = "_degradedProfile";
+
+  private final boolean enabled = ConfigValueUtil.getBooleanValue(USER_PROFILE_CACHE_ENABLED, true);
+  private final Cache<String, Views> cache =
+      CacheBuilder.newBuilder()
+          .maximumSize(ConfigValueUtil.getLongValue(USER_PROFILE_CACHE_MAX_ENTRIES, 10000))
+          .expireAfterWrite(
+              ConfigValueUtil.getLongValue(USER_PROFILE_CACHE_TTL, 60), TimeUnit.SECONDS)
+          .build();
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong invalidations = new AtomicLong();
+  private final AtomicLong degradedLoads = new AtomicLong();
+  private final AtomicLong loads = new AtomicLong();
+  private final AtomicLong loadNanos = new AtomicLong();
+
+  private UserProfileCache() {}
+
+  private static class LazyInitializer {
+    private static UserProfileCache INSTANCE = new UserProfileCache();
+  }
+
+  public static UserProfileCache getInstance() {
+    return LazyInitializer.INSTANCE;
+  }
+
+  /**
+   * Returns a view of the user profile from cache, or builds and caches it.
+   *
+   * @param userId ID of the user
+   * @param view key of the view, e.g. visibility and requested fields
+   * @param loader starts building the view, failures are passed on to the caller
+   * @param ec execution context for the callbacks
+   * @return future of a profile map owned by the caller
+   */
+  public Future<Map<String, Object>> get(
+      String userId,
+      String view,
+      Callable<Future<Map<String, Object>>> loader,
+      ExecutionContextExecutor ec) {
+    if (!enabled || StringUtils.isBlank(userId)) {
+      return load(loader)
+          .map(
+              new Mapper<Map<String, Object>, Map<String, Object>>() {
+                @Override
+                public Map<String, Object> apply(Map<String, Object> profile) {
+                  if (profile != null) {
+                    profile.remove(DEGRADED);
+                  }
+                  return profile;
+                }
+              },
+              ec);
+    }
+    Views views = cache.getIfPresent(userId);
+    if (views != null) {
+      Map<String, Object> cached = views.profiles.get(view);
+      if (cached != null) {
+        hits.incrementAndGet();
+        return Futures.successful(copy(cached));
+      }
+    } else {
+      views = new Views();
+      Views existing = cache.asMap().putIfAbsent(userId, views);
+      if (existing != null) {
+        views = existing;
+      }
+    }
+    misses.incrementAndGet();
+    Views loadingViews = views;
+    long startTime = System.nanoTime();
+    return load(loader)
+        .map(
+            new Mapper<Map<String, Object>, Map<String, Object>>() {
+              @Override
+              public Map<String, Object> apply(Map<String, Object> profile) {
+                loads.incrementAndGet();
+                loadNanos.addAndGet(System.nanoTime() - startTime);
+                if (profile == null) {
+                  return null;
+                }
+                if (profile.remove(DEGRADED) != null) {
+                  // the next read retries the lookups which failed or timed out
+                  degradedLoads.incrementAndGet();
+                } else if (cache.getIfPresent(userId) == loadingViews) {
+                  // Cache only if the user was not invalidated while the profile was built.
+                  loadingViews.profiles.put(view, copy(profile));
+                }
+                return profile;
+              }
+            },
+            ec);
+  }
+
+  private Future<Map<String, Object>> load(Callable<Future<Map<String, Object>>> loader) {
+    try {
+      return loader.call();
+    } catch (Exception e) {
+      return Futures.failed(e);
+    }
+  }
+
+  /**
+   * Marks a profile built with a fallback for a lookup which failed or timed out, so that it is
+   * returned to the caller but not cached.
+   *
+   * @param profile profile returned by the loader
+   */
+  public static void markDegraded(Map<String, Object> profile) {
+    profile.put(DEGRADED, true);
+  }
+
+  /**
+   * Drops all cached views of the user.
+   *
+   * @param userId ID of the user
+   */
+  public void invalidate(String userId) {
+    if (enabled && StringUtils.isNotBlank(userId)) {
+      cache.invalidate(userId);
+      invalidations.incrementAndGet();
+    }
+  }
+
+  /**
+   * @return hits, misses, hit ratio, invalidations, uncached degraded loads and the load time saved
+   *     by hits
+   */
+  public Map<String, Object> getMetrics() {
+    long hitCount = hits.get();
+    long lookups = hitCount + misses.get();
+    long loadCount = loads.get();
+    double avgLoadMillis =
+        loadCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(loadNanos.get()) / 1000.0 / loadCount;
+    Map<String, Object> metrics = new HashMap<>();
+    metrics.put("hits", hitCount);
+    metrics.put("misses", misses.get());
+    metrics.put("hitRatio", lookups == 0 ? 0 : (double) hitCount / lookups);
+    metrics.put("avgLoadMillis", avgLoadMillis);
+    metrics.put("savedMillis", (long) (hitCount * avgLoadMillis));
+    metrics.put("invalidations", invalidations.get());
+    metrics.put("degradedLoads", degradedLoads.get());
+    metrics.put("entries", cache.size());
+    return metrics;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T copy(T value) {
+    if (value instanceof Map) {
+      Map<String, Object> map = new HashMap<>();
+      ((Map<String, Object>) value).forEach((k, v) -> map.put(k, copy(v)));
+      return (T) map;
+    }
+    if (value instanceof List) {
+      List<Object> list = new ArrayList<>();
+      ((List<Object>) value).forEach(v -> list.add(copy(v)));
+      return (T) list;
+    }
+    return value;
+  }
+
+  private static class Views {
+    private final ConcurrentMap<String, Map<String, Object>> profiles = new ConcurrentHashMap<>();
+  }
+}
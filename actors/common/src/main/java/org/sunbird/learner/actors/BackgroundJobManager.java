@@ -11,6 +11,8 @@ import org.sunbird.actor.core.BaseActor;
 import org.sunbird.actor.router.ActorConfig;
 import org.sunbird.cassandra.CassandraOperation;
 import org.sunbird.common.ElasticSearchHelper;
+import org.sunbird.common.cacheloader.OrgMetadataCache;
+import org.sunbird.common.cacheloader.UserProfileCache;
 import org.sunbird.common.exception.ProjectCommonException;
 import org.sunbird.common.factory.EsClientFactory;
 import org.sunbird.common.inf.ElasticSearchService;
@@ -359,6 +361,7 @@ public class BackgroundJobManager extends BaseActor {
       String indexName, String typeName, String identifier, Map<String, Object> data) {
     Future<Boolean> responseF = esService.update(typeName, identifier, data);
     boolean response = (boolean) ElasticSearchHelper.getResponseFromFuture(responseF);
+    invalidateCaches(typeName, identifier);
     if (response) {
       return true;
     }
@@ -367,6 +370,18 @@ public class BackgroundJobManager extends BaseActor {
     return false;
   }
 
+  /**
+   * Profile reads and org names are served from ES, so entries cached before the document was
+   * written are dropped.
+   */
+  private void invalidateCaches(String type, String identifier) {
+    if (ProjectUtil.EsType.user.getTypeName().equals(type)) {
+      UserProfileCache.getInstance().invalidate(identifier);
+    } else if (ProjectUtil.EsType.organisation.getTypeName().equals(type)) {
+      OrgMetadataCache.getInstance().invalidate(identifier);
+    }
+  }
+
   private void updateUserInfoToEs(Request actorMessage) {
     String userId = (String) actorMessage.getRequest().get(JsonKey.ID);
     Map<String, Object> userDetails =
@@ -559,6 +574,7 @@ public class BackgroundJobManager extends BaseActor {
 
     Future<String> responseF = esService.save(type, identifier, data);
     String response = (String) ElasticSearchHelper.getResponseFromFuture(responseF);
+    invalidateCaches(type, identifier);
     ProjectLogger.log(
         "Getting  ********** ES save response for type , identiofier=="
             + type
@@ -1,5 +1,8 @@
 package org.sunbird.learner.actors;
 
+import akka.dispatch.Futures;
+import akka.dispatch.Mapper;
+import akka.pattern.Patterns;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.util.ArrayList;
@@ -17,7 +20,6 @@ import org.slf4j.helpers.MessageFormatter;
 import org.sunbird.actor.core.BaseActor;
 import org.sunbird.actor.router.ActorConfig;
 import org.sunbird.cassandra.CassandraOperation;
-import org.sunbird.common.ElasticSearchHelper;
 import org.sunbird.common.exception.ProjectCommonException;
 import org.sunbird.common.factory.EsClientFactory;
 import org.sunbird.common.inf.ElasticSearchService;
@@ -35,6 +37,7 @@ import org.sunbird.helper.ServiceFactory;
 import org.sunbird.learner.actors.coursebatch.service.UserCoursesService;
 import org.sunbird.learner.util.ContentSearchUtil;
 import org.sunbird.learner.util.Util;
+import scala.concurrent.ExecutionContextExecutor;
 import scala.concurrent.Future;
 
 /**
@@ -76,23 +79,26 @@ public class LearnerStateActor extends BaseActor {
     }
   }
 
+  @SuppressWarnings("unchecked")
   public void getCourse(Request request) {
     String userId = (String) request.getRequest().get(JsonKey.USER_ID);
     Map<String, Object> result = userCoursesService.getActiveUserCourses(userId);
-    if (MapUtils.isNotEmpty(result)) {
-      addCourseDetails(request, result);
-    } else {
-      ProjectLogger.log(
-          "LearnerStateActor:getCourse: returning batch without course details",
-          LoggerEnum.INFO.name());
+    if (MapUtils.isNotEmpty(result)
+        && CollectionUtils.isNotEmpty((List<Map<String, Object>>) result.get(JsonKey.CONTENT))) {
+      Patterns.pipe(addCourseDetails(request, result), getContext().dispatcher()).to(sender());
+      return;
     }
+    ProjectLogger.log(
+        "LearnerStateActor:getCourse: returning batch without course details",
+        LoggerEnum.INFO.name());
     Response response = new Response();
-    response.put(JsonKey.COURSES, result.get(JsonKey.CONTENT));
+    response.put(JsonKey.COURSES, MapUtils.isEmpty(result) ? null : result.get(JsonKey.CONTENT));
     sender().tell(response, self());
   }
 
   @SuppressWarnings("unchecked")
-  private void addCourseDetails(Request request, Map<String, Object> userCoursesResult) {
+  private Future<Response> addCourseDetails(
+      Request request, Map<String, Object> userCoursesResult) {
     List<Map<String, Object>> batches =
         (List<Map<String, Object>>) userCoursesResult.get(JsonKey.CONTENT);
 
@@ -100,9 +106,6 @@ public class LearnerStateActor extends BaseActor {
         "LearnerStateActor:addCourseDetails: batches size = " + batches.size(),
         LoggerEnum.INFO.name());
 
-    if (CollectionUtils.isEmpty(batches)) {
-      return;
-    }
     String requestBody = prepareCourseSearchRequest(batches);
     ProjectLogger.log(
         MessageFormatter.format(
@@ -111,15 +114,15 @@ public class LearnerStateActor extends BaseActor {
             .getMessage(),
         LoggerEnum.INFO.name());
 
-    Map<String, Object> contents = null;
-    contents =
-        ContentSearchUtil.searchContentSync(
+    ExecutionContextExecutor ec = getContext().dispatcher();
+    Future<Map<String, Object>> contentsF =
+        ContentSearchUtil.searchContent(
             (String) request.getContext().get(JsonKey.URL_QUERY_STRING),
             requestBody,
-            (Map<String, String>) request.getRequest().get(JsonKey.HEADER));
+            (Map<String, String>) request.getRequest().get(JsonKey.HEADER),
+            ec);
 
-    Map<String, Object> courseBatchesMap = null;
-    List<String> requestedFields = null;
+    Future<Map<String, Object>> courseBatchesF = Futures.successful(null);
     String[] queryParams = (String[]) request.getContext().get(JsonKey.BATCH_DETAILS);
 
     if (queryParams != null && queryParams.length > 0) {
@@ -127,11 +130,32 @@ public class LearnerStateActor extends BaseActor {
       ProjectLogger.log(
           "LearnerStateActor:addCourseDetails: queryParam[0] = " + queryParams[0],
           LoggerEnum.INFO.name());
-      requestedFields = new ArrayList<>(Arrays.asList(queryParams[0].split(",")));
+      List<String> requestedFields = new ArrayList<>(Arrays.asList(queryParams[0].split(",")));
       if (CollectionUtils.isNotEmpty(requestedFields))
-        courseBatchesMap = getCourseBatch(batches, requestedFields);
+        courseBatchesF = getCourseBatch(batches, requestedFields);
     }
 
+    Future<Map<String, Object>> courseBatchesMapF = courseBatchesF;
+    return contentsF.flatMap(
+        new Mapper<Map<String, Object>, Future<Response>>() {
+          @Override
+          public Future<Response> apply(Map<String, Object> contents) {
+            return courseBatchesMapF.map(
+                new Mapper<Map<String, Object>, Response>() {
+                  @Override
+                  public Response apply(Map<String, Object> courseBatchesMap) {
+                    return mergeCourseDetails(
+                        contents, batches, getCourseBatchesById(courseBatchesMap));
+                  }
+                },
+                ec);
+          }
+        },
+        ec);
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, Object> getCourseBatchesById(Map<String, Object> courseBatchesMap) {
     Map<String, Object> courseBatches = new HashMap<>();
     if (MapUtils.isNotEmpty(courseBatchesMap)) {
       List<Map<String, Object>> courses =
@@ -144,10 +168,10 @@ public class LearnerStateActor extends BaseActor {
           "LearnerStateActor:addCourseDetails: coursesBathces = " + courseBatches,
           LoggerEnum.INFO.name());
     }
-    mergeDetailsAndSendCourses(contents, batches, courseBatches);
+    return courseBatches;
   }
 
-  private Map<String, Object> getCourseBatch(
+  private Future<Map<String, Object>> getCourseBatch(
       List<Map<String, Object>> batches, List<String> requestedFields) {
     List<String> courseBatchIds =
         (List<String>)
@@ -166,25 +190,21 @@ public class LearnerStateActor extends BaseActor {
     dto.setFields(requestedFields);
     dto.getAdditionalProperties().put(JsonKey.FILTERS, esQueryMap);
 
-    Future<Map<String, Object>> responseF =
-        esService.search(dto, ProjectUtil.EsType.course.getTypeName());
-    Map<String, Object> response =
-        (Map<String, Object>) ElasticSearchHelper.getResponseFromFuture(responseF);
-    return response;
+    return esService.search(dto, ProjectUtil.EsType.course.getTypeName());
   }
 
-  public void mergeDetailsAndSendCourses(
+  public Response mergeCourseDetails(
       Map<String, Object> coursesContents,
       List<Map<String, Object>> batches,
       Map<String, Object> courseBatches) {
 
     ProjectLogger.log(
-        "LearnerStateActor:mergeDetailsAndSendCourses coursesContents =" + coursesContents,
+        "LearnerStateActor:mergeCourseDetails coursesContents =" + coursesContents,
         LoggerEnum.INFO.name());
 
     if (MapUtils.isNotEmpty(courseBatches)) {
       ProjectLogger.log(
-          "LearnerStateActor:mergeDetailsAndSendCourses courseBatchContents ="
+          "LearnerStateActor:mergeCourseDetails courseBatchContents ="
               + "for requested data "
               + courseBatches,
           LoggerEnum.INFO.name());
@@ -199,7 +219,7 @@ public class LearnerStateActor extends BaseActor {
 
     Response response = new Response();
     response.put(JsonKey.COURSES, batchesWithCourseDetails);
-    sender().tell(response, self());
+    return response;
   }
 
   public List<Map<String, Object>> getMergedContents(
@@ -224,7 +244,7 @@ public class LearnerStateActor extends BaseActor {
               .collect(Collectors.toList());
     }
     ProjectLogger.log(
-        "LearnerStateActor:mergeDetailsAndSendCourses batchesWithCourseDetails ="
+        "LearnerStateActor:getMergedContents batchesWithCourseDetails ="
             + batchesWithCourseDetails,
         LoggerEnum.INFO.name());
     return batchesWithCourseDetails;
@@ -9,8 +9,12 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 import org.apache.commons.lang3.StringUtils;
 import org.sunbird.actor.core.BaseActor;
@@ -23,13 +27,16 @@ import org.sunbird.common.models.util.JsonKey;
 import org.sunbird.common.models.util.LoggerEnum;
 import org.sunbird.common.models.util.ProjectLogger;
 import org.sunbird.common.models.util.ProjectUtil;
-import org.sunbird.common.models.util.ProjectUtil.ProgressStatus;
 import org.sunbird.common.models.util.TelemetryEnvKey;
 import org.sunbird.common.models.util.datasecurity.OneWayHashing;
 import org.sunbird.common.request.ExecutionContext;
 import org.sunbird.common.request.Request;
 import org.sunbird.common.responsecode.ResponseCode;
 import org.sunbird.helper.ServiceFactory;
+import org.sunbird.learner.util.ConfigValueUtil;
+import org.sunbird.learner.util.CourseProgressBuffer;
+import org.sunbird.learner.util.CourseProgressUpdate;
+import org.sunbird.learner.util.CourseProgressUpdater;
 import org.sunbird.learner.util.Util;
 import org.sunbird.telemetry.util.TelemetryUtil;
 
@@ -46,8 +53,12 @@ import org.sunbird.telemetry.util.TelemetryUtil;
 public class LearnerStateUpdateActor extends BaseActor {
 
   private static final String CONTENT_STATE_INFO = "contentStateInfo";
+  private static final String CONTENT_STATE_BATCH_SIZE = "sunbird_content_state_batch_size";
 
   private CassandraOperation cassandraOperation = ServiceFactory.getInstance();
+  private CourseProgressUpdater courseProgressUpdater =
+      new CourseProgressUpdater(cassandraOperation);
+  private CourseProgressBuffer courseProgressBuffer = CourseProgressBuffer.getInstance();
 
   /**
    * Receives the actor message and perform the add content operation .
@@ -77,8 +88,6 @@ public class LearnerStateUpdateActor extends BaseActor {
       request.getRequest().put(JsonKey.CONTENTS, contentList);
       // map to hold the status of requested state of contents
       Map<String, Integer> contentStatusHolder = new HashMap<>();
-      List<String> validBatchIds = new ArrayList<>();
-      List<String> invalidBatchIds = new ArrayList<>();
       if (!(contentList.isEmpty())) {
         ProjectLogger.log(
             "LearnerStateUpdateActor:onReceive content state update method called for user and total content "
@@ -86,66 +95,56 @@ public class LearnerStateUpdateActor extends BaseActor {
                 + " Contnet length="
                 + contentList.size(),
             LoggerEnum.INFO.name());
-        int count = 0;
+        // code to validate the whether request for valid batch range(start and end
+        // date), all batches of the request are read in one query
+        Map<String, Boolean> batchValidity = getBatchValidity(contentList, batchdbInfo);
         for (Map<String, Object> map : contentList) {
-          // replace the course id (equivalent to Ekstep content id) with One way hashing
-          // userId#courseId , bcoz in cassndra we are saving course id as userId#courseId
           String batchId = (String) map.get(JsonKey.BATCH_ID);
-          boolean flag = true;
-
-          // code to validate the whether request for valid batch range(start and end
-          // date)
-          if (!(StringUtils.isBlank(batchId)) && !validBatchIds.contains(batchId)) {
-            if (invalidBatchIds.contains(batchId)) {
-              contentList.remove(map);
-              continue;
-            }
-            Response batchResponse =
-                cassandraOperation.getRecordById(
-                    batchdbInfo.getKeySpace(), batchdbInfo.getTableName(), batchId);
-            List<Map<String, Object>> batches =
-                (List<Map<String, Object>>) batchResponse.getResult().get(JsonKey.RESPONSE);
-            if (batches.isEmpty()) {
-              invalidBatchIds.add(batchId);
-              flag = false;
-            } else {
-              Map<String, Object> batchInfo = batches.get(0);
-              flag = validateBatchRange(batchInfo);
-              if (flag) {
-                validBatchIds.add(batchId);
-              }
-            }
-
-            if (!flag) {
-              response
-                  .getResult()
-                  .put((String) map.get(JsonKey.CONTENT_ID), "BATCH NOT STARTED OR BATCH CLOSED");
-              contentList.remove(map);
-              continue;
-            }
+          if (!(StringUtils.isBlank(batchId)) && !batchValidity.get(batchId)) {
+            response
+                .getResult()
+                .put((String) map.get(JsonKey.CONTENT_ID), "BATCH NOT STARTED OR BATCH CLOSED");
+            contentList.remove(map);
+            continue;
           }
           map.putIfAbsent(JsonKey.COURSE_ID, JsonKey.NOT_AVAILABLE);
-          preOperation(map, userId, contentStatusHolder);
+          // replace the course id (equivalent to Ekstep content id) with One way hashing
+          // userId#courseId , bcoz in cassndra we are saving course id as userId#courseId
+          map.put(JsonKey.ID, generatePrimaryKey(map, userId));
+        }
+        Map<String, Map<String, Object>> existingContents =
+            getRecordsById(dbInfo, getIds(contentList, JsonKey.ID));
+        // same content may come more than once in a request, only its latest state is written
+        Map<String, Map<String, Object>> contentsToWrite = new LinkedHashMap<>();
+        boolean courseStatusUpdated = false;
+        for (Map<String, Object> map : contentList) {
+          preOperation(map, contentStatusHolder, existingContents);
+          existingContents.put((String) map.get(JsonKey.ID), map);
           map.put(JsonKey.USER_ID, userId);
           map.put(JsonKey.DATE_TIME, new Timestamp(new Date().getTime()));
-          try {
-            ProjectLogger.log(
-                "LearnerStateUpdateActor:onReceive: map  " + map, LoggerEnum.INFO.name());
-            if (count == 0
-                && map.get(JsonKey.COURSE_ID) != null
-                && !(JsonKey.NOT_AVAILABLE.equalsIgnoreCase((String) map.get(JsonKey.COURSE_ID)))) {
+          ProjectLogger.log(
+              "LearnerStateUpdateActor:onReceive: map  " + map, LoggerEnum.INFO.name());
+          if (!courseStatusUpdated
+              && map.get(JsonKey.COURSE_ID) != null
+              && !(JsonKey.NOT_AVAILABLE.equalsIgnoreCase((String) map.get(JsonKey.COURSE_ID)))) {
+            try {
               updateUserCourseStatus(
                   generateUserCoursesPrimaryKey(map),
                   ProjectUtil.BulkProcessStatus.IN_PROGRESS.name());
-              count++;
+            } catch (Exception e) {
+              ProjectLogger.log(
+                  "LearnerStateUpdateActor:onReceive Error occured during course status update:"
+                      + e,
+                  LoggerEnum.ERROR.name());
             }
-            cassandraOperation.upsertRecord(dbInfo.getKeySpace(), dbInfo.getTableName(), map);
-            response.getResult().put((String) map.get(JsonKey.CONTENT_ID), JsonKey.SUCCESS);
-          } catch (Exception e) {
-            ProjectLogger.log(
-                "LearnerStateUpdateActor:onReceive Error occured during db update:" + e,
-                LoggerEnum.ERROR.name());
-            response.getResult().put((String) map.get(JsonKey.CONTENT_ID), JsonKey.FAILED);
+            courseStatusUpdated = true;
+          }
+          contentsToWrite.put((String) map.get(JsonKey.ID), map);
+        }
+        Set<String> failedIds =
+            upsertContents(new ArrayList<>(contentsToWrite.values()), dbInfo, response);
+        for (Map<String, Object> map : contentList) {
+          if (failedIds.contains(map.get(JsonKey.ID))) {
             contentList.remove(map);
             continue;
           }
@@ -190,6 +189,99 @@ public class LearnerStateUpdateActor extends BaseActor {
     }
   }
 
+  /**
+   * Reads all distinct batches of the contents in one query and checks their start and end date.
+   *
+   * @return validity of each batch id, batches which do not exist are invalid
+   */
+  private Map<String, Boolean> getBatchValidity(
+      List<Map<String, Object>> contentList, Util.DbInfo batchdbInfo) {
+    Map<String, Boolean> batchValidity = new HashMap<>();
+    List<String> batchIds = getIds(contentList, JsonKey.BATCH_ID);
+    if (batchIds.isEmpty()) {
+      return batchValidity;
+    }
+    Map<String, Map<String, Object>> batches = getRecordsById(batchdbInfo, batchIds);
+    for (String batchId : batchIds) {
+      Map<String, Object> batchInfo = batches.get(batchId);
+      batchValidity.put(batchId, batchInfo != null && validateBatchRange(batchInfo));
+    }
+    return batchValidity;
+  }
+
+  private List<String> getIds(List<Map<String, Object>> records, String key) {
+    Set<String> ids = new LinkedHashSet<>();
+    for (Map<String, Object> record : records) {
+      String id = (String) record.get(key);
+      if (StringUtils.isNotBlank(id)) {
+        ids.add(id);
+      }
+    }
+    return new ArrayList<>(ids);
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, Map<String, Object>> getRecordsById(Util.DbInfo dbInfo, List<String> ids) {
+    Map<String, Map<String, Object>> records = new HashMap<>();
+    if (ids.isEmpty()) {
+      return records;
+    }
+    Response response =
+        cassandraOperation.getRecordsByIdsWithSpecifiedColumns(
+            dbInfo.getKeySpace(), dbInfo.getTableName(), null, ids);
+    List<Map<String, Object>> resultList =
+        (List<Map<String, Object>>) response.getResult().get(JsonKey.RESPONSE);
+    if (resultList != null) {
+      for (Map<String, Object> result : resultList) {
+        records.put((String) result.get(JsonKey.ID), result);
+      }
+    }
+    return records;
+  }
+
+  /**
+   * Writes the content states in batches of {@code sunbird_content_state_batch_size} rows. If a
+   * batch fails its rows are written one by one, so that only the failing contents are reported.
+   *
+   * @return ids of the contents which could not be written
+   */
+  private Set<String> upsertContents(
+      List<Map<String, Object>> contents, Util.DbInfo dbInfo, Response response) {
+    Set<String> failedIds = new HashSet<>();
+    int batchSize = Math.max(1, ConfigValueUtil.getIntValue(CONTENT_STATE_BATCH_SIZE, 50));
+    for (int from = 0; from < contents.size(); from += batchSize) {
+      List<Map<String, Object>> batch =
+          contents.subList(from, Math.min(from + batchSize, contents.size()));
+      if (batch.size() > 1) {
+        try {
+          cassandraOperation.batchInsert(
+              dbInfo.getKeySpace(), dbInfo.getTableName(), new ArrayList<>(batch));
+          for (Map<String, Object> map : batch) {
+            response.getResult().put((String) map.get(JsonKey.CONTENT_ID), JsonKey.SUCCESS);
+          }
+          continue;
+        } catch (Exception e) {
+          ProjectLogger.log(
+              "LearnerStateUpdateActor:upsertContents Error occured during batch db update:" + e,
+              LoggerEnum.ERROR.name());
+        }
+      }
+      for (Map<String, Object> map : batch) {
+        try {
+          cassandraOperation.upsertRecord(dbInfo.getKeySpace(), dbInfo.getTableName(), map);
+          response.getResult().put((String) map.get(JsonKey.CONTENT_ID), JsonKey.SUCCESS);
+        } catch (Exception e) {
+          ProjectLogger.log(
+              "LearnerStateUpdateActor:upsertContents Error occured during db update:" + e,
+              LoggerEnum.ERROR.name());
+          response.getResult().put((String) map.get(JsonKey.CONTENT_ID), JsonKey.FAILED);
+          failedIds.add((String) map.get(JsonKey.ID));
+        }
+      }
+    }
+    return failedIds;
+  }
+
   private void updateUserCourses(Request request) {
     // get the list of content objects
     List<Map<String, Object>> contentList =
@@ -242,86 +334,42 @@ public class LearnerStateUpdateActor extends BaseActor {
   }
 
   /**
-   * Method to update the course_enrollment with the latest content information
+   * Method to update the course_enrollment with the latest content information. When the course
+   * progress buffer is enabled the update is buffered and written later.
    *
    * @param temp Map<String, Object>
    * @param contentStateInfo Map<String, Integer>
    */
   @SuppressWarnings("unchecked")
   private void updateCourse(Map<String, Object> temp, Map<String, Integer> contentStateInfo) {
-    Util.DbInfo dbInfo = Util.dbInfoMap.get(JsonKey.LEARNER_COURSE_DB);
     ProjectLogger.log(
         "LearnerStateUpdateActor:updateCourse method called started:", LoggerEnum.INFO.name());
+    List<CourseProgressUpdate> updates = new ArrayList<>();
     for (Map.Entry<String, Object> entry : temp.entrySet()) {
-      String key = entry.getKey();
       Map<String, Object> value = (Map<String, Object>) entry.getValue();
-      Response response =
-          cassandraOperation.getRecordById(dbInfo.getKeySpace(), dbInfo.getTableName(), key);
-      List<Map<String, Object>> courseList =
-          (List<Map<String, Object>>) response.getResult().get(JsonKey.RESPONSE);
-      Map<String, Object> course = null;
-      if (null != courseList && !courseList.isEmpty()) {
-        Map<String, Object> updateDb = new HashMap<>();
-        course = courseList.get(0);
-        Integer courseProgress = 0;
-        if (ProjectUtil.isNotNull(course.get(JsonKey.COURSE_PROGRESS))) {
-          courseProgress = (Integer) course.get(JsonKey.COURSE_PROGRESS);
-        }
-        courseProgress = courseProgress + (Integer) value.get("progress");
-        // update status on basis of leaf node count and progress ---
-        if (course.containsKey(JsonKey.LEAF_NODE_COUNT)
-            && ProjectUtil.isNotNull(course.get(JsonKey.LEAF_NODE_COUNT))) {
-          Integer leafNodeCount = (Integer) course.get(JsonKey.LEAF_NODE_COUNT);
-          courseProgress = courseProgress > leafNodeCount ? leafNodeCount : courseProgress;
-          if (0 == leafNodeCount || (leafNodeCount > courseProgress)) {
-            updateDb.put(JsonKey.STATUS, ProjectUtil.ProgressStatus.STARTED.getValue());
-          } else {
-            if (ProgressStatus.COMPLETED.getValue() != (Integer) course.get(JsonKey.STATUS)) {
-              updateDb.put(JsonKey.COMPLETED_ON, new Timestamp(new Date().getTime()));
-            }
-            updateDb.put(JsonKey.STATUS, ProgressStatus.COMPLETED.getValue());
-          }
-        } else if (ProjectUtil.isNull(course.get(JsonKey.LEAF_NODE_COUNT))) {
-          updateDb.put(JsonKey.STATUS, ProjectUtil.ProgressStatus.STARTED.getValue());
-        }
-        Timestamp ts = new Timestamp(new Date().getTime());
-        updateDb.put(JsonKey.ID, course.get(JsonKey.ID));
-        updateDb.put(JsonKey.COURSE_PROGRESS, courseProgress);
-        updateDb.put(JsonKey.DATE_TIME, ts);
-        updateDb.put(
-            JsonKey.LAST_READ_CONTENTID,
-            ((Map<String, Object>) value.get("content")).get(JsonKey.CONTENT_ID));
-        updateDb.put(
-            JsonKey.LAST_READ_CONTENT_STATUS,
-            (contentStateInfo.get(((Map<String, Object>) value.get("content")).get(JsonKey.ID))));
-        updateDb.put(JsonKey.PROCESSING_STATUS, ProjectUtil.BulkProcessStatus.COMPLETED.name());
+      Map<String, Object> content = (Map<String, Object>) value.get(JsonKey.CONTENT);
+      updates.add(
+          new CourseProgressUpdate(
+              entry.getKey(),
+              (Integer) value.get(JsonKey.PROGRESS),
+              (String) content.get(JsonKey.CONTENT_ID),
+              contentStateInfo.get(content.get(JsonKey.ID))));
+    }
+    List<CourseProgressUpdate> unbuffered = updates;
+    if (courseProgressBuffer.isEnabled()) {
+      unbuffered = new ArrayList<>();
+      for (CourseProgressUpdate update : updates) {
         try {
-          cassandraOperation.upsertRecord(dbInfo.getKeySpace(), dbInfo.getTableName(), updateDb);
-          updateUserCourseStatus(
-              (String) course.get(JsonKey.ID), ProjectUtil.BulkProcessStatus.COMPLETED.name());
-          ProjectLogger.log(
-              "LearnerStateUpdateActor:updateCourse user courses DB updated successfully : ",
-              LoggerEnum.INFO.name());
-          updateDb.put(JsonKey.BATCH_ID, course.get(JsonKey.BATCH_ID));
-          updateDb.put(JsonKey.USER_ID, course.get(JsonKey.USER_ID));
-          updateDb.put(JsonKey.DATE_TIME, ProjectUtil.formatDate(ts));
-          if (updateDb.containsKey(JsonKey.COMPLETED_ON)) {
-            updateDb.put(
-                JsonKey.COMPLETED_ON,
-                ProjectUtil.formatDate((Date) updateDb.get(JsonKey.COMPLETED_ON)));
-          }
-          updateUserCoursesToES(updateDb);
-        } catch (Exception ex) {
+          courseProgressBuffer.add(update);
+        } catch (Exception e) {
           ProjectLogger.log(
-              "LearnerStateUpdateActor:updateCourse exception occured: " + ex,
+              "LearnerStateUpdateActor:updateCourse Error occured while buffering progress: " + e,
               LoggerEnum.ERROR.name());
+          unbuffered.add(update);
         }
-      } else {
-        ProjectLogger.log(
-            "LearnerStateUpdateActor:updateCourse CourseList is empty or null: ",
-            LoggerEnum.ERROR.name());
       }
     }
+    courseProgressUpdater.update(unbuffered, this::updateUserCoursesToES, key -> {});
   }
 
   private Map<String, Object> getLatestContent(
@@ -386,26 +434,20 @@ public class LearnerStateUpdateActor extends BaseActor {
    */
   @SuppressWarnings("unchecked")
   private void preOperation(
-      Map<String, Object> req, String userId, Map<String, Integer> contentStateHolder)
+      Map<String, Object> req,
+      Map<String, Integer> contentStateHolder,
+      Map<String, Map<String, Object>> existingContents)
       throws ParseException {
     ProjectLogger.log(
         "LearnerStateUpdateActor:preOperation method called.", LoggerEnum.INFO.name());
     SimpleDateFormat simpleDateFormat = ProjectUtil.getDateFormatter();
     simpleDateFormat.setLenient(false);
 
-    Util.DbInfo dbInfo = Util.dbInfoMap.get(JsonKey.LEARNER_CONTENT_DB);
-    req.put(JsonKey.ID, generatePrimaryKey(req, userId));
     contentStateHolder.put(
         (String) req.get(JsonKey.ID), ((BigInteger) req.get(JsonKey.STATUS)).intValue());
-    Response response =
-        cassandraOperation.getRecordById(
-            dbInfo.getKeySpace(), dbInfo.getTableName(), (String) req.get(JsonKey.ID));
-
-    List<Map<String, Object>> resultList =
-        (List<Map<String, Object>>) response.getResult().get(JsonKey.RESPONSE);
+    Map<String, Object> result = existingContents.get((String) req.get(JsonKey.ID));
 
-    if (!(resultList.isEmpty())) {
-      Map<String, Object> result = resultList.get(0);
+    if (result != null) {
       int currentStatus = (int) result.get(JsonKey.STATUS);
       int requestedStatus = ((BigInteger) req.get(JsonKey.STATUS)).intValue();
 
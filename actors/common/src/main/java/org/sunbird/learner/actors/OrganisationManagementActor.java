@@ -18,6 +18,8 @@ import org.sunbird.actor.core.BaseActor;
 import org.sunbird.actor.router.ActorConfig;
 import org.sunbird.cassandra.CassandraOperation;
 import org.sunbird.common.ElasticSearchHelper;
+import org.sunbird.common.cacheloader.OrgMetadataCache;
+import org.sunbird.common.cacheloader.UserProfileCache;
 import org.sunbird.common.exception.ProjectCommonException;
 import org.sunbird.common.factory.EsClientFactory;
 import org.sunbird.common.inf.ElasticSearchService;
@@ -159,10 +161,9 @@ public class OrganisationManagementActor extends BaseActor {
         @Override
         public void run() {
           if (((String) response.get(JsonKey.RESPONSE)).equalsIgnoreCase(JsonKey.SUCCESS)) {
-            DataCacheHandler.getOrgTypeMap()
-                .put(
-                    ((String) request.get(JsonKey.NAME)).toLowerCase(),
-                    (String) request.get(JsonKey.ID));
+            DataCacheHandler.updateOrgTypeMap(
+                ((String) request.get(JsonKey.NAME)).toLowerCase(),
+                (String) request.get(JsonKey.ID));
           }
         }
       }.start();
@@ -218,10 +219,9 @@ public class OrganisationManagementActor extends BaseActor {
         @Override
         public void run() {
           if (((String) response.get(JsonKey.RESPONSE)).equalsIgnoreCase(JsonKey.SUCCESS)) {
-            DataCacheHandler.getOrgTypeMap()
-                .put(
-                    ((String) request.get(JsonKey.NAME)).toLowerCase(),
-                    (String) request.get(JsonKey.ID));
+            DataCacheHandler.updateOrgTypeMap(
+                ((String) request.get(JsonKey.NAME)).toLowerCase(),
+                (String) request.get(JsonKey.ID));
           }
         }
       }.start();
@@ -431,6 +431,7 @@ public class OrganisationManagementActor extends BaseActor {
       ProjectLogger.log(
           "OrgManagementActor : createOrg : Created org id is ----." + uniqueId, LoggerEnum.INFO);
       result.getResult().put(JsonKey.ORGANISATION_ID, uniqueId);
+      OrgMetadataCache.getInstance().refresh(uniqueId, (String) request.get(JsonKey.ORG_NAME));
       sender().tell(result, self());
 
       targetObject =
@@ -545,8 +546,8 @@ public class OrganisationManagementActor extends BaseActor {
           if ((((String) map.get(JsonKey.NAME)).toLowerCase())
               .equalsIgnoreCase(orgType.toLowerCase())) {
             orgTypeId = (String) map.get(JsonKey.ID);
-            DataCacheHandler.getOrgTypeMap()
-                .put(((String) map.get(JsonKey.NAME)).toLowerCase(), (String) map.get(JsonKey.ID));
+            DataCacheHandler.updateOrgTypeMap(
+                ((String) map.get(JsonKey.NAME)).toLowerCase(), (String) map.get(JsonKey.ID));
           }
         }
       }
@@ -907,6 +908,8 @@ public class OrganisationManagementActor extends BaseActor {
           cassandraOperation.updateRecord(
               orgDbInfo.getKeySpace(), orgDbInfo.getTableName(), updateOrgDao);
       response.getResult().put(JsonKey.ORGANISATION_ID, orgDao.get(JsonKey.ID));
+      OrgMetadataCache.getInstance()
+          .refresh((String) orgDao.get(JsonKey.ID), (String) updateOrgDao.get(JsonKey.ORG_NAME));
 
       if (StringUtils.isNotBlank(passedExternalId)) {
         String channel = (String) request.get(JsonKey.CHANNEL);
@@ -1094,6 +1097,7 @@ public class OrganisationManagementActor extends BaseActor {
       cassandraOperation.updateRecord(
           organisationDbInfo.getKeySpace(), organisationDbInfo.getTableName(), newOrgMap);
     }
+    UserProfileCache.getInstance().invalidate(userId);
 
     sender().tell(response, self());
 
@@ -1212,6 +1216,7 @@ public class OrganisationManagementActor extends BaseActor {
               organisationDbInfo.getKeySpace(), organisationDbInfo.getTableName(), newOrgMap);
         }
       }
+      UserProfileCache.getInstance().invalidate(userId);
       sender().tell(response, self());
 
       // update ES with latest data through background job manager
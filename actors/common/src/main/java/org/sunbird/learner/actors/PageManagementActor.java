@@ -1,5 +1,6 @@
 package org.sunbird.learner.actors;
 
+import akka.actor.ActorSystem;
 import akka.dispatch.Futures;
 import akka.dispatch.Mapper;
 import akka.pattern.Patterns;
@@ -13,6 +14,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -20,10 +22,13 @@ import org.sunbird.actor.core.BaseActor;
 import org.sunbird.actor.router.ActorConfig;
 import org.sunbird.cassandra.CassandraOperation;
 import org.sunbird.common.ElasticSearchHelper;
+import org.sunbird.common.cacheloader.CacheKeyUtil;
 import org.sunbird.common.cacheloader.PageCacheLoaderService;
+import org.sunbird.common.cacheloader.PageCacheRefresher;
+import org.sunbird.common.cacheloader.PageResponseCache;
+import org.sunbird.common.cacheloader.SectionSearchCache;
 import org.sunbird.common.exception.ProjectCommonException;
 import org.sunbird.common.factory.EsClientFactory;
-import org.sunbird.common.hash.HashGeneratorUtil;
 import org.sunbird.common.inf.ElasticSearchService;
 import org.sunbird.common.models.response.Response;
 import org.sunbird.common.models.util.ActorOperations;
@@ -39,7 +44,6 @@ import org.sunbird.dto.SearchDTO;
 import org.sunbird.helper.ServiceFactory;
 import org.sunbird.learner.util.ContentSearchUtil;
 import org.sunbird.learner.util.Util;
-import org.sunbird.notification.utils.JsonUtil;
 import org.sunbird.telemetry.util.TelemetryUtil;
 import scala.concurrent.ExecutionContextExecutor;
 import scala.concurrent.Future;
@@ -73,9 +77,15 @@ public class PageManagementActor extends BaseActor {
   private Util.DbInfo orgDbInfo = Util.dbInfoMap.get(JsonKey.ORG_DB);
   private CassandraOperation cassandraOperation = ServiceFactory.getInstance();
   private ObjectMapper mapper = new ObjectMapper();
-  private boolean isCacheEnabled = false;
   private ElasticSearchService esService = EsClientFactory.getInstance(JsonKey.REST);
-  // Boolean.parseBoolean(ProjectUtil.propertiesCache.getProperty(JsonKey.SUNBIRD_CACHE_ENABLE));
+  private PageResponseCache pageResponseCache = PageResponseCache.getInstance();
+  private SectionSearchCache sectionSearchCache = SectionSearchCache.getInstance();
+
+  @Override
+  public void preStart() throws Exception {
+    super.preStart();
+    pageResponseCache.subscribe(context().system());
+  }
 
   @Override
   public void onReceive(Request request) throws Throwable {
@@ -147,7 +157,7 @@ public class PageManagementActor extends BaseActor {
         Response section = new Response();
         section.put(JsonKey.SECTION, response.get(JsonKey.RESPONSE));
         PageCacheLoaderService.putDataIntoCache(
-            ActorOperations.GET_SECTION.getValue(), sectionId, response.get(JsonKey.RESPONSE));
+            ActorOperations.GET_SECTION.getValue(), sectionId, map);
         sender().tell(section, self());
         return;
       } else {
@@ -249,6 +259,7 @@ public class PageManagementActor extends BaseActor {
   }
 
   private void updateSectionDataCache(Response response, Map<String, Object> sectionMap) {
+    ActorSystem system = context().system();
     new Thread(
             () -> {
               if ((JsonKey.SUCCESS).equalsIgnoreCase((String) response.get(JsonKey.RESPONSE))) {
@@ -256,6 +267,8 @@ public class PageManagementActor extends BaseActor {
                     ActorOperations.GET_SECTION.getValue(),
                     (String) sectionMap.get(JsonKey.ID),
                     sectionMap);
+                PageCacheRefresher.publishSectionChange((String) sectionMap.get(JsonKey.ID));
+                pageResponseCache.invalidateAll(system);
               }
             })
         .start();
@@ -321,92 +334,97 @@ public class PageManagementActor extends BaseActor {
           ResponseCode.CLIENT_ERROR.getResponseCode());
     }
 
-    String requestHashCode = "";
-    if (isCacheEnabled) {
+    Object[] sections = arr;
+    Callable<Future<Response>> assembler =
+        () -> assemblePage(pageMap, sections, reqFilters, headers, filterMap, urlQueryString);
+    Future<Response> response;
+    if (pageResponseCache.isEnabled()) {
       Map<String, Object> reqMap = new HashMap<>();
+      reqMap.put(JsonKey.ID, pageMap.get(JsonKey.ID));
       reqMap.put(JsonKey.SECTION, arr);
       reqMap.put(JsonKey.FILTERS, reqFilters);
-      reqMap.put(JsonKey.HEADER, headers);
+      reqMap.put(JsonKey.HEADER, CacheKeyUtil.getCacheKeyHeaders(headers));
       reqMap.put(JsonKey.FILTER, filterMap);
       reqMap.put(JsonKey.URL_QUERY_STRING, urlQueryString);
-      requestHashCode = HashGeneratorUtil.getHashCode(JsonUtil.toJson(reqMap));
-      Response cachedResponse =
-          PageCacheLoaderService.getDataFromCache(
-              JsonKey.PAGE_ASSEMBLE, requestHashCode, Response.class);
-      if (StringUtils.isNotBlank(requestHashCode) && cachedResponse != null) {
-        ProjectLogger.log(
-            "PageManagementActor : getPageData : response returned from cache",
-            LoggerEnum.INFO.name());
-        sender().tell(cachedResponse, self());
-        return;
-      }
+      response =
+          pageResponseCache.getOrAssemble(
+              CacheKeyUtil.getKey(reqMap),
+              assembler,
+              this::isCompletePage,
+              getContext().dispatcher());
+    } else {
+      response = assembler.call();
     }
-    String reqHashCode = requestHashCode;
-    try {
-      List<Future<Map<String, Object>>> sectionList = new ArrayList<>();
-      if (arr != null) {
-        for (Object obj : arr) {
-          Map<String, Object> sectionMap = (Map<String, Object>) obj;
-
-          if (MapUtils.isNotEmpty(sectionMap)) {
-
-            Map<String, Object> sectionData =
-                new HashMap<String, Object>(
-                    PageCacheLoaderService.getDataFromCache(
-                        ActorOperations.GET_SECTION.getValue(),
-                        (String) sectionMap.get(JsonKey.ID),
-                        Map.class));
-            if (MapUtils.isNotEmpty(sectionData)) {
-              Future<Map<String, Object>> contentFuture =
-                  getContentData(
-                      sectionData,
-                      reqFilters,
-                      headers,
-                      filterMap,
-                      urlQueryString,
-                      sectionMap.get(JsonKey.GROUP),
-                      sectionMap.get(JsonKey.INDEX),
-                      context().dispatcher());
-              sectionList.add(contentFuture);
-            }
+    Patterns.pipe(response, getContext().dispatcher()).to(sender());
+  }
+
+  @SuppressWarnings("unchecked")
+  private Future<Response> assemblePage(
+      Map<String, Object> pageMap,
+      Object[] arr,
+      Map<String, Object> reqFilters,
+      Map<String, String> headers,
+      Map<String, Object> filterMap,
+      String urlQueryString)
+      throws Exception {
+    List<Future<Map<String, Object>>> sectionList = new ArrayList<>();
+    if (arr != null) {
+      for (Object obj : arr) {
+        Map<String, Object> sectionMap = (Map<String, Object>) obj;
+
+        if (MapUtils.isNotEmpty(sectionMap)) {
+
+          Map<String, Object> sectionData =
+              new HashMap<String, Object>(
+                  PageCacheLoaderService.getDataFromCache(
+                      ActorOperations.GET_SECTION.getValue(),
+                      (String) sectionMap.get(JsonKey.ID),
+                      Map.class));
+          if (MapUtils.isNotEmpty(sectionData)) {
+            Future<Map<String, Object>> contentFuture =
+                getContentData(
+                    sectionData,
+                    reqFilters,
+                    headers,
+                    filterMap,
+                    urlQueryString,
+                    sectionMap.get(JsonKey.GROUP),
+                    sectionMap.get(JsonKey.INDEX),
+                    context().dispatcher());
+            sectionList.add(contentFuture);
           }
         }
       }
+    }
 
-      Future<Iterable<Map<String, Object>>> sectionsFuture =
-          Futures.sequence(sectionList, getContext().dispatcher());
-      Future<Response> response =
-          sectionsFuture.map(
-              new Mapper<Iterable<Map<String, Object>>, Response>() {
-                @Override
-                public Response apply(Iterable<Map<String, Object>> sections) {
-                  ArrayList<Map<String, Object>> sectionList = Lists.newArrayList(sections);
-                  Map<String, Object> result = new HashMap<>();
-                  result.put(JsonKey.NAME, pageMap.get(JsonKey.NAME));
-                  result.put(JsonKey.ID, pageMap.get(JsonKey.ID));
-                  result.put(JsonKey.SECTIONS, sectionList);
-                  Response response = new Response();
-                  response.put(JsonKey.RESPONSE, result);
-                  ProjectLogger.log(
-                      "PageManagementActor:getPageData:apply: Response before caching it = "
-                          + response,
-                      LoggerEnum.INFO);
-                  return response;
-                }
-              },
-              getContext().dispatcher());
-      Patterns.pipe(response, getContext().dispatcher()).to(sender());
+    Future<Iterable<Map<String, Object>>> sectionsFuture =
+        Futures.sequence(sectionList, getContext().dispatcher());
+    return sectionsFuture.map(
+        new Mapper<Iterable<Map<String, Object>>, Response>() {
+          @Override
+          public Response apply(Iterable<Map<String, Object>> sections) {
+            ArrayList<Map<String, Object>> sectionList = Lists.newArrayList(sections);
+            Map<String, Object> result = new HashMap<>();
+            result.put(JsonKey.NAME, pageMap.get(JsonKey.NAME));
+            result.put(JsonKey.ID, pageMap.get(JsonKey.ID));
+            result.put(JsonKey.SECTIONS, sectionList);
+            Response response = new Response();
+            response.put(JsonKey.RESPONSE, result);
+            ProjectLogger.log(
+                "PageManagementActor:getPageData:apply: Response before caching it = " + response,
+                LoggerEnum.INFO);
+            return response;
+          }
+        },
+        getContext().dispatcher());
+  }
 
-    } catch (Exception e) {
-      ProjectLogger.log(
-          "PageManagementActor:getPageData: Exception occurred with error message = "
-              + e.getMessage(),
-          LoggerEnum.ERROR);
-      ProjectLogger.log(
-          "PageManagementActor:getPageData: Exception occurred with error message = "
-              + e.getMessage(),
-          e);
-    }
+  /** Page is cached only if search returned a result for every section. */
+  @SuppressWarnings("unchecked")
+  private boolean isCompletePage(Response response) {
+    Map<String, Object> result = (Map<String, Object>) response.get(JsonKey.RESPONSE);
+    List<Map<String, Object>> sections = (List<Map<String, Object>>) result.get(JsonKey.SECTIONS);
+    return sections.stream().allMatch(section -> section.containsKey(JsonKey.CONTENTS));
   }
 
   @SuppressWarnings("unchecked")
@@ -587,6 +605,7 @@ public class PageManagementActor extends BaseActor {
   }
 
   private void updatePageDataCacheHandler(Response response, Map<String, Object> pageMap) {
+    ActorSystem system = context().system();
     // update DataCacheHandler page map with new page data
     new Thread(
             () -> {
@@ -599,6 +618,8 @@ public class PageManagementActor extends BaseActor {
                     ActorOperations.GET_PAGE_DATA.getValue(),
                     orgId + ":" + (String) pageMap.get(JsonKey.PAGE_NAME),
                     pageMap);
+                PageCacheRefresher.publishPageChange((String) pageMap.get(JsonKey.ID));
+                pageResponseCache.invalidateAll(system);
               }
             })
         .start();
@@ -622,6 +643,7 @@ public class PageManagementActor extends BaseActor {
       searchQueryMap = new HashMap<String, Object>();
       searchQueryMap.put(JsonKey.REQUEST, new HashMap<String, Object>());
     }
+    Object sectionCacheTtl = searchQueryMap.remove(SectionSearchCache.SECTION_CACHE_TTL);
     Map<String, Object> request = (Map<String, Object>) searchQueryMap.get(JsonKey.REQUEST);
 
     for (Entry<String, Object> entry : filterMap.entrySet()) {
@@ -645,7 +667,20 @@ public class PageManagementActor extends BaseActor {
     section.put(JsonKey.INDEX, index);
     if (StringUtils.isEmpty(dataSource) || JsonKey.CONTENT.equalsIgnoreCase(dataSource)) {
 
-      result = ContentSearchUtil.searchContent(urlQueryString, queryRequestBody, headers, ec);
+      String searchBody = queryRequestBody;
+      Callable<Future<Map<String, Object>>> search =
+          () -> ContentSearchUtil.searchContent(urlQueryString, searchBody, headers, ec);
+      if (sectionSearchCache.isEnabled()) {
+        Map<String, Object> searchKey = new HashMap<>();
+        searchKey.put(JsonKey.URL_QUERY_STRING, urlQueryString);
+        searchKey.put(JsonKey.REQUEST, searchQueryMap);
+        searchKey.put(JsonKey.HEADER, CacheKeyUtil.getCacheKeyHeaders(headers));
+        result =
+            sectionSearchCache.get(
+                CacheKeyUtil.getKey(searchKey), sectionCacheTtl, search, ec);
+      } else {
+        result = search.call();
+      }
       return result.map(
           new Mapper<Map<String, Object>, Map<String, Object>>() {
             @Override
@@ -1,25 +1,16 @@
 package org.sunbird.learner.actors.bulkupload;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.opencsv.CSVWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.text.MessageFormat;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
-import org.apache.commons.collections.MapUtils;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.sunbird.common.Constants;
 import org.sunbird.common.exception.ProjectCommonException;
-import org.sunbird.common.models.util.BulkUploadJsonKey;
 import org.sunbird.common.models.util.JsonKey;
 import org.sunbird.common.models.util.LoggerEnum;
 import org.sunbird.common.models.util.ProjectLogger;
@@ -31,9 +22,12 @@ import org.sunbird.common.util.CloudStorageUtil.CloudStorageType;
 import org.sunbird.learner.actors.bulkupload.model.BulkUploadProcess;
 import org.sunbird.learner.actors.bulkupload.model.BulkUploadProcessTask;
 import org.sunbird.learner.actors.bulkupload.model.StorageDetails;
+import org.sunbird.learner.util.ConfigValueUtil;
 
 public abstract class BaseBulkUploadBackgroundJobActor extends BaseBulkUploadActor {
 
+  private static final String BULK_UPLOAD_PARALLELISM = "sunbird_bulk_upload_{0}_parallelism";
+
   protected void setSuccessTaskStatus(
       BulkUploadProcessTask task,
       ProjectUtil.BulkProcessStatus status,
@@ -97,6 +91,15 @@ public abstract class BaseBulkUploadBackgroundJobActor extends BaseBulkUploadAct
     bulkUploadDao.update(bulkUploadProcess);
   }
 
+  /**
+   * Processes the tasks of a bulk upload in windows of {@code CASSANDRA_BATCH_SIZE} tasks. The next
+   * window is read while the current one is processed, the tasks of a window are processed by up to
+   * {@link #getParallelism(BulkUploadProcess)} threads, tasks sharing one of the {@link
+   * #getUniqueValues(BulkUploadProcessTask)} on the same thread, and the task status of a window is
+   * written in the background in sequence order. Windows at the start of the process whose tasks
+   * are all completed or failed were committed by an earlier run, they are not processed again.
+   * Results are appended to the result file window by window, see {@link BulkUploadResultWriter}.
+   */
   public void processBulkUpload(
       BulkUploadProcess bulkUploadProcess,
       Function function,
@@ -105,79 +108,98 @@ public abstract class BaseBulkUploadBackgroundJobActor extends BaseBulkUploadAct
     String logMessagePrefix =
         MessageFormat.format(
             "BaseBulkUploadBackGroundJobActor:processBulkUpload:{0}: ", bulkUploadProcess.getId());
-    Integer sequence = 0;
-    Integer taskCount = bulkUploadProcess.getTaskCount();
-    List<Map<String, Object>> successList = new LinkedList<>();
-    List<Map<String, Object>> failureList = new LinkedList<>();
-    while (sequence < taskCount) {
-      Integer nextSequence = sequence + CASSANDRA_BATCH_SIZE;
-      Map<String, Object> queryMap = new HashMap<>();
-      queryMap.put(JsonKey.PROCESS_ID, bulkUploadProcess.getId());
-      Map<String, Object> sequenceRange = new HashMap<>();
-      sequenceRange.put(Constants.GT, sequence);
-      sequenceRange.put(Constants.LTE, nextSequence);
-      queryMap.put(BulkUploadJsonKey.SEQUENCE_ID, sequenceRange);
-      List<BulkUploadProcessTask> tasks = bulkUploadProcessTaskDao.readByPrimaryKeys(queryMap);
-      if (tasks == null) {
-        ProjectLogger.log(
-            logMessagePrefix
-                + "No bulkUploadProcessTask found for process id: "
-                + bulkUploadProcess.getId()
-                + " and range "
-                + sequence
-                + ":"
-                + nextSequence,
-            LoggerEnum.INFO);
-        sequence = nextSequence;
-        continue;
-      }
-      function.apply(tasks);
+    try (BulkUploadResultWriter resultWriter =
+        new BulkUploadResultWriter(
+            bulkUploadProcess.getObjectType(),
+            outputColumnMap,
+            outputColumnsOrder,
+            this::preProcessResult)) {
+      runPipeline(bulkUploadProcess, function, resultWriter, logMessagePrefix);
+      setCompletionStatus(bulkUploadProcess, resultWriter);
+    } catch (IOException e) {
+      ProjectLogger.log(
+          logMessagePrefix + "Exception occurred with error message = " + e.getMessage(),
+          LoggerEnum.INFO,
+          e);
+    }
+  }
 
-      try {
-        for (BulkUploadProcessTask task : tasks) {
+  private void runPipeline(
+      BulkUploadProcess bulkUploadProcess,
+      Function function,
+      BulkUploadResultWriter resultWriter,
+      String logMessagePrefix) {
+    new BulkUploadPipeline(
+            bulkUploadProcessTaskDao,
+            CASSANDRA_BATCH_SIZE,
+            getParallelism(bulkUploadProcess),
+            this::getUniqueValues,
+            this::performBatchUpdate)
+        .run(
+            bulkUploadProcess,
+            function,
+            tasks -> writeResults(tasks, resultWriter, logMessagePrefix),
+            logMessagePrefix);
+  }
 
-          if (task.getStatus().equals(ProjectUtil.BulkProcessStatus.FAILED.getValue())) {
-            failureList.add(
-                mapper.readValue(
-                    task.getFailureResult(), new TypeReference<Map<String, Object>>() {}));
-          } else if (task.getStatus().equals(ProjectUtil.BulkProcessStatus.COMPLETED.getValue())) {
-            successList.add(
-                mapper.readValue(
-                    task.getSuccessResult(), new TypeReference<Map<String, Object>>() {}));
-          }
-        }
+  /**
+   * Returns the number of threads processing the tasks of a window. It is configured per object
+   * type with {@code sunbird_bulk_upload_<objectType>_parallelism}.
+   */
+  protected int getParallelism(BulkUploadProcess bulkUploadProcess) {
+    int parallelism =
+        ConfigValueUtil.getIntValue(
+            MessageFormat.format(BULK_UPLOAD_PARALLELISM, bulkUploadProcess.getObjectType()),
+            getDefaultParallelism());
+    return Math.max(1, parallelism);
+  }
+
+  /** Tasks are processed one at a time unless the object type is known to be safe in parallel. */
+  protected int getDefaultParallelism() {
+    return 1;
+  }
 
+  /**
+   * Returns the values of a task which have to be unique across the upload, e.g. email or phone.
+   * Tasks sharing a value are processed by the same thread in sequence order.
+   */
+  protected Collection<String> getUniqueValues(BulkUploadProcessTask task) {
+    return Collections.emptyList();
+  }
+
+  private void writeResults(
+      List<BulkUploadProcessTask> tasks,
+      BulkUploadResultWriter resultWriter,
+      String logMessagePrefix) {
+    for (BulkUploadProcessTask task : tasks) {
+      try {
+        resultWriter.add(task);
       } catch (IOException e) {
         ProjectLogger.log(
             logMessagePrefix + "Exception occurred with error message = " + e.getMessage(),
             LoggerEnum.INFO,
             e);
       }
-      performBatchUpdate(tasks);
-      sequence = nextSequence;
     }
-    setCompletionStatus(
-        bulkUploadProcess, successList, failureList, outputColumnMap, outputColumnsOrder);
   }
 
   private void setCompletionStatus(
-      BulkUploadProcess bulkUploadProcess,
-      List successList,
-      List failureList,
-      Map<String, String> outputColumnsMap,
-      String[] outputColumnsOrder) {
+      BulkUploadProcess bulkUploadProcess, BulkUploadResultWriter resultWriter) {
     String logMessagePrefix =
         MessageFormat.format(
             "BaseBulkUploadBackGroundJobActor:processBulkUpload:{0}: ", bulkUploadProcess.getId());
     try {
 
-      ProjectLogger.log(logMessagePrefix + "completed", LoggerEnum.INFO);
-      bulkUploadProcess.setSuccessResult(ProjectUtil.convertMapToJsonString(successList));
-      bulkUploadProcess.setFailureResult(ProjectUtil.convertMapToJsonString(failureList));
+      ProjectLogger.log(
+          logMessagePrefix
+              + "completed with "
+              + resultWriter.getSuccessCount()
+              + " successful and "
+              + resultWriter.getFailureCount()
+              + " failed tasks",
+          LoggerEnum.INFO);
       bulkUploadProcess.setStatus(ProjectUtil.BulkProcessStatus.COMPLETED.getValue());
-      StorageDetails storageDetails =
-          uploadResultToCloud(
-              bulkUploadProcess, successList, failureList, outputColumnsMap, outputColumnsOrder);
+      StorageDetails storageDetails = uploadResultToCloud(bulkUploadProcess, resultWriter);
       bulkUploadProcess.setEncryptedStorageDetails(storageDetails);
 
     } catch (Exception e) {
@@ -210,43 +232,15 @@ public abstract class BaseBulkUploadBackgroundJobActor extends BaseBulkUploadAct
   }
 
   private StorageDetails uploadResultToCloud(
-      BulkUploadProcess bulkUploadProcess,
-      List<Map<String, Object>> successList,
-      List<Map<String, Object>> failureList,
-      Map<String, String> outputColumnsMap,
-      String[] outputColumnsOrder)
+      BulkUploadProcess bulkUploadProcess, BulkUploadResultWriter resultWriter)
       throws IOException {
 
     String objKey = generateObjectKey(bulkUploadProcess);
-    File file = null;
-    try {
-      file = getFileHandle(bulkUploadProcess.getObjectType(), bulkUploadProcess.getId());
-      writeResultsToFile(file, successList, failureList, outputColumnsMap, outputColumnsOrder);
-      CloudStorageUtil.upload(
-          CloudStorageType.AZURE,
-          bulkUploadProcess.getObjectType(),
-          objKey,
-          file.getAbsolutePath());
-      return new StorageDetails(
-          CloudStorageType.AZURE.getType(), bulkUploadProcess.getObjectType(), objKey);
-    } finally {
-      FileUtils.deleteQuietly(file);
-    }
-  }
-
-  private File getFileHandle(String objType, String processId) {
-    String logMessagePrefix =
-        MessageFormat.format("BaseBulkUploadBackGroundJobActor:getFileHandle:{0}: ", processId);
-    File file = null;
-    try {
-      file = File.createTempFile(objType, "upload");
-    } catch (IOException e) {
-      ProjectLogger.log(
-          logMessagePrefix + "Exception occurred with error message = " + e.getMessage(),
-          LoggerEnum.INFO,
-          e);
-    }
-    return file;
+    File file = resultWriter.finish();
+    CloudStorageUtil.upload(
+        CloudStorageType.AZURE, bulkUploadProcess.getObjectType(), objKey, file.getAbsolutePath());
+    return new StorageDetails(
+        CloudStorageType.AZURE.getType(), bulkUploadProcess.getObjectType(), objKey);
   }
 
   private String generateObjectKey(BulkUploadProcess bulkUploadProcess) {
@@ -255,62 +249,5 @@ public abstract class BaseBulkUploadBackgroundJobActor extends BaseBulkUploadAct
     return "bulk_upload_" + objType + "_" + processId + ".csv";
   }
 
-  private void writeResultsToFile(
-      File file,
-      List<Map<String, Object>> successList,
-      List<Map<String, Object>> failureList,
-      Map<String, String> outputColumnsMap,
-      String[] outputColumnsOrder)
-      throws IOException {
-    try (CSVWriter csvWriter = new CSVWriter(new FileWriter(file)); ) {
-      List<String> headerRowWithInternalNames = new ArrayList<>(Arrays.asList(outputColumnsOrder));
-
-      headerRowWithInternalNames.add(JsonKey.BULK_UPLOAD_STATUS);
-      headerRowWithInternalNames.add(JsonKey.BULK_UPLOAD_ERROR);
-
-      if (MapUtils.isNotEmpty(outputColumnsMap)) {
-        List<String> headerRowWithDisplayNames = new ArrayList<>();
-        headerRowWithInternalNames.forEach(
-            s -> {
-              if (outputColumnsMap.containsKey(s)) {
-                headerRowWithDisplayNames.add(outputColumnsMap.get(s));
-              } else {
-                headerRowWithDisplayNames.add(s);
-              }
-            });
-        csvWriter.writeNext(headerRowWithDisplayNames.toArray(new String[0]));
-      } else {
-        csvWriter.writeNext(headerRowWithInternalNames.toArray(new String[0]));
-      }
-
-      addResults(successList, headerRowWithInternalNames, csvWriter);
-      addResults(failureList, headerRowWithInternalNames, csvWriter);
-      csvWriter.flush();
-    }
-  }
-
-  private void addResults(
-      List<Map<String, Object>> resultList, List<String> headerRows, CSVWriter csvWriter) {
-    resultList
-        .stream()
-        .forEach(
-            map -> {
-              preProcessResult(map);
-              String[] nextLine = new String[headerRows.size()];
-              String errMsg = (String) map.get(JsonKey.ERROR_MSG);
-              int i = 0;
-              for (String field : headerRows) {
-                if (JsonKey.BULK_UPLOAD_STATUS.equals(field)) {
-                  nextLine[i++] = errMsg == null ? JsonKey.SUCCESS : JsonKey.FAILED;
-                } else if (JsonKey.BULK_UPLOAD_ERROR.equals(field)) {
-                  nextLine[i++] = errMsg == null ? "" : errMsg;
-                } else {
-                  nextLine[i++] = String.valueOf(map.get(field));
-                }
-              }
-              csvWriter.writeNext(nextLine);
-            });
-  }
-
   public abstract void preProcessResult(Map<String, Object> result);
 }
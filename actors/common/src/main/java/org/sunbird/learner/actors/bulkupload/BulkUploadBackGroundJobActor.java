@@ -916,9 +916,8 @@ public class BulkUploadBackGroundJobActor extends BaseActor {
             if ((((String) map.get(JsonKey.NAME)).toLowerCase())
                 .equalsIgnoreCase(orgType.toLowerCase())) {
               orgTypeId = (String) map.get(JsonKey.ID);
-              DataCacheHandler.getOrgTypeMap()
-                  .put(
-                      ((String) map.get(JsonKey.NAME)).toLowerCase(), (String) map.get(JsonKey.ID));
+              DataCacheHandler.updateOrgTypeMap(
+                  ((String) map.get(JsonKey.NAME)).toLowerCase(), (String) map.get(JsonKey.ID));
             }
           }
         }
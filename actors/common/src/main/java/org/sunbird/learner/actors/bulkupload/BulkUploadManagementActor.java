@@ -11,6 +11,7 @@ import java.util.Map;
 import org.apache.commons.lang3.StringUtils;
 import org.sunbird.actor.router.ActorConfig;
 import org.sunbird.cassandra.CassandraOperation;
+import org.sunbird.common.Constants;
 import org.sunbird.common.exception.ProjectCommonException;
 import org.sunbird.common.models.response.Response;
 import org.sunbird.common.models.util.*;
@@ -28,6 +29,7 @@ import org.sunbird.learner.actors.bulkupload.dao.impl.BulkUploadProcessTaskDaoIm
 import org.sunbird.learner.actors.bulkupload.model.BulkUploadProcess;
 import org.sunbird.learner.actors.bulkupload.model.BulkUploadProcessTask;
 import org.sunbird.learner.actors.bulkupload.model.StorageDetails;
+import org.sunbird.learner.util.ConfigValueUtil;
 import org.sunbird.learner.util.UserUtility;
 import org.sunbird.learner.util.Util;
 import org.sunbird.learner.util.Util.DbInfo;
@@ -43,6 +45,12 @@ import org.sunbird.learner.util.Util.DbInfo;
 )
 public class BulkUploadManagementActor extends BaseBulkUploadActor {
 
+  /** Number of task results returned by the status API when the request has no limit. */
+  public static final String STATUS_PAGE_SIZE = "sunbird_bulk_upload_status_page_size";
+
+  private static final int DEFAULT_STATUS_PAGE_SIZE = 1000;
+  private static final String TASK_COUNT = "taskCount";
+
   private CassandraOperation cassandraOperation = ServiceFactory.getInstance();
   private Util.DbInfo bulkDb = Util.dbInfoMap.get(JsonKey.BULK_OP_DB);
   private int userDataSize = 0;
@@ -162,7 +170,8 @@ public class BulkUploadManagementActor extends BaseBulkUploadActor {
             JsonKey.STATUS,
             JsonKey.OBJECT_TYPE,
             JsonKey.SUCCESS_RESULT,
-            JsonKey.FAILURE_RESULT);
+            JsonKey.FAILURE_RESULT,
+            TASK_COUNT);
     response =
         cassandraOperation.getRecordById(
             bulkDb.getKeySpace(), bulkDb.getTableName(), processId, fields);
@@ -176,7 +185,11 @@ public class BulkUploadManagementActor extends BaseBulkUploadActor {
         resMap.put(JsonKey.PROCESS_ID, resMap.get(JsonKey.ID));
         updateResponseStatus(resMap);
         ProjectUtil.removeUnwantedFields(resMap, JsonKey.ID);
-        if (!(JsonKey.LOCATION.equalsIgnoreCase(objectType))) {
+        // results are read from the tasks for location and for uploads which did not store them
+        // in the process
+        if (!(JsonKey.LOCATION.equalsIgnoreCase(objectType))
+            && (null != resMap.get(JsonKey.SUCCESS_RESULT)
+                || null != resMap.get(JsonKey.FAILURE_RESULT))) {
           Object[] successMap = null;
           Object[] failureMap = null;
           try {
@@ -214,9 +227,13 @@ public class BulkUploadManagementActor extends BaseBulkUploadActor {
             ProjectLogger.log(e.getMessage(), e);
           }
         } else {
-          Map<String, Object> queryMap = new HashMap<>();
-          queryMap.put(JsonKey.PROCESS_ID, processId);
-          List<BulkUploadProcessTask> tasks = bulkUploadProcessTaskDao.readByPrimaryKeys(queryMap);
+          int offset = getIntValue(actorMessage.getRequest().get(JsonKey.OFFSET), 0, 0);
+          int limit =
+              getIntValue(
+                  actorMessage.getRequest().get(JsonKey.LIMIT), 1, getDefaultStatusPageSize());
+          resMap.put(JsonKey.OFFSET, offset);
+          resMap.put(JsonKey.LIMIT, limit);
+          List<BulkUploadProcessTask> tasks = readTaskPage(processId, offset, limit);
 
           List<Map> successList = new ArrayList<>();
           List<Map> failureList = new ArrayList<>();
@@ -230,6 +247,13 @@ public class BulkUploadManagementActor extends BaseBulkUploadActor {
                       addTaskDataToList(failureList, x.getFailureResult());
                     }
                   });
+          if (JsonKey.USER.equalsIgnoreCase(objectType)) {
+            successList.forEach(
+                x -> {
+                  UserUtility.decryptUserData((Map<String, Object>) x);
+                  Util.addMaskEmailAndPhone((Map<String, Object>) x);
+                });
+          }
           resMap.put(JsonKey.SUCCESS_RESULT, successList);
           resMap.put(JsonKey.FAILURE_RESULT, failureList);
         }
@@ -250,6 +274,48 @@ public class BulkUploadManagementActor extends BaseBulkUploadActor {
     }
   }
 
+  /**
+   * Reads the tasks with sequence id in {@code (offset, offset + limit]}. The sequence id is the
+   * clustering key of the task table, so a page is a single range read of the process partition.
+   */
+  private List<BulkUploadProcessTask> readTaskPage(String processId, int offset, int limit) {
+    Map<String, Object> queryMap = new HashMap<>();
+    queryMap.put(JsonKey.PROCESS_ID, processId);
+    Map<String, Object> sequenceRange = new HashMap<>();
+    sequenceRange.put(Constants.GT, offset);
+    sequenceRange.put(Constants.LTE, offset + limit);
+    queryMap.put(BulkUploadJsonKey.SEQUENCE_ID, sequenceRange);
+    List<BulkUploadProcessTask> tasks = bulkUploadProcessTaskDao.readByPrimaryKeys(queryMap);
+    return tasks == null ? new ArrayList<>() : tasks;
+  }
+
+  /**
+   * Reads a paging parameter passed either as number or as string.
+   *
+   * @return the value, or {@code defaultValue} if it is missing, not an integer or below {@code
+   *     minValue}
+   */
+  private int getIntValue(Object value, int minValue, int defaultValue) {
+    int intValue;
+    if (value instanceof Number) {
+      intValue = ((Number) value).intValue();
+    } else if (value instanceof String) {
+      try {
+        intValue = Integer.parseInt(((String) value).trim());
+      } catch (NumberFormatException e) {
+        return defaultValue;
+      }
+    } else {
+      return defaultValue;
+    }
+    return intValue < minValue ? defaultValue : intValue;
+  }
+
+  private int getDefaultStatusPageSize() {
+    int pageSize = ConfigValueUtil.getIntValue(STATUS_PAGE_SIZE, DEFAULT_STATUS_PAGE_SIZE);
+    return pageSize > 0 ? pageSize : DEFAULT_STATUS_PAGE_SIZE;
+  }
+
   private void updateResponseStatus(Map<String, Object> response) {
     String status = "";
     int progressStatus = (int) response.get(JsonKey.STATUS);
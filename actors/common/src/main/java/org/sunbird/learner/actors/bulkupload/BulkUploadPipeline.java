@@ -0,0 +1,256 @@
+package org.sunbird.learner.actors.bulkupload;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.sunbird.common.Constants;
+import org.sunbird.common.models.util.BulkUploadJsonKey;
+import org.sunbird.common.models.util.JsonKey;
+import org.sunbird.common.models.util.LoggerEnum;
+import org.sunbird.common.models.util.ProjectLogger;
+import org.sunbird.common.models.util.ProjectUtil;
+import org.sunbird.common.request.ExecutionContext;
+import org.sunbird.learner.actors.bulkupload.dao.BulkUploadProcessTaskDao;
+import org.sunbird.learner.actors.bulkupload.model.BulkUploadProcess;
+import org.sunbird.learner.actors.bulkupload.model.BulkUploadProcessTask;
+
+/**
+ * Processes the tasks of a bulk upload in windows of {@code batchSize} tasks. The next window is
+ * read while the current one is processed, the tasks of a window are split into up to {@code
+ * parallelism} lanes which are processed by one thread each, and the task status of a window is
+ * written in the background in sequence order. Tasks sharing a unique value, e.g. two rows with the
+ * same email, are put into the same lane and processed in sequence order, so that the uniqueness
+ * check of the later row sees the record created by the earlier one.
+ */
+class BulkUploadPipeline {
+
+  private static final long STATUS_WRITE_TIMEOUT_MINUTES = 10;
+
+  private final BulkUploadProcessTaskDao taskDao;
+  private final int batchSize;
+  private final int parallelism;
+  private final Function<BulkUploadProcessTask, Collection<String>> uniqueValues;
+  private final Consumer<List<BulkUploadProcessTask>> statusUpdater;
+
+  /**
+   * @param taskDao reads the task windows
+   * @param batchSize number of tasks per window
+   * @param parallelism maximum number of lanes per window
+   * @param uniqueValues returns the values of a task which have to be unique
+   * @param statusUpdater writes the status of the tasks of a window
+   */
+  BulkUploadPipeline(
+      BulkUploadProcessTaskDao taskDao,
+      int batchSize,
+      int parallelism,
+      Function<BulkUploadProcessTask, Collection<String>> uniqueValues,
+      Consumer<List<BulkUploadProcessTask>> statusUpdater) {
+    this.taskDao = taskDao;
+    this.batchSize = batchSize;
+    this.parallelism = Math.max(1, parallelism);
+    this.uniqueValues = uniqueValues;
+    this.statusUpdater = statusUpdater;
+  }
+
+  /**
+   * Windows at the start of the process whose tasks are all completed or failed were committed by
+   * an earlier run, they are not processed again but still passed to the result consumer.
+   *
+   * @param bulkUploadProcess process to run
+   * @param function processes a list of tasks
+   * @param resultConsumer called with the tasks of every window in sequence order
+   * @param logMessagePrefix prefix of log messages
+   */
+  void run(
+      BulkUploadProcess bulkUploadProcess,
+      Function function,
+      Consumer<List<BulkUploadProcessTask>> resultConsumer,
+      String logMessagePrefix) {
+    Integer taskCount = bulkUploadProcess.getTaskCount();
+    Map<String, Object> requestContext = ExecutionContext.getCurrent().getRequestContext();
+    ExecutorService reader = Executors.newSingleThreadExecutor();
+    ExecutorService statusWriter = Executors.newSingleThreadExecutor();
+    ExecutorService workers = Executors.newFixedThreadPool(parallelism);
+    try {
+      boolean resuming = true;
+      Integer sequence = 0;
+      CompletableFuture<List<BulkUploadProcessTask>> nextWindow =
+          readWindowAsync(bulkUploadProcess, sequence, reader);
+      while (sequence < taskCount) {
+        List<BulkUploadProcessTask> tasks = nextWindow.join();
+        Integer nextSequence = sequence + batchSize;
+        if (nextSequence < taskCount) {
+          nextWindow = readWindowAsync(bulkUploadProcess, nextSequence, reader);
+        }
+        if (tasks == null) {
+          ProjectLogger.log(
+              logMessagePrefix
+                  + "No bulkUploadProcessTask found for process id: "
+                  + bulkUploadProcess.getId()
+                  + " and range "
+                  + sequence
+                  + ":"
+                  + nextSequence,
+              LoggerEnum.INFO);
+          sequence = nextSequence;
+          continue;
+        }
+        resuming = resuming && isCommitted(tasks);
+        if (resuming) {
+          ProjectLogger.log(
+              logMessagePrefix + "Skipping committed range " + sequence + ":" + nextSequence,
+              LoggerEnum.INFO);
+        } else {
+          processWindow(tasks, function, workers, requestContext);
+          statusWriter.execute(() -> statusUpdater.accept(tasks));
+        }
+        resultConsumer.accept(tasks);
+        sequence = nextSequence;
+      }
+    } finally {
+      reader.shutdown();
+      workers.shutdown();
+      statusWriter.shutdown();
+      awaitStatusWrites(statusWriter, logMessagePrefix);
+    }
+  }
+
+  /**
+   * Splits the tasks of a window into at most {@code parallelism} lanes. Tasks sharing a unique
+   * value, directly or through other tasks, end up in the same lane. Every lane keeps the order of
+   * its tasks.
+   */
+  List<List<BulkUploadProcessTask>> getLanes(List<BulkUploadProcessTask> tasks) {
+    int[] parent = new int[tasks.size()];
+    Map<String, Integer> owners = new HashMap<>();
+    for (int i = 0; i < tasks.size(); i++) {
+      parent[i] = i;
+      for (String value : uniqueValues.apply(tasks.get(i))) {
+        Integer owner = owners.putIfAbsent(value, i);
+        if (owner != null) {
+          parent[find(parent, i)] = find(parent, owner);
+        }
+      }
+    }
+    Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+    for (int i = 0; i < tasks.size(); i++) {
+      groups.computeIfAbsent(find(parent, i), root -> new ArrayList<>()).add(i);
+    }
+    List<List<Integer>> laneIndexes = new ArrayList<>();
+    for (int i = 0; i < Math.min(parallelism, groups.size()); i++) {
+      laneIndexes.add(new ArrayList<>());
+    }
+    for (List<Integer> group : groups.values()) {
+      List<Integer> smallest = laneIndexes.get(0);
+      for (List<Integer> lane : laneIndexes) {
+        if (lane.size() < smallest.size()) {
+          smallest = lane;
+        }
+      }
+      smallest.addAll(group);
+    }
+    List<List<BulkUploadProcessTask>> lanes = new ArrayList<>();
+    for (List<Integer> indexes : laneIndexes) {
+      indexes.sort(null);
+      List<BulkUploadProcessTask> lane = new ArrayList<>();
+      for (Integer index : indexes) {
+        lane.add(tasks.get(index));
+      }
+      lanes.add(lane);
+    }
+    return lanes;
+  }
+
+  private static int find(int[] parent, int i) {
+    while (parent[i] != i) {
+      parent[i] = parent[parent[i]];
+      i = parent[i];
+    }
+    return i;
+  }
+
+  private CompletableFuture<List<BulkUploadProcessTask>> readWindowAsync(
+      BulkUploadProcess bulkUploadProcess, Integer sequence, ExecutorService reader) {
+    return CompletableFuture.supplyAsync(
+        () -> {
+          Map<String, Object> queryMap = new HashMap<>();
+          queryMap.put(JsonKey.PROCESS_ID, bulkUploadProcess.getId());
+          Map<String, Object> sequenceRange = new HashMap<>();
+          sequenceRange.put(Constants.GT, sequence);
+          sequenceRange.put(Constants.LTE, sequence + batchSize);
+          queryMap.put(BulkUploadJsonKey.SEQUENCE_ID, sequenceRange);
+          return taskDao.readByPrimaryKeys(queryMap);
+        },
+        reader);
+  }
+
+  private boolean isCommitted(List<BulkUploadProcessTask> tasks) {
+    for (BulkUploadProcessTask task : tasks) {
+      Integer status = task.getStatus();
+      if (status == null
+          || (ProjectUtil.BulkProcessStatus.COMPLETED.getValue() != status
+              && ProjectUtil.BulkProcessStatus.FAILED.getValue() != status)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void processWindow(
+      List<BulkUploadProcessTask> tasks,
+      Function function,
+      ExecutorService workers,
+      Map<String, Object> requestContext) {
+    if (parallelism == 1) {
+      function.apply(tasks);
+      return;
+    }
+    List<Future<?>> futures = new ArrayList<>();
+    for (List<BulkUploadProcessTask> lane : getLanes(tasks)) {
+      futures.add(
+          workers.submit(
+              () -> {
+                // telemetry context is thread local, each worker gets its own copy
+                ExecutionContext.getCurrent()
+                    .setRequestContext(
+                        requestContext == null ? null : new HashMap<>(requestContext));
+                function.apply(lane);
+              }));
+    }
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw new IllegalStateException(e.getCause());
+      }
+    }
+  }
+
+  private void awaitStatusWrites(ExecutorService statusWriter, String logMessagePrefix) {
+    try {
+      if (!statusWriter.awaitTermination(STATUS_WRITE_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+        ProjectLogger.log(
+            logMessagePrefix + "Timed out waiting for task status updates", LoggerEnum.ERROR);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,142 @@
+package org.sunbird.learner.actors.bulkupload;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opencsv.CSVWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.apache.commons.collections.MapUtils;
+import org.apache.commons.io.FileUtils;
+import org.sunbird.common.models.util.JsonKey;
+import org.sunbird.common.models.util.ProjectUtil;
+import org.sunbird.learner.actors.bulkupload.model.BulkUploadProcessTask;
+
+/**
+ * Writes the result CSV of a bulk upload while its tasks are processed. Successful rows are written
+ * to the result file and failed rows to a spool file which is appended to the result file at the
+ * end, so that only the counts are kept in memory.
+ */
+public class BulkUploadResultWriter implements Closeable {
+
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  private final File resultFile;
+  private final File failureFile;
+  private final CSVWriter successWriter;
+  private final CSVWriter failureWriter;
+  private final List<String> headerRow;
+  private final Consumer<Map<String, Object>> preProcessor;
+  private long successCount;
+  private long failureCount;
+
+  /**
+   * @param objectType object type of the bulk upload, used as prefix of the files
+   * @param outputColumnsMap display names of the output columns, may be empty
+   * @param outputColumnsOrder output columns
+   * @param preProcessor called on each result before it is written
+   */
+  public BulkUploadResultWriter(
+      String objectType,
+      Map<String, String> outputColumnsMap,
+      String[] outputColumnsOrder,
+      Consumer<Map<String, Object>> preProcessor)
+      throws IOException {
+    this.preProcessor = preProcessor;
+    resultFile = File.createTempFile(objectType, "upload");
+    failureFile = File.createTempFile(objectType, "failure");
+    successWriter = new CSVWriter(new FileWriter(resultFile));
+    failureWriter = new CSVWriter(new FileWriter(failureFile));
+    headerRow = new ArrayList<>(Arrays.asList(outputColumnsOrder));
+    headerRow.add(JsonKey.BULK_UPLOAD_STATUS);
+    headerRow.add(JsonKey.BULK_UPLOAD_ERROR);
+    if (MapUtils.isNotEmpty(outputColumnsMap)) {
+      List<String> headerRowWithDisplayNames = new ArrayList<>();
+      headerRow.forEach(s -> headerRowWithDisplayNames.add(outputColumnsMap.getOrDefault(s, s)));
+      successWriter.writeNext(headerRowWithDisplayNames.toArray(new String[0]));
+    } else {
+      successWriter.writeNext(headerRow.toArray(new String[0]));
+    }
+  }
+
+  /**
+   * Writes the result of a task if it is completed or failed.
+   *
+   * @param task processed task
+   */
+  public void add(BulkUploadProcessTask task) throws IOException {
+    Integer status = task.getStatus();
+    if (status == null) {
+      return;
+    }
+    if (ProjectUtil.BulkProcessStatus.FAILED.getValue() == status) {
+      writeRow(failureWriter, task.getFailureResult());
+      failureCount++;
+    } else if (ProjectUtil.BulkProcessStatus.COMPLETED.getValue() == status) {
+      writeRow(successWriter, task.getSuccessResult());
+      successCount++;
+    }
+  }
+
+  /**
+   * Completes the result file by appending the failed rows after the successful rows.
+   *
+   * @return result file, which is deleted on {@link #close()}
+   */
+  public File finish() throws IOException {
+    successWriter.close();
+    failureWriter.close();
+    try (OutputStream out = new FileOutputStream(resultFile, true)) {
+      Files.copy(failureFile.toPath(), out);
+    }
+    return resultFile;
+  }
+
+  public long getSuccessCount() {
+    return successCount;
+  }
+
+  public long getFailureCount() {
+    return failureCount;
+  }
+
+  /** Deletes the result and spool files. */
+  @Override
+  public void close() throws IOException {
+    try {
+      successWriter.close();
+      failureWriter.close();
+    } finally {
+      FileUtils.deleteQuietly(resultFile);
+      FileUtils.deleteQuietly(failureFile);
+    }
+  }
+
+  private void writeRow(CSVWriter csvWriter, String result) throws IOException {
+    Map<String, Object> map =
+        mapper.readValue(result, new TypeReference<Map<String, Object>>() {});
+    preProcessor.accept(map);
+    String[] nextLine = new String[headerRow.size()];
+    String errMsg = (String) map.get(JsonKey.ERROR_MSG);
+    int i = 0;
+    for (String field : headerRow) {
+      if (JsonKey.BULK_UPLOAD_STATUS.equals(field)) {
+        nextLine[i++] = errMsg == null ? JsonKey.SUCCESS : JsonKey.FAILED;
+      } else if (JsonKey.BULK_UPLOAD_ERROR.equals(field)) {
+        nextLine[i++] = errMsg == null ? "" : errMsg;
+      } else {
+        nextLine[i++] = String.valueOf(map.get(field));
+      }
+    }
+    csvWriter.writeNext(nextLine);
+  }
+}
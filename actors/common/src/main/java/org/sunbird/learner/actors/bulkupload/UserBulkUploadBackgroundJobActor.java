@@ -6,6 +6,7 @@ import java.sql.Timestamp;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -45,6 +46,10 @@ public class UserBulkUploadBackgroundJobActor extends BaseBulkUploadBackgroundJo
   private OrganisationClient organisationClient = new OrganisationClientImpl();
   private SystemSettingClient systemSettingClient = new SystemSettingClientImpl();
 
+  private static final String[] UNIQUE_KEYS = {
+    JsonKey.EMAIL, JsonKey.PHONE, JsonKey.USERNAME, JsonKey.USER_ID, JsonKey.EXTERNAL_ID
+  };
+
   @Override
   public void onReceive(Request request) throws Throwable {
     String operation = request.getOperation();
@@ -87,6 +92,39 @@ public class UserBulkUploadBackgroundJobActor extends BaseBulkUploadBackgroundJo
     }
   }
 
+  /**
+   * Most of the time of a user row is spent waiting on other actors. Rows sharing an email, phone,
+   * login id, user id or external id are kept on one thread by {@link #getUniqueValues}.
+   */
+  @Override
+  protected int getDefaultParallelism() {
+    return 4;
+  }
+
+  /**
+   * Email, phone and login id are checked for uniqueness when a user is created or updated, two
+   * rows with the same value must not be processed concurrently or both could pass the check.
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  protected Collection<String> getUniqueValues(BulkUploadProcessTask task) {
+    List<String> values = new ArrayList<>();
+    try {
+      Map<String, Object> userMap = mapper.readValue(task.getData(), Map.class);
+      for (String key : UNIQUE_KEYS) {
+        Object value = userMap.get(key);
+        if (value != null && StringUtils.isNotBlank(value.toString())) {
+          values.add(key + ":" + value.toString().trim().toLowerCase());
+        }
+      }
+    } catch (Exception e) {
+      ProjectLogger.log(
+          "UserBulkUploadBackgroundJobActor:getUniqueValues: Invalid task data " + task.getSequenceId(),
+          LoggerEnum.ERROR);
+    }
+    return values;
+  }
+
   private void processTasks(
       List<BulkUploadProcessTask> bulkUploadProcessTasks, BulkUploadProcess bulkUploadProcess) {
     for (BulkUploadProcessTask task : bulkUploadProcessTasks) {
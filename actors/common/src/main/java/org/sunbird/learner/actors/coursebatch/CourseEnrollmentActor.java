@@ -31,6 +31,7 @@ import org.sunbird.learner.actors.coursebatch.dao.UserCoursesDao;
 import org.sunbird.learner.actors.coursebatch.dao.impl.CourseBatchDaoImpl;
 import org.sunbird.learner.actors.coursebatch.dao.impl.UserCoursesDaoImpl;
 import org.sunbird.learner.actors.coursebatch.service.UserCoursesService;
+import org.sunbird.learner.util.CourseBatchProgressAggregator;
 import org.sunbird.learner.util.CourseBatchUtil;
 import org.sunbird.learner.util.EkStepRequestUtil;
 import org.sunbird.learner.util.Util;
@@ -49,6 +50,8 @@ public class CourseEnrollmentActor extends BaseActor {
 
   private CourseBatchDao courseBatchDao = new CourseBatchDaoImpl();
   private UserCoursesDao userCourseDao = UserCoursesDaoImpl.getInstance();
+  private CourseBatchProgressAggregator progressAggregator =
+      CourseBatchProgressAggregator.getInstance();
   private ObjectMapper mapper = new ObjectMapper();
 
   @Override
@@ -98,9 +101,19 @@ public class CourseEnrollmentActor extends BaseActor {
     }
     sender().tell(result, self());
     if (userCourseResult == null) {
+      progressAggregator.enrolled(
+          courseBatch.getId(),
+          CourseBatchProgressAggregator.getProgressPercentage(
+              0, (Integer) courseMap.get(JsonKey.LEAF_NODE_COUNT)),
+          false);
       courseMap.put(JsonKey.DATE_TIME, ProjectUtil.formatDate(new Timestamp(new Date().getTime())));
       updateUserCoursesToES(courseMap);
     } else {
+      progressAggregator.enrolled(
+          courseBatch.getId(),
+          CourseBatchProgressAggregator.getProgressPercentage(
+              userCourseResult.getProgress(), userCourseResult.getLeafNodesCount()),
+          CourseBatchProgressAggregator.isCompleted(userCourseResult.getStatus()));
       ProjectLogger.log(
           "CourseEnrollmentActor:enrollCourseBatch user is enrolling second time.",
           LoggerEnum.INFO.name());
@@ -314,6 +327,11 @@ public class CourseEnrollmentActor extends BaseActor {
     UserCourseUpdateAttributes.put(JsonKey.ID, userCourses.getId());
     Response result = userCourseDao.update(UserCourseUpdateAttributes);
     if (((String) result.get(JsonKey.RESPONSE)).equalsIgnoreCase(JsonKey.SUCCESS)) {
+      progressAggregator.unenrolled(
+          userCourses.getBatchId(),
+          CourseBatchProgressAggregator.getProgressPercentage(
+              userCourses.getProgress(), userCourses.getLeafNodesCount()),
+          CourseBatchProgressAggregator.isCompleted(userCourses.getStatus()));
       UserCoursesService.sync(UserCourseUpdateAttributes, userCourses.getId());
     } else {
       ProjectLogger.log(
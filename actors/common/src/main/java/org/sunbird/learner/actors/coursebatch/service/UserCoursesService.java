@@ -15,14 +15,22 @@ import org.sunbird.common.responsecode.ResponseCode;
 import org.sunbird.dto.SearchDTO;
 import org.sunbird.learner.actors.coursebatch.dao.UserCoursesDao;
 import org.sunbird.learner.actors.coursebatch.dao.impl.UserCoursesDaoImpl;
+import org.sunbird.learner.util.ConfigValueUtil;
+import org.sunbird.learner.util.CourseBatchProgressAggregator;
 import org.sunbird.models.user.courses.UserCourses;
 import scala.concurrent.Future;
 
 public class UserCoursesService {
+
+  public static final String BATCH_PARTICIPANT_SEARCH_LIMIT =
+      "sunbird_batch_participant_search_limit";
+
   private UserCoursesDao userCourseDao = UserCoursesDaoImpl.getInstance();
   private static ElasticSearchService esService = EsClientFactory.getInstance(JsonKey.REST);
 
   protected Integer CASSANDRA_BATCH_SIZE = getBatchSize(JsonKey.CASSANDRA_WRITE_BATCH_SIZE);
+  private static final int PARTICIPANT_SEARCH_LIMIT =
+      ConfigValueUtil.getIntValue(BATCH_PARTICIPANT_SEARCH_LIMIT, 10000);
 
   public static void validateUserUnenroll(UserCourses userCourseResult) {
     if (userCourseResult == null) {
@@ -113,6 +121,8 @@ public class UserCoursesService {
         count = 0;
       }
     }
+    // previous state of the enrollments is not known, the aggregate is marked for rebuild
+    CourseBatchProgressAggregator.getInstance().invalidate(batchId);
   }
 
   private void syncUsersToES(List<Map<String, Object>> records) {
@@ -152,6 +162,12 @@ public class UserCoursesService {
     updateAttributes.put(JsonKey.ACTIVE, ProjectUtil.ActiveStatus.INACTIVE.getValue());
     updateAttributes.put(JsonKey.ID, userCourses.getId());
     userCourseDao.update(updateAttributes);
+    CourseBatchProgressAggregator.getInstance()
+        .unenrolled(
+            batchId,
+            CourseBatchProgressAggregator.getProgressPercentage(
+                userCourses.getProgress(), userCourses.getLeafNodesCount()),
+            CourseBatchProgressAggregator.isCompleted(userCourses.getStatus()));
     sync(updateAttributes, userCourses.getId());
   }
 
@@ -182,6 +198,49 @@ public class UserCoursesService {
     return userCourseDao.getAllActiveUserOfBatch(id);
   }
 
+  /**
+   * Reads the active participants of several batches with one ES search. If the search hits more
+   * participants than it can return, each batch is read from Cassandra instead.
+   *
+   * @param batchIds IDs of the batches
+   * @return user IDs of the active participants by batch ID, batches without participants are left
+   *     out
+   */
+  @SuppressWarnings("unchecked")
+  public Map<String, List<String>> getEnrolledUsersFromBatches(List<String> batchIds) {
+    Map<String, List<String>> participants = new HashMap<>();
+    if (batchIds.isEmpty()) {
+      return participants;
+    }
+    Map<String, Object> filter = new HashMap<>();
+    filter.put(JsonKey.BATCH_ID, batchIds);
+    filter.put(JsonKey.ACTIVE, ProjectUtil.ActiveStatus.ACTIVE.getValue());
+    SearchDTO searchDto = new SearchDTO();
+    searchDto.setFields(Arrays.asList(JsonKey.USER_ID, JsonKey.BATCH_ID));
+    searchDto.setLimit(PARTICIPANT_SEARCH_LIMIT);
+    searchDto.getAdditionalProperties().put(JsonKey.FILTERS, filter);
+    Future<Map<String, Object>> resultF =
+        esService.search(searchDto, ProjectUtil.EsType.usercourses.getTypeName());
+    Map<String, Object> result =
+        (Map<String, Object>) ElasticSearchHelper.getResponseFromFuture(resultF);
+    List<Map<String, Object>> userCourses =
+        result == null ? null : (List<Map<String, Object>>) result.get(JsonKey.CONTENT);
+    Object count = result == null ? null : result.get(JsonKey.COUNT);
+    if (userCourses == null
+        || (count instanceof Number && ((Number) count).longValue() > userCourses.size())) {
+      for (String batchId : batchIds) {
+        participants.put(batchId, getEnrolledUserFromBatch(batchId));
+      }
+      return participants;
+    }
+    for (Map<String, Object> userCourse : userCourses) {
+      participants
+          .computeIfAbsent((String) userCourse.get(JsonKey.BATCH_ID), key -> new ArrayList<>())
+          .add((String) userCourse.get(JsonKey.USER_ID));
+    }
+    return participants;
+  }
+
   public Integer getBatchSize(String key) {
     Integer batchSize = ProjectUtil.DEFAULT_BATCH_SIZE;
     try {
@@ -1,116 +1,231 @@
 package org.sunbird.learner.actors.search;
 
-import com.intuit.fuzzymatcher.component.MatchService;
-import com.intuit.fuzzymatcher.domain.Document;
-import com.intuit.fuzzymatcher.domain.Element;
-import com.intuit.fuzzymatcher.domain.ElementType;
-import com.intuit.fuzzymatcher.domain.Match;
-import java.io.UnsupportedEncodingException;
-import java.net.URLEncoder;
+import java.text.Normalizer;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.regex.Pattern;
+import org.apache.commons.lang3.StringUtils;
 import org.sunbird.common.models.util.JsonKey;
 import org.sunbird.common.models.util.LoggerEnum;
 import org.sunbird.common.models.util.ProjectLogger;
 import org.sunbird.common.models.util.PropertiesCache;
 
-public class FuzzyMatcher {
-
-  private static final String nameToBeMatchedId = "0";
-  private static final String ENCODING = "UTF-8";
-
-  public static List<String> matchDoc(
-      String nameToBeMatched, Map<String, String> attributesValueMap) {
-    Document doc = null;
-    try {
-      doc =
-          new Document.Builder(nameToBeMatchedId)
-              .addElement(
-                  new Element.Builder()
-                      .setType(ElementType.TEXT)
-                      .setValue(URLEncoder.encode(nameToBeMatched, ENCODING))
-                      .createElement())
-              .setThreshold(getFuzzyThreshold())
-              .createDocument();
-    } catch (UnsupportedEncodingException e) {
-      ProjectLogger.log(
-          "FuzzyMatcher:matchDoc: Error occured dueing encoding of data " + e,
-          LoggerEnum.ERROR.name());
+/**
+ * Fuzzy matcher for names. Candidate names are indexed once: every word is normalised and described
+ * by its padded character trigrams and, for latin words, its Soundex code. All words of a query are
+ * then scored against the index in one pass. A candidate matches if any of its words is similar
+ * enough to any query word, i.e. the score reaches the configured threshold.
+ *
+ * <p>The matcher and its indexes are immutable and can be shared between threads.
+ */
+public final class FuzzyMatcher {
+
+  private static final float DEFAULT_THRESHOLD = 0.5f;
+  private static final Pattern DIACRITICS = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
+  private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{M}\\p{N}]+");
+  private static final String SOUNDEX_CODES = "01230120022455012623010202";
+
+  private final float threshold;
+
+  FuzzyMatcher(float threshold) {
+    this.threshold = threshold;
+  }
+
+  private static class LazyInitializer {
+    private static FuzzyMatcher INSTANCE = new FuzzyMatcher(getFuzzyThreshold());
+  }
+
+  public static FuzzyMatcher getInstance() {
+    return LazyInitializer.INSTANCE;
+  }
+
+  /**
+   * Indexes the names of the candidates.
+   *
+   * @param candidates name of each candidate by its ID
+   * @return index to match names against
+   */
+  public Index index(Map<String, String> candidates) {
+    return new Index(threshold, candidates);
+  }
+
+  public static final class Index {
+
+    private final float threshold;
+    private final List<String> ids = new ArrayList<>();
+    private final List<Word> words = new ArrayList<>();
+    private final Map<String, List<Integer>> wordsByTrigram = new HashMap<>();
+    private final Map<String, List<Integer>> wordsBySoundex = new HashMap<>();
+
+    private Index(float threshold, Map<String, String> candidates) {
+      this.threshold = threshold;
+      for (Map.Entry<String, String> candidate : candidates.entrySet()) {
+        for (String text : getWords(candidate.getValue())) {
+          int position = words.size();
+          Word word = new Word(text);
+          ids.add(candidate.getKey());
+          words.add(word);
+          for (String trigram : word.trigrams) {
+            wordsByTrigram.computeIfAbsent(trigram, key -> new ArrayList<>()).add(position);
+          }
+          if (word.soundex != null) {
+            wordsBySoundex.computeIfAbsent(word.soundex, key -> new ArrayList<>()).add(position);
+          }
+        }
+      }
+    }
+
+    /**
+     * Matches a name against the indexed candidates.
+     *
+     * @param name name to match, may contain several words
+     * @param limit maximum number of candidates to return, all matches if not positive
+     * @return IDs of the matching candidates, best match first
+     */
+    public List<String> match(String name, int limit) {
+      Map<String, Float> scores = new HashMap<>();
+      int[] shared = new int[words.size()];
+      for (String text : getWords(name)) {
+        Word queryWord = new Word(text);
+        Set<Integer> positions = new LinkedHashSet<>();
+        for (String trigram : queryWord.trigrams) {
+          for (int position : wordsByTrigram.getOrDefault(trigram, Collections.emptyList())) {
+            shared[position]++;
+            positions.add(position);
+          }
+        }
+        if (queryWord.soundex != null) {
+          positions.addAll(
+              wordsBySoundex.getOrDefault(queryWord.soundex, Collections.emptyList()));
+        }
+        for (int position : positions) {
+          float score = queryWord.score(words.get(position), shared[position]);
+          shared[position] = 0;
+          if (score >= threshold) {
+            scores.merge(ids.get(position), score, Math::max);
+          }
+        }
+      }
+      return getTopMatches(scores, limit);
+    }
+
+    private List<String> getTopMatches(Map<String, Float> scores, int limit) {
+      int size = limit > 0 ? Math.min(limit, scores.size()) : scores.size();
+      PriorityQueue<Map.Entry<String, Float>> top =
+          new PriorityQueue<>(Math.max(1, size), Map.Entry.comparingByValue());
+      for (Map.Entry<String, Float> score : scores.entrySet()) {
+        if (top.size() < size) {
+          top.add(score);
+        } else if (size > 0 && top.peek().getValue() < score.getValue()) {
+          top.poll();
+          top.add(score);
+        }
+      }
+      String[] matches = new String[top.size()];
+      for (int i = matches.length - 1; i >= 0; i--) {
+        matches[i] = top.poll().getKey();
+      }
+      List<String> result = new ArrayList<>(matches.length);
+      Collections.addAll(result, matches);
+      return result;
     }
-    return match(doc, prepareDocumentFromSearchMap(attributesValueMap));
   }
 
-  private static List<String> match(Document doc, List<Document> docList) {
-    List<String> matchedKeys = new ArrayList<>();
-    MatchService matchService = new MatchService();
-    Map<Document, List<Match<Document>>> map = matchService.applyMatch(doc, docList);
-    Iterator<Map.Entry<Document, List<Match<Document>>>> itr = map.entrySet().iterator();
-    List<Match<Document>> matchList = null;
-    while (itr.hasNext()) {
-      Map.Entry<Document, List<Match<Document>>> entry = itr.next();
-      matchList = entry.getValue();
-      for (int i = 0; i < matchList.size(); i++) {
-        Match<Document> matchDoc = matchList.get(i);
-        matchedKeys.add(matchDoc.getMatchedWith().getKey());
-        ProjectLogger.log(
-            String.format(
-                "%s:%s:document matched doc: %s with id  %s",
-                "FuzzyMatcher", "match", matchDoc, matchDoc.getMatchedWith().getKey()),
-            LoggerEnum.INFO.name());
+  private static final class Word {
+
+    private final String text;
+    private final Set<String> trigrams = new LinkedHashSet<>();
+    private final String soundex;
+
+    private Word(String text) {
+      this.text = text;
+      String padded = " " + text + " ";
+      for (int i = 0; i + 3 <= padded.length(); i++) {
+        trigrams.add(padded.substring(i, i + 3));
       }
+      if (trigrams.isEmpty()) {
+        trigrams.add(padded);
+      }
+      this.soundex = soundex(text);
+    }
+
+    /**
+     * Scores the similarity of two words as the Dice coefficient of their trigrams, raised halfway
+     * to 1 if the words sound alike.
+     */
+    private float score(Word other, int sharedTrigrams) {
+      if (text.equals(other.text)) {
+        return 1f;
+      }
+      float dice = 2f * sharedTrigrams / (trigrams.size() + other.trigrams.size());
+      return soundex != null && soundex.equals(other.soundex) ? (1f + dice) / 2 : dice;
     }
-    return matchedKeys;
   }
 
-  private static List<Document> prepareDocumentFromSearchMap(
-      Map<String, String> attributesValueMap) {
-    List<Document> docList = new ArrayList<>();
-    attributesValueMap
-        .entrySet()
-        .stream()
-        .forEach(
-            result -> {
-              String[] attributes = result.getValue().split(" ");
-              ProjectLogger.log(
-                  "FuzzyMatcher:prepareDocumentFromSearchMap: the name got for match "
-                      .concat(result.getValue() + "")
-                      .concat("spliited name size is " + attributes.length),
-                  LoggerEnum.INFO.name());
-              for (int i = 0; i < attributes.length; i++) {
-                try {
-                  docList.add(
-                      new Document.Builder(result.getKey())
-                          .addElement(
-                              new Element.Builder()
-                                  .setType(ElementType.TEXT)
-                                  .setValue(URLEncoder.encode(attributes[i].trim(), ENCODING))
-                                  .createElement())
-                          .createDocument());
-                } catch (UnsupportedEncodingException e) {
-                  ProjectLogger.log(
-                      "Error occured during prepareDocumentFromSearchMap " + e,
-                      LoggerEnum.ERROR.name());
-                }
-              }
-            });
-    ProjectLogger.log(
-        String.format(
-            "%s:%s:document size prepared to be matched is %s ",
-            "FuzzyMatcher", "prepareDocumentFromSearchMap", docList.size()),
-        LoggerEnum.INFO.name());
-    return docList;
+  static List<String> getWords(String name) {
+    List<String> words = new ArrayList<>();
+    if (StringUtils.isBlank(name)) {
+      return words;
+    }
+    String normalised =
+        DIACRITICS
+            .matcher(Normalizer.normalize(name, Normalizer.Form.NFKD))
+            .replaceAll("")
+            .toLowerCase(Locale.ROOT);
+    for (String word : WORD_SEPARATOR.split(normalised)) {
+      if (!word.isEmpty()) {
+        words.add(word);
+      }
+    }
+    return words;
+  }
+
+  static String soundex(String word) {
+    char first = word.charAt(0);
+    if (first < 'a' || first > 'z') {
+      return null;
+    }
+    StringBuilder code = new StringBuilder(4).append(first);
+    char last = SOUNDEX_CODES.charAt(first - 'a');
+    for (int i = 1; i < word.length() && code.length() < 4; i++) {
+      char c = word.charAt(i);
+      if (c < 'a' || c > 'z') {
+        last = '0';
+        continue;
+      }
+      char digit = SOUNDEX_CODES.charAt(c - 'a');
+      if (digit != '0' && digit != last) {
+        code.append(digit);
+      }
+      if (c != 'h' && c != 'w') {
+        last = digit;
+      }
+    }
+    while (code.length() < 4) {
+      code.append('0');
+    }
+    return code.toString();
   }
 
   private static float getFuzzyThreshold() {
     String threshold =
         PropertiesCache.getInstance().readProperty(JsonKey.SUNBIRD_FUZZY_SEARCH_THRESHOLD);
-    ProjectLogger.log(
-        String.format(
-            "%s:%s:the threshold got for Fuzzy search is %s",
-            "FuzzyMatcher", "getFuzzyThreshold", threshold),
-        LoggerEnum.INFO.name());
-    return Float.parseFloat(threshold);
+    if (StringUtils.isNotBlank(threshold)) {
+      try {
+        return Float.parseFloat(threshold.trim());
+      } catch (NumberFormatException e) {
+        ProjectLogger.log(
+            "FuzzyMatcher:getFuzzyThreshold: Invalid threshold " + threshold,
+            LoggerEnum.WARN.name());
+      }
+    }
+    return DEFAULT_THRESHOLD;
   }
-}
\ No newline at end of file
+}
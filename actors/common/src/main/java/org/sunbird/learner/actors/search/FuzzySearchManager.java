@@ -6,8 +6,13 @@ import org.sunbird.common.models.util.JsonKey;
 import org.sunbird.common.models.util.LoggerEnum;
 import org.sunbird.common.models.util.ProjectLogger;
 import org.sunbird.common.responsecode.ResponseCode;
+import org.sunbird.learner.util.ConfigValueUtil;
 
 public class FuzzySearchManager {
+
+  public static final String FUZZY_SEARCH_MAX_RESULTS = "sunbird_fuzzy_search_max_results";
+
+  private final int maxResults = ConfigValueUtil.getIntValue(FUZZY_SEARCH_MAX_RESULTS, 0);
   private Map<String, Object> fuzzySearchMap;
   private List<Map<String, Object>> searchMap;
 
@@ -29,12 +34,10 @@ public class FuzzySearchManager {
         .forEach(
             map -> {
               validateKeyInFuzzyMap(map.getKey());
-              String[] splittedName = map.getValue().toString().split(" ");
-              for (int i = 0; i < splittedName.length; i++) {
-                resultSet.addAll(
-                    FuzzyMatcher.matchDoc(
-                        splittedName[i].trim(), getFuzzyAttributeFromMap(map.getKey())));
-              }
+              resultSet.addAll(
+                  FuzzyMatcher.getInstance()
+                      .index(getFuzzyAttributeFromMap(map.getKey()))
+                      .match(map.getValue().toString(), maxResults));
             });
     ProjectLogger.log(
         String.format(
@@ -66,13 +69,6 @@ public class FuzzySearchManager {
               attributesValueMap.put(
                   (String) resultMap.get(JsonKey.ID), (String) resultMap.get(key));
             });
-    ProjectLogger.log(
-        String.format(
-            "%s:%s:the prepared Map for fuzzy search  %s",
-            this.getClass().getSimpleName(),
-            "getFuzzyAttributeFromMap",
-            Collections.singleton(attributesValueMap.toString())),
-        LoggerEnum.INFO.name());
     return attributesValueMap;
   }
 
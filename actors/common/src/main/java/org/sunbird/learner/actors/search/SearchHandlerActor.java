@@ -1,6 +1,8 @@
 package org.sunbird.learner.actors.search;
 
+import akka.dispatch.ExecutionContexts;
 import akka.dispatch.Mapper;
+import akka.dispatch.Recover;
 import akka.pattern.Patterns;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -9,14 +11,14 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.sunbird.actor.core.BaseActor;
 import org.sunbird.actor.router.ActorConfig;
-import org.sunbird.actorutil.org.OrganisationClient;
-import org.sunbird.actorutil.org.impl.OrganisationClientImpl;
-import org.sunbird.common.ElasticSearchHelper;
+import org.sunbird.common.cacheloader.OrgMetadataCache;
 import org.sunbird.common.exception.ProjectCommonException;
 import org.sunbird.common.factory.EsClientFactory;
 import org.sunbird.common.inf.ElasticSearchService;
@@ -36,12 +38,15 @@ import org.sunbird.common.responsecode.ResponseCode;
 import org.sunbird.common.responsecode.ResponseMessage;
 import org.sunbird.dto.SearchDTO;
 import org.sunbird.learner.actors.coursebatch.service.UserCoursesService;
+import org.sunbird.learner.util.ConfigValueUtil;
+import org.sunbird.learner.util.ParallelUserDecryptor;
 import org.sunbird.learner.util.UserUtility;
 import org.sunbird.learner.util.Util;
 import org.sunbird.models.organisation.Organisation;
 import org.sunbird.telemetry.util.TelemetryLmaxWriter;
 import org.sunbird.telemetry.util.TelemetryUtil;
 import scala.concurrent.Await;
+import scala.concurrent.ExecutionContextExecutor;
 import scala.concurrent.Future;
 
 /**
@@ -55,9 +60,27 @@ import scala.concurrent.Future;
 )
 public class SearchHandlerActor extends BaseActor {
 
-  private List<String> supportedFields = Arrays.asList(JsonKey.ID, JsonKey.ORG_NAME);
+  /** Request key to page through the hits with a cursor, empty for the first page. */
+  public static final String CURSOR = "cursor";
+  /** Response key of the cursor of the next page, null on the last page. */
+  public static final String NEXT_CURSOR = "nextCursor";
+
+  public static final String SEARCH_THREADS = "sunbird_search_threads";
+
+  private static final AtomicInteger searchThreadCount = new AtomicInteger();
+  /** Search hits are decrypted and enriched with blocking lookups, so this runs on its own pool. */
+  private static final ExecutionContextExecutor searchContext =
+      ExecutionContexts.fromExecutorService(
+          Executors.newFixedThreadPool(
+              ConfigValueUtil.getIntValue(SEARCH_THREADS, 16),
+              runnable -> {
+                Thread thread =
+                    new Thread(runnable, "search-handler-" + searchThreadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+              }));
+
   private String topn = PropertiesCache.getInstance().getProperty(JsonKey.SEARCH_TOP_N);
-  private OrganisationClient orgClient = new OrganisationClientImpl();
   private ElasticSearchService esService = EsClientFactory.getInstance(JsonKey.REST);
 
   @SuppressWarnings({"unchecked", "rawtypes"})
@@ -91,68 +114,171 @@ public class SearchHandlerActor extends BaseActor {
         }
       }
       extractOrFilter(searchQueryMap);
+      boolean cursorMode = searchQueryMap.containsKey(CURSOR);
+      String cursor = (String) searchQueryMap.remove(CURSOR);
       SearchDTO searchDto = Util.createSearchDto(searchQueryMap);
       if (filterObjectType.equalsIgnoreCase(EsType.user.getTypeName())) {
         searchDto.setExcludedFields(Arrays.asList(ProjectUtil.excludes));
       }
-      Map<String, Object> result = null;
+      if (cursorMode) {
+        applyCursor(searchDto, cursor);
+      }
       if (EsType.organisation.getTypeName().equalsIgnoreCase(filterObjectType)) {
         handleOrgSearchAsyncRequest(
             ProjectUtil.EsIndex.sunbird.getIndexName(),
             EsType.organisation.getTypeName(),
             searchDto);
       } else {
-        Future<Map<String, Object>> resultF = esService.search(searchDto, types[0]);
-        result = (Map<String, Object>) ElasticSearchHelper.getResponseFromFuture(resultF);
-        Response response = new Response();
-        // this fuzzy search Logic
-        if(((List<Map<String, Object>>)result.get(JsonKey.CONTENT)).size()!=0 && isFuzzySearchRequired(searchQueryMap)){
-          List<Map<String,Object>>responseList=getResponseOnFuzzyRequest(getFuzzyFilterMap(searchQueryMap),(List<Map<String, Object>>)result.get(JsonKey.CONTENT));
-          if(responseList.size()!=0){
-            result.replace(JsonKey.COUNT,responseList.size());
-            result.replace(JsonKey.CONTENT,responseList);
-          }
-          else{
-            throw new ProjectCommonException(ResponseCode.PARTIAL_SUCCESS_RESPONSE.getErrorCode(), String.format(ResponseMessage.Message.PARAM_NOT_MATCH, JsonKey.NAME.toUpperCase()),ResponseCode.PARTIAL_SUCCESS_RESPONSE.getResponseCode());
-          }
-        }
-        // Decrypt the data
-        if (EsType.user.getTypeName().equalsIgnoreCase(filterObjectType)) {
-          List<Map<String, Object>> userMapList =
-              (List<Map<String, Object>>) result.get(JsonKey.CONTENT);
-          for (Map<String, Object> userMap : userMapList) {
-            UserUtility.decryptUserDataFrmES(userMap);
-            userMap.remove(JsonKey.ENC_EMAIL);
-            userMap.remove(JsonKey.ENC_PHONE);
-          }
-          updateUserDetailsWithOrgName(requestedFields, userMapList);
-        }
-        if (EsType.course.getTypeName().equalsIgnoreCase(filterObjectType)) {
-          if (JsonKey.PARTICIPANTS.equalsIgnoreCase(
-              (String) request.getContext().get(JsonKey.PARTICIPANTS))) {
-            List<Map<String, Object>> courseBatchList =
-                (List<Map<String, Object>>) result.get(JsonKey.CONTENT);
-            for (Map<String, Object> courseBatch : courseBatchList) {
-              courseBatch.put(
-                  JsonKey.PARTICIPANTS, getParticipantList((String) courseBatch.get(JsonKey.ID)));
-            }
-          }
-        }
-        if (result != null) {
-          response.put(JsonKey.RESPONSE, result);
-        } else {
-          result = new HashMap<>();
-          response.put(JsonKey.RESPONSE, result);
-        }
-        sender().tell(response, self());
-        // create search telemetry event here ...
-        generateSearchTelemetryEvent(searchDto, types, result);
+        // Telemetry context and request context are thread bound, so they are read here.
+        Map<String, Object> telemetryContext = TelemetryUtil.getTelemetryContext();
+        boolean isParticipantsRequired =
+            JsonKey.PARTICIPANTS.equalsIgnoreCase(
+                (String) request.getContext().get(JsonKey.PARTICIPANTS));
+        String objectTypeName = filterObjectType;
+        String[] searchTypes = types;
+        Future<Object> responseF =
+            esService
+                .search(searchDto, types[0])
+                .map(
+                    new Mapper<Map<String, Object>, Object>() {
+                      @Override
+                      public Object apply(Map<String, Object> result) {
+                        Response response =
+                            getSearchResponse(
+                                searchQueryMap,
+                                searchDto,
+                                objectTypeName,
+                                requestedFields,
+                                isParticipantsRequired,
+                                cursorMode,
+                                result);
+                        // create search telemetry event here ...
+                        try {
+                          generateSearchTelemetryEvent(
+                              telemetryContext,
+                              searchDto,
+                              searchTypes,
+                              (Map<String, Object>) response.get(JsonKey.RESPONSE));
+                        } catch (Exception e) {
+                          ProjectLogger.log(
+                              "SearchHandlerActor:onReceive: Search telemetry failed", e);
+                        }
+                        return response;
+                      }
+                    },
+                    searchContext)
+                .recover(
+                    new Recover<Object>() {
+                      @Override
+                      public Object recover(Throwable failure) {
+                        if (failure instanceof ProjectCommonException) {
+                          return failure;
+                        }
+                        ProjectLogger.log(
+                            "SearchHandlerActor:onReceive: Exception occurred with error message = "
+                                + failure.getMessage(),
+                            failure);
+                        return new ProjectCommonException(
+                            ResponseCode.SERVER_ERROR.getErrorCode(),
+                            ResponseCode.SERVER_ERROR.getErrorMessage(),
+                            ResponseCode.SERVER_ERROR.getResponseCode());
+                      }
+                    },
+                    searchContext);
+        Patterns.pipe(responseF, getContext().dispatcher()).to(sender());
       }
     } else {
       onReceiveUnsupportedOperation(request.getOperation());
     }
   }
 
+  @SuppressWarnings("unchecked")
+  private Response getSearchResponse(
+      Map<String, Object> searchQueryMap,
+      SearchDTO searchDto,
+      String filterObjectType,
+      String requestedFields,
+      boolean isParticipantsRequired,
+      boolean cursorMode,
+      Map<String, Object> result) {
+    if (result == null) {
+      result = new HashMap<>();
+    }
+    List<Map<String, Object>> content = (List<Map<String, Object>>) result.get(JsonKey.CONTENT);
+    if (cursorMode) {
+      // Taken before fuzzy matching, which may drop hits of the page.
+      result.put(NEXT_CURSOR, getNextCursor(searchDto, content));
+    }
+    // this fuzzy search Logic
+    if (CollectionUtils.isNotEmpty(content) && isFuzzySearchRequired(searchQueryMap)) {
+      List<Map<String, Object>> responseList =
+          getResponseOnFuzzyRequest(getFuzzyFilterMap(searchQueryMap), content);
+      if (responseList.size() != 0) {
+        result.replace(JsonKey.COUNT, responseList.size());
+        result.replace(JsonKey.CONTENT, responseList);
+        content = responseList;
+      } else {
+        throw new ProjectCommonException(
+            ResponseCode.PARTIAL_SUCCESS_RESPONSE.getErrorCode(),
+            String.format(ResponseMessage.Message.PARAM_NOT_MATCH, JsonKey.NAME.toUpperCase()),
+            ResponseCode.PARTIAL_SUCCESS_RESPONSE.getResponseCode());
+      }
+    }
+    // Decrypt the data
+    if (EsType.user.getTypeName().equalsIgnoreCase(filterObjectType) && content != null) {
+      ParallelUserDecryptor.decryptUserDataFrmES(content);
+      for (Map<String, Object> userMap : content) {
+        userMap.remove(JsonKey.ENC_EMAIL);
+        userMap.remove(JsonKey.ENC_PHONE);
+      }
+      updateUserDetailsWithOrgName(requestedFields, content);
+    }
+    if (EsType.course.getTypeName().equalsIgnoreCase(filterObjectType)
+        && isParticipantsRequired
+        && content != null) {
+      List<String> batchIds = new ArrayList<>();
+      for (Map<String, Object> courseBatch : content) {
+        batchIds.add((String) courseBatch.get(JsonKey.ID));
+      }
+      Map<String, List<String>> participants = getParticipantList(batchIds);
+      for (Map<String, Object> courseBatch : content) {
+        courseBatch.put(JsonKey.PARTICIPANTS, participants.get(courseBatch.get(JsonKey.ID)));
+      }
+    }
+    Response response = new Response();
+    response.put(JsonKey.RESPONSE, result);
+    return response;
+  }
+
+  /**
+   * Pages through the hits in ID order. The next page is read with a range filter on the last ID
+   * of the previous page, so unlike offset paging it works past the ES result window and each page
+   * costs the same.
+   */
+  @SuppressWarnings("unchecked")
+  private void applyCursor(SearchDTO searchDto, String cursor) {
+    Map<String, Object> filters =
+        (Map<String, Object>) searchDto.getAdditionalProperties().get(JsonKey.FILTERS);
+    if (filters.containsKey(JsonKey.ID)) {
+      ProjectCommonException.throwClientErrorException(ResponseCode.invalidRequestData);
+    }
+    if (StringUtils.isNotBlank(cursor)) {
+      Map<String, Object> range = new HashMap<>();
+      range.put(">", cursor);
+      filters.put(JsonKey.ID, range);
+    }
+    searchDto.getSortBy().clear();
+    searchDto.getSortBy().put(JsonKey.ID, JsonKey.ASC);
+    searchDto.setOffset(0);
+  }
+
+  private String getNextCursor(SearchDTO searchDto, List<Map<String, Object>> content) {
+    if (content == null || content.isEmpty() || content.size() < searchDto.getLimit()) {
+      return null;
+    }
+    return (String) content.get(content.size() - 1).get(JsonKey.ID);
+  }
+
   private void handleOrgSearchAsyncRequest(
       String indexName, String indexType, SearchDTO searchDto) {
     Future<Map<String, Object>> futureResponse = esService.search(searchDto, indexType);
@@ -189,7 +315,8 @@ public class SearchHandlerActor extends BaseActor {
           contentMap.put(
               JsonKey.COUNT,
               contentListMap.get(JsonKey.COUNT) != null ? contentListMap.get(JsonKey.COUNT) : 0);
-          generateSearchTelemetryEvent(searchDto, types, contentMap);
+          generateSearchTelemetryEvent(
+              TelemetryUtil.getTelemetryContext(), searchDto, types, contentMap);
         }
       }
     } catch (Exception e) {
@@ -200,80 +327,61 @@ public class SearchHandlerActor extends BaseActor {
     }
   }
 
-  private List<String> getParticipantList(String id) {
+  private Map<String, List<String>> getParticipantList(List<String> batchIds) {
     UserCoursesService userCourseService = new UserCoursesService();
-    return userCourseService.getEnrolledUserFromBatch(id);
+    return userCourseService.getEnrolledUsersFromBatches(batchIds);
   }
 
   @SuppressWarnings("unchecked")
   private void updateUserDetailsWithOrgName(
       String requestedFields, List<Map<String, Object>> userMapList) {
-    Map<String, Organisation> orgMap = null;
-    if (StringUtils.isNotBlank(requestedFields)) {
-      try {
-        List<String> fields = Arrays.asList(requestedFields.toLowerCase().split(","));
-        List<String> filteredRequestedFields = new ArrayList<>();
-        fields
-            .stream()
-            .forEach(
-                rField -> {
-                  for (String sField : supportedFields) {
-                    if (sField.equalsIgnoreCase(rField)) {
-                      filteredRequestedFields.add(sField);
-                      break;
-                    }
-                  }
-                });
-        if (filteredRequestedFields.isEmpty()) {
-          return;
-        }
-        if (!filteredRequestedFields.contains(JsonKey.ID)) {
-          filteredRequestedFields.add(JsonKey.ID);
-        }
-        orgMap = fetchOrgDetails(userMapList, filteredRequestedFields);
-        if (fields.contains(JsonKey.ORG_NAME.toLowerCase())) {
-          Map<String, Organisation> filteredOrg = new HashMap<>(orgMap);
-          userMapList
-              .stream()
-              .forEach(
-                  userMap -> {
-                    String rootOrgId = (String) userMap.get(JsonKey.ROOT_ORG_ID);
-                    if (StringUtils.isNotBlank(rootOrgId)) {
-                      Organisation org = filteredOrg.get(rootOrgId);
-                      if (null != org) {
-                        userMap.put(JsonKey.ROOT_ORG_NAME, org.getOrgName());
-                      }
-                    }
-                    List<Map<String, Object>> userOrgList =
-                        (List<Map<String, Object>>) userMap.get(JsonKey.ORGANISATIONS);
-                    if (CollectionUtils.isNotEmpty(userOrgList)) {
-                      userOrgList
-                          .stream()
-                          .forEach(
-                              userOrg -> {
-                                String userOrgId = (String) userOrg.get(JsonKey.ORGANISATION_ID);
-                                if (StringUtils.isNotBlank(userOrgId)) {
-                                  Organisation org = filteredOrg.get(userOrgId);
-                                  if (null != org) {
-                                    userOrg.put(JsonKey.ORG_NAME, org.getOrgName());
-                                  }
-                                }
-                              });
-                    }
-                  });
-        }
-      } catch (Exception ex) {
-        ProjectLogger.log(
-            "SearchHandlerActor:updateUserDetailsWithOrgName: Exception occurred with error message = "
-                + ex.getMessage(),
-            ex);
+    if (StringUtils.isBlank(requestedFields)) {
+      return;
+    }
+    try {
+      List<String> fields = Arrays.asList(requestedFields.toLowerCase().split(","));
+      if (!fields.contains(JsonKey.ORG_NAME.toLowerCase())) {
+        return;
       }
+      Map<String, Organisation> orgMap = fetchOrgDetails(userMapList);
+      userMapList
+          .stream()
+          .forEach(
+              userMap -> {
+                String rootOrgId = (String) userMap.get(JsonKey.ROOT_ORG_ID);
+                if (StringUtils.isNotBlank(rootOrgId)) {
+                  Organisation org = orgMap.get(rootOrgId);
+                  if (null != org) {
+                    userMap.put(JsonKey.ROOT_ORG_NAME, org.getOrgName());
+                  }
+                }
+                List<Map<String, Object>> userOrgList =
+                    (List<Map<String, Object>>) userMap.get(JsonKey.ORGANISATIONS);
+                if (CollectionUtils.isNotEmpty(userOrgList)) {
+                  userOrgList
+                      .stream()
+                      .forEach(
+                          userOrg -> {
+                            String userOrgId = (String) userOrg.get(JsonKey.ORGANISATION_ID);
+                            if (StringUtils.isNotBlank(userOrgId)) {
+                              Organisation org = orgMap.get(userOrgId);
+                              if (null != org) {
+                                userOrg.put(JsonKey.ORG_NAME, org.getOrgName());
+                              }
+                            }
+                          });
+                }
+              });
+    } catch (Exception ex) {
+      ProjectLogger.log(
+          "SearchHandlerActor:updateUserDetailsWithOrgName: Exception occurred with error message = "
+              + ex.getMessage(),
+          ex);
     }
   }
 
   @SuppressWarnings("unchecked")
-  private Map<String, Organisation> fetchOrgDetails(
-      List<Map<String, Object>> userMapList, List<String> filteredRequestedFileds) {
+  private Map<String, Organisation> fetchOrgDetails(List<Map<String, Object>> userMapList) {
     Set<String> orgIdList = new HashSet<>();
     userMapList
         .stream()
@@ -297,24 +405,14 @@ public class SearchHandlerActor extends BaseActor {
                         });
               }
             });
-
-    List<String> orgIds = new ArrayList<>(orgIdList);
-
-    List<Organisation> organisations = orgClient.esSearchOrgByIds(orgIds, filteredRequestedFileds);
-    Map<String, Organisation> orgMap = new HashMap<>();
-    organisations
-        .stream()
-        .forEach(
-            org -> {
-              orgMap.put(org.getId(), org);
-            });
-    return orgMap;
+    return OrgMetadataCache.getInstance().getAll(orgIdList);
   }
 
   private void generateSearchTelemetryEvent(
-      SearchDTO searchDto, String[] types, Map<String, Object> result) {
-
-    Map<String, Object> telemetryContext = TelemetryUtil.getTelemetryContext();
+      Map<String, Object> telemetryContext,
+      SearchDTO searchDto,
+      String[] types,
+      Map<String, Object> result) {
 
     Map<String, Object> params = new HashMap<>();
     params.put(JsonKey.TYPE, String.join(",", types));
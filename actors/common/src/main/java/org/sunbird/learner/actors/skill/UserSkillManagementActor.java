@@ -24,6 +24,7 @@ import org.sunbird.actor.core.BaseActor;
 import org.sunbird.actor.router.ActorConfig;
 import org.sunbird.cassandra.CassandraOperation;
 import org.sunbird.common.ElasticSearchHelper;
+import org.sunbird.common.cacheloader.UserProfileCache;
 import org.sunbird.common.exception.ProjectCommonException;
 import org.sunbird.common.factory.EsClientFactory;
 import org.sunbird.common.inf.ElasticSearchService;
@@ -602,6 +603,7 @@ public class UserSkillManagementActor extends BaseActor {
       } else {
         esService.update(EsType.user.getTypeName(), userId, esMap);
       }
+      UserProfileCache.getInstance().invalidate(userId);
     }
   }
 
@@ -0,0 +1,160 @@
+package org.sunbird.learner.actors.syncjobmanager;
+
+import akka.actor.ActorRef;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.apache.commons.lang3.StringUtils;
+import org.sunbird.common.ElasticSearchHelper;
+import org.sunbird.common.cacheloader.UserProfileCache;
+import org.sunbird.common.factory.EsClientFactory;
+import org.sunbird.common.inf.ElasticSearchService;
+import org.sunbird.common.models.util.JsonKey;
+import org.sunbird.common.models.util.LoggerEnum;
+import org.sunbird.common.models.util.ProjectLogger;
+import org.sunbird.common.models.util.ProjectUtil;
+import org.sunbird.learner.util.ConfigValueUtil;
+import org.sunbird.learner.util.UserDetailsAssembler;
+import scala.concurrent.Future;
+
+/**
+ * Syncs users to ES in batches. The documents of a batch are built together and written with one
+ * bulk request, the next batch is built while the current one is written. If a bulk request fails,
+ * the documents of the batch are saved one by one with retries.
+ */
+public class BulkUserSync {
+
+  public static final String USER_SYNC_BATCH_SIZE = "sunbird_user_sync_batch_size";
+  public static final String USER_SYNC_RETRIES = "sunbird_user_sync_retries";
+
+  private final ElasticSearchService esService;
+  private final UserDetailsAssembler assembler;
+  private final int batchSize =
+      Math.max(1, ConfigValueUtil.getIntValue(USER_SYNC_BATCH_SIZE, 100));
+  private final int retries = ConfigValueUtil.getIntValue(USER_SYNC_RETRIES, 3);
+
+  public BulkUserSync() {
+    this(EsClientFactory.getInstance(JsonKey.REST), UserDetailsAssembler.getInstance());
+  }
+
+  BulkUserSync(ElasticSearchService esService, UserDetailsAssembler assembler) {
+    this.esService = esService;
+    this.assembler = assembler;
+  }
+
+  /**
+   * Syncs the given users to ES.
+   *
+   * @param userIds IDs of the users
+   * @param systemSettingActor system setting actor used to apply profile visibility
+   * @return IDs of the users which could not be synced
+   */
+  public List<String> sync(List<Object> userIds, ActorRef systemSettingActor) {
+    long startTime = System.currentTimeMillis();
+    List<String> failedIds = new ArrayList<>();
+    List<List<String>> batches = getBatches(userIds);
+    CompletableFuture<Map<String, Map<String, Object>>> next =
+        batches.isEmpty() ? null : assembler.getUserDetails(batches.get(0), systemSettingActor);
+    for (int i = 0; i < batches.size(); i++) {
+      Map<String, Map<String, Object>> documents;
+      try {
+        documents = next.join();
+      } catch (Exception e) {
+        ProjectLogger.log(
+            "BulkUserSync:sync: Building documents failed with error message = " + e.getMessage(),
+            e);
+        documents = Collections.emptyMap();
+      }
+      next =
+          i + 1 < batches.size()
+              ? assembler.getUserDetails(batches.get(i + 1), systemSettingActor)
+              : null;
+      for (String userId : batches.get(i)) {
+        if (!documents.containsKey(userId)) {
+          failedIds.add(userId);
+        }
+      }
+      failedIds.addAll(write(documents));
+    }
+    long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+    ProjectLogger.log(
+        "BulkUserSync:sync: Synced "
+            + (userIds.size() - failedIds.size())
+            + " of "
+            + userIds.size()
+            + " users at "
+            + (userIds.size() * 1000L / elapsed)
+            + " users/sec, failed user IDs = "
+            + failedIds,
+        LoggerEnum.INFO.name());
+    return failedIds;
+  }
+
+  private List<List<String>> getBatches(List<Object> userIds) {
+    List<List<String>> batches = new ArrayList<>();
+    for (int from = 0; from < userIds.size(); from += batchSize) {
+      List<String> batch = new ArrayList<>();
+      for (Object userId : userIds.subList(from, Math.min(from + batchSize, userIds.size()))) {
+        batch.add((String) userId);
+      }
+      batches.add(batch);
+    }
+    return batches;
+  }
+
+  private List<String> write(Map<String, Map<String, Object>> documents) {
+    List<String> failedIds = new ArrayList<>();
+    if (documents.isEmpty()) {
+      return failedIds;
+    }
+    String type = ProjectUtil.EsType.user.getTypeName();
+    boolean written = isSuccess(esService.bulkInsert(type, new ArrayList<>(documents.values())));
+    documents.keySet().forEach(UserProfileCache.getInstance()::invalidate);
+    if (written) {
+      return failedIds;
+    }
+    ProjectLogger.log(
+        "BulkUserSync:write: Bulk insert of "
+            + documents.size()
+            + " users failed, saving them one by one",
+        LoggerEnum.WARN.name());
+    for (Map.Entry<String, Map<String, Object>> document : documents.entrySet()) {
+      if (!save(type, document.getKey(), document.getValue())) {
+        failedIds.add(document.getKey());
+      }
+    }
+    return failedIds;
+  }
+
+  private boolean save(String type, String userId, Map<String, Object> document) {
+    for (int attempt = 0; attempt <= retries; attempt++) {
+      try {
+        Future<String> responseF = esService.save(type, userId, document);
+        if (StringUtils.isNotBlank((String) ElasticSearchHelper.getResponseFromFuture(responseF))) {
+          return true;
+        }
+      } catch (Exception e) {
+        ProjectLogger.log(
+            "BulkUserSync:save: Save of user "
+                + userId
+                + " failed with error message = "
+                + e.getMessage(),
+            LoggerEnum.ERROR.name());
+      }
+    }
+    return false;
+  }
+
+  private boolean isSuccess(Future<Boolean> responseF) {
+    try {
+      return Boolean.TRUE.equals(ElasticSearchHelper.getResponseFromFuture(responseF));
+    } catch (Exception e) {
+      ProjectLogger.log(
+          "BulkUserSync:isSuccess: Bulk insert failed with error message = " + e.getMessage(),
+          LoggerEnum.ERROR.name());
+      return false;
+    }
+  }
+}
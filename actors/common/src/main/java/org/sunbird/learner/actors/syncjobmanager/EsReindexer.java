@@ -0,0 +1,397 @@
+package org.sunbird.learner.actors.syncjobmanager;
+
+import akka.dispatch.OnComplete;
+import com.datastax.driver.core.PagingState;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.querybuilder.QueryBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.apache.commons.lang3.StringUtils;
+import org.sunbird.common.CassandraUtil;
+import org.sunbird.common.inf.ElasticSearchService;
+import org.sunbird.common.models.util.JsonKey;
+import org.sunbird.common.models.util.LoggerEnum;
+import org.sunbird.common.models.util.ProjectLogger;
+import org.sunbird.common.models.util.ProjectUtil;
+import org.sunbird.common.models.util.PropertiesCache;
+import org.sunbird.helper.CassandraConnectionMngrFactory;
+import org.sunbird.learner.util.ConfigValueUtil;
+import org.sunbird.learner.util.Util;
+import scala.concurrent.ExecutionContext;
+
+/**
+ * Re-indexes a whole Cassandra table into ES without loading it in memory. The table is read one
+ * page at a time using paging state, rows of a page are transformed in a bounded worker pool and
+ * sent to ES in bulk requests of a configured size. The number of bulk requests in flight is
+ * limited, reading waits when the limit is reached. The paging state is saved as a checkpoint from
+ * which an interrupted re-index is resumed. Once a bulk request fails the checkpoint is no longer
+ * advanced, so that a later re-index starts again from the last page before the failure.
+ */
+public class EsReindexer {
+
+  public static final String REINDEX_PAGE_SIZE = "sunbird_es_reindex_page_size";
+  public static final String REINDEX_BULK_BYTES = "sunbird_es_reindex_bulk_bytes";
+  public static final String REINDEX_MAX_IN_FLIGHT = "sunbird_es_reindex_max_in_flight_bulks";
+  public static final String REINDEX_WORKERS = "sunbird_es_reindex_workers";
+  public static final String REINDEX_CHECKPOINT_PAGES = "sunbird_es_reindex_checkpoint_pages";
+  public static final String REINDEX_CHECKPOINT_DIR = "sunbird_es_reindex_checkpoint_dir";
+
+  private static final ExecutorService reindexService = Executors.newSingleThreadExecutor();
+
+  private final int pageSize = ConfigValueUtil.getIntValue(REINDEX_PAGE_SIZE, 500);
+  private final long bulkBytes;
+  private final int maxInFlight;
+  private final int checkpointPages;
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  private final ElasticSearchService esService;
+  private final ExecutionContext ec;
+
+  public EsReindexer(ElasticSearchService esService, ExecutionContext ec) {
+    this(
+        esService,
+        ec,
+        ConfigValueUtil.getLongValue(REINDEX_BULK_BYTES, 5000000L),
+        ConfigValueUtil.getIntValue(REINDEX_MAX_IN_FLIGHT, 2),
+        ConfigValueUtil.getIntValue(REINDEX_CHECKPOINT_PAGES, 10));
+  }
+
+  EsReindexer(
+      ElasticSearchService esService,
+      ExecutionContext ec,
+      long bulkBytes,
+      int maxInFlight,
+      int checkpointPages) {
+    this.esService = esService;
+    this.ec = ec;
+    this.bulkBytes = bulkBytes;
+    this.maxInFlight = maxInFlight;
+    this.checkpointPages = checkpointPages;
+  }
+
+  /** Reads one page of a table. */
+  interface PageReader {
+
+    /**
+     * @param pagingState paging state of the page, null for the first page
+     * @return rows of the page and the paging state of the next page
+     */
+    Page read(String pagingState) throws Exception;
+  }
+
+  /** Rows of one page and the paging state of the next page, null after the last page. */
+  static class Page {
+    private final List<Map<String, Object>> rows;
+    private final String nextPagingState;
+
+    Page(List<Map<String, Object>> rows, String nextPagingState) {
+      this.rows = rows;
+      this.nextPagingState = nextPagingState;
+    }
+  }
+
+  /**
+   * Starts the re-index of a table on a background thread. Only one re-index runs at a time, others
+   * wait for it.
+   *
+   * @param dbInfo table to read
+   * @param esType ES type to write
+   * @param checkpoint paging state to resume from, if blank the saved checkpoint of the table is
+   *     used
+   * @param transformer converts a row to the ES document, returns null to skip the row
+   */
+  public void reindex(
+      Util.DbInfo dbInfo,
+      String esType,
+      String checkpoint,
+      Function<Map<String, Object>, Map<String, Object>> transformer) {
+    reindexService.execute(
+        () -> {
+          try {
+            run(dbInfo, esType, checkpoint, transformer);
+          } catch (Exception e) {
+            ProjectLogger.log(
+                "EsReindexer:reindex: Re-index of "
+                    + dbInfo.getTableName()
+                    + " failed with error message = "
+                    + e.getMessage(),
+                e);
+          }
+        });
+  }
+
+  /**
+   * Reads the table one page at a time and passes the rows of every page to the consumer. Used when
+   * rows are not indexed directly, e.g. to trigger sync per user.
+   *
+   * @param dbInfo table to read
+   * @param columns columns to read
+   * @param pageConsumer called with the rows of each page
+   */
+  public void forEachPage(
+      Util.DbInfo dbInfo, List<String> columns, Consumer<List<Map<String, Object>>> pageConsumer) {
+    reindexService.execute(
+        () -> {
+          try {
+            String pagingState = null;
+            do {
+              ResultSet resultSet = readPage(dbInfo, columns, pagingState);
+              pageConsumer.accept(getRows(resultSet));
+              pagingState = getPagingState(resultSet);
+            } while (pagingState != null);
+          } catch (Exception e) {
+            ProjectLogger.log(
+                "EsReindexer:forEachPage: Read of "
+                    + dbInfo.getTableName()
+                    + " failed with error message = "
+                    + e.getMessage(),
+                e);
+          }
+        });
+  }
+
+  private void run(
+      Util.DbInfo dbInfo,
+      String esType,
+      String checkpoint,
+      Function<Map<String, Object>, Map<String, Object>> transformer)
+      throws Exception {
+    run(
+        dbInfo.getTableName(),
+        pagingState -> {
+          ResultSet resultSet = readPage(dbInfo, null, pagingState);
+          return new Page(getRows(resultSet), getPagingState(resultSet));
+        },
+        getCheckpointFile(dbInfo),
+        esType,
+        checkpoint,
+        transformer);
+  }
+
+  void run(
+      String tableName,
+      PageReader pageReader,
+      File checkpointFile,
+      String esType,
+      String checkpoint,
+      Function<Map<String, Object>, Map<String, Object>> transformer)
+      throws Exception {
+    String pagingState =
+        StringUtils.isNotBlank(checkpoint) ? checkpoint : readCheckpoint(checkpointFile);
+    String startPagingState = pagingState;
+    boolean checkpointWritten = false;
+    ProjectLogger.log(
+        "EsReindexer:run: Re-index of "
+            + tableName
+            + " started"
+            + (pagingState == null ? "" : " from checkpoint " + pagingState),
+        LoggerEnum.INFO.name());
+    ExecutorService workers =
+        Executors.newFixedThreadPool(ConfigValueUtil.getIntValue(REINDEX_WORKERS, 4));
+    BulkWriter bulkWriter = new BulkWriter(esType);
+    long startTime = System.currentTimeMillis();
+    long rows = 0;
+    int pages = 0;
+    try {
+      do {
+        Page page = pageReader.read(pagingState);
+        List<Future<Map<String, Object>>> documents = new ArrayList<>();
+        for (Map<String, Object> row : page.rows) {
+          documents.add(workers.submit(() -> transformer.apply(row)));
+        }
+        for (Future<Map<String, Object>> document : documents) {
+          bulkWriter.add(document.get());
+        }
+        rows += documents.size();
+        pagingState = page.nextPagingState;
+        if (++pages % checkpointPages == 0 || pagingState == null) {
+          bulkWriter.flushAndWait();
+          // the checkpoint stays at the last page before the first failed bulk request
+          if (pagingState != null && bulkWriter.failed.get() == 0) {
+            writeCheckpoint(checkpointFile, pagingState);
+            checkpointWritten = true;
+          }
+          long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+          ProjectLogger.log(
+              "EsReindexer:run: Re-indexed "
+                  + rows
+                  + " rows of "
+                  + tableName
+                  + " at "
+                  + (rows * 1000 / elapsed)
+                  + " rows/sec, failed bulk requests = "
+                  + bulkWriter.failed.get()
+                  + ", checkpoint = "
+                  + pagingState,
+              LoggerEnum.INFO.name());
+        }
+      } while (pagingState != null);
+      if (bulkWriter.failed.get() == 0) {
+        Files.deleteIfExists(checkpointFile.toPath());
+      } else if (!checkpointWritten) {
+        // the first checkpoint window failed, the next re-index starts where this one started
+        if (startPagingState == null) {
+          Files.deleteIfExists(checkpointFile.toPath());
+        } else {
+          writeCheckpoint(checkpointFile, startPagingState);
+        }
+      }
+    } finally {
+      workers.shutdown();
+    }
+    ProjectLogger.log(
+        "EsReindexer:run: Re-index of "
+            + tableName
+            + " completed with "
+            + rows
+            + " rows in "
+            + (System.currentTimeMillis() - startTime)
+            + " ms",
+        LoggerEnum.INFO.name());
+  }
+
+  private ResultSet readPage(Util.DbInfo dbInfo, List<String> columns, String pagingState) {
+    Session session =
+        CassandraConnectionMngrFactory.getObject(
+                PropertiesCache.getInstance().getProperty(JsonKey.SUNBIRD_CASSANDRA_MODE))
+            .getSession(dbInfo.getKeySpace());
+    Statement statement =
+        columns == null
+            ? QueryBuilder.select().all().from(dbInfo.getKeySpace(), dbInfo.getTableName())
+            : QueryBuilder.select(columns.toArray(new String[0]))
+                .from(dbInfo.getKeySpace(), dbInfo.getTableName());
+    statement.setFetchSize(pageSize);
+    if (pagingState != null) {
+      statement.setPagingState(PagingState.fromString(pagingState));
+    }
+    return session.execute(statement);
+  }
+
+  /** Returns only the rows of the page which is already fetched, without fetching the next one. */
+  private List<Map<String, Object>> getRows(ResultSet resultSet) {
+    Map<String, String> columns = CassandraUtil.fetchColumnsMapping(resultSet);
+    List<Map<String, Object>> rows = new ArrayList<>();
+    for (int remaining = resultSet.getAvailableWithoutFetching(); remaining > 0; remaining--) {
+      Row row = resultSet.one();
+      Map<String, Object> rowMap = new HashMap<>();
+      columns.forEach((property, column) -> rowMap.put(property, row.getObject(column)));
+      rows.add(rowMap);
+    }
+    return rows;
+  }
+
+  private String getPagingState(ResultSet resultSet) {
+    PagingState pagingState = resultSet.getExecutionInfo().getPagingState();
+    return pagingState == null ? null : pagingState.toString();
+  }
+
+  private File getCheckpointFile(Util.DbInfo dbInfo) {
+    String dir = ProjectUtil.getConfigValue(REINDEX_CHECKPOINT_DIR);
+    File checkpointDir =
+        new File(StringUtils.isBlank(dir) ? System.getProperty("java.io.tmpdir") : dir.trim());
+    checkpointDir.mkdirs();
+    return new File(
+        checkpointDir, "es-reindex-" + dbInfo.getKeySpace() + "-" + dbInfo.getTableName());
+  }
+
+  private String readCheckpoint(File checkpointFile) throws IOException {
+    if (!checkpointFile.exists()) {
+      return null;
+    }
+    String checkpoint =
+        new String(Files.readAllBytes(checkpointFile.toPath()), StandardCharsets.UTF_8);
+    return StringUtils.isBlank(checkpoint) ? null : checkpoint.trim();
+  }
+
+  private void writeCheckpoint(File checkpointFile, String pagingState) throws IOException {
+    File tempFile = new File(checkpointFile.getPath() + ".tmp");
+    Files.write(tempFile.toPath(), pagingState.getBytes(StandardCharsets.UTF_8));
+    Files.move(
+        tempFile.toPath(),
+        checkpointFile.toPath(),
+        StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /** Collects documents into bulk requests of about {@code bulkBytes} each. */
+  private class BulkWriter {
+    private final String esType;
+    private final Semaphore inFlight = new Semaphore(maxInFlight);
+    private final AtomicLong failed = new AtomicLong();
+    private List<Map<String, Object>> documents = new ArrayList<>();
+    private long bytes;
+
+    private BulkWriter(String esType) {
+      this.esType = esType;
+    }
+
+    private void add(Map<String, Object> document) throws Exception {
+      if (document == null) {
+        return;
+      }
+      documents.add(document);
+      bytes += mapper.writeValueAsBytes(document).length;
+      if (bytes >= bulkBytes) {
+        flush();
+      }
+    }
+
+    private void flush() throws InterruptedException {
+      if (documents.isEmpty()) {
+        return;
+      }
+      List<Map<String, Object>> bulk = documents;
+      documents = new ArrayList<>();
+      bytes = 0;
+      inFlight.acquire();
+      try {
+        esService
+            .bulkInsert(esType, bulk)
+            .onComplete(
+                new OnComplete<Boolean>() {
+                  @Override
+                  public void onComplete(Throwable failure, Boolean success) {
+                    // counted before the permit is released, so that flushAndWait sees it
+                    if (failure != null || !Boolean.TRUE.equals(success)) {
+                      failed.incrementAndGet();
+                      ProjectLogger.log(
+                          "EsReindexer:flush: Bulk insert of "
+                              + bulk.size()
+                              + " documents failed",
+                          LoggerEnum.ERROR.name());
+                    }
+                    inFlight.release();
+                  }
+                },
+                ec);
+      } catch (RuntimeException e) {
+        inFlight.release();
+        throw e;
+      }
+    }
+
+    private void flushAndWait() throws InterruptedException {
+      flush();
+      inFlight.acquire(maxInFlight);
+      inFlight.release(maxInFlight);
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package org.sunbird.learner.actors.syncjobmanager;
 
+import akka.actor.ActorRef;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -38,6 +39,9 @@ public class EsSyncBackgroundActor extends BaseActor {
 
   private CassandraOperation cassandraOperation = ServiceFactory.getInstance();
   private ElasticSearchService esService = EsClientFactory.getInstance(JsonKey.REST);
+  private EsReindexer reindexer = new EsReindexer(esService, getContext().dispatcher());
+  private BulkUserSync bulkUserSync = new BulkUserSync();
+  private static final String CHECKPOINT = "checkpoint";
 
   @Override
   public void onReceive(Request request) throws Throwable {
@@ -115,33 +119,18 @@ public class EsSyncBackgroundActor extends BaseActor {
               + objectType
               + " as no IDs provided",
           LoggerEnum.INFO);
-
-      Response response =
-          cassandraOperation.getAllRecords(dbInfo.getKeySpace(), dbInfo.getTableName());
-      reponseList = (List<Map<String, Object>>) response.get(JsonKey.RESPONSE);
-
-      ProjectLogger.log(
-          "EsSyncBackgroundActor:sync: Fetching all data for type = " + objectType + " completed",
-          LoggerEnum.INFO);
-
-      ProjectLogger.log(
-          "EsSyncBackgroundActor:sync: Number of entries to sync for type = "
-              + objectType
-              + " is "
-              + reponseList.size(),
-          LoggerEnum.INFO);
-
-      if (null != reponseList) {
-        for (Map<String, Object> map : reponseList) {
-          responseMap.put((String) map.get(JsonKey.ID), map);
-        }
-      }
+      reindexer.reindex(
+          dbInfo,
+          getType(objectType),
+          (String) dataMap.get(CHECKPOINT),
+          row -> objectType.equals(JsonKey.ORGANISATION) ? getOrgDetails(row) : row);
+      return;
     }
 
     Iterator<Entry<String, Object>> itr = responseMap.entrySet().iterator();
     while (itr.hasNext()) {
       if (objectType.equals(JsonKey.ORGANISATION)) {
-        result.add(getOrgDetails(itr.next()));
+        result.add(getOrgDetails((Map<String, Object>) itr.next().getValue()));
       } else if (objectType.equals(JsonKey.BATCH) || objectType.equals(JsonKey.USER_COURSE)) {
         result.add((Map<String, Object>) (itr.next().getValue()));
       }
@@ -161,28 +150,19 @@ public class EsSyncBackgroundActor extends BaseActor {
   }
 
   private void handleUserSyncRequest(List<Object> objectIds) {
+    ActorRef systemSettingActor = getActorRef(ActorOperations.GET_SYSTEM_SETTING.getValue());
     if (CollectionUtils.isEmpty(objectIds)) {
-      Response response =
-          cassandraOperation.getRecordsByProperties(
-              JsonKey.SUNBIRD, JsonKey.USER, null, Arrays.asList(JsonKey.ID));
-      List<Map<String, Object>> responseList =
-          (List<Map<String, Object>>) response.get(JsonKey.RESPONSE);
-      objectIds = responseList.stream().map(i -> i.get(JsonKey.ID)).collect(Collectors.toList());
-    }
-    invokeUserSync(objectIds);
-  }
-
-  private void invokeUserSync(List<Object> objectIds) {
-    if (CollectionUtils.isNotEmpty(objectIds)) {
-      for (Object userId : objectIds) {
-        Request userRequest = new Request();
-        userRequest.setOperation(ActorOperations.UPDATE_USER_INFO_ELASTIC.getValue());
-        userRequest.getRequest().put(JsonKey.ID, userId);
-        ProjectLogger.log(
-            "EsSyncBackgroundActor:invokeUserSync: Trigger sync of user details to ES");
-        tellToAnother(userRequest);
-      }
+      // user IDs are read page by page, each page is synced before the next one is read
+      reindexer.forEachPage(
+          Util.dbInfoMap.get(JsonKey.USER_DB),
+          Arrays.asList(JsonKey.ID),
+          page ->
+              bulkUserSync.sync(
+                  page.stream().map(i -> i.get(JsonKey.ID)).collect(Collectors.toList()),
+                  systemSettingActor));
+      return;
     }
+    bulkUserSync.sync(objectIds, systemSettingActor);
   }
 
   private String getType(String objectType) {
@@ -199,9 +179,8 @@ public class EsSyncBackgroundActor extends BaseActor {
     return type;
   }
 
-  private Map<String, Object> getOrgDetails(Entry<String, Object> entry) {
+  private Map<String, Object> getOrgDetails(Map<String, Object> orgMap) {
     ProjectLogger.log("EsSyncBackgroundActor: getOrgDetails called", LoggerEnum.INFO);
-    Map<String, Object> orgMap = (Map<String, Object>) entry.getValue();
     orgMap.remove(JsonKey.ORG_TYPE);
     if (orgMap.containsKey(JsonKey.ADDRESS_ID)
         && !StringUtils.isBlank((String) orgMap.get(JsonKey.ADDRESS_ID))) {
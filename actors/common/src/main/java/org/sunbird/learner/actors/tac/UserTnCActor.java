@@ -15,6 +15,7 @@ import org.sunbird.actorutil.systemsettings.SystemSettingClient;
 import org.sunbird.actorutil.systemsettings.impl.SystemSettingClientImpl;
 import org.sunbird.cassandra.CassandraOperation;
 import org.sunbird.common.ElasticSearchHelper;
+import org.sunbird.common.cacheloader.UserProfileCache;
 import org.sunbird.common.exception.ProjectCommonException;
 import org.sunbird.common.factory.EsClientFactory;
 import org.sunbird.common.inf.ElasticSearchService;
@@ -103,6 +104,7 @@ public class UserTnCActor extends BaseActor {
           cassandraOperation.updateRecord(
               usrDbInfo.getKeySpace(), usrDbInfo.getTableName(), userMap);
       if (((String) response.get(JsonKey.RESPONSE)).equalsIgnoreCase(JsonKey.SUCCESS)) {
+        UserProfileCache.getInstance().invalidate(userId);
         syncUserDetails(userMap);
       }
       sender().tell(response, self());
@@ -0,0 +1,53 @@
+package org.sunbird.learner.util;
+
+import org.apache.commons.lang3.StringUtils;
+import org.sunbird.common.models.util.LoggerEnum;
+import org.sunbird.common.models.util.ProjectLogger;
+import org.sunbird.common.models.util.ProjectUtil;
+
+/** Reads optional numeric and boolean settings, falling back to a default when not configured. */
+public final class ConfigValueUtil {
+
+  private ConfigValueUtil() {}
+
+  /**
+   * @param key configuration key
+   * @param defaultValue value to use if the key is not configured or is not a number
+   * @return configured value or default
+   */
+  public static int getIntValue(String key, int defaultValue) {
+    return (int) getLongValue(key, defaultValue);
+  }
+
+  /**
+   * @param key configuration key
+   * @param defaultValue value to use if the key is not configured or is not a number
+   * @return configured value or default
+   */
+  public static long getLongValue(String key, long defaultValue) {
+    String value = ProjectUtil.getConfigValue(key);
+    if (StringUtils.isNotBlank(value)) {
+      try {
+        return Long.parseLong(value.trim());
+      } catch (NumberFormatException e) {
+        ProjectLogger.log(
+            "ConfigValueUtil:getLongValue: Invalid value " + value + " for " + key,
+            LoggerEnum.WARN.name());
+      }
+    }
+    return defaultValue;
+  }
+
+  /**
+   * @param key configuration key
+   * @param defaultValue value to use if the key is not configured
+   * @return configured value or default
+   */
+  public static boolean getBooleanValue(String key, boolean defaultValue) {
+    String value = ProjectUtil.getConfigValue(key);
+    if (StringUtils.isNotBlank(value)) {
+      return Boolean.parseBoolean(value.trim());
+    }
+    return defaultValue;
+  }
+}
@@ -1,35 +1,63 @@
 package org.sunbird.learner.util;
 
-
+import akka.dispatch.ExecutionContexts;
+import akka.dispatch.Futures;
 import akka.dispatch.Mapper;
-import com.mashape.unirest.http.HttpResponse;
-import com.mashape.unirest.http.JsonNode;
-import com.mashape.unirest.http.Unirest;
-import com.mashape.unirest.request.BaseRequest;
-import java.util.ArrayList;
+import akka.dispatch.Recover;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.InputStream;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import javax.ws.rs.core.MediaType;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpHeaders;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.util.EntityUtils;
 import org.sunbird.common.models.util.JsonKey;
+import org.sunbird.common.models.util.LoggerEnum;
 import org.sunbird.common.models.util.ProjectLogger;
 import org.sunbird.common.models.util.PropertiesCache;
-import org.sunbird.common.models.util.RestUtil;
+import scala.concurrent.Await;
 import scala.concurrent.ExecutionContextExecutor;
 import scala.concurrent.Future;
+import scala.concurrent.Promise;
+import scala.concurrent.duration.Duration;
 
-
-
-/** @author Mahesh Kumar Gangula */
+/**
+ * Calls content search through a dedicated async HTTP client. Connections are pooled and kept
+ * alive, the number of connections to the search host is bounded and requests over the bound wait
+ * in the pool queue for a connection.
+ *
+ * @author Mahesh Kumar Gangula
+ */
 public class ContentSearchUtil {
 
+  public static final String CONTENT_SEARCH_MAX_CONNECTIONS =
+      "sunbird_content_search_max_connections";
+  public static final String CONTENT_SEARCH_MAX_CONNECTIONS_PER_HOST =
+      "sunbird_content_search_max_connections_per_host";
+  public static final String CONTENT_SEARCH_CONNECT_TIMEOUT =
+      "sunbird_content_search_connect_timeout_ms";
+  public static final String CONTENT_SEARCH_SOCKET_TIMEOUT =
+      "sunbird_content_search_socket_timeout_ms";
+  public static final String CONTENT_SEARCH_POOL_TIMEOUT = "sunbird_content_search_pool_timeout_ms";
+  public static final String CONTENT_SEARCH_IO_THREADS = "sunbird_content_search_io_threads";
+
   private static String contentSearchURL = null;
+  private static final ObjectMapper mapper = new ObjectMapper();
 
   static {
     String baseUrl = System.getenv(JsonKey.SUNBIRD_API_MGR_BASE_URL);
@@ -39,15 +67,78 @@ public class ContentSearchUtil {
     contentSearchURL = baseUrl + searchPath;
   }
 
-  private static Map<String, String> getUpdatedHeaders(Map<String, String> headers) {
-    if (headers == null) {
-      headers = new HashMap<>();
+  private static class ClientHolder {
+    private static final CloseableHttpAsyncClient client = createClient();
+  }
+
+  private static CloseableHttpAsyncClient createClient() {
+    IOReactorConfig ioReactorConfig =
+        IOReactorConfig.custom()
+            .setIoThreadCount(
+                ConfigValueUtil.getIntValue(
+                    CONTENT_SEARCH_IO_THREADS, Runtime.getRuntime().availableProcessors()))
+            .setSoKeepAlive(true)
+            .build();
+    PoolingNHttpClientConnectionManager connectionManager;
+    try {
+      connectionManager =
+          new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(ioReactorConfig));
+    } catch (IOReactorException e) {
+      ProjectLogger.log(
+          "ContentSearchUtil:createClient: Exception occurred with error message = "
+              + e.getMessage(),
+          e);
+      throw new IllegalStateException(e);
+    }
+    connectionManager.setMaxTotal(
+        ConfigValueUtil.getIntValue(CONTENT_SEARCH_MAX_CONNECTIONS, 200));
+    connectionManager.setDefaultMaxPerRoute(
+        ConfigValueUtil.getIntValue(CONTENT_SEARCH_MAX_CONNECTIONS_PER_HOST, 100));
+    RequestConfig requestConfig =
+        RequestConfig.custom()
+            .setConnectTimeout(ConfigValueUtil.getIntValue(CONTENT_SEARCH_CONNECT_TIMEOUT, 5000))
+            .setSocketTimeout(ConfigValueUtil.getIntValue(CONTENT_SEARCH_SOCKET_TIMEOUT, 30000))
+            .setConnectionRequestTimeout(
+                ConfigValueUtil.getIntValue(CONTENT_SEARCH_POOL_TIMEOUT, 10000))
+            .build();
+    CloseableHttpAsyncClient client =
+        HttpAsyncClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(requestConfig)
+            .setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE)
+            .build();
+    client.start();
+    ProjectLogger.log(
+        "ContentSearchUtil:createClient: Content search client started with max connections = "
+            + connectionManager.getMaxTotal()
+            + ", max connections per host = "
+            + connectionManager.getDefaultMaxPerRoute(),
+        LoggerEnum.INFO.name());
+    return client;
+  }
+
+  private static HttpPost getSearchRequest(
+      String urlQueryString, String queryRequestBody, Map<String, String> headers) {
+    String urlString =
+        StringUtils.isNotBlank(urlQueryString)
+            ? contentSearchURL + urlQueryString
+            : contentSearchURL;
+    HttpPost request = new HttpPost(urlString);
+    if (headers != null) {
+      for (Map.Entry<String, String> header : headers.entrySet()) {
+        if (header.getKey() != null && header.getValue() != null) {
+          request.setHeader(header.getKey(), header.getValue());
+        }
+      }
     }
-    headers.put(
+    request.setHeader(
         HttpHeaders.AUTHORIZATION, JsonKey.BEARER + System.getenv(JsonKey.SUNBIRD_AUTHORIZATION));
-    headers.put(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON);
-    headers.put("Connection", "Keep-Alive");
-    return headers;
+    request.setHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON);
+    request.removeHeaders(HttpHeaders.CONTENT_LENGTH);
+    request.removeHeaders(HttpHeaders.TRANSFER_ENCODING);
+    request.removeHeaders(HttpHeaders.HOST);
+    request.setEntity(new StringEntity(queryRequestBody, ContentType.APPLICATION_JSON));
+    return request;
   }
 
   public static Future<Map<String, Object>> searchContent(
@@ -56,115 +147,116 @@ public class ContentSearchUtil {
   }
 
   public static Future<Map<String, Object>> searchContent(
-String urlQueryString, String queryRequestBody, Map<String, String> headers, ExecutionContextExecutor ec) {
+      String urlQueryString,
+      String queryRequestBody,
+      Map<String, String> headers,
+      ExecutionContextExecutor ec) {
     String logMsgPrefix = "ContentSearchUtil:searchContent: ";
+    Promise<HttpResponse> promise = Futures.promise();
+    try {
+      ClientHolder.client.execute(
+          getSearchRequest(urlQueryString, queryRequestBody, headers),
+          new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(HttpResponse response) {
+              promise.success(response);
+            }
 
-    Unirest.clearDefaultHeaders();
-    String urlString =
-        StringUtils.isNotBlank(urlQueryString)
-            ? contentSearchURL + urlQueryString
-            : contentSearchURL;
-    BaseRequest request =
-        Unirest.post(urlString).headers(getUpdatedHeaders(headers)).body(queryRequestBody);
-    Future<HttpResponse<JsonNode>> response = RestUtil.executeAsync(request);
+            @Override
+            public void failed(Exception e) {
+              promise.failure(e);
+            }
+
+            @Override
+            public void cancelled() {
+              promise.failure(new IllegalStateException("Content search request cancelled"));
+            }
+          });
+    } catch (Exception e) {
+      promise.tryFailure(e);
+    }
 
-    return response.map(
-        new Mapper<HttpResponse<JsonNode>, Map<String, Object>>() {
-          @Override
-          public Map<String, Object> apply(HttpResponse<JsonNode> response) {
-            try {
-              if (RestUtil.isSuccessful(response)) {
-                JSONObject result = response.getBody().getObject().getJSONObject("result");
-                Map<String, Object> resultMap = jsonToMap(result);
-                Object contents = resultMap.get(JsonKey.CONTENT);
-                resultMap.remove(JsonKey.CONTENT);
-                resultMap.put(JsonKey.CONTENTS, contents);
-                String resmsgId = RestUtil.getFromResponse(response, "params.resmsgid");
-                String apiId = RestUtil.getFromResponse(response, "id");
-                Map<String, Object> param = new HashMap<>();
-                param.put(JsonKey.RES_MSG_ID, resmsgId);
-                param.put(JsonKey.API_ID, apiId);
-                resultMap.put(JsonKey.PARAMS, param);
-                return resultMap;
-              } else {
+    return promise
+        .future()
+        .map(
+            new Mapper<HttpResponse, Map<String, Object>>() {
+              @Override
+              public Map<String, Object> apply(HttpResponse response) {
+                try {
+                  return getResultMap(response);
+                } catch (Exception e) {
+                  ProjectLogger.log(
+                      logMsgPrefix + "Exception occurred with error message = " + e.getMessage(),
+                      e);
+                  return null;
+                }
+              }
+            },
+            ec)
+        .recover(
+            new Recover<Map<String, Object>>() {
+              @Override
+              public Map<String, Object> recover(Throwable failure) {
                 ProjectLogger.log(
-                    logMsgPrefix + "Search content failed. Error response = " + response.getBody());
+                    logMsgPrefix + "Exception occurred with error message = " + failure.getMessage(),
+                    LoggerEnum.ERROR.name());
                 return null;
               }
-            } catch (Exception e) {
-              ProjectLogger.log(
-                  logMsgPrefix + "Exception occurred with error message = " + e.getMessage(), e);
-              return null;
-            }
-          }
-        }, ec);
+            },
+            ec);
   }
 
+  /**
+   * Blocks the calling thread until the search completes. Meant for background jobs only, actors
+   * should use {@link #searchContent(String, String, Map, ExecutionContextExecutor)}.
+   */
   public static Map<String, Object> searchContentSync(
       String urlQueryString, String queryRequestBody, Map<String, String> headers) {
-    Unirest.clearDefaultHeaders();
-    String urlString =
-        StringUtils.isNotBlank(urlQueryString)
-            ? contentSearchURL + urlQueryString
-            : contentSearchURL;
-
-    BaseRequest request =
-        Unirest.post(urlString).headers(getUpdatedHeaders(headers)).body(queryRequestBody);
     try {
-      HttpResponse<JsonNode> response = RestUtil.execute(request);
-      if (RestUtil.isSuccessful(response)) {
-        JSONObject result = response.getBody().getObject().getJSONObject("result");
-        Map<String, Object> resultMap = jsonToMap(result);
-        Object contents = resultMap.get(JsonKey.CONTENT);
-        resultMap.remove(JsonKey.CONTENT);
-        resultMap.put(JsonKey.CONTENTS, contents);
-        String resmsgId = RestUtil.getFromResponse(response, "params.resmsgid");
-        String apiId = RestUtil.getFromResponse(response, "id");
-        Map<String, Object> param = new HashMap<>();
-        param.put(JsonKey.RES_MSG_ID, resmsgId);
-        param.put(JsonKey.API_ID, apiId);
-        resultMap.put(JsonKey.PARAMS, param);
-        return resultMap;
-      } else {
-        return null;
-      }
+      return Await.result(
+          searchContent(
+              urlQueryString,
+              queryRequestBody,
+              headers,
+              ExecutionContexts.global()),
+          Duration.create(
+              ConfigValueUtil.getIntValue(CONTENT_SEARCH_SOCKET_TIMEOUT, 30000)
+                  + ConfigValueUtil.getIntValue(CONTENT_SEARCH_POOL_TIMEOUT, 10000),
+              TimeUnit.MILLISECONDS));
     } catch (Exception e) {
+      ProjectLogger.log(
+          "ContentSearchUtil:searchContentSync: Exception occurred with error message = "
+              + e.getMessage(),
+          e);
       return null;
     }
   }
 
-  public static Map<String, Object> jsonToMap(JSONObject object) throws JSONException {
-    Map<String, Object> map = new HashMap<String, Object>();
-
-    Iterator<String> keysItr = object.keys();
-    while (keysItr.hasNext()) {
-      String key = keysItr.next();
-      Object value = object.get(key);
-
-      if (value instanceof JSONArray) {
-        value = toList((JSONArray) value);
-      } else if (value instanceof JSONObject) {
-        value = jsonToMap((JSONObject) value);
-      }
-      if (value == JSONObject.NULL) {
-        value = null;
-      }
-      map.put(key, value);
+  @SuppressWarnings("unchecked")
+  static Map<String, Object> getResultMap(HttpResponse response) throws Exception {
+    int status = response.getStatusLine().getStatusCode();
+    if (status < 200 || status >= 300) {
+      ProjectLogger.log(
+          "ContentSearchUtil:getResultMap: Search content failed. Error response = "
+              + (response.getEntity() == null ? status : EntityUtils.toString(response.getEntity())),
+          LoggerEnum.ERROR.name());
+      return null;
     }
-    return map;
-  }
-
-  public static List<Object> toList(JSONArray array) throws JSONException {
-    List<Object> list = new ArrayList<Object>();
-    for (int i = 0; i < array.length(); i++) {
-      Object value = array.get(i);
-      if (value instanceof JSONArray) {
-        value = toList((JSONArray) value);
-      } else if (value instanceof JSONObject) {
-        value = jsonToMap((JSONObject) value);
-      }
-      list.add(value);
+    Map<String, Object> body;
+    try (InputStream content = response.getEntity().getContent()) {
+      body = mapper.readValue(content, Map.class);
+    }
+    Map<String, Object> resultMap = (Map<String, Object>) body.get(JsonKey.RESULT);
+    if (resultMap == null) {
+      resultMap = new HashMap<>();
     }
-    return list;
+    Object contents = resultMap.remove(JsonKey.CONTENT);
+    resultMap.put(JsonKey.CONTENTS, contents);
+    Map<String, Object> params = (Map<String, Object>) body.get(JsonKey.PARAMS);
+    Map<String, Object> param = new HashMap<>();
+    param.put(JsonKey.RES_MSG_ID, params == null ? null : params.get("resmsgid"));
+    param.put(JsonKey.API_ID, body.get(JsonKey.ID));
+    resultMap.put(JsonKey.PARAMS, param);
+    return resultMap;
   }
 }
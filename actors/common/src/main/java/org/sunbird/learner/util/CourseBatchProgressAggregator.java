@@ -0,0 +1,493 @@
+package org.sunbird.learner.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import org.sunbird.cassandra.CassandraOperation;
+import org.sunbird.common.models.response.Response;
+import org.sunbird.common.models.util.JsonKey;
+import org.sunbird.common.models.util.LoggerEnum;
+import org.sunbird.common.models.util.ProjectLogger;
+import org.sunbird.common.models.util.ProjectUtil;
+import org.sunbird.common.models.util.ProjectUtil.ProgressStatus;
+import org.sunbird.helper.ServiceFactory;
+
+/**
+ * Keeps a precomputed progress aggregate per course batch: the number of active enrollments, the
+ * number of completed enrollments and the number of enrollments per progress bucket. Enrollment and
+ * progress changes are collected as deltas in memory and added to the stored aggregate at a fixed
+ * interval. An aggregate which does not exist yet, was marked for rebuild, or was last rebuilt
+ * longer ago than the configured maximum age, is rebuilt from the user_courses table in the
+ * background. Until the rebuild is done, reads return the last stored aggregate, or zero counts if
+ * there is none, marked with {@link #BUILDING}.
+ *
+ * <p>The deltas are added with a read and an upsert of the stored aggregate, so deltas flushed at
+ * the same time by another node can be lost. The rebuild corrects that drift, which is why the
+ * maximum age defaults to an hour.
+ */
+public final class CourseBatchProgressAggregator {
+
+  public static final String COURSE_BATCH_PROGRESS_FLUSH_INTERVAL =
+      "sunbird_course_batch_progress_flush_interval_seconds";
+  public static final String COURSE_BATCH_PROGRESS_MAX_AGE =
+      "sunbird_course_batch_progress_max_age_seconds";
+
+  static final String TABLE = "course_batch_progress";
+  static final String ENROLLED_COUNT = "enrolledCount";
+  static final String COMPLETED_COUNT = "completedCount";
+  static final String PROGRESS_BUCKETS = "progressBuckets";
+  static final String REBUILT_ON = "rebuiltOn";
+  /** Set to true on an aggregate returned while the aggregate of its batch is rebuilt. */
+  public static final String BUILDING = "building";
+
+  /** Upper bound, in percent, of each progress bucket. */
+  private static final int[] BUCKET_LIMITS = {0, 25, 50, 75, 99, 100};
+
+  static final List<String> BUCKETS =
+      Collections.unmodifiableList(Arrays.asList("0", "1-25", "26-50", "51-75", "76-99", "100"));
+
+  private final CassandraOperation cassandraOperation;
+  private final Util.DbInfo userCoursesDbInfo = Util.dbInfoMap.get(JsonKey.LEARNER_COURSE_DB);
+  private final long maxAgeMillis =
+      TimeUnit.SECONDS.toMillis(ConfigValueUtil.getLongValue(COURSE_BATCH_PROGRESS_MAX_AGE, 3600));
+  private final ReentrantLock flushLock = new ReentrantLock();
+  private final AtomicLong flushCount = new AtomicLong();
+  private final AtomicLong flushedBatches = new AtomicLong();
+  private final AtomicLong rebuildCount = new AtomicLong();
+  private final AtomicLong lastFlushTime = new AtomicLong();
+  private final AtomicLong lastRebuildTime = new AtomicLong();
+
+  private final Set<String> rebuilding = ConcurrentHashMap.newKeySet();
+  private Executor rebuildExecutor;
+  private Map<String, Delta> pending = new LinkedHashMap<>();
+
+  private CourseBatchProgressAggregator() {
+    this(ServiceFactory.getInstance(), null);
+    long interval = ConfigValueUtil.getLongValue(COURSE_BATCH_PROGRESS_FLUSH_INTERVAL, 10);
+    ScheduledExecutorService flushService =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "course-batch-progress-flush");
+              thread.setDaemon(true);
+              return thread;
+            });
+    flushService.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.SECONDS);
+    // rebuilds run one at a time on the flush thread
+    rebuildExecutor = flushService;
+    Runtime.getRuntime().addShutdownHook(new Thread(this::flush));
+  }
+
+  /**
+   * @param cassandraOperation database access
+   * @param rebuildExecutor runs the rebuilds of aggregates requested by reads
+   */
+  CourseBatchProgressAggregator(CassandraOperation cassandraOperation, Executor rebuildExecutor) {
+    this.cassandraOperation = cassandraOperation;
+    this.rebuildExecutor = rebuildExecutor;
+  }
+
+  private static class LazyInitializer {
+    private static CourseBatchProgressAggregator INSTANCE = new CourseBatchProgressAggregator();
+  }
+
+  public static CourseBatchProgressAggregator getInstance() {
+    return LazyInitializer.INSTANCE;
+  }
+
+  /**
+   * Returns the progress of an enrollment in percent, rounded the same way as the course progress
+   * reports. A course without leaf nodes counts as fully read.
+   *
+   * @param progress number of completed leaf nodes
+   * @param leafNodeCount number of leaf nodes of the course
+   */
+  public static int getProgressPercentage(Integer progress, Integer leafNodeCount) {
+    if (leafNodeCount == null || leafNodeCount == 0) {
+      return 100;
+    }
+    if (progress == null || progress <= 0) {
+      return 0;
+    }
+    return (int) Math.min(100, Math.round((progress * 100.0) / leafNodeCount));
+  }
+
+  /** @return true if the given enrollment status is completed */
+  public static boolean isCompleted(Object status) {
+    return status instanceof Number
+        && ((Number) status).intValue() == ProgressStatus.COMPLETED.getValue();
+  }
+
+  /** Returns the index in {@link #BUCKETS} of the bucket of a progress percentage. */
+  static int getBucket(int percent) {
+    for (int i = 0; i < BUCKET_LIMITS.length; i++) {
+      if (percent <= BUCKET_LIMITS[i]) {
+        return i;
+      }
+    }
+    return BUCKET_LIMITS.length - 1;
+  }
+
+  /**
+   * Counts an enrollment which became active.
+   *
+   * @param batchId batch of the enrollment
+   * @param percent progress of the enrollment in percent
+   * @param completed true if the enrollment is completed
+   */
+  public synchronized void enrolled(String batchId, int percent, boolean completed) {
+    getDelta(batchId).add(percent, completed, 1);
+  }
+
+  /**
+   * Stops counting an enrollment which became inactive.
+   *
+   * @param batchId batch of the enrollment
+   * @param percent progress of the enrollment in percent
+   * @param completed true if the enrollment is completed
+   */
+  public synchronized void unenrolled(String batchId, int percent, boolean completed) {
+    getDelta(batchId).add(percent, completed, -1);
+  }
+
+  /**
+   * Moves an active enrollment to the bucket of its new progress.
+   *
+   * @param batchId batch of the enrollment
+   * @param fromPercent previous progress in percent
+   * @param fromCompleted true if the enrollment was completed
+   * @param toPercent new progress in percent
+   * @param toCompleted true if the enrollment is completed now
+   */
+  public synchronized void progressed(
+      String batchId, int fromPercent, boolean fromCompleted, int toPercent, boolean toCompleted) {
+    if (getBucket(fromPercent) == getBucket(toPercent) && fromCompleted == toCompleted) {
+      return;
+    }
+    Delta delta = getDelta(batchId);
+    delta.add(fromPercent, fromCompleted, -1);
+    delta.add(toPercent, toCompleted, 1);
+  }
+
+  /**
+   * Marks the aggregate of a batch for rebuild on the next read. The stored counts are kept, so
+   * that reads return them until the rebuild is done. Used for bulk changes to the enrollments of a
+   * batch whose previous state is not known.
+   *
+   * @param batchId batch whose enrollments changed
+   */
+  public void invalidate(String batchId) {
+    synchronized (this) {
+      pending.remove(batchId);
+    }
+    Map<String, Object> marker = new HashMap<>();
+    marker.put(JsonKey.ID, batchId);
+    marker.put(REBUILT_ON, null);
+    try {
+      cassandraOperation.upsertRecord(userCoursesDbInfo.getKeySpace(), TABLE, marker);
+    } catch (Exception e) {
+      ProjectLogger.log(
+          "CourseBatchProgressAggregator:invalidate: Exception occurred with error message = "
+              + e.getMessage(),
+          e);
+    }
+  }
+
+  /**
+   * Returns the aggregate of a batch with its pending deltas added. An aggregate which does not
+   * exist, was marked for rebuild or is older than the configured maximum age is rebuilt in the
+   * background, and the last stored aggregate, or zero counts if there is none, is returned marked
+   * with {@link #BUILDING}.
+   *
+   * @param batchId course batch
+   * @return enrolled count, completed count, count per progress bucket, update time and whether
+   *     the aggregate is being rebuilt
+   */
+  public Map<String, Object> getAggregate(String batchId) {
+    Map<String, Object> aggregate = read(batchId);
+    boolean building = aggregate == null || isStale(aggregate);
+    if (building) {
+      scheduleRebuild(batchId);
+    }
+    if (aggregate == null) {
+      aggregate = newAggregate(batchId);
+    } else {
+      synchronized (this) {
+        Delta delta = pending.get(batchId);
+        if (delta != null) {
+          delta.applyTo(aggregate);
+        }
+      }
+    }
+    aggregate.put(BUILDING, building);
+    return aggregate;
+  }
+
+  /**
+   * Counts the active enrollments of a batch from the user_courses table and stores the result as
+   * its aggregate. Holds the flush lock, so that a flush does not add deltas to the aggregate of
+   * the batch while it is rebuilt.
+   *
+   * @param batchId course batch
+   * @return rebuilt aggregate
+   */
+  public Map<String, Object> rebuild(String batchId) {
+    flushLock.lock();
+    try {
+      return rebuildAggregate(batchId);
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  private void scheduleRebuild(String batchId) {
+    if (rebuildExecutor == null || !rebuilding.add(batchId)) {
+      return;
+    }
+    try {
+      rebuildExecutor.execute(
+          () -> {
+            try {
+              rebuild(batchId);
+            } catch (Exception e) {
+              ProjectLogger.log(
+                  "CourseBatchProgressAggregator:scheduleRebuild: Exception occurred for batch "
+                      + batchId
+                      + " with error message = "
+                      + e.getMessage(),
+                  e);
+            } finally {
+              rebuilding.remove(batchId);
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      rebuilding.remove(batchId);
+      ProjectLogger.log(
+          "CourseBatchProgressAggregator:scheduleRebuild: Rebuild rejected for batch " + batchId,
+          LoggerEnum.WARN.name());
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, Object> rebuildAggregate(String batchId) {
+    long startTime = System.currentTimeMillis();
+    Response response =
+        cassandraOperation.getRecordsByProperty(
+            userCoursesDbInfo.getKeySpace(),
+            userCoursesDbInfo.getTableName(),
+            JsonKey.BATCH_ID,
+            batchId);
+    List<Map<String, Object>> enrollments =
+        (List<Map<String, Object>>) response.get(JsonKey.RESPONSE);
+    Delta delta = new Delta();
+    if (enrollments != null) {
+      for (Map<String, Object> enrollment : enrollments) {
+        if (Boolean.TRUE.equals(enrollment.get(JsonKey.ACTIVE))) {
+          delta.add(
+              getProgressPercentage(enrollment), isCompleted(enrollment.get(JsonKey.STATUS)), 1);
+        }
+      }
+    }
+    Map<String, Object> aggregate = newAggregate(batchId);
+    delta.applyTo(aggregate);
+    aggregate.put(REBUILT_ON, startTime);
+    aggregate.put(JsonKey.UPDATED_DATE, ProjectUtil.getFormattedDate());
+    Delta included;
+    synchronized (this) {
+      // enrollments are written before their deltas are recorded, so the rows read above include
+      // the deltas recorded until now, the later ones are added by the next flush
+      included = pending.remove(batchId);
+    }
+    try {
+      cassandraOperation.upsertRecord(userCoursesDbInfo.getKeySpace(), TABLE, aggregate);
+    } catch (Exception e) {
+      if (included != null) {
+        requeue(Collections.singletonMap(batchId, included));
+      }
+      throw e;
+    }
+    rebuildCount.incrementAndGet();
+    lastRebuildTime.set(System.currentTimeMillis() - startTime);
+    ProjectLogger.log(
+        "CourseBatchProgressAggregator:rebuild: Rebuilt progress of batch "
+            + batchId
+            + " from "
+            + (enrollments == null ? 0 : enrollments.size())
+            + " enrollments in "
+            + lastRebuildTime.get()
+            + " ms",
+        LoggerEnum.INFO.name());
+    return aggregate;
+  }
+
+  /**
+   * Adds the pending deltas to the stored aggregates. Deltas of batches without a stored aggregate
+   * are dropped, the aggregate is built from user_courses when it is first read. Deltas which fail
+   * to be written are kept for the next flush.
+   */
+  public void flush() {
+    if (!flushLock.tryLock()) {
+      return;
+    }
+    try {
+      Map<String, Delta> deltas;
+      synchronized (this) {
+        if (pending.isEmpty()) {
+          return;
+        }
+        deltas = pending;
+        pending = new LinkedHashMap<>();
+      }
+      long startTime = System.currentTimeMillis();
+      Map<String, Delta> failed = new LinkedHashMap<>();
+      for (Map.Entry<String, Delta> entry : deltas.entrySet()) {
+        try {
+          Map<String, Object> aggregate = read(entry.getKey());
+          if (aggregate != null) {
+            entry.getValue().applyTo(aggregate);
+            aggregate.put(JsonKey.UPDATED_DATE, ProjectUtil.getFormattedDate());
+            cassandraOperation.upsertRecord(userCoursesDbInfo.getKeySpace(), TABLE, aggregate);
+          }
+          flushedBatches.incrementAndGet();
+        } catch (Exception e) {
+          ProjectLogger.log(
+              "CourseBatchProgressAggregator:flush: Exception occurred for batch "
+                  + entry.getKey()
+                  + " with error message = "
+                  + e.getMessage(),
+              e);
+          failed.put(entry.getKey(), entry.getValue());
+        }
+      }
+      requeue(failed);
+      flushCount.incrementAndGet();
+      lastFlushTime.set(System.currentTimeMillis() - startTime);
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  /** @return pending batches, flush and rebuild counts and durations */
+  public Map<String, Object> getMetrics() {
+    Map<String, Object> metrics = new HashMap<>();
+    synchronized (this) {
+      metrics.put("pendingBatches", pending.size());
+    }
+    metrics.put("flushCount", flushCount.get());
+    metrics.put("flushedBatches", flushedBatches.get());
+    metrics.put("lastFlushTime", lastFlushTime.get());
+    metrics.put("rebuildCount", rebuildCount.get());
+    metrics.put("lastRebuildTime", lastRebuildTime.get());
+    return metrics;
+  }
+
+  private synchronized void requeue(Map<String, Delta> failed) {
+    for (Map.Entry<String, Delta> entry : failed.entrySet()) {
+      getDelta(entry.getKey()).merge(entry.getValue());
+    }
+  }
+
+  private Delta getDelta(String batchId) {
+    return pending.computeIfAbsent(batchId, key -> new Delta());
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, Object> read(String batchId) {
+    Response response =
+        cassandraOperation.getRecordById(userCoursesDbInfo.getKeySpace(), TABLE, batchId);
+    List<Map<String, Object>> records = (List<Map<String, Object>>) response.get(JsonKey.RESPONSE);
+    if (records == null || records.isEmpty()) {
+      return null;
+    }
+    Map<String, Object> aggregate = newAggregate(batchId);
+    Map<String, Object> record = records.get(0);
+    aggregate.put(ENROLLED_COUNT, getInt(record.get(ENROLLED_COUNT)));
+    aggregate.put(COMPLETED_COUNT, getInt(record.get(COMPLETED_COUNT)));
+    Map<String, Object> buckets = (Map<String, Object>) aggregate.get(PROGRESS_BUCKETS);
+    Map<String, Object> storedBuckets = (Map<String, Object>) record.get(PROGRESS_BUCKETS);
+    if (storedBuckets != null) {
+      for (String bucket : BUCKETS) {
+        buckets.put(bucket, getInt(storedBuckets.get(bucket)));
+      }
+    }
+    aggregate.put(REBUILT_ON, record.get(REBUILT_ON));
+    aggregate.put(JsonKey.UPDATED_DATE, record.get(JsonKey.UPDATED_DATE));
+    return aggregate;
+  }
+
+  private boolean isStale(Map<String, Object> aggregate) {
+    Object rebuiltOn = aggregate.get(REBUILT_ON);
+    return !(rebuiltOn instanceof Number)
+        || System.currentTimeMillis() - ((Number) rebuiltOn).longValue() > maxAgeMillis;
+  }
+
+  private static Map<String, Object> newAggregate(String batchId) {
+    Map<String, Object> aggregate = new HashMap<>();
+    aggregate.put(JsonKey.ID, batchId);
+    aggregate.put(ENROLLED_COUNT, 0);
+    aggregate.put(COMPLETED_COUNT, 0);
+    Map<String, Object> buckets = new LinkedHashMap<>();
+    for (String bucket : BUCKETS) {
+      buckets.put(bucket, 0);
+    }
+    aggregate.put(PROGRESS_BUCKETS, buckets);
+    return aggregate;
+  }
+
+  private static int getProgressPercentage(Map<String, Object> enrollment) {
+    return getProgressPercentage(
+        (Integer) enrollment.get(JsonKey.COURSE_PROGRESS),
+        (Integer) enrollment.get(JsonKey.LEAF_NODE_COUNT));
+  }
+
+  private static int getInt(Object value) {
+    return value instanceof Number ? ((Number) value).intValue() : 0;
+  }
+
+  /** Change of the counts of one batch which is yet to be added to its aggregate. */
+  private static class Delta {
+
+    private int enrolled;
+    private int completed;
+    private final int[] buckets = new int[BUCKETS.size()];
+
+    void add(int percent, boolean done, int count) {
+      enrolled += count;
+      if (done) {
+        completed += count;
+      }
+      buckets[getBucket(percent)] += count;
+    }
+
+    void merge(Delta other) {
+      enrolled += other.enrolled;
+      completed += other.completed;
+      for (int i = 0; i < buckets.length; i++) {
+        buckets[i] += other.buckets[i];
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    void applyTo(Map<String, Object> aggregate) {
+      aggregate.put(ENROLLED_COUNT, Math.max(0, getInt(aggregate.get(ENROLLED_COUNT)) + enrolled));
+      aggregate.put(
+          COMPLETED_COUNT, Math.max(0, getInt(aggregate.get(COMPLETED_COUNT)) + completed));
+      Map<String, Object> counts = (Map<String, Object>) aggregate.get(PROGRESS_BUCKETS);
+      for (int i = 0; i < buckets.length; i++) {
+        String bucket = BUCKETS.get(i);
+        counts.put(bucket, Math.max(0, getInt(counts.get(bucket)) + buckets[i]));
+      }
+    }
+  }
+}
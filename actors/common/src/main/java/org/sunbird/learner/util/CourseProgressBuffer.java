@@ -0,0 +1,451 @@
+package org.sunbird.learner.util;
+
+import akka.actor.ActorRef;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import org.sunbird.actor.service.SunbirdMWService;
+import org.sunbird.common.models.util.ActorOperations;
+import org.sunbird.common.models.util.JsonKey;
+import org.sunbird.common.models.util.LoggerEnum;
+import org.sunbird.common.models.util.ProjectLogger;
+import org.sunbird.common.models.util.ProjectUtil;
+import org.sunbird.common.request.Request;
+import org.sunbird.helper.ServiceFactory;
+
+/**
+ * Write-behind buffer for course progress. Updates of the same enrollment are merged in memory and
+ * written when the buffer is full, at a fixed interval and on shutdown. Every update is appended to
+ * a local journal before it is accepted, and journals left behind by a crash are replayed on start.
+ *
+ * <p>Updates are numbered in the order they are added. Before an enrollment is written, the course
+ * progress being written is journaled with the number of the last update it includes, and after it
+ * is written that number is appended to the done file of the journal. On replay the updates
+ * covered by a done number are skipped and the updates covered by a journaled course progress are
+ * replaced by it, so an update is never added to the stored progress twice. Journals are kept until
+ * a flush writes every pending update.
+ */
+public final class CourseProgressBuffer {
+
+  public static final String COURSE_PROGRESS_BUFFER_ENABLED =
+      "sunbird_course_progress_buffer_enabled";
+  public static final String COURSE_PROGRESS_BUFFER_MAX_ENTRIES =
+      "sunbird_course_progress_buffer_max_entries";
+  public static final String COURSE_PROGRESS_BUFFER_FLUSH_INTERVAL =
+      "sunbird_course_progress_buffer_flush_interval_seconds";
+  public static final String COURSE_PROGRESS_BUFFER_JOURNAL_DIR =
+      "sunbird_course_progress_buffer_journal_dir";
+
+  private static final String JOURNAL_PREFIX = "progress-";
+  private static final String JOURNAL_SUFFIX = ".journal";
+  private static final String DONE_SUFFIX = ".done";
+
+  private final boolean enabled;
+  private final int maxEntries;
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final ReentrantLock flushLock = new ReentrantLock();
+  private final AtomicLong flushCount = new AtomicLong();
+  private final AtomicLong flushedUpdates = new AtomicLong();
+  private final AtomicLong lastFlushLag = new AtomicLong();
+  private final AtomicLong lastFlushTime = new AtomicLong();
+
+  private File journalDir;
+  private ScheduledExecutorService flushService;
+  private CourseProgressUpdater courseProgressUpdater;
+  private Map<String, CourseProgressUpdate> pending = new LinkedHashMap<>();
+  private long oldestPendingTime;
+  private long lastSequence;
+  private List<File> unflushedJournals = new ArrayList<>();
+  private File journalFile;
+  private FileOutputStream journalStream;
+  private Writer journal;
+
+  private CourseProgressBuffer() {
+    enabled = ConfigValueUtil.getBooleanValue(COURSE_PROGRESS_BUFFER_ENABLED, false);
+    maxEntries = ConfigValueUtil.getIntValue(COURSE_PROGRESS_BUFFER_MAX_ENTRIES, 1000);
+    if (!enabled) {
+      return;
+    }
+    String dir = ProjectUtil.getConfigValue(COURSE_PROGRESS_BUFFER_JOURNAL_DIR);
+    start(
+        new CourseProgressUpdater(ServiceFactory.getInstance()),
+        new File(
+            dir == null || dir.trim().isEmpty()
+                ? System.getProperty("java.io.tmpdir") + File.separator + "course-progress"
+                : dir.trim()));
+    long interval = ConfigValueUtil.getLongValue(COURSE_PROGRESS_BUFFER_FLUSH_INTERVAL, 30);
+    flushService.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.SECONDS);
+    Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown));
+  }
+
+  /** Creates an enabled buffer without scheduled flushes, journaling to the given directory. */
+  CourseProgressBuffer(
+      CourseProgressUpdater courseProgressUpdater, File journalDir, int maxEntries) {
+    this.enabled = true;
+    this.maxEntries = maxEntries;
+    start(courseProgressUpdater, journalDir);
+  }
+
+  private void start(CourseProgressUpdater courseProgressUpdater, File journalDir) {
+    this.courseProgressUpdater = courseProgressUpdater;
+    this.journalDir = journalDir;
+    journalDir.mkdirs();
+    synchronized (this) {
+      recover();
+    }
+    flushService =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "course-progress-flush");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  private static class LazyInitializer {
+    private static CourseProgressBuffer INSTANCE = new CourseProgressBuffer();
+  }
+
+  public static CourseProgressBuffer getInstance() {
+    return LazyInitializer.INSTANCE;
+  }
+
+  /** @return true if course progress should be written through this buffer */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Journals the update and merges it with the pending update of the same enrollment.
+   *
+   * @param update progress made on an enrollment
+   * @throws IOException if the update cannot be journaled, it is not buffered in that case
+   */
+  public void add(CourseProgressUpdate update) throws IOException {
+    boolean full;
+    synchronized (this) {
+      update.setSequence(++lastSequence);
+      appendToJournal(update);
+      merge(update);
+      full = pending.size() >= maxEntries;
+    }
+    if (full && !flushService.isShutdown()) {
+      flushService.execute(this::flush);
+    }
+  }
+
+  /**
+   * Stops the scheduled flushes, waits for a running flush and writes all pending updates. Called
+   * on shutdown.
+   */
+  void shutdown() {
+    if (!enabled) {
+      return;
+    }
+    flushService.shutdown();
+    try {
+      flushService.awaitTermination(30, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    flush();
+  }
+
+  /** Writes all pending updates. Updates which fail to be written stay in the buffer. */
+  public void flush() {
+    if (!enabled || !flushLock.tryLock()) {
+      return;
+    }
+    try {
+      Map<String, CourseProgressUpdate> updates;
+      long bufferedSince;
+      File doneFile;
+      synchronized (this) {
+        if (pending.isEmpty()) {
+          return;
+        }
+        updates = pending;
+        bufferedSince = oldestPendingTime;
+        pending = new LinkedHashMap<>();
+        unflushedJournals.add(journalFile);
+        openJournal();
+        doneFile = new File(journalFile.getPath() + DONE_SUFFIX);
+      }
+      long startTime = System.currentTimeMillis();
+      Set<String> done = new HashSet<>();
+      try {
+        write(updates, doneFile, done);
+      } catch (Exception e) {
+        ProjectLogger.log(
+            "CourseProgressBuffer:flush: Exception occurred with error message = "
+                + e.getMessage(),
+            e);
+      }
+      requeue(updates, done);
+      if (done.size() == updates.size()) {
+        // the updates of the earlier journals are all written, or journaled again as progress
+        unflushedJournals.forEach(this::deleteJournal);
+        unflushedJournals.clear();
+      }
+      long endTime = System.currentTimeMillis();
+      flushCount.incrementAndGet();
+      flushedUpdates.addAndGet(done.size());
+      lastFlushLag.set(endTime - bufferedSince);
+      lastFlushTime.set(endTime - startTime);
+      ProjectLogger.log(
+          "CourseProgressBuffer:flush: Flushed "
+              + done.size()
+              + " of "
+              + updates.size()
+              + " course progress updates in "
+              + (endTime - startTime)
+              + " ms, "
+              + getMetrics(),
+          LoggerEnum.INFO.name());
+    } catch (Exception e) {
+      ProjectLogger.log(
+          "CourseProgressBuffer:flush: Exception occurred with error message = " + e.getMessage(),
+          e);
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  private void write(Map<String, CourseProgressUpdate> updates, File doneFile, Set<String> done)
+      throws IOException {
+    try (FileOutputStream doneStream = new FileOutputStream(doneFile, true);
+        Writer doneWriter = new OutputStreamWriter(doneStream, StandardCharsets.UTF_8)) {
+      try {
+        courseProgressUpdater.update(
+            updates.values(),
+            this::syncToEs,
+            this::journalProgress,
+            key -> {
+              done.add(key);
+              try {
+                doneWriter.write(key + " " + updates.get(key).getSequence());
+                doneWriter.write('\n');
+                doneWriter.flush();
+              } catch (IOException e) {
+                ProjectLogger.log(
+                    "CourseProgressBuffer:write: Exception occurred with error message = "
+                        + e.getMessage(),
+                    e);
+              }
+            });
+      } finally {
+        doneWriter.flush();
+        doneStream.getFD().sync();
+      }
+    }
+  }
+
+  /** Journals the course progress which is about to be written for an enrollment. */
+  private void journalProgress(CourseProgressUpdate update) {
+    try {
+      synchronized (this) {
+        appendToJournal(update);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Puts the updates which were not written back into the buffer. They are not journaled again, as
+   * the journals they were read from are kept.
+   */
+  private void requeue(Map<String, CourseProgressUpdate> updates, Set<String> done) {
+    for (CourseProgressUpdate update : updates.values()) {
+      if (done.contains(update.getKey())) {
+        continue;
+      }
+      synchronized (this) {
+        CourseProgressUpdate later = pending.remove(update.getKey());
+        if (later != null) {
+          update.merge(later);
+        }
+        put(update);
+      }
+    }
+  }
+
+  private void syncToEs(Map<String, Object> courseMap) {
+    Request request = new Request();
+    request.setOperation(ActorOperations.UPDATE_USR_COURSES_INFO_ELASTIC.getValue());
+    request.getRequest().put(JsonKey.USER_COURSES, courseMap);
+    SunbirdMWService.tellToBGRouter(request, ActorRef.noSender());
+  }
+
+  private void merge(CourseProgressUpdate update) {
+    CourseProgressUpdate current = pending.get(update.getKey());
+    if (current == null) {
+      put(update);
+    } else {
+      current.merge(update);
+    }
+  }
+
+  private void put(CourseProgressUpdate update) {
+    if (pending.isEmpty()) {
+      oldestPendingTime = System.currentTimeMillis();
+    }
+    pending.put(update.getKey(), update);
+  }
+
+  private void appendToJournal(CourseProgressUpdate update) throws IOException {
+    journal.write(mapper.writeValueAsString(update));
+    journal.write('\n');
+    journal.flush();
+    journalStream.getFD().sync();
+  }
+
+  private void openJournal() throws IOException {
+    if (journal != null) {
+      journal.close();
+    }
+    journalFile =
+        new File(journalDir, JOURNAL_PREFIX + System.currentTimeMillis() + JOURNAL_SUFFIX);
+    for (int i = 1; journalFile.exists(); i++) {
+      journalFile =
+          new File(
+              journalDir, JOURNAL_PREFIX + System.currentTimeMillis() + "-" + i + JOURNAL_SUFFIX);
+    }
+    journalStream = new FileOutputStream(journalFile, true);
+    journal = new OutputStreamWriter(journalStream, StandardCharsets.UTF_8);
+  }
+
+  private void deleteJournal(File file) {
+    new File(file.getPath() + DONE_SUFFIX).delete();
+    file.delete();
+  }
+
+  /**
+   * Loads the updates of journals left behind by an earlier run into the buffer. Updates which were
+   * already written are skipped, and updates covered by a journaled course progress are replaced by
+   * it. The journals are kept until the loaded updates are written.
+   */
+  private void recover() {
+    File[] journals =
+        journalDir.listFiles(
+            (dir, name) -> name.startsWith(JOURNAL_PREFIX) && name.endsWith(JOURNAL_SUFFIX));
+    try {
+      openJournal();
+      if (journals == null) {
+        return;
+      }
+      Map<String, Long> done = new HashMap<>();
+      List<CourseProgressUpdate> updates = new ArrayList<>();
+      for (File file : journals) {
+        readDone(new File(file.getPath() + DONE_SUFFIX), done);
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath())) {
+          String line;
+          while ((line = reader.readLine()) != null) {
+            if (!line.trim().isEmpty()) {
+              updates.add(mapper.readValue(line, CourseProgressUpdate.class));
+            }
+          }
+        } catch (IOException e) {
+          // a crash while appending can leave a partial last line, the lines before it are kept
+          ProjectLogger.log(
+              "CourseProgressBuffer:recover: Error reading journal "
+                  + file.getName()
+                  + " = "
+                  + e.getMessage(),
+              LoggerEnum.WARN.name());
+        }
+        unflushedJournals.add(file);
+      }
+      // a course progress is journaled after the update with the same sequence
+      updates.sort(
+          Comparator.comparingLong(CourseProgressUpdate::getSequence)
+              .thenComparing(update -> update.getCourseProgress() != null));
+      for (CourseProgressUpdate update : updates) {
+        lastSequence = Math.max(lastSequence, update.getSequence());
+        Long written = done.get(update.getKey());
+        if (written != null && update.getSequence() <= written) {
+          continue;
+        }
+        if (update.getCourseProgress() != null) {
+          pending.remove(update.getKey());
+          put(update);
+        } else {
+          merge(update);
+        }
+      }
+    } catch (IOException e) {
+      ProjectLogger.log(
+          "CourseProgressBuffer:recover: Exception occurred with error message = "
+              + e.getMessage(),
+          e);
+      return;
+    }
+    ProjectLogger.log(
+        "CourseProgressBuffer:recover: Recovered "
+            + pending.size()
+            + " course progress updates from "
+            + unflushedJournals.size()
+            + " journals",
+        LoggerEnum.INFO.name());
+    if (pending.isEmpty()) {
+      unflushedJournals.forEach(this::deleteJournal);
+      unflushedJournals.clear();
+    }
+  }
+
+  /** Reads the last written sequence of every enrollment in the done file. */
+  private void readDone(File doneFile, Map<String, Long> done) throws IOException {
+    if (!doneFile.exists()) {
+      return;
+    }
+    for (String line : Files.readAllLines(doneFile.toPath(), StandardCharsets.UTF_8)) {
+      int separator = line.trim().lastIndexOf(' ');
+      if (separator < 0) {
+        continue;
+      }
+      try {
+        done.merge(
+            line.trim().substring(0, separator),
+            Long.parseLong(line.trim().substring(separator + 1)),
+            Math::max);
+      } catch (NumberFormatException e) {
+        // a crash while appending can leave a partial last line
+      }
+    }
+  }
+
+  /** @return buffer depth, lag of the last flush and flush counts */
+  public Map<String, Object> getMetrics() {
+    Map<String, Object> metrics = new HashMap<>();
+    long now = System.currentTimeMillis();
+    synchronized (this) {
+      metrics.put("bufferDepth", pending.size());
+      metrics.put("oldestPendingAge", pending.isEmpty() ? 0 : now - oldestPendingTime);
+    }
+    metrics.put("lastFlushLag", lastFlushLag.get());
+    metrics.put("lastFlushTime", lastFlushTime.get());
+    metrics.put("flushCount", flushCount.get());
+    metrics.put("flushedUpdates", flushedUpdates.get());
+    return metrics;
+  }
+}
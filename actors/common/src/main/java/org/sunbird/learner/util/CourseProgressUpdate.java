@@ -0,0 +1,90 @@
+package org.sunbird.learner.util;
+
+import java.io.Serializable;
+
+/**
+ * Progress made on one course enrollment (user_courses row) which is yet to be written, i.e. the
+ * number of newly completed contents and the last read content. The contents are added to the
+ * course progress of the update if it is set, otherwise to the stored course progress.
+ */
+public class CourseProgressUpdate implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+  private String key;
+  private int progress;
+  private String lastReadContentId;
+  private Integer lastReadContentStatus;
+  private Integer courseProgress;
+  private long sequence;
+
+  public CourseProgressUpdate() {}
+
+  public CourseProgressUpdate(
+      String key, int progress, String lastReadContentId, Integer lastReadContentStatus) {
+    this.key = key;
+    this.progress = progress;
+    this.lastReadContentId = lastReadContentId;
+    this.lastReadContentStatus = lastReadContentStatus;
+  }
+
+  /**
+   * Adds a later update of the same enrollment to this one. Progress is added up and the last read
+   * content and sequence of the later update are kept.
+   *
+   * @param next update received after this one
+   */
+  public void merge(CourseProgressUpdate next) {
+    progress += next.progress;
+    lastReadContentId = next.lastReadContentId;
+    lastReadContentStatus = next.lastReadContentStatus;
+    sequence = next.sequence;
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  public void setKey(String key) {
+    this.key = key;
+  }
+
+  public int getProgress() {
+    return progress;
+  }
+
+  public void setProgress(int progress) {
+    this.progress = progress;
+  }
+
+  public String getLastReadContentId() {
+    return lastReadContentId;
+  }
+
+  public void setLastReadContentId(String lastReadContentId) {
+    this.lastReadContentId = lastReadContentId;
+  }
+
+  public Integer getLastReadContentStatus() {
+    return lastReadContentStatus;
+  }
+
+  public void setLastReadContentStatus(Integer lastReadContentStatus) {
+    this.lastReadContentStatus = lastReadContentStatus;
+  }
+
+  public Integer getCourseProgress() {
+    return courseProgress;
+  }
+
+  public void setCourseProgress(Integer courseProgress) {
+    this.courseProgress = courseProgress;
+  }
+
+  public long getSequence() {
+    return sequence;
+  }
+
+  public void setSequence(long sequence) {
+    this.sequence = sequence;
+  }
+}
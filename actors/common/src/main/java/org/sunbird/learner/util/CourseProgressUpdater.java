@@ -0,0 +1,175 @@
+package org.sunbird.learner.util;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.sunbird.cassandra.CassandraOperation;
+import org.sunbird.common.models.response.Response;
+import org.sunbird.common.models.util.JsonKey;
+import org.sunbird.common.models.util.LoggerEnum;
+import org.sunbird.common.models.util.ProjectLogger;
+import org.sunbird.common.models.util.ProjectUtil;
+import org.sunbird.common.models.util.ProjectUtil.ProgressStatus;
+
+/** Applies course progress updates to the user_courses table. */
+public class CourseProgressUpdater {
+
+  private CassandraOperation cassandraOperation;
+  private CourseBatchProgressAggregator progressAggregator;
+
+  public CourseProgressUpdater(CassandraOperation cassandraOperation) {
+    this(cassandraOperation, CourseBatchProgressAggregator.getInstance());
+  }
+
+  public CourseProgressUpdater(
+      CassandraOperation cassandraOperation, CourseBatchProgressAggregator progressAggregator) {
+    this.cassandraOperation = cassandraOperation;
+    this.progressAggregator = progressAggregator;
+  }
+
+  /**
+   * Reads the enrollments of the updates in one query, adds the progress and writes each
+   * enrollment once.
+   *
+   * @param updates progress to be written, at most one per enrollment
+   * @param esSync called with the updated enrollment to sync it to ES
+   * @param onDone called with the key of every update which is written, or dropped because its
+   *     enrollment does not exist
+   */
+  public void update(
+      Collection<CourseProgressUpdate> updates,
+      Consumer<Map<String, Object>> esSync,
+      Consumer<String> onDone) {
+    update(updates, esSync, update -> {}, onDone);
+  }
+
+  /**
+   * Same as {@link #update(Collection, Consumer, Consumer)}, but before an enrollment is written
+   * its update is set to the course progress being written, with no further progress to add.
+   *
+   * @param beforeWrite called with every update set to the course progress being written, the
+   *     enrollment is not written if it throws
+   */
+  public void update(
+      Collection<CourseProgressUpdate> updates,
+      Consumer<Map<String, Object>> esSync,
+      Consumer<CourseProgressUpdate> beforeWrite,
+      Consumer<String> onDone) {
+    Util.DbInfo dbInfo = Util.dbInfoMap.get(JsonKey.LEARNER_COURSE_DB);
+    ProjectLogger.log(
+        "CourseProgressUpdater:update method called started:", LoggerEnum.INFO.name());
+    Map<String, Map<String, Object>> courses = getCourses(dbInfo, updates);
+    for (CourseProgressUpdate update : updates) {
+      Map<String, Object> course = courses.get(update.getKey());
+      if (null == course) {
+        ProjectLogger.log(
+            "CourseProgressUpdater:update CourseList is empty or null: ", LoggerEnum.ERROR.name());
+        onDone.accept(update.getKey());
+        continue;
+      }
+      Map<String, Object> updateDb = new HashMap<>();
+      Integer courseProgress = update.getCourseProgress();
+      if (null == courseProgress) {
+        courseProgress = 0;
+        if (ProjectUtil.isNotNull(course.get(JsonKey.COURSE_PROGRESS))) {
+          courseProgress = (Integer) course.get(JsonKey.COURSE_PROGRESS);
+        }
+      }
+      courseProgress = courseProgress + update.getProgress();
+      // update status on basis of leaf node count and progress ---
+      if (course.containsKey(JsonKey.LEAF_NODE_COUNT)
+          && ProjectUtil.isNotNull(course.get(JsonKey.LEAF_NODE_COUNT))) {
+        Integer leafNodeCount = (Integer) course.get(JsonKey.LEAF_NODE_COUNT);
+        courseProgress = courseProgress > leafNodeCount ? leafNodeCount : courseProgress;
+        if (0 == leafNodeCount || (leafNodeCount > courseProgress)) {
+          updateDb.put(JsonKey.STATUS, ProjectUtil.ProgressStatus.STARTED.getValue());
+        } else {
+          if (ProgressStatus.COMPLETED.getValue() != (Integer) course.get(JsonKey.STATUS)) {
+            updateDb.put(JsonKey.COMPLETED_ON, new Timestamp(new Date().getTime()));
+          }
+          updateDb.put(JsonKey.STATUS, ProgressStatus.COMPLETED.getValue());
+        }
+      } else if (ProjectUtil.isNull(course.get(JsonKey.LEAF_NODE_COUNT))) {
+        updateDb.put(JsonKey.STATUS, ProjectUtil.ProgressStatus.STARTED.getValue());
+      }
+      Timestamp ts = new Timestamp(new Date().getTime());
+      updateDb.put(JsonKey.ID, course.get(JsonKey.ID));
+      updateDb.put(JsonKey.COURSE_PROGRESS, courseProgress);
+      updateDb.put(JsonKey.DATE_TIME, ts);
+      updateDb.put(JsonKey.LAST_READ_CONTENTID, update.getLastReadContentId());
+      updateDb.put(JsonKey.LAST_READ_CONTENT_STATUS, update.getLastReadContentStatus());
+      updateDb.put(JsonKey.PROCESSING_STATUS, ProjectUtil.BulkProcessStatus.COMPLETED.name());
+      update.setCourseProgress(courseProgress);
+      update.setProgress(0);
+      try {
+        beforeWrite.accept(update);
+        // processing status is written as completed along with the progress
+        cassandraOperation.upsertRecord(dbInfo.getKeySpace(), dbInfo.getTableName(), updateDb);
+        ProjectLogger.log(
+            "CourseProgressUpdater:update user courses DB updated successfully : ",
+            LoggerEnum.INFO.name());
+        onDone.accept(update.getKey());
+        updateProgressAggregate(course, updateDb);
+        updateDb.put(JsonKey.BATCH_ID, course.get(JsonKey.BATCH_ID));
+        updateDb.put(JsonKey.USER_ID, course.get(JsonKey.USER_ID));
+        updateDb.put(JsonKey.DATE_TIME, ProjectUtil.formatDate(ts));
+        if (updateDb.containsKey(JsonKey.COMPLETED_ON)) {
+          updateDb.put(
+              JsonKey.COMPLETED_ON,
+              ProjectUtil.formatDate((Date) updateDb.get(JsonKey.COMPLETED_ON)));
+        }
+        esSync.accept(updateDb);
+      } catch (Exception ex) {
+        ProjectLogger.log(
+            "CourseProgressUpdater:update exception occured: " + ex, LoggerEnum.ERROR.name());
+      }
+    }
+  }
+
+  /** Moves an active enrollment to its new progress bucket in the aggregate of its batch. */
+  private void updateProgressAggregate(Map<String, Object> course, Map<String, Object> updateDb) {
+    String batchId = (String) course.get(JsonKey.BATCH_ID);
+    if (batchId == null || !Boolean.TRUE.equals(course.get(JsonKey.ACTIVE))) {
+      return;
+    }
+    Integer leafNodeCount = (Integer) course.get(JsonKey.LEAF_NODE_COUNT);
+    Object status = updateDb.getOrDefault(JsonKey.STATUS, course.get(JsonKey.STATUS));
+    progressAggregator.progressed(
+        batchId,
+        CourseBatchProgressAggregator.getProgressPercentage(
+            (Integer) course.get(JsonKey.COURSE_PROGRESS), leafNodeCount),
+        CourseBatchProgressAggregator.isCompleted(course.get(JsonKey.STATUS)),
+        CourseBatchProgressAggregator.getProgressPercentage(
+            (Integer) updateDb.get(JsonKey.COURSE_PROGRESS), leafNodeCount),
+        CourseBatchProgressAggregator.isCompleted(status));
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, Map<String, Object>> getCourses(
+      Util.DbInfo dbInfo, Collection<CourseProgressUpdate> updates) {
+    Map<String, Map<String, Object>> courses = new HashMap<>();
+    List<String> keys = new ArrayList<>();
+    for (CourseProgressUpdate update : updates) {
+      keys.add(update.getKey());
+    }
+    if (keys.isEmpty()) {
+      return courses;
+    }
+    Response response =
+        cassandraOperation.getRecordsByIdsWithSpecifiedColumns(
+            dbInfo.getKeySpace(), dbInfo.getTableName(), null, keys);
+    List<Map<String, Object>> courseList =
+        (List<Map<String, Object>>) response.getResult().get(JsonKey.RESPONSE);
+    if (courseList != null) {
+      for (Map<String, Object> course : courseList) {
+        courses.put((String) course.get(JsonKey.ID), course);
+      }
+    }
+    return courses;
+  }
+}
@@ -1,10 +1,16 @@
 /** */
 package org.sunbird.learner.util;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import org.apache.commons.lang3.StringUtils;
 import org.sunbird.cassandra.CassandraOperation;
 import org.sunbird.common.models.response.Response;
@@ -14,37 +20,129 @@ import org.sunbird.common.models.util.ProjectLogger;
 import org.sunbird.helper.ServiceFactory;
 
 /**
- * This class will handle the data cache.
+ * This class will handle the data cache. Page, section, role, org type and system setting tables
+ * are held in an immutable {@link DataCacheSnapshot}. A refresh loads every table into a new map,
+ * keeps the previous instance of tables whose content did not change and publishes the result with
+ * one atomic swap.
  *
  * @author Amit Kumar
  */
 public class DataCacheHandler implements Runnable {
+
+  public static final String PAGE_MAP = "pageMap";
+  public static final String SECTION_MAP = "sectionMap";
+  public static final String ROLE_MAP = "roleMap";
+  public static final String ORG_TYPE_MAP = "orgTypeMap";
+  public static final String CONFIG_SETTINGS = "configSettings";
+
+  /** Page and section tables, refreshed separately when incremental page refresh is enabled. */
+  public static final Set<String> PAGE_TABLES =
+      Collections.unmodifiableSet(new HashSet<>(Arrays.asList(PAGE_MAP, SECTION_MAP)));
+
+  public static final Set<String> ALL_TABLES =
+      Collections.unmodifiableSet(
+          new HashSet<>(
+              Arrays.asList(PAGE_MAP, SECTION_MAP, ROLE_MAP, ORG_TYPE_MAP, CONFIG_SETTINGS)));
+
   /**
-   * pageMap is the map of (orgId:pageName) and page Object (i.e map of string , object) sectionMap
-   * is the map of section Id and section Object (i.e map of string , object)
+   * snapshot holds pageMap (map of orgId:pageName and page Object), sectionMap (map of section Id
+   * and section Object), roleMap, orgTypeMap and configSettings.
    */
-  private static Map<String, Map<String, Object>> pageMap = new ConcurrentHashMap<>();
+  private static final AtomicReference<DataCacheSnapshot> snapshot =
+      new AtomicReference<>(DataCacheSnapshot.empty());
 
-  private static Map<String, Map<String, Object>> sectionMap = new ConcurrentHashMap<>();
-  private static Map<String, Object> roleMap = new ConcurrentHashMap<>();
-  private static Map<String, String> orgTypeMap = new ConcurrentHashMap<>();
-  private static Map<String, String> configSettings = new ConcurrentHashMap<>();
+  /** Framework maps are populated lazily by the user actors and are never reloaded in bulk. */
   private static Map<String, Map<String, List<Map<String, String>>>> frameworkCategoriesMap =
       new ConcurrentHashMap<>();
+
   private static Map<String, List<String>> frameworkFieldsConfig = new ConcurrentHashMap<>();
-  private static Map<String, List<String>> hashtagIdFrameworkIdMap = new HashMap<>();
+  private static Map<String, List<String>> hashtagIdFrameworkIdMap = new ConcurrentHashMap<>();
   private CassandraOperation cassandraOperation = ServiceFactory.getInstance();
   private static final String KEY_SPACE_NAME = "sunbird";
+  private final Set<String> tables;
+  private long rowsScanned;
+
+  public DataCacheHandler() {
+    this(ALL_TABLES);
+  }
+
+  /** @param tables names of the tables to reload on every run */
+  public DataCacheHandler(Set<String> tables) {
+    this.tables = tables;
+  }
 
   @Override
   public void run() {
     ProjectLogger.log("DataCacheHandler:run: Cache refresh started.", LoggerEnum.INFO.name());
-    cache(pageMap, "page_management");
-    cache(sectionMap, "page_section");
-    roleCache(roleMap);
-    orgTypeCache(orgTypeMap);
-    cacheSystemConfig(configSettings);
-    ProjectLogger.log("DataCacheHandler:run: Cache refresh completed.", LoggerEnum.INFO.name());
+    DataCacheSnapshot current = snapshot.get();
+    Map<String, Map<String, ?>> changedTables = new HashMap<>();
+    Map<String, Long> timings = new HashMap<>();
+    rowsScanned = 0;
+    this.<Map<String, Object>>refreshTable(
+        PAGE_MAP,
+        map -> cache(map, "page_management"),
+        current,
+        changedTables,
+        timings);
+    this.<Map<String, Object>>refreshTable(
+        SECTION_MAP, map -> cache(map, "page_section"), current, changedTables, timings);
+    this.<Object>refreshTable(ROLE_MAP, this::roleCache, current, changedTables, timings);
+    this.<String>refreshTable(ORG_TYPE_MAP, this::orgTypeCache, current, changedTables, timings);
+    this.<String>refreshTable(
+        CONFIG_SETTINGS, this::cacheSystemConfig, current, changedTables, timings);
+    if (changedTables.isEmpty()) {
+      ProjectLogger.log(
+          "DataCacheHandler:run: Cache refresh completed, no change from generation "
+              + current.getGeneration()
+              + " rows scanned = "
+              + rowsScanned
+              + " timings = "
+              + timings,
+          LoggerEnum.INFO.name());
+      return;
+    }
+    DataCacheSnapshot published =
+        snapshot.updateAndGet(latest -> latest.withTables(changedTables, timings));
+    ProjectLogger.log(
+        "DataCacheHandler:run: Cache refresh completed, published generation "
+            + published.getGeneration()
+            + " changed tables = "
+            + changedTables.keySet()
+            + " rows scanned = "
+            + rowsScanned
+            + " timings = "
+            + timings,
+        LoggerEnum.INFO.name());
+  }
+
+  /**
+   * Loads one table into a new map and records it as changed only if it differs from the table
+   * held by the current snapshot. On failure the current table is kept as it is.
+   */
+  private <V> void refreshTable(
+      String tableName,
+      Consumer<Map<String, V>> loader,
+      DataCacheSnapshot current,
+      Map<String, Map<String, ?>> changedTables,
+      Map<String, Long> timings) {
+    if (!tables.contains(tableName)) {
+      return;
+    }
+    long startTime = System.currentTimeMillis();
+    Map<String, V> table = new HashMap<>();
+    try {
+      loader.accept(table);
+    } catch (Exception e) {
+      ProjectLogger.log(
+          "DataCacheHandler:refreshTable: Exception in loading " + tableName + " " + e.getMessage(),
+          e);
+      return;
+    }
+    timings.put(tableName, System.currentTimeMillis() - startTime);
+    if (!table.equals(current.getTable(tableName))) {
+      changedTables.put(tableName, table);
+    }
+    ProjectLogger.log(tableName + " cache size: " + table.size(), LoggerEnum.INFO.name());
   }
 
   @SuppressWarnings("unchecked")
@@ -54,6 +152,7 @@ public class DataCacheHandler implements Runnable {
     List<Map<String, Object>> responseList =
         (List<Map<String, Object>>) response.get(JsonKey.RESPONSE);
     if (null != responseList && !responseList.isEmpty()) {
+      rowsScanned += responseList.size();
       for (Map<String, Object> resultMap : responseList) {
         if (((String) resultMap.get(JsonKey.FIELD)).equalsIgnoreCase(JsonKey.PHONE_UNIQUE)
             && StringUtils.isBlank((String) resultMap.get(JsonKey.VALUE))) {
@@ -78,6 +177,7 @@ public class DataCacheHandler implements Runnable {
     List<Map<String, Object>> responseList =
         (List<Map<String, Object>>) response.get(JsonKey.RESPONSE);
     if (null != responseList && !responseList.isEmpty()) {
+      rowsScanned += responseList.size();
       for (Map<String, Object> resultMap : responseList) {
         orgTypeMap.put(
             ((String) resultMap.get(JsonKey.NAME)).toLowerCase(),
@@ -92,6 +192,7 @@ public class DataCacheHandler implements Runnable {
     List<Map<String, Object>> responseList =
         (List<Map<String, Object>>) response.get(JsonKey.RESPONSE);
     if (null != responseList && !responseList.isEmpty()) {
+      rowsScanned += responseList.size();
       for (Map<String, Object> resultMap : responseList) {
         roleMap.put((String) resultMap.get(JsonKey.ID), resultMap.get(JsonKey.NAME));
       }
@@ -100,6 +201,7 @@ public class DataCacheHandler implements Runnable {
     List<Map<String, Object>> responseList2 =
         (List<Map<String, Object>>) response2.get(JsonKey.RESPONSE);
     if (null != responseList2 && !responseList2.isEmpty()) {
+      rowsScanned += responseList2.size();
       for (Map<String, Object> resultMap2 : responseList2) {
         roleMap.put((String) resultMap2.get(JsonKey.ID), resultMap2.get(JsonKey.NAME));
       }
@@ -108,79 +210,148 @@ public class DataCacheHandler implements Runnable {
 
   @SuppressWarnings("unchecked")
   private void cache(Map<String, Map<String, Object>> map, String tableName) {
-    try {
-      Response response = cassandraOperation.getAllRecords(KEY_SPACE_NAME, tableName);
-      List<Map<String, Object>> responseList =
-          (List<Map<String, Object>>) response.get(JsonKey.RESPONSE);
-      if (null != responseList && !responseList.isEmpty()) {
-        for (Map<String, Object> resultMap : responseList) {
-          if (tableName.equalsIgnoreCase(JsonKey.PAGE_SECTION)) {
-            map.put((String) resultMap.get(JsonKey.ID), resultMap);
-          } else {
-            String orgId =
-                (((String) resultMap.get(JsonKey.ORGANISATION_ID)) == null
-                    ? "NA"
-                    : (String) resultMap.get(JsonKey.ORGANISATION_ID));
-            map.put(orgId + ":" + ((String) resultMap.get(JsonKey.PAGE_NAME)), resultMap);
-          }
+    Response response = cassandraOperation.getAllRecords(KEY_SPACE_NAME, tableName);
+    List<Map<String, Object>> responseList =
+        (List<Map<String, Object>>) response.get(JsonKey.RESPONSE);
+    if (null != responseList && !responseList.isEmpty()) {
+      rowsScanned += responseList.size();
+      for (Map<String, Object> resultMap : responseList) {
+        if (tableName.equalsIgnoreCase(JsonKey.PAGE_SECTION)) {
+          map.put((String) resultMap.get(JsonKey.ID), resultMap);
+        } else {
+          String orgId =
+              (((String) resultMap.get(JsonKey.ORGANISATION_ID)) == null
+                  ? "NA"
+                  : (String) resultMap.get(JsonKey.ORGANISATION_ID));
+          map.put(orgId + ":" + ((String) resultMap.get(JsonKey.PAGE_NAME)), resultMap);
         }
       }
-      ProjectLogger.log("pagemap keyset " + map.keySet());
-      ProjectLogger.log(tableName + " cache size: " + map.size(), LoggerEnum.INFO.name());
-    } catch (Exception e) {
-      ProjectLogger.log(
-          "DataCacheHandler:cache: Exception in retrieving page section " + e.getMessage(), e);
     }
   }
 
+  /** @return number of rows read from Cassandra by the last run */
+  public long getRowsScanned() {
+    return rowsScanned;
+  }
+
+  /** @return the currently published snapshot */
+  public static DataCacheSnapshot getSnapshot() {
+    return snapshot.get();
+  }
+
+  /** @return generation number of the currently published snapshot */
+  public static long getGeneration() {
+    return snapshot.get().getGeneration();
+  }
+
+  private static void publishTable(String tableName, Map<String, ?> table) {
+    snapshot.updateAndGet(
+        latest ->
+            latest.withTables(
+                Collections.singletonMap(tableName, table), Collections.emptyMap()));
+  }
+
+  private static void publishEntry(String tableName, String key, Object value) {
+    snapshot.updateAndGet(latest -> latest.withEntry(tableName, key, value));
+  }
+
   /** @return the pageMap */
   public static Map<String, Map<String, Object>> getPageMap() {
-    return pageMap;
+    return snapshot.get().getTable(PAGE_MAP);
   }
 
   /** @param pageMap the pageMap to set */
   public static void setPageMap(Map<String, Map<String, Object>> pageMap) {
-    DataCacheHandler.pageMap = pageMap;
+    publishTable(PAGE_MAP, pageMap);
   }
 
   /** @return the sectionMap */
   public static Map<String, Map<String, Object>> getSectionMap() {
-    return sectionMap;
+    return snapshot.get().getTable(SECTION_MAP);
   }
 
   /** @param sectionMap the sectionMap to set */
   public static void setSectionMap(Map<String, Map<String, Object>> sectionMap) {
-    DataCacheHandler.sectionMap = sectionMap;
+    publishTable(SECTION_MAP, sectionMap);
   }
 
   /** @return the roleMap */
   public static Map<String, Object> getRoleMap() {
-    return roleMap;
+    return snapshot.get().getTable(ROLE_MAP);
   }
 
   /** @param roleMap the roleMap to set */
   public static void setRoleMap(Map<String, Object> roleMap) {
-    DataCacheHandler.roleMap = roleMap;
+    publishTable(ROLE_MAP, roleMap);
   }
 
   /** @return the orgTypeMap */
   public static Map<String, String> getOrgTypeMap() {
-    return orgTypeMap;
+    return snapshot.get().getTable(ORG_TYPE_MAP);
   }
 
   /** @param orgTypeMap the orgTypeMap to set */
   public static void setOrgTypeMap(Map<String, String> orgTypeMap) {
-    DataCacheHandler.orgTypeMap = orgTypeMap;
+    publishTable(ORG_TYPE_MAP, orgTypeMap);
   }
 
   /** @return the configSettings */
   public static Map<String, String> getConfigSettings() {
-    return configSettings;
+    return snapshot.get().getTable(CONFIG_SETTINGS);
   }
 
   /** @param configSettings the configSettings to set */
   public static void setConfigSettings(Map<String, String> configSettings) {
-    DataCacheHandler.configSettings = configSettings;
+    publishTable(CONFIG_SETTINGS, configSettings);
+  }
+
+  /**
+   * Adds or replaces a page in a new snapshot generation.
+   *
+   * @param key orgId:pageName
+   * @param page page details
+   */
+  public static void updatePageMap(String key, Map<String, Object> page) {
+    publishEntry(PAGE_MAP, key, page);
+  }
+
+  /**
+   * Adds or replaces a page section in a new snapshot generation.
+   *
+   * @param sectionId section id
+   * @param section section details
+   */
+  public static void updateSectionMap(String sectionId, Map<String, Object> section) {
+    publishEntry(SECTION_MAP, sectionId, section);
+  }
+
+  /**
+   * Adds or replaces an org type in a new snapshot generation.
+   *
+   * @param orgType org type name in lower case
+   * @param orgTypeId org type id
+   */
+  public static void updateOrgTypeMap(String orgType, String orgTypeId) {
+    publishEntry(ORG_TYPE_MAP, orgType, orgTypeId);
+  }
+
+  /**
+   * Adds or replaces a system setting in a new snapshot generation.
+   *
+   * @param field setting field
+   * @param value setting value
+   */
+  public static void updateConfigSettings(String field, String value) {
+    publishEntry(CONFIG_SETTINGS, field, value);
+  }
+
+  /**
+   * Removes a deleted system setting in a new snapshot generation.
+   *
+   * @param field setting field
+   */
+  public static void removeConfigSettings(String field) {
+    snapshot.updateAndGet(latest -> latest.withoutEntry(CONFIG_SETTINGS, field));
   }
 
   public static Map<String, Map<String, List<Map<String, String>>>> getFrameworkCategoriesMap() {
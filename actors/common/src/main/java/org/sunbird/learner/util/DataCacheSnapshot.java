@@ -0,0 +1,107 @@
+package org.sunbird.learner.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable, versioned view of the tables cached by {@link DataCacheHandler}. Every refresh or
+ * write builds a new snapshot off to the side and publishes it with a single reference swap, so a
+ * reader always sees one consistent generation of every table.
+ */
+public final class DataCacheSnapshot {
+
+  private final long generation;
+  private final long createdTime;
+  private final Map<String, Map<String, ?>> tables;
+  private final Map<String, Long> refreshTimings;
+
+  private DataCacheSnapshot(
+      long generation, Map<String, Map<String, ?>> tables, Map<String, Long> refreshTimings) {
+    this.generation = generation;
+    this.createdTime = System.currentTimeMillis();
+    this.tables = Collections.unmodifiableMap(tables);
+    this.refreshTimings = Collections.unmodifiableMap(refreshTimings);
+  }
+
+  /** @return snapshot with generation zero and no tables. */
+  static DataCacheSnapshot empty() {
+    return new DataCacheSnapshot(0, new HashMap<>(), new HashMap<>());
+  }
+
+  /**
+   * Builds the next generation by replacing the given tables. Tables not present in {@code
+   * changedTables} keep the instance held by this snapshot.
+   *
+   * @param changedTables map of table name and its freshly loaded content
+   * @param timings time taken (in ms) to load each refreshed table
+   * @return new snapshot, the current one is left untouched
+   */
+  DataCacheSnapshot withTables(
+      Map<String, ? extends Map<String, ?>> changedTables, Map<String, Long> timings) {
+    Map<String, Map<String, ?>> nextTables = new HashMap<>(tables);
+    for (Map.Entry<String, ? extends Map<String, ?>> entry : changedTables.entrySet()) {
+      nextTables.put(entry.getKey(), Collections.unmodifiableMap(new HashMap<>(entry.getValue())));
+    }
+    Map<String, Long> nextTimings = new HashMap<>(refreshTimings);
+    nextTimings.putAll(timings);
+    return new DataCacheSnapshot(generation + 1, nextTables, nextTimings);
+  }
+
+  /**
+   * Builds the next generation with a single entry added to (or replaced in) one table.
+   *
+   * @param tableName name of the table to update
+   * @param key entry key
+   * @param value entry value
+   * @return new snapshot, the current one is left untouched
+   */
+  DataCacheSnapshot withEntry(String tableName, String key, Object value) {
+    Map<String, Object> table = new HashMap<>(this.<Object>getTable(tableName));
+    table.put(key, value);
+    return withTables(Collections.singletonMap(tableName, table), Collections.emptyMap());
+  }
+
+  /**
+   * Builds the next generation with a single entry removed from one table.
+   *
+   * @param tableName name of the table to update
+   * @param key entry key
+   * @return new snapshot, the current one is left untouched
+   */
+  DataCacheSnapshot withoutEntry(String tableName, String key) {
+    Map<String, Object> table = new HashMap<>(this.<Object>getTable(tableName));
+    table.remove(key);
+    return withTables(Collections.singletonMap(tableName, table), Collections.emptyMap());
+  }
+
+  /** @return generation number, incremented on every publish. */
+  public long getGeneration() {
+    return generation;
+  }
+
+  /** @return epoch time in ms at which this snapshot was built. */
+  public long getCreatedTime() {
+    return createdTime;
+  }
+
+  /** @return time (in ms) taken by the last successful load of each table. */
+  public Map<String, Long> getRefreshTimings() {
+    return refreshTimings;
+  }
+
+  /**
+   * Returns the read only content of a table.
+   *
+   * @param tableName name of the table
+   * @return table content or empty map if the table was never loaded
+   */
+  @SuppressWarnings("unchecked")
+  public <V> Map<String, V> getTable(String tableName) {
+    Map<String, ?> table = tables.get(tableName);
+    if (table == null) {
+      return Collections.emptyMap();
+    }
+    return (Map<String, V>) table;
+  }
+}
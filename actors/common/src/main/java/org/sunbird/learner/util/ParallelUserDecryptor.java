@@ -0,0 +1,73 @@
+package org.sunbird.learner.util;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import org.sunbird.common.exception.ProjectCommonException;
+import org.sunbird.common.models.util.LoggerEnum;
+import org.sunbird.common.models.util.ProjectLogger;
+import org.sunbird.common.responsecode.ResponseCode;
+
+/**
+ * Decrypts user documents read from ES in parallel on a bounded fork-join pool. Values repeated
+ * within one call, e.g. the email of an org shared by many users, are decrypted once.
+ */
+public final class ParallelUserDecryptor {
+
+  public static final String USER_DECRYPTION_PARALLELISM = "sunbird_user_decryption_parallelism";
+
+  /** Below this many users the fork-join overhead outweighs the gain. */
+  private static final int PARALLEL_THRESHOLD = 16;
+
+  private static final ForkJoinPool pool =
+      new ForkJoinPool(
+          Math.max(
+              1,
+              ConfigValueUtil.getIntValue(
+                  USER_DECRYPTION_PARALLELISM, Runtime.getRuntime().availableProcessors())));
+
+  private ParallelUserDecryptor() {}
+
+  /**
+   * Decrypts and masks the given users in place, see {@link
+   * UserUtility#decryptUserDataFrmES(Map, Map)}.
+   *
+   * @param users user documents read from ES
+   */
+  public static void decryptUserDataFrmES(List<Map<String, Object>> users) {
+    Map<String, String> decrypted = new ConcurrentHashMap<>();
+    if (users.size() < PARALLEL_THRESHOLD) {
+      UserUtility.decryptUserDataFrmES(users, decrypted);
+      return;
+    }
+    try {
+      pool.submit(
+              () ->
+                  users
+                      .parallelStream()
+                      .forEach(user -> UserUtility.decryptUserDataFrmES(user, decrypted)))
+          .get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw serverError(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw serverError(e.getCause());
+    }
+  }
+
+  private static ProjectCommonException serverError(Throwable e) {
+    ProjectLogger.log(
+        "ParallelUserDecryptor:decryptUserDataFrmES: Decryption failed with error message = "
+            + e.getMessage(),
+        LoggerEnum.ERROR.name());
+    return new ProjectCommonException(
+        ResponseCode.SERVER_ERROR.getErrorCode(),
+        ResponseCode.SERVER_ERROR.getErrorMessage(),
+        ResponseCode.SERVER_ERROR.getResponseCode());
+  }
+}
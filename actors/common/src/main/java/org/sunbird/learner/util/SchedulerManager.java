@@ -1,11 +1,17 @@
 /** */
 package org.sunbird.learner.util;
 
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import org.sunbird.common.cacheloader.LocationTree;
 import org.sunbird.common.cacheloader.PageCacheLoaderService;
+import org.sunbird.common.cacheloader.PageCacheRefresher;
+import org.sunbird.common.cacheloader.SystemSettingsRegistry;
 import org.sunbird.common.models.util.LoggerEnum;
 import org.sunbird.common.models.util.ProjectLogger;
+import org.sunbird.metrics.actors.ReportUploadSweeper;
 
 /** @author Manzarul All the scheduler job will be handle by this class. */
 public class SchedulerManager {
@@ -19,8 +25,30 @@ public class SchedulerManager {
 
   /** all scheduler job will be configure here. */
   public static void schedule() {
-    service.scheduleWithFixedDelay(new DataCacheHandler(), 0, PAGE_DATA_TTL, TimeUnit.HOURS);
-    service.scheduleWithFixedDelay(new PageCacheLoaderService(), 0, PAGE_DATA_TTL, TimeUnit.HOURS);
+    if (PageCacheRefresher.isIncrementalRefreshEnabled()) {
+      Set<String> tables = new HashSet<>(DataCacheHandler.ALL_TABLES);
+      tables.removeAll(DataCacheHandler.PAGE_TABLES);
+      service.scheduleWithFixedDelay(
+          new DataCacheHandler(tables), 0, PAGE_DATA_TTL, TimeUnit.HOURS);
+      service.scheduleWithFixedDelay(
+          new PageCacheRefresher(), 0, PageCacheRefresher.getRefreshInterval(), TimeUnit.SECONDS);
+    } else {
+      service.scheduleWithFixedDelay(new DataCacheHandler(), 0, PAGE_DATA_TTL, TimeUnit.HOURS);
+      service.scheduleWithFixedDelay(
+          new PageCacheLoaderService(), 0, PAGE_DATA_TTL, TimeUnit.HOURS);
+    }
+    service.scheduleWithFixedDelay(
+        LocationTree.getInstance(), 0, LocationTree.getRefreshInterval(), TimeUnit.MINUTES);
+    service.scheduleWithFixedDelay(
+        SystemSettingsRegistry.getInstance(),
+        0,
+        SystemSettingsRegistry.getRefreshInterval(),
+        TimeUnit.SECONDS);
+    service.scheduleWithFixedDelay(
+        ReportUploadSweeper.getInstance(),
+        0,
+        ReportUploadSweeper.getSweepInterval(),
+        TimeUnit.MINUTES);
     ProjectLogger.log(
         "SchedulerManager:schedule: Started scheduler job for cache refresh.",
         LoggerEnum.INFO.name());
@@ -0,0 +1,158 @@
+package org.sunbird.learner.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.lang3.StringUtils;
+import org.sunbird.common.models.util.datasecurity.DecryptionService;
+import org.sunbird.common.models.util.datasecurity.EncryptionService;
+import org.sunbird.common.models.util.datasecurity.impl.ServiceFactory;
+
+/**
+ * Encrypts or decrypts whole columns of user data, e.g. the emails of all users of a search result,
+ * in one call. Every distinct value is passed to the encryption or decryption service once per
+ * batch, so a value repeated on many rows, like the email of an org, is processed once. A batch is
+ * meant to live as long as one request and may be shared by the threads serving it.
+ */
+public final class UserCryptoBatch {
+
+  private final EncryptionService encryptionService =
+      ServiceFactory.getEncryptionServiceInstance(null);
+  private final DecryptionService decryptionService =
+      ServiceFactory.getDecryptionServiceInstance(null);
+  private final Map<String, String> encrypted = new ConcurrentHashMap<>();
+  private final Map<String, String> decrypted;
+  private final AtomicLong serviceCalls = new AtomicLong();
+
+  public UserCryptoBatch() {
+    this(new ConcurrentHashMap<>());
+  }
+
+  /**
+   * @param decrypted decrypted values by encrypted value, shared with other batches of the same
+   *     request
+   */
+  public UserCryptoBatch(Map<String, String> decrypted) {
+    this.decrypted = decrypted;
+  }
+
+  public String encrypt(String value) throws Exception {
+    if (StringUtils.isEmpty(value)) {
+      serviceCalls.incrementAndGet();
+      return encryptionService.encryptData(value);
+    }
+    String result = encrypted.get(value);
+    if (result == null) {
+      serviceCalls.incrementAndGet();
+      result = encryptionService.encryptData(value);
+      if (result != null) {
+        encrypted.put(value, result);
+      }
+    }
+    return result;
+  }
+
+  public String decrypt(String value) {
+    if (StringUtils.isEmpty(value)) {
+      serviceCalls.incrementAndGet();
+      return decryptionService.decryptData(value);
+    }
+    String result = decrypted.get(value);
+    if (result == null) {
+      serviceCalls.incrementAndGet();
+      result = decryptionService.decryptData(value);
+      if (result != null) {
+        decrypted.put(value, result);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @param column values to encrypt
+   * @return encrypted values in the same order
+   */
+  public List<String> encrypt(List<String> column) throws Exception {
+    List<String> result = new ArrayList<>(column.size());
+    for (String value : column) {
+      result.add(encrypt(value));
+    }
+    return result;
+  }
+
+  /**
+   * @param column values to decrypt
+   * @return decrypted values in the same order
+   */
+  public List<String> decrypt(List<String> column) {
+    List<String> result = new ArrayList<>(column.size());
+    for (String value : column) {
+      result.add(decrypt(value));
+    }
+    return result;
+  }
+
+  /**
+   * Encrypts the given columns of the given rows in place. Rows without a column are left as they
+   * are.
+   *
+   * @param rows e.g. users or addresses
+   * @param keys columns to encrypt
+   */
+  public void encryptColumns(List<Map<String, Object>> rows, Collection<String> keys)
+      throws Exception {
+    for (String key : keys) {
+      List<Map<String, Object>> columnRows = getRowsWithColumn(rows, key);
+      List<String> values = encrypt(getColumn(columnRows, key));
+      setColumn(columnRows, key, values);
+    }
+  }
+
+  /**
+   * Decrypts the given columns of the given rows in place. Rows without a column are left as they
+   * are.
+   *
+   * @param rows e.g. users or addresses
+   * @param keys columns to decrypt
+   */
+  public void decryptColumns(List<Map<String, Object>> rows, Collection<String> keys) {
+    for (String key : keys) {
+      List<Map<String, Object>> columnRows = getRowsWithColumn(rows, key);
+      List<String> values = decrypt(getColumn(columnRows, key));
+      setColumn(columnRows, key, values);
+    }
+  }
+
+  /** Returns the number of calls made to the encryption and decryption services. */
+  public long getServiceCalls() {
+    return serviceCalls.get();
+  }
+
+  private static List<Map<String, Object>> getRowsWithColumn(
+      List<Map<String, Object>> rows, String key) {
+    List<Map<String, Object>> columnRows = new ArrayList<>();
+    for (Map<String, Object> row : rows) {
+      if (row.containsKey(key)) {
+        columnRows.add(row);
+      }
+    }
+    return columnRows;
+  }
+
+  private static List<String> getColumn(List<Map<String, Object>> rows, String key) {
+    List<String> column = new ArrayList<>(rows.size());
+    for (Map<String, Object> row : rows) {
+      column.add((String) row.get(key));
+    }
+    return column;
+  }
+
+  private static void setColumn(List<Map<String, Object>> rows, String key, List<String> values) {
+    for (int i = 0; i < rows.size(); i++) {
+      rows.get(i).put(key, values.get(i));
+    }
+  }
+}
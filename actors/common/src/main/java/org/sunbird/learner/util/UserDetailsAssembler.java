@@ -0,0 +1,450 @@
+package org.sunbird.learner.util;
+
+import akka.actor.ActorRef;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.collections.MapUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.sunbird.cassandra.CassandraOperation;
+import org.sunbird.common.ElasticSearchHelper;
+import org.sunbird.common.factory.EsClientFactory;
+import org.sunbird.common.inf.ElasticSearchService;
+import org.sunbird.common.models.response.Response;
+import org.sunbird.common.models.util.JsonKey;
+import org.sunbird.common.models.util.LoggerEnum;
+import org.sunbird.common.models.util.ProjectLogger;
+import org.sunbird.common.models.util.ProjectUtil.EsType;
+import org.sunbird.helper.ServiceFactory;
+import scala.concurrent.Future;
+
+/**
+ * Builds the user documents saved in ES. The user row and the rows of the child tables of a user
+ * are read concurrently on a dedicated executor. When documents of several users are built
+ * together, the user rows, root organisations, organisations and addresses of education and job
+ * profile are read with one query each for all the users.
+ */
+public class UserDetailsAssembler {
+
+  public static final String USER_DETAILS_THREADS = "sunbird_user_details_threads";
+
+  private static final String STAGE_USER = "user";
+  private static final String STAGE_ADDRESS = "address";
+  private static final String STAGE_EDUCATION = "education";
+  private static final String STAGE_JOB_PROFILE = "jobProfile";
+  private static final String STAGE_USER_ORG = "userOrg";
+  private static final String STAGE_BADGE = "badge";
+  private static final String STAGE_SKILL = "skill";
+  private static final String STAGE_ORG = "organisation";
+  private static final String STAGE_ROOT_ORG = "rootOrg";
+  private static final String STAGE_CHILD_ADDRESS = "childAddress";
+  private static final String STAGE_POST_PROCESS = "postProcess";
+  private static final String STAGE_TOTAL = "total";
+
+  private final CassandraOperation cassandraOperation;
+  private final ElasticSearchService esService;
+  private final ExecutorService executor;
+  private Map<String, AtomicLong> stageNanos = new ConcurrentHashMap<>();
+  private Map<String, AtomicLong> stageCounts = new ConcurrentHashMap<>();
+
+  private UserDetailsAssembler() {
+    this(ServiceFactory.getInstance(), EsClientFactory.getInstance(JsonKey.REST), newExecutor());
+  }
+
+  UserDetailsAssembler(
+      CassandraOperation cassandraOperation,
+      ElasticSearchService esService,
+      ExecutorService executor) {
+    this.cassandraOperation = cassandraOperation;
+    this.esService = esService;
+    this.executor = executor;
+  }
+
+  private static ExecutorService newExecutor() {
+    AtomicInteger threadCount = new AtomicInteger();
+    return Executors.newFixedThreadPool(
+        ConfigValueUtil.getIntValue(USER_DETAILS_THREADS, 16),
+        runnable -> {
+          Thread thread = new Thread(runnable, "user-details-" + threadCount.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+
+  private static class LazyInitializer {
+    private static UserDetailsAssembler INSTANCE = new UserDetailsAssembler();
+  }
+
+  public static UserDetailsAssembler getInstance() {
+    return LazyInitializer.INSTANCE;
+  }
+
+  /**
+   * Builds the ES document of a user.
+   *
+   * @param userId user ID
+   * @param actorRef system setting actor used to read profile visibility config, if null
+   *     visibility is not applied
+   * @return user document, or null if the user does not exist
+   */
+  public Map<String, Object> getUserDetails(String userId, ActorRef actorRef) {
+    return join(getUserDetails(Arrays.asList(userId), actorRef, false)).get(userId);
+  }
+
+  /**
+   * Builds the ES documents of a list of users.
+   *
+   * @param userIds user IDs
+   * @param actorRef system setting actor used to read profile visibility config, if null
+   *     visibility is not applied
+   * @return future of the documents by user ID, users which do not exist or whose document could
+   *     not be built, e.g. because their email could not be decrypted, are left out
+   */
+  public CompletableFuture<Map<String, Map<String, Object>>> getUserDetails(
+      Collection<String> userIds, ActorRef actorRef) {
+    return getUserDetails(userIds, actorRef, true);
+  }
+
+  private CompletableFuture<Map<String, Map<String, Object>>> getUserDetails(
+      Collection<String> userIds, ActorRef actorRef, boolean skipFailedUsers) {
+    long startTime = System.nanoTime();
+    List<String> ids = new ArrayList<>(new LinkedHashSet<>(userIds));
+    CompletableFuture<Map<String, Map<String, Object>>> usersF =
+        supply(STAGE_USER, () -> getUsers(ids));
+    Map<String, CompletableFuture<List<Map<String, Object>>>> addressF = new HashMap<>();
+    Map<String, CompletableFuture<List<Map<String, Object>>>> educationF = new HashMap<>();
+    Map<String, CompletableFuture<List<Map<String, Object>>>> jobProfileF = new HashMap<>();
+    Map<String, CompletableFuture<List<Map<String, Object>>>> userOrgF = new HashMap<>();
+    Map<String, CompletableFuture<List<Map<String, Object>>>> badgeF = new HashMap<>();
+    Map<String, CompletableFuture<List<Map<String, Object>>>> skillF = new HashMap<>();
+    for (String userId : ids) {
+      addressF.put(userId, supply(STAGE_ADDRESS, () -> Util.getAddressDetails(userId, null)));
+      educationF.put(
+          userId, supply(STAGE_EDUCATION, () -> getByUserId(JsonKey.EDUCATION_DB, userId)));
+      jobProfileF.put(
+          userId,
+          supply(STAGE_JOB_PROFILE, () -> getByUserId(JsonKey.JOB_PROFILE_DB, userId)));
+      userOrgF.put(userId, supply(STAGE_USER_ORG, () -> getUserOrgs(userId)));
+      badgeF.put(userId, supply(STAGE_BADGE, () -> Util.getUserBadge(userId)));
+      skillF.put(userId, supply(STAGE_SKILL, () -> Util.getUserSkills(userId)));
+    }
+    CompletableFuture<Map<String, Map<String, Object>>> rootOrgsF =
+        usersF.thenCompose(users -> supply(STAGE_ROOT_ORG, () -> getRootOrgs(users.values())));
+    CompletableFuture<Map<String, Map<String, Object>>> orgsF =
+        allOf(userOrgF.values())
+            .thenCompose(v -> supply(STAGE_ORG, () -> getOrgs(joinAll(userOrgF.values()))));
+    CompletableFuture<Void> childAddressF =
+        allOf(educationF.values())
+            .thenCombine(allOf(jobProfileF.values()), (a, b) -> b)
+            .thenCompose(
+                v ->
+                    supply(
+                        STAGE_CHILD_ADDRESS,
+                        () -> {
+                          List<Map<String, Object>> rows = joinAll(educationF.values());
+                          rows.addAll(joinAll(jobProfileF.values()));
+                          addAddresses(rows);
+                          return null;
+                        }));
+    return CompletableFuture.allOf(
+            usersF,
+            rootOrgsF,
+            orgsF,
+            childAddressF,
+            allOf(addressF.values()),
+            allOf(badgeF.values()),
+            allOf(skillF.values()))
+        .thenApplyAsync(
+            v -> {
+              long postProcessStart = System.nanoTime();
+              Map<String, Map<String, Object>> result = new HashMap<>();
+              Map<String, Map<String, Object>> orgs = orgsF.join();
+              Map<String, Map<String, Object>> rootOrgs = rootOrgsF.join();
+              for (Map.Entry<String, Map<String, Object>> entry : usersF.join().entrySet()) {
+                String userId = entry.getKey();
+                Map<String, Object> userDetails = entry.getValue();
+                userDetails.put(JsonKey.ADDRESS, addressF.get(userId).join());
+                userDetails.put(JsonKey.EDUCATION, educationF.get(userId).join());
+                userDetails.put(JsonKey.JOB_PROFILE, jobProfileF.get(userId).join());
+                userDetails.put(
+                    JsonKey.ORGANISATIONS, mergeOrgs(userOrgF.get(userId).join(), orgs));
+                userDetails.put(JsonKey.BADGE_ASSERTIONS, badgeF.get(userId).join());
+                userDetails.put(JsonKey.SKILLS, skillF.get(userId).join());
+                Map<String, Object> rootOrg =
+                    rootOrgs.get((String) userDetails.get(JsonKey.ROOT_ORG_ID));
+                userDetails.put(
+                    JsonKey.ROOT_ORG_NAME,
+                    MapUtils.isEmpty(rootOrg) ? "" : rootOrg.get(JsonKey.ORG_NAME));
+                try {
+                  postProcess(userDetails, actorRef);
+                } catch (RuntimeException e) {
+                  if (!skipFailedUsers) {
+                    throw e;
+                  }
+                  // one user with undecryptable data must not fail the documents of the others
+                  ProjectLogger.log(
+                      "UserDetailsAssembler:getUserDetails: Failed to build document of user "
+                          + userId,
+                      e);
+                  continue;
+                }
+                result.put(userId, userDetails);
+              }
+              record(STAGE_POST_PROCESS, postProcessStart);
+              record(STAGE_TOTAL, startTime);
+              return result;
+            },
+            executor);
+  }
+
+  /**
+   * Returns the number of calls and the average time in milliseconds of each stage. Child table
+   * stages are counted per user, the other stages per call.
+   */
+  public Map<String, Object> getMetrics() {
+    Map<String, Object> metrics = new HashMap<>();
+    for (Map.Entry<String, AtomicLong> entry : stageCounts.entrySet()) {
+      long count = entry.getValue().get();
+      long nanos = stageNanos.get(entry.getKey()).get();
+      Map<String, Object> stage = new HashMap<>();
+      stage.put("count", count);
+      stage.put("avgMillis", count == 0 ? 0 : nanos / count / 1000000);
+      metrics.put(entry.getKey(), stage);
+    }
+    return metrics;
+  }
+
+  private void postProcess(Map<String, Object> userDetails, ActorRef actorRef) {
+    String username = (String) userDetails.get(JsonKey.USERNAME);
+    // save masked email and phone number
+    Util.addMaskEmailAndPhone(userDetails);
+    Util.checkProfileCompleteness(userDetails);
+    if (actorRef != null) {
+      Util.checkUserProfileVisibility(userDetails, actorRef);
+    }
+    userDetails.remove(JsonKey.PASSWORD);
+    Util.addEmailAndPhone(userDetails);
+    Util.checkEmailAndPhoneVerified(userDetails);
+    userDetails.put(JsonKey.USERNAME, username);
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, Map<String, Object>> getUsers(List<String> userIds) {
+    Util.DbInfo userDbInfo = Util.dbInfoMap.get(JsonKey.USER_DB);
+    Response response =
+        cassandraOperation.getRecordsByIdsWithSpecifiedColumns(
+            userDbInfo.getKeySpace(), userDbInfo.getTableName(), null, userIds);
+    return toMapById((List<Map<String, Object>>) response.get(JsonKey.RESPONSE), JsonKey.ID);
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<Map<String, Object>> getByUserId(String dbKey, String userId) {
+    Util.DbInfo dbInfo = Util.dbInfoMap.get(dbKey);
+    try {
+      Response response =
+          cassandraOperation.getRecordsByIndexedProperty(
+              dbInfo.getKeySpace(), dbInfo.getTableName(), JsonKey.USER_ID, userId);
+      List<Map<String, Object>> rows = (List<Map<String, Object>>) response.get(JsonKey.RESPONSE);
+      if (rows != null) {
+        return rows;
+      }
+    } catch (Exception e) {
+      ProjectLogger.log(e.getMessage(), e);
+    }
+    return new ArrayList<>();
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<Map<String, Object>> getUserOrgs(String userId) {
+    try {
+      Map<String, Object> reqMap = new HashMap<>();
+      reqMap.put(JsonKey.USER_ID, userId);
+      reqMap.put(JsonKey.IS_DELETED, false);
+      Util.DbInfo orgUsrDbInfo = Util.dbInfoMap.get(JsonKey.USER_ORG_DB);
+      Response result =
+          cassandraOperation.getRecordsByProperties(
+              orgUsrDbInfo.getKeySpace(), orgUsrDbInfo.getTableName(), reqMap);
+      List<Map<String, Object>> userOrgs = (List<Map<String, Object>>) result.get(JsonKey.RESPONSE);
+      if (userOrgs != null) {
+        return userOrgs;
+      }
+    } catch (Exception e) {
+      ProjectLogger.log(e.getMessage(), e);
+    }
+    return new ArrayList<>();
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, Map<String, Object>> getOrgs(List<Map<String, Object>> userOrgs) {
+    Set<String> orgIds = new LinkedHashSet<>();
+    for (Map<String, Object> userOrg : userOrgs) {
+      orgIds.add((String) userOrg.get(JsonKey.ORGANISATION_ID));
+    }
+    if (orgIds.isEmpty()) {
+      return new HashMap<>();
+    }
+    try {
+      Future<Map<String, Map<String, Object>>> orgInfoMapF =
+          esService.getEsResultByListOfIds(
+              new ArrayList<>(orgIds),
+              Arrays.asList(JsonKey.ORG_NAME, JsonKey.PARENT_ORG_ID, JsonKey.ID),
+              EsType.organisation.getTypeName());
+      Map<String, Map<String, Object>> orgs =
+          (Map<String, Map<String, Object>>)
+              ElasticSearchHelper.getResponseFromFuture(orgInfoMapF);
+      if (orgs != null) {
+        return orgs;
+      }
+    } catch (Exception e) {
+      ProjectLogger.log(e.getMessage(), e);
+    }
+    return new HashMap<>();
+  }
+
+  private List<Map<String, Object>> mergeOrgs(
+      List<Map<String, Object>> userOrgs, Map<String, Map<String, Object>> orgs) {
+    List<Map<String, Object>> userOrganisations = new ArrayList<>();
+    for (Map<String, Object> userOrg : userOrgs) {
+      Map<String, Object> esOrgMap = orgs.get(userOrg.get(JsonKey.ORGANISATION_ID));
+      if (esOrgMap == null) {
+        // the membership is kept, only the organisation name and parent are missing until the
+        // organisation is indexed and the user synced again
+        ProjectLogger.log(
+            "UserDetailsAssembler:mergeOrgs: Organisation not found in ES for id "
+                + userOrg.get(JsonKey.ORGANISATION_ID),
+            LoggerEnum.ERROR.name());
+      } else {
+        Map<String, Object> orgDetails = new HashMap<>(esOrgMap);
+        orgDetails.remove(JsonKey.ID);
+        userOrg.putAll(orgDetails);
+      }
+      userOrganisations.add(userOrg);
+    }
+    return userOrganisations;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, Map<String, Object>> getRootOrgs(Collection<Map<String, Object>> users) {
+    Set<String> rootOrgIds = new LinkedHashSet<>();
+    for (Map<String, Object> user : users) {
+      String rootOrgId = (String) user.get(JsonKey.ROOT_ORG_ID);
+      if (StringUtils.isNotBlank(rootOrgId)) {
+        rootOrgIds.add(rootOrgId);
+      }
+    }
+    if (rootOrgIds.isEmpty()) {
+      return new HashMap<>();
+    }
+    Util.DbInfo orgDbInfo = Util.dbInfoMap.get(JsonKey.ORG_DB);
+    Response response =
+        cassandraOperation.getRecordsByIdsWithSpecifiedColumns(
+            orgDbInfo.getKeySpace(),
+            orgDbInfo.getTableName(),
+            Arrays.asList(JsonKey.ID, JsonKey.ORG_NAME),
+            new ArrayList<>(rootOrgIds));
+    return toMapById((List<Map<String, Object>>) response.get(JsonKey.RESPONSE), JsonKey.ID);
+  }
+
+  /** Adds the address of education and job profile rows, reading all addresses in one query. */
+  @SuppressWarnings("unchecked")
+  private void addAddresses(List<Map<String, Object>> rows) {
+    Set<String> addressIds = new LinkedHashSet<>();
+    for (Map<String, Object> row : rows) {
+      String addressId = (String) row.get(JsonKey.ADDRESS_ID);
+      if (StringUtils.isNotBlank(addressId)) {
+        addressIds.add(addressId);
+      }
+    }
+    if (addressIds.isEmpty()) {
+      return;
+    }
+    Util.DbInfo addrDbInfo = Util.dbInfoMap.get(JsonKey.ADDRESS_DB);
+    try {
+      Response response =
+          cassandraOperation.getRecordsByIdsWithSpecifiedColumns(
+              addrDbInfo.getKeySpace(),
+              addrDbInfo.getTableName(),
+              null,
+              new ArrayList<>(addressIds));
+      Map<String, Map<String, Object>> addresses =
+          toMapById((List<Map<String, Object>>) response.get(JsonKey.RESPONSE), JsonKey.ID);
+      for (Map<String, Object> row : rows) {
+        Map<String, Object> address = addresses.get(row.get(JsonKey.ADDRESS_ID));
+        if (address != null) {
+          row.put(JsonKey.ADDRESS, new HashMap<>(address));
+        }
+      }
+    } catch (Exception e) {
+      ProjectLogger.log(e.getMessage(), e);
+    }
+  }
+
+  private Map<String, Map<String, Object>> toMapById(List<Map<String, Object>> rows, String key) {
+    Map<String, Map<String, Object>> rowsById = new HashMap<>();
+    if (CollectionUtils.isNotEmpty(rows)) {
+      for (Map<String, Object> row : rows) {
+        rowsById.put((String) row.get(key), row);
+      }
+    }
+    return rowsById;
+  }
+
+  private <T> CompletableFuture<T> supply(String stage, Supplier<T> supplier) {
+    return CompletableFuture.supplyAsync(
+        () -> {
+          long startTime = System.nanoTime();
+          try {
+            return supplier.get();
+          } finally {
+            record(stage, startTime);
+          }
+        },
+        executor);
+  }
+
+  private void record(String stage, long startTime) {
+    stageNanos
+        .computeIfAbsent(stage, key -> new AtomicLong())
+        .addAndGet(System.nanoTime() - startTime);
+    stageCounts.computeIfAbsent(stage, key -> new AtomicLong()).incrementAndGet();
+  }
+
+  private static CompletableFuture<Void> allOf(
+      Collection<CompletableFuture<List<Map<String, Object>>>> futures) {
+    return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+  }
+
+  private static List<Map<String, Object>> joinAll(
+      Collection<CompletableFuture<List<Map<String, Object>>>> futures) {
+    List<Map<String, Object>> rows = new ArrayList<>();
+    for (CompletableFuture<List<Map<String, Object>>> future : futures) {
+      rows.addAll(future.join());
+    }
+    return rows;
+  }
+
+  private static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+}
@@ -2,6 +2,8 @@ package org.sunbird.learner.util;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.apache.commons.lang3.StringUtils;
@@ -40,110 +42,114 @@ public final class UserUtility {
     return encryptSpecificUserData(userMap, userKeyToEncrypt);
   }
 
-  @SuppressWarnings("unchecked")
   public static Map<String, Object> encryptSpecificUserData(
       Map<String, Object> userMap, List<String> fieldsToEncrypt) throws Exception {
-    EncryptionService service = ServiceFactory.getEncryptionServiceInstance(null);
+    UserCryptoBatch batch = new UserCryptoBatch();
     // Encrypt user basic info
-    for (String key : fieldsToEncrypt) {
-      if (userMap.containsKey(key)) {
-        userMap.put(key, service.encryptData((String) userMap.get(key)));
-      }
-    }
+    batch.encryptColumns(Collections.singletonList(userMap), fieldsToEncrypt);
     // Encrypt user address Info
-    if (userMap.containsKey(JsonKey.ADDRESS)) {
-      List<Map<String, Object>> addressList =
-          (List<Map<String, Object>>) userMap.get(JsonKey.ADDRESS);
-      for (Map<String, Object> map : addressList) {
-        for (String key : addressKeyToEncrypt) {
-          if (map.containsKey(key)) {
-            map.put(key, service.encryptData((String) map.get(key)));
-          }
-        }
-      }
-    }
+    List<Map<String, Object>> addressList = getAddressList(Collections.singletonList(userMap));
+    batch.encryptColumns(addressList, addressKeyToEncrypt);
     return userMap;
   }
 
   public static List<Map<String, Object>> encryptUserAddressData(
       List<Map<String, Object>> addressList) throws Exception {
-    EncryptionService service = ServiceFactory.getEncryptionServiceInstance(null);
     // Encrypt user address Info
-    for (Map<String, Object> map : addressList) {
-      for (String key : addressKeyToEncrypt) {
-        if (map.containsKey(key)) {
-          map.put(key, service.encryptData((String) map.get(key)));
-        }
-      }
-    }
+    new UserCryptoBatch().encryptColumns(addressList, addressKeyToEncrypt);
     return addressList;
   }
 
+  /** Returns the address fields which are stored encrypted. */
+  public static List<String> getAddressKeysToEncrypt() {
+    return Collections.unmodifiableList(addressKeyToEncrypt);
+  }
+
   public static Map<String, Object> decryptUserData(Map<String, Object> userMap) {
     return decryptSpecificUserData(userMap, userKeyToEncrypt);
   }
 
+  /**
+   * Decrypts the given users in place, column by column, so that values repeated across the users
+   * are decrypted once.
+   *
+   * @param users user data read from the database
+   */
+  public static void decryptUserData(List<Map<String, Object>> users) {
+    UserCryptoBatch batch = new UserCryptoBatch();
+    batch.decryptColumns(users, userKeyToEncrypt);
+    batch.decryptColumns(getAddressList(users), addressKeyToEncrypt);
+  }
+
   public static Map<String, Object> decryptSpecificUserData(
       Map<String, Object> userMap, List<String> fieldsToDecrypt) {
-    DecryptionService service = ServiceFactory.getDecryptionServiceInstance(null);
+    UserCryptoBatch batch = new UserCryptoBatch();
     // Decrypt user basic info
-    for (String key : fieldsToDecrypt) {
-      if (userMap.containsKey(key)) {
-        userMap.put(key, service.decryptData((String) userMap.get(key)));
-      }
-    }
-
+    batch.decryptColumns(Collections.singletonList(userMap), fieldsToDecrypt);
     // Decrypt user address Info
-    if (userMap.containsKey(JsonKey.ADDRESS)) {
-      List<Map<String, Object>> addressList =
-          (List<Map<String, Object>>) userMap.get(JsonKey.ADDRESS);
-      for (Map<String, Object> map : addressList) {
-        for (String key : addressKeyToEncrypt) {
-          if (map.containsKey(key)) {
-            map.put(key, service.decryptData((String) map.get(key)));
-          }
-        }
-      }
-    }
+    List<Map<String, Object>> addressList = getAddressList(Collections.singletonList(userMap));
+    batch.decryptColumns(addressList, addressKeyToEncrypt);
     return userMap;
   }
 
   public static Map<String, Object> decryptUserDataFrmES(Map<String, Object> userMap) {
-    DecryptionService service = ServiceFactory.getDecryptionServiceInstance(null);
+    return decryptUserDataFrmES(userMap, new HashMap<>());
+  }
+
+  /**
+   * Decrypts and masks the user data read from ES.
+   *
+   * @param userMap user data read from ES
+   * @param decrypted decrypted values by encrypted value, can be shared by the users of a request
+   *     so that repeated values are decrypted once
+   * @return user data
+   */
+  public static Map<String, Object> decryptUserDataFrmES(
+      Map<String, Object> userMap, Map<String, String> decrypted) {
+    decryptUserDataFrmES(Collections.singletonList(userMap), decrypted);
+    return userMap;
+  }
+
+  /**
+   * Decrypts and masks the user data read from ES in place, column by column.
+   *
+   * @param users user data read from ES
+   * @param decrypted decrypted values by encrypted value, can be shared by the users of a request
+   *     so that repeated values are decrypted once
+   */
+  public static void decryptUserDataFrmES(
+      List<Map<String, Object>> users, Map<String, String> decrypted) {
+    UserCryptoBatch batch = new UserCryptoBatch(decrypted);
     // Decrypt user basic info
     for (String key : userKeyToDecrypt) {
-      if (userMap.containsKey(key)) {
-        if (userKeysToMasked.contains(key)) {
-          userMap.put(key, maskEmailOrPhone((String) userMap.get(key), key));
-        } else {
-          userMap.put(key, service.decryptData((String) userMap.get(key)));
-        }
-      }
-    }
-    // Decrypt user address Info
-    if (userMap.containsKey(JsonKey.ADDRESS)) {
-      List<Map<String, Object>> addressList =
-          (List<Map<String, Object>>) userMap.get(JsonKey.ADDRESS);
-      for (Map<String, Object> map : addressList) {
-        for (String key : addressKeyToEncrypt) {
-          if (map.containsKey(key)) {
-            map.put(key, service.decryptData((String) map.get(key)));
+      if (userKeysToMasked.contains(key)) {
+        for (Map<String, Object> userMap : users) {
+          if (userMap.containsKey(key)) {
+            userMap.put(key, maskEmailOrPhone((String) userMap.get(key), key, batch));
           }
         }
+      } else {
+        batch.decryptColumns(users, Collections.singletonList(key));
       }
     }
-    return userMap;
+    // Decrypt user address Info
+    batch.decryptColumns(getAddressList(users), addressKeyToEncrypt);
   }
 
   public static List<Map<String, Object>> decryptUserAddressData(
       List<Map<String, Object>> addressList) {
-    DecryptionService service = ServiceFactory.getDecryptionServiceInstance(null);
     // Decrypt user address info
-    for (Map<String, Object> map : addressList) {
-      for (String key : addressKeyToEncrypt) {
-        if (map.containsKey(key)) {
-          map.put(key, service.decryptData((String) map.get(key)));
-        }
+    new UserCryptoBatch().decryptColumns(addressList, addressKeyToEncrypt);
+    return addressList;
+  }
+
+  /** Returns the addresses of all given users. */
+  @SuppressWarnings("unchecked")
+  private static List<Map<String, Object>> getAddressList(List<Map<String, Object>> users) {
+    List<Map<String, Object>> addressList = new ArrayList<>();
+    for (Map<String, Object> userMap : users) {
+      if (userMap.containsKey(JsonKey.ADDRESS)) {
+        addressList.addAll((List<Map<String, Object>>) userMap.get(JsonKey.ADDRESS));
       }
     }
     return addressList;
@@ -176,13 +182,18 @@ public final class UserUtility {
   }
 
   public static String maskEmailOrPhone(String encryptedEmailOrPhone, String type) {
+    return maskEmailOrPhone(encryptedEmailOrPhone, type, new UserCryptoBatch());
+  }
+
+  private static String maskEmailOrPhone(
+      String encryptedEmailOrPhone, String type, UserCryptoBatch batch) {
     if (StringUtils.isEmpty(encryptedEmailOrPhone)) {
       return StringUtils.EMPTY;
     }
     if (phoneMaskedAttributes.contains(type)) {
-      return maskingService.maskPhone(decryptionService.decryptData(encryptedEmailOrPhone));
+      return maskingService.maskPhone(batch.decrypt(encryptedEmailOrPhone));
     } else if (emailMaskedAttributes.contains(type)) {
-      return maskingService.maskEmail(decryptionService.decryptData(encryptedEmailOrPhone));
+      return maskingService.maskEmail(batch.decrypt(encryptedEmailOrPhone));
     }
     return StringUtils.EMPTY;
   }
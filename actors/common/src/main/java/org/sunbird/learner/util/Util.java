@@ -1434,53 +1434,14 @@ public final class Util {
   @SuppressWarnings("unchecked")
   public static Map<String, Object> getUserDetails(String userId, ActorRef actorRef) {
     ProjectLogger.log("get user profile method call started user Id : " + userId);
-    Util.DbInfo userDbInfo = Util.dbInfoMap.get(JsonKey.USER_DB);
-    Response response = null;
-    List<Map<String, Object>> userList = null;
-    Map<String, Object> userDetails = null;
-    try {
-      response =
-          cassandraOperation.getRecordById(
-              userDbInfo.getKeySpace(), userDbInfo.getTableName(), userId);
-      userList = (List<Map<String, Object>>) response.getResult().get(JsonKey.RESPONSE);
-      ProjectLogger.log(
-          "Util:getUserProfile: collecting user data to save for userId : " + userId,
-          LoggerEnum.INFO.name());
-    } catch (Exception e) {
-      ProjectLogger.log(e.getMessage(), e);
-    }
-    String username = "";
-    if (!(userList.isEmpty())) {
-      userDetails = userList.get(0);
-      username = (String) userDetails.get(JsonKey.USERNAME);
-      ProjectLogger.log("Util:getUserDetails: userId = " + userId, LoggerEnum.INFO.name());
-      userDetails.put(JsonKey.ADDRESS, getAddressDetails(userId, null));
-      userDetails.put(JsonKey.EDUCATION, getUserEducationDetails(userId));
-      userDetails.put(JsonKey.JOB_PROFILE, getJobProfileDetails(userId));
-      userDetails.put(JsonKey.ORGANISATIONS, getUserOrgDetails(userId));
-      userDetails.put(JsonKey.BADGE_ASSERTIONS, getUserBadge(userId));
-      userDetails.put(JsonKey.SKILLS, getUserSkills(userId));
-      Map<String, Object> orgMap = getOrgDetails((String) userDetails.get(JsonKey.ROOT_ORG_ID));
-      if (!MapUtils.isEmpty(orgMap)) {
-        userDetails.put(JsonKey.ROOT_ORG_NAME, orgMap.get(JsonKey.ORG_NAME));
-      } else {
-        userDetails.put(JsonKey.ROOT_ORG_NAME, "");
-      }
-      // save masked email and phone number
-      addMaskEmailAndPhone(userDetails);
-      checkProfileCompleteness(userDetails);
-      if(actorRef!=null) {
-        checkUserProfileVisibility(userDetails, actorRef);
-      }
-      userDetails.remove(JsonKey.PASSWORD);
-      addEmailAndPhone(userDetails);
-      checkEmailAndPhoneVerified(userDetails);
-    } else {
+    Map<String, Object> userDetails =
+        UserDetailsAssembler.getInstance().getUserDetails(userId, actorRef);
+    if (null == userDetails) {
       ProjectLogger.log(
           "Util:getUserProfile: User data not available to save in ES for userId : " + userId,
           LoggerEnum.INFO.name());
+      ProjectCommonException.throwClientErrorException(ResponseCode.userNotFound);
     }
-    userDetails.put(JsonKey.USERNAME, username);
     return userDetails;
   }
 
@@ -32,13 +32,16 @@ import org.sunbird.common.models.util.LoggerEnum;
 import org.sunbird.common.models.util.ProjectLogger;
 import org.sunbird.common.models.util.ProjectUtil;
 import org.sunbird.common.models.util.ProjectUtil.EsType;
-import org.sunbird.common.models.util.datasecurity.DecryptionService;
 import org.sunbird.common.request.Request;
 import org.sunbird.common.responsecode.ResponseCode;
 import org.sunbird.common.util.CloudStorageUtil;
 import org.sunbird.common.util.CloudStorageUtil.CloudStorageType;
 import org.sunbird.dto.SearchDTO;
 import org.sunbird.helper.ServiceFactory;
+import org.sunbird.learner.actors.search.SearchHandlerActor;
+import org.sunbird.learner.util.ConfigValueUtil;
+import org.sunbird.learner.util.CourseBatchProgressAggregator;
+import org.sunbird.learner.util.UserCryptoBatch;
 import org.sunbird.learner.util.UserUtility;
 import scala.concurrent.Future;
 
@@ -54,14 +57,20 @@ import scala.concurrent.Future;
 )
 public class CourseMetricsActor extends BaseMetricsActor {
 
+  public static final String COURSE_PROGRESS_PAGE_SIZE = "sunbird_course_progress_page_size";
+  /**
+   * Response key of the batch progress aggregate. It covers all enrollments of the batch, the
+   * period only filters the per user list.
+   */
+  public static final String PROGRESS_AGGREGATE = "course.progress.all_time_aggregate";
+
   private static final String COURSE_PROGRESS_REPORT = "Course Progress Report";
   protected static final String CONTENT_ID = "content_id";
   private static ObjectMapper mapper = new ObjectMapper();
   private CassandraOperation cassandraOperation = ServiceFactory.getInstance();
-  private DecryptionService decryptionService =
-      org.sunbird.common.models.util.datasecurity.impl.ServiceFactory.getDecryptionServiceInstance(
-          null);
   private ElasticSearchService esService = EsClientFactory.getInstance(JsonKey.REST);
+  private CourseBatchProgressAggregator progressAggregator =
+      CourseBatchProgressAggregator.getInstance();
 
   @Override
   public void onReceive(Request request) throws Throwable {
@@ -306,6 +315,11 @@ public class CourseMetricsActor extends BaseMetricsActor {
     Request request = new Request();
     String periodStr = (String) actorMessage.getRequest().get(JsonKey.PERIOD);
     String batchId = (String) actorMessage.getRequest().get(JsonKey.BATCH_ID);
+    int limit = getIntValue(actorMessage.getRequest().get(JsonKey.LIMIT), 0);
+    String cursor = (String) actorMessage.getRequest().get(SearchHandlerActor.CURSOR);
+    if (limit <= 0) {
+      limit = ConfigValueUtil.getIntValue(COURSE_PROGRESS_PAGE_SIZE, 100);
+    }
 
     String requestedBy = (String) actorMessage.get(JsonKey.REQUESTED_BY);
 
@@ -351,6 +365,9 @@ public class CourseMetricsActor extends BaseMetricsActor {
       sender().tell(exception, self());
       return;
     }
+    // enrolled, completed and per bucket counts are precomputed, only the requested page of the
+    // per user list is read from ES
+    Map<String, Object> progressAggregate = progressAggregator.getAggregate(batchId);
     // get start and end time ---
     Map<String, String> dateRangeFilter = new HashMap<>();
 
@@ -361,6 +378,13 @@ public class CourseMetricsActor extends BaseMetricsActor {
     Map<String, Object> filter = new HashMap<>();
     filter.put(JsonKey.BATCH_ID, batchId);
     filter.put(JsonKey.ACTIVE, true);
+    if (StringUtils.isNotBlank(cursor)) {
+      // the per user list is paged in ID order from the last ID of the previous page, so that it
+      // works past the ES result window
+      Map<String, Object> idRange = new HashMap<>();
+      idRange.put(">", cursor);
+      filter.put(JsonKey.ID, idRange);
+    }
     if (!("fromBegining".equalsIgnoreCase(periodStr))) {
       Map<String, String> dateRange = getDateRange(periodStr);
       dateRangeFilter.put(GTE, (String) dateRange.get(STARTDATE));
@@ -379,12 +403,22 @@ public class CourseMetricsActor extends BaseMetricsActor {
     coursefields.add(JsonKey.BATCH_ID);
     coursefields.add(JsonKey.DATE_TIME);
     coursefields.add(JsonKey.LEAF_NODE_COUNT);
+    coursefields.add(JsonKey.ID);
+    SearchDTO searchDTO = createESRequest(filter, null, coursefields);
+    searchDTO.setLimit(limit);
+    searchDTO.setOffset(0);
+    Map<String, Object> sortMap = new HashMap<>();
+    sortMap.put(JsonKey.ID, JsonKey.ASC);
+    searchDTO.setSortBy(sortMap);
     Future<Map<String, Object>> resultF =
-        esService.search(
-            createESRequest(filter, null, coursefields), EsType.usercourses.getTypeName());
+        esService.search(searchDTO, EsType.usercourses.getTypeName());
     Map<String, Object> result =
         (Map<String, Object>) ElasticSearchHelper.getResponseFromFuture(resultF);
     List<Map<String, Object>> esContent = (List<Map<String, Object>>) result.get(JsonKey.CONTENT);
+    String nextCursor = null;
+    if (esContent != null && esContent.size() >= limit) {
+      nextCursor = (String) esContent.get(esContent.size() - 1).get(JsonKey.ID);
+    }
 
     if (CollectionUtils.isNotEmpty(esContent)) {
       List<String> userIds = new ArrayList<>();
@@ -412,11 +446,11 @@ public class CourseMetricsActor extends BaseMetricsActor {
 
       Map<String, Map<String, Object>> userInfoCache = new HashMap<>();
       Set<String> orgSet = new HashSet<>();
+      new UserCryptoBatch()
+          .decryptColumns(useresContent, Collections.singletonList(JsonKey.USERNAME));
       for (Map<String, Object> map : useresContent) {
         String userId = (String) map.get(JsonKey.USER_ID);
         map.put("user", userId);
-        map.put(
-            JsonKey.USERNAME, decryptionService.decryptData((String) map.get(JsonKey.USERNAME)));
         String registerdOrgId = (String) map.get(JsonKey.ROOT_ORG_ID);
         if (isNotNull(registerdOrgId)) {
           orgSet.add(registerdOrgId);
@@ -449,20 +483,6 @@ public class CourseMetricsActor extends BaseMetricsActor {
         orgInfoCache.put(regOrgId, regOrgName);
       }
 
-      Map<String, Object> batchFilter = new HashMap<>();
-      batchFilter.put(JsonKey.ID, batchId);
-      Future<Map<String, Object>> batchresultF =
-          esService.search(createESRequest(batchFilter, null, null), EsType.course.getTypeName());
-      Map<String, Object> batchresult =
-          (Map<String, Object>) ElasticSearchHelper.getResponseFromFuture(batchresultF);
-      List<Map<String, Object>> batchContent =
-          (List<Map<String, Object>>) batchresult.get(JsonKey.CONTENT);
-
-      Map<String, Map<String, Object>> batchInfoCache = new HashMap<>();
-      for (Map<String, Object> map : batchContent) {
-        String id = (String) map.get(JsonKey.ID);
-        batchInfoCache.put(id, map);
-      }
       for (Map<String, Object> map : esContent) {
         String userId = (String) map.get(JsonKey.USER_ID);
         map.put("user", userId);
@@ -473,15 +493,13 @@ public class CourseMetricsActor extends BaseMetricsActor {
           map.put(JsonKey.FIRST_NAME, userInfoCache.get(userId).get(JsonKey.FIRST_NAME));
           map.put(JsonKey.LAST_NAME, userInfoCache.get(userId).get(JsonKey.LAST_NAME));
           map.put("org", orgInfoCache.get(userInfoCache.get(userId).get(JsonKey.ROOT_ORG_ID)));
-          if (isNotNull(batchInfoCache.get(map.get(JsonKey.BATCH_ID)))) {
-            map.put(
-                "batchEndsOn", batchInfoCache.get(map.get(JsonKey.BATCH_ID)).get(JsonKey.END_DATE));
-          }
+          map.put("batchEndsOn", courseBatchResult.get(JsonKey.END_DATE));
         } else {
           map.put(JsonKey.USERNAME, null);
           map.put("org", null);
           map.put("batchEndsOn", null);
         }
+        map.remove(JsonKey.ID);
         map.remove(JsonKey.DATE_TIME);
         map.remove(JsonKey.COURSE_ENROLL_DATE);
         map.remove(JsonKey.USER_ID);
@@ -503,8 +521,12 @@ public class CourseMetricsActor extends BaseMetricsActor {
 
       valueMap.put("course.progress.users_enrolled.count", userdataMap);
       valueMap.put("course.progress.course_progress_per_user.count", courseprogressdataMap);
+      valueMap.put(PROGRESS_AGGREGATE, progressAggregate);
 
       responseMap.put("period", periodStr);
+      responseMap.put(JsonKey.COUNT, result.get(JsonKey.COUNT));
+      responseMap.put(JsonKey.LIMIT, limit);
+      responseMap.put(SearchHandlerActor.NEXT_CURSOR, nextCursor);
       responseMap.put("series", valueMap);
 
       Response response = new Response();
@@ -532,8 +554,12 @@ public class CourseMetricsActor extends BaseMetricsActor {
 
       valueMap.put("course.progress.users_enrolled.count", userdataMap);
       valueMap.put("course.progress.course_progress_per_user.count", courseprogressdataMap);
+      valueMap.put(PROGRESS_AGGREGATE, progressAggregate);
 
       responseMap.put("period", periodStr);
+      responseMap.put(JsonKey.COUNT, result.get(JsonKey.COUNT));
+      responseMap.put(JsonKey.LIMIT, limit);
+      responseMap.put(SearchHandlerActor.NEXT_CURSOR, nextCursor);
       responseMap.put("series", valueMap);
 
       Response response = new Response();
@@ -544,6 +570,10 @@ public class CourseMetricsActor extends BaseMetricsActor {
     }
   }
 
+  private static int getIntValue(Object value, int defaultValue) {
+    return value instanceof Number ? ((Number) value).intValue() : defaultValue;
+  }
+
   private void courseConsumptionMetrics(Request actorMessage) {
     ProjectLogger.log(
         "CourseMetricsActor: courseConsumptionMetrics called.", LoggerEnum.INFO.name());
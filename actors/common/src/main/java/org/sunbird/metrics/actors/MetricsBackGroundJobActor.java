@@ -10,7 +10,9 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import org.apache.commons.collections.MapUtils;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.velocity.VelocityContext;
 import org.sunbird.actor.core.BaseActor;
@@ -35,7 +37,9 @@ import org.sunbird.common.responsecode.ResponseCode;
 import org.sunbird.helper.ServiceFactory;
 import org.sunbird.learner.actors.notificationservice.dao.EmailTemplateDao;
 import org.sunbird.learner.actors.notificationservice.dao.impl.EmailTemplateDaoImpl;
+import org.sunbird.learner.util.ConfigValueUtil;
 import org.sunbird.learner.util.Util;
+import scala.concurrent.duration.Duration;
 
 /** Created by arvind on 28/8/17. */
 @ActorConfig(
@@ -44,10 +48,35 @@ import org.sunbird.learner.util.Util;
 )
 public class MetricsBackGroundJobActor extends BaseActor {
 
+  /** Request and report_tracking key holding the path of a spooled report file. */
+  public static final String SPOOL_FILE = "spoolFile";
+
+  public static final String REPORT_UPLOAD_RETRY_DELAY =
+      "sunbird_report_upload_retry_delay_seconds";
+
+  private static final String CSV_FORMAT = "csv";
+  private static final int MAX_TRY_COUNT = 3;
+
   private Util.DbInfo reportTrackingdbInfo = Util.dbInfoMap.get(JsonKey.REPORT_TRACKING_DB);
   private Util.DbInfo organisationDbInfo = Util.dbInfoMap.get(JsonKey.ORG_DB);
-  private CassandraOperation cassandraOperation = ServiceFactory.getInstance();
+  private CassandraOperation cassandraOperation;
   private EmailTemplateDao emailTemplateDao = EmailTemplateDaoImpl.getInstance();
+  private int uploadRetryDelay;
+
+  public MetricsBackGroundJobActor() {
+    this(
+        ServiceFactory.getInstance(),
+        ConfigValueUtil.getIntValue(REPORT_UPLOAD_RETRY_DELAY, 30));
+  }
+
+  /**
+   * @param cassandraOperation database access
+   * @param uploadRetryDelay delay in seconds before a failed upload is tried again
+   */
+  public MetricsBackGroundJobActor(CassandraOperation cassandraOperation, int uploadRetryDelay) {
+    this.cassandraOperation = cassandraOperation;
+    this.uploadRetryDelay = uploadRetryDelay;
+  }
 
   @Override
   public void onReceive(Request request) throws Throwable {
@@ -140,6 +169,13 @@ public class MetricsBackGroundJobActor extends BaseActor {
     }
   }
 
+  /**
+   * Uploads a generated report. The report is usually spooled to a local file already, in which
+   * case the request only carries the path of the file. Rows passed in the request are spooled
+   * here. Failed uploads are retried from the spool file until the try count of the report exceeds
+   * {@link #MAX_TRY_COUNT}. Retries lost on a restart are sent again by {@link
+   * ReportUploadSweeper}.
+   */
   @SuppressWarnings("unchecked")
   private void fileGenerationAndUpload(Request request) throws IOException {
     ProjectLogger.log("In fileGeneration and Upload");
@@ -162,19 +198,21 @@ public class MetricsBackGroundJobActor extends BaseActor {
     }
     Map<String, Object> reportDbInfo = responseList.get(0);
     String fileFormat = (String) reportDbInfo.get(JsonKey.FORMAT);
-    FileUtil fileUtil = FileUtil.getFileUtil(fileFormat);
 
     Map<String, Object> dbReqMap = new HashMap<>();
     dbReqMap.put(JsonKey.ID, requestId);
 
-    List<List<Object>> finalList = (List<List<Object>>) map.get(JsonKey.DATA);
     String fileName = (String) map.get(JsonKey.FILE_NAME);
     if (StringUtils.isBlank(fileName)) {
       fileName = "File-" + requestId;
     }
+    String spoolFile = (String) map.get(SPOOL_FILE);
     File file = null;
     try {
-      file = fileUtil.writeToFile(fileName, finalList);
+      if (StringUtils.isBlank(spoolFile)) {
+        spoolFile = spool(fileName, (List<List<Object>>) map.get(JsonKey.DATA));
+      }
+      file = getReportFile(new File(spoolFile), fileName, fileFormat);
     } catch (Exception ex) {
       ProjectLogger.log("PROCESS FAILED WHILE CONVERTING THE DATA TO FILE .", ex);
       // update DB as status failed since unable to convert data to file
@@ -182,39 +220,47 @@ public class MetricsBackGroundJobActor extends BaseActor {
       dbReqMap.put(JsonKey.STATUS, ReportTrackingStatus.FAILED.getValue());
       cassandraOperation.updateRecord(
           reportTrackingdbInfo.getKeySpace(), reportTrackingdbInfo.getTableName(), dbReqMap);
+      if (StringUtils.isNotBlank(spoolFile)) {
+        FileUtils.deleteQuietly(new File(spoolFile));
+      }
       throw ex;
     }
 
     String storageUrl = null;
     try {
       storageUrl = processFileUpload(file, "testContainer");
-
     } catch (Exception e) {
       ProjectLogger.log(
           "Error occurred while uploading file on storage for requset " + requestId, e);
       increasetryCount(reportDbInfo);
-      if ((Integer) reportDbInfo.get(JsonKey.TRY_COUNT) > 3) {
+      Integer tryCount = (Integer) reportDbInfo.get(JsonKey.TRY_COUNT);
+      dbReqMap.put(JsonKey.TRY_COUNT, tryCount);
+      dbReqMap.put(JsonKey.UPDATED_DATE, simpleDateFormat.format(new Date()));
+      if (tryCount > MAX_TRY_COUNT) {
         dbReqMap.put(JsonKey.STATUS, ReportTrackingStatus.FAILED.getValue());
-        dbReqMap.put(JsonKey.UPDATED_DATE, simpleDateFormat.format(new Date()));
+        dbReqMap.put(SPOOL_FILE, null);
         cassandraOperation.updateRecord(
             reportTrackingdbInfo.getKeySpace(), reportTrackingdbInfo.getTableName(), dbReqMap);
+        deleteReportFiles(file, spoolFile);
       } else {
         dbReqMap.put(JsonKey.STATUS, ReportTrackingStatus.UPLOADING_FILE.getValue());
-        dbReqMap.put(JsonKey.UPDATED_DATE, simpleDateFormat.format(new Date()));
+        dbReqMap.put(SPOOL_FILE, spoolFile);
         cassandraOperation.updateRecord(
             reportTrackingdbInfo.getKeySpace(), reportTrackingdbInfo.getTableName(), dbReqMap);
+        if (!file.getPath().equals(spoolFile)) {
+          FileUtils.deleteQuietly(file);
+        }
+        scheduleUploadRetry(map, spoolFile);
       }
       throw e;
-    } finally {
-      if (ProjectUtil.isNotNull(file)) {
-        file.delete();
-      }
     }
+    deleteReportFiles(file, spoolFile);
 
     reportDbInfo.put(JsonKey.FILE_URL, storageUrl);
     dbReqMap.put(JsonKey.FILE_URL, storageUrl);
     dbReqMap.put(JsonKey.UPDATED_DATE, simpleDateFormat.format(new Date()));
     dbReqMap.put(JsonKey.DATA, null);
+    dbReqMap.put(SPOOL_FILE, null);
     dbReqMap.put(JsonKey.STATUS, ReportTrackingStatus.UPLOADING_FILE_SUCCESS.getValue());
     cassandraOperation.updateRecord(
         reportTrackingdbInfo.getKeySpace(), reportTrackingdbInfo.getTableName(), dbReqMap);
@@ -230,6 +276,59 @@ public class MetricsBackGroundJobActor extends BaseActor {
     self().tell(backGroundRequest, self());
   }
 
+  /** Spools report rows passed in the request, as sent before reports were spooled. */
+  private String spool(String fileName, List<List<Object>> rows) throws IOException {
+    if (rows == null || rows.isEmpty()) {
+      throw new ProjectCommonException(
+          ResponseCode.invalidRequestData.getErrorCode(),
+          "Report " + fileName + " has neither a spool file nor data rows to upload.",
+          ResponseCode.CLIENT_ERROR.getResponseCode());
+    }
+    try (ReportSpoolWriter writer = new ReportSpoolWriter(fileName, rows.get(0))) {
+      writer.add(rows.subList(1, rows.size()));
+      return writer.finish().getAbsolutePath();
+    }
+  }
+
+  /**
+   * Returns the file to upload for a spooled report. CSV reports are uploaded as spooled, other
+   * formats are converted from the spool file.
+   */
+  private File getReportFile(File spoolFile, String fileName, String fileFormat)
+      throws IOException {
+    if (StringUtils.isBlank(fileFormat) || CSV_FORMAT.equalsIgnoreCase(fileFormat)) {
+      return spoolFile;
+    }
+    return FileUtil.getFileUtil(fileFormat)
+        .writeToFile(fileName, ReportSpoolWriter.readRows(spoolFile));
+  }
+
+  private void deleteReportFiles(File file, String spoolFile) {
+    FileUtils.deleteQuietly(file);
+    if (StringUtils.isNotBlank(spoolFile)) {
+      FileUtils.deleteQuietly(new File(spoolFile));
+    }
+  }
+
+  /** Sends the upload request again after a delay, carrying only the path of the report file. */
+  private void scheduleUploadRetry(Map<String, Object> map, String spoolFile) {
+    Map<String, Object> innerMap = new HashMap<>(map);
+    innerMap.remove(JsonKey.DATA);
+    innerMap.put(SPOOL_FILE, spoolFile);
+    Request retryRequest = new Request();
+    retryRequest.setOperation(ActorOperations.FILE_GENERATION_AND_UPLOAD.getValue());
+    retryRequest.setRequest(innerMap);
+    getContext()
+        .system()
+        .scheduler()
+        .scheduleOnce(
+            Duration.create(uploadRetryDelay, TimeUnit.SECONDS),
+            self(),
+            retryRequest,
+            getContext().dispatcher(),
+            self());
+  }
+
   private boolean processMailSending(
       Map<String, Object> reportDbInfo, Map<String, Object> requestMap) {
 
@@ -26,10 +26,12 @@ import org.sunbird.common.models.util.ProjectUtil;
 import org.sunbird.common.models.util.ProjectUtil.EsType;
 import org.sunbird.common.models.util.ProjectUtil.ReportTrackingStatus;
 import org.sunbird.common.models.util.PropertiesCache;
-import org.sunbird.common.models.util.datasecurity.DecryptionService;
 import org.sunbird.common.request.Request;
 import org.sunbird.common.responsecode.ResponseCode;
+import org.sunbird.dto.SearchDTO;
 import org.sunbird.helper.ServiceFactory;
+import org.sunbird.learner.util.ConfigValueUtil;
+import org.sunbird.learner.util.UserUtility;
 import org.sunbird.learner.util.Util;
 import org.sunbird.metrics.actors.OrganisationMetricsUtil.ContentStatus;
 import scala.concurrent.Future;
@@ -40,13 +42,12 @@ import scala.concurrent.Future;
 )
 public class OrganisationMetricsBackgroundActor extends BaseMetricsActor {
 
+  public static final String REPORT_PAGE_SIZE = "sunbird_report_page_size";
+
   private static ObjectMapper mapper = new ObjectMapper();
   private CassandraOperation cassandraOperation = ServiceFactory.getInstance();
   private Util.DbInfo reportTrackingdbInfo = Util.dbInfoMap.get(JsonKey.REPORT_TRACKING_DB);
   private static Map<String, String> conceptsList = new HashMap<>();
-  private DecryptionService decryptionService =
-      org.sunbird.common.models.util.datasecurity.impl.ServiceFactory.getDecryptionServiceInstance(
-          null);
   private ElasticSearchService esService = EsClientFactory.getInstance(JsonKey.REST);
 
   @Override
@@ -93,18 +94,6 @@ public class OrganisationMetricsBackgroundActor extends BaseMetricsActor {
       headers.add("contentCreationTimeSpent");
       headers.add("contentCreationTotalSessions");
       headers.add("contentCreationAvgTimePerSession");
-      List<List<Object>> csvRecords = new ArrayList<>();
-      csvRecords.add(headers);
-      for (String operation : OrganisationMetricsUtil.operationList) {
-        String requestStr = getRequestObject(operation, requestId);
-
-        String baseSearchUrl = ProjectUtil.getConfigValue(JsonKey.SEARCH_SERVICE_API_BASE_URL);
-        String ekStepResponse =
-            makePostRequest(baseSearchUrl, JsonKey.EKSTEP_CONTENT_SEARCH_URL, requestStr);
-        List<Map<String, Object>> ekstepData = getDataFromResponse(ekStepResponse, headers, orgId);
-        List<Map<String, Object>> userData = getUserDetailsFromES(ekstepData);
-        csvRecords.addAll(generateDataList(userData, headers));
-      }
       String period = (String) requestData.get(JsonKey.PERIOD);
       String fileName =
           "CreationReport"
@@ -115,16 +104,27 @@ public class OrganisationMetricsBackgroundActor extends BaseMetricsActor {
               + FILENAMESEPARATOR
               + period;
 
-      saveData(csvRecords, requestId, "Creation Report");
-      Request backGroundRequest = new Request();
-      backGroundRequest.setOperation(ActorOperations.FILE_GENERATION_AND_UPLOAD.getValue());
+      saveData(requestId, "Creation Report");
+      int pageSize = getPageSize();
+      String spoolFile;
+      try (ReportSpoolWriter writer = new ReportSpoolWriter(fileName, headers)) {
+        for (String operation : OrganisationMetricsUtil.operationList) {
+          String requestStr = getRequestObject(operation, requestId);
 
-      Map<String, Object> innerMap = new HashMap<>();
-      innerMap.put(JsonKey.REQUEST_ID, requestId);
-      innerMap.put(JsonKey.FILE_NAME, fileName);
-      innerMap.put(JsonKey.DATA, csvRecords);
-      backGroundRequest.setRequest(innerMap);
-      tellToAnother(backGroundRequest);
+          String baseSearchUrl = ProjectUtil.getConfigValue(JsonKey.SEARCH_SERVICE_API_BASE_URL);
+          String ekStepResponse =
+              makePostRequest(baseSearchUrl, JsonKey.EKSTEP_CONTENT_SEARCH_URL, requestStr);
+          List<Map<String, Object>> ekstepData =
+              getDataFromResponse(ekStepResponse, headers, orgId);
+          for (int i = 0; i < ekstepData.size(); i += pageSize) {
+            List<Map<String, Object>> chunk =
+                ekstepData.subList(i, Math.min(i + pageSize, ekstepData.size()));
+            writer.add(generateDataList(getUserDetailsFromES(chunk), headers));
+          }
+        }
+        spoolFile = writer.finish().getAbsolutePath();
+      }
+      uploadReport(requestId, fileName, spoolFile);
     } catch (Exception e) {
       ProjectLogger.log("Some error occurs", e);
       throw new ProjectCommonException(
@@ -163,23 +163,6 @@ public class OrganisationMetricsBackgroundActor extends BaseMetricsActor {
       headers.add("totalTimeSpentOnConsumingContent");
       headers.add("totalPiecesOfContentConsumed");
       headers.add("avgTimeSpentPerVisit");
-      List<Map<String, Object>> consumptionData = new ArrayList<>();
-      List<Map<String, Object>> usersData = getUserDetailsUsingOrg(orgId);
-      for (Map<String, Object> userData : usersData) {
-        String request =
-            OrganisationMetricsUtil.getOrgMetricsRequest(
-                actorMessage, periodStr, orgHashId, (String) userData.get(JsonKey.ID), channel);
-        String analyticsBaseUrl = ProjectUtil.getConfigValue(JsonKey.ANALYTICS_API_BASE_URL);
-        String esResponse =
-            makePostRequest(analyticsBaseUrl, JsonKey.EKSTEP_METRICS_API_URL, request);
-        Map<String, Object> ekstepData =
-            getConsumptionDataFromResponse(esResponse, userData, (List<String>) (Object) headers);
-        consumptionData.add(ekstepData);
-      }
-      List<List<Object>> csvRecords = new ArrayList<>();
-      csvRecords.add(headers);
-      csvRecords.addAll(generateDataList(consumptionData, headers));
-
       String fileName =
           "ConsumptionReport"
               + FILENAMESEPARATOR
@@ -188,16 +171,34 @@ public class OrganisationMetricsBackgroundActor extends BaseMetricsActor {
               + System.currentTimeMillis()
               + FILENAMESEPARATOR
               + periodStr;
-      saveData(csvRecords, requestId, "Consumption Report");
-      Request backGroundRequest = new Request();
-      backGroundRequest.setOperation(ActorOperations.FILE_GENERATION_AND_UPLOAD.getValue());
-
-      Map<String, Object> innerMap = new HashMap<>();
-      innerMap.put(JsonKey.REQUEST_ID, requestId);
-      innerMap.put(JsonKey.FILE_NAME, fileName);
-      innerMap.put(JsonKey.DATA, csvRecords);
-      backGroundRequest.setRequest(innerMap);
-      tellToAnother(backGroundRequest);
+      saveData(requestId, "Consumption Report");
+      String analyticsBaseUrl = ProjectUtil.getConfigValue(JsonKey.ANALYTICS_API_BASE_URL);
+      int pageSize = getPageSize();
+      String spoolFile;
+      try (ReportSpoolWriter writer = new ReportSpoolWriter(fileName, headers)) {
+        List<Map<String, Object>> usersData;
+        String lastUserId = null;
+        do {
+          usersData = getUserDetailsUsingOrg(orgId, lastUserId, pageSize);
+          List<Map<String, Object>> consumptionData = new ArrayList<>();
+          for (Map<String, Object> userData : usersData) {
+            String request =
+                OrganisationMetricsUtil.getOrgMetricsRequest(
+                    actorMessage, periodStr, orgHashId, (String) userData.get(JsonKey.ID), channel);
+            String esResponse =
+                makePostRequest(analyticsBaseUrl, JsonKey.EKSTEP_METRICS_API_URL, request);
+            consumptionData.add(
+                getConsumptionDataFromResponse(
+                    esResponse, userData, (List<String>) (Object) headers));
+          }
+          writer.add(generateDataList(consumptionData, headers));
+          if (!usersData.isEmpty()) {
+            lastUserId = (String) usersData.get(usersData.size() - 1).get(JsonKey.ID);
+          }
+        } while (usersData.size() == pageSize);
+        spoolFile = writer.finish().getAbsolutePath();
+      }
+      uploadReport(requestId, fileName, spoolFile);
     } catch (Exception e) {
       ProjectLogger.log("Some error occurs", e);
       throw new ProjectCommonException(
@@ -207,6 +208,23 @@ public class OrganisationMetricsBackgroundActor extends BaseMetricsActor {
     }
   }
 
+  /** Hands a spooled report over to the upload step, passing only the path of the spool file. */
+  private void uploadReport(String requestId, String fileName, String spoolFile) {
+    Request backGroundRequest = new Request();
+    backGroundRequest.setOperation(ActorOperations.FILE_GENERATION_AND_UPLOAD.getValue());
+
+    Map<String, Object> innerMap = new HashMap<>();
+    innerMap.put(JsonKey.REQUEST_ID, requestId);
+    innerMap.put(JsonKey.FILE_NAME, fileName);
+    innerMap.put(MetricsBackGroundJobActor.SPOOL_FILE, spoolFile);
+    backGroundRequest.setRequest(innerMap);
+    tellToAnother(backGroundRequest);
+  }
+
+  private int getPageSize() {
+    return Math.max(1, ConfigValueUtil.getIntValue(REPORT_PAGE_SIZE, 500));
+  }
+
   private List<List<Object>> generateDataList(
       List<Map<String, Object>> aggregationMap, List<Object> headers) {
     List<List<Object>> result = new ArrayList<>();
@@ -220,41 +238,41 @@ public class OrganisationMetricsBackgroundActor extends BaseMetricsActor {
     return result;
   }
 
+  /**
+   * Adds the details of the creators to a chunk of content rows, looking up all creators of the
+   * chunk with one search.
+   */
   @SuppressWarnings("unchecked")
   private List<Map<String, Object>> getUserDetailsFromES(List<Map<String, Object>> ekstepData) {
-    List<String> coursefields = new ArrayList<>();
-    List<Map<String, Object>> userResult = new ArrayList<>();
-    coursefields.add(JsonKey.USER_ID);
-    coursefields.add(JsonKey.USERNAME);
-    coursefields.add(JsonKey.CREATED_DATE);
-    String userId = "";
+    List<String> userIds = new ArrayList<>();
     for (Map<String, Object> userData : ekstepData) {
-      Map<String, Object> data = new HashMap<>();
-      if (userData.containsKey("userId")) {
-        userId = (String) userData.get("userId");
-      } else {
-        data.putAll(userData);
-        userResult.add(data);
-        continue;
+      String userId = (String) userData.get("userId");
+      if (StringUtils.isNotBlank(userId) && !userIds.contains(userId)) {
+        userIds.add(userId);
       }
+    }
+    Map<String, Map<String, Object>> users = new HashMap<>();
+    if (!userIds.isEmpty()) {
+      List<String> coursefields = new ArrayList<>();
+      coursefields.add(JsonKey.USER_ID);
+      coursefields.add(JsonKey.USERNAME);
+      coursefields.add(JsonKey.CREATED_DATE);
       Map<String, Object> filter = new HashMap<>();
-      filter.put(JsonKey.IDENTIFIER, userId);
+      filter.put(JsonKey.IDENTIFIER, userIds);
+      SearchDTO searchDTO = createESRequest(filter, null, coursefields);
+      searchDTO.setLimit(userIds.size());
       try {
         Future<Map<String, Object>> resultF =
-            esService.search(
-                createESRequest(filter, null, coursefields), EsType.user.getTypeName());
+            esService.search(searchDTO, EsType.user.getTypeName());
         Map<String, Object> result =
             (Map<String, Object>) ElasticSearchHelper.getResponseFromFuture(resultF);
-        if (null != result && !result.isEmpty()) {
+        if (null != result && null != result.get(JsonKey.CONTENT)) {
           List<Map<String, Object>> resultList =
               (List<Map<String, Object>>) result.get(JsonKey.CONTENT);
-          if (null != resultList && !resultList.isEmpty()) {
-            for (Map<String, Object> dataObject : resultList) {
-              data.putAll(dataObject);
-            }
+          UserUtility.decryptUserData(resultList);
+          for (Map<String, Object> dataObject : resultList) {
+            users.put((String) dataObject.get(JsonKey.USER_ID), dataObject);
           }
-          data.putAll(userData);
-          userResult.add(data);
         }
       } catch (Exception e) {
         throw new ProjectCommonException(
@@ -263,8 +281,17 @@ public class OrganisationMetricsBackgroundActor extends BaseMetricsActor {
             ResponseCode.SERVER_ERROR.getResponseCode());
       }
     }
-    // decrypt the userdata and return
-    return decryptionService.decryptData(userResult);
+    List<Map<String, Object>> userResult = new ArrayList<>();
+    for (Map<String, Object> userData : ekstepData) {
+      Map<String, Object> data = new HashMap<>();
+      Map<String, Object> user = users.get(userData.get("userId"));
+      if (null != user) {
+        data.putAll(user);
+      }
+      data.putAll(userData);
+      userResult.add(data);
+    }
+    return userResult;
   }
 
   private String getRequestObject(String operation, String requestId) {
@@ -449,18 +476,41 @@ public class OrganisationMetricsBackgroundActor extends BaseMetricsActor {
     return domainList;
   }
 
+  /**
+   * Reads one page of the users of an org, sorted by id. A page starts after the last id of the
+   * previous page instead of at an offset, so that orgs with more users than the max_result_window
+   * of ES can be read.
+   *
+   * @param orgId org of the users
+   * @param lastUserId id of the last user of the previous page, null for the first page
+   * @param limit page size
+   * @return decrypted users of the page
+   */
   @SuppressWarnings("unchecked")
-  private List<Map<String, Object>> getUserDetailsUsingOrg(String orgId) {
+  private List<Map<String, Object>> getUserDetailsUsingOrg(
+      String orgId, String lastUserId, int limit) {
     List<String> coursefields = new ArrayList<>();
     List<Map<String, Object>> userResult = new ArrayList<>();
+    coursefields.add(JsonKey.ID);
     coursefields.add(JsonKey.USER_ID);
     coursefields.add(JsonKey.USER_NAME);
     coursefields.add(JsonKey.CREATED_DATE);
     Map<String, Object> filter = new HashMap<>();
     filter.put("organisations.organisationId", orgId);
+    if (lastUserId != null) {
+      Map<String, Object> range = new HashMap<>();
+      range.put(">", lastUserId);
+      filter.put(JsonKey.ID, range);
+    }
+    SearchDTO searchDTO = createESRequest(filter, null, coursefields);
+    searchDTO.setOffset(0);
+    searchDTO.setLimit(limit);
+    Map<String, Object> sortMap = new HashMap<>();
+    sortMap.put(JsonKey.ID, JsonKey.ASC);
+    searchDTO.setSortBy(sortMap);
     try {
       Future<Map<String, Object>> resultF =
-          esService.search(createESRequest(filter, null, coursefields), EsType.user.getTypeName());
+          esService.search(searchDTO, EsType.user.getTypeName());
       Map<String, Object> result =
           (Map<String, Object>) ElasticSearchHelper.getResponseFromFuture(resultF);
 
@@ -474,7 +524,7 @@ public class OrganisationMetricsBackgroundActor extends BaseMetricsActor {
         }
       }
       // decrypt the userdata
-      userResult = decryptionService.decryptData(userResult);
+      UserUtility.decryptUserData(userResult);
       return userResult;
     } catch (Exception e) {
       throw new ProjectCommonException(
@@ -505,13 +555,11 @@ public class OrganisationMetricsBackgroundActor extends BaseMetricsActor {
     return resultMap;
   }
 
-  private void saveData(List<List<Object>> data, String requestId, String type) {
+  private void saveData(String requestId, String type) {
     Map<String, Object> dbReqMap = new HashMap<>();
     SimpleDateFormat format = ProjectUtil.getDateFormatter();
     format.setLenient(false);
     dbReqMap.put(JsonKey.ID, requestId);
-    String dataStr = getJsonString(data);
-    dbReqMap.put(JsonKey.DATA, dataStr);
     dbReqMap.put(JsonKey.STATUS, ReportTrackingStatus.GENERATING_DATA.getValue());
     dbReqMap.put(JsonKey.UPDATED_DATE, format.format(new Date()));
     dbReqMap.put(JsonKey.TYPE, type);
@@ -531,18 +579,4 @@ public class OrganisationMetricsBackgroundActor extends BaseMetricsActor {
     }
     return responseList.get(0);
   }
-
-  private String getJsonString(Object requestObject) {
-    ObjectMapper mapper = new ObjectMapper();
-    String data = "";
-    try {
-      data = mapper.writeValueAsString(requestObject);
-    } catch (JsonProcessingException e) {
-      throw new ProjectCommonException(
-          ResponseCode.invalidJsonData.getErrorCode(),
-          ResponseCode.invalidJsonData.getErrorMessage(),
-          ResponseCode.SERVER_ERROR.getResponseCode());
-    }
-    return data;
-  }
 }
@@ -0,0 +1,125 @@
+package org.sunbird.metrics.actors;
+
+import com.opencsv.CSVReader;
+import com.opencsv.CSVWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.sunbird.common.models.util.ProjectUtil;
+
+/**
+ * Writes the rows of a metrics report to a local CSV spool file while they are generated, so that
+ * only the current chunk of rows is kept in memory and only the path of the file is passed on to
+ * the upload step.
+ */
+public class ReportSpoolWriter implements Closeable {
+
+  public static final String REPORT_SPOOL_DIR = "sunbird_report_spool_dir";
+  public static final String SPOOL_FILE_SUFFIX = ".csv";
+
+  private final File file;
+  private final CSVWriter writer;
+  private final int columns;
+  private long rowCount;
+  private boolean finished;
+
+  /**
+   * @param fileName name of the report, used as name of the spool file
+   * @param headers header row of the report
+   */
+  public ReportSpoolWriter(String fileName, List<Object> headers) throws IOException {
+    this(getSpoolDir(), fileName, headers);
+  }
+
+  ReportSpoolWriter(File spoolDir, String fileName, List<Object> headers) throws IOException {
+    FileUtils.forceMkdir(spoolDir);
+    file = new File(spoolDir, fileName + SPOOL_FILE_SUFFIX);
+    writer = new CSVWriter(new FileWriter(file));
+    columns = headers.size();
+    writer.writeNext(toLine(headers));
+  }
+
+  /**
+   * Appends a chunk of rows to the spool file.
+   *
+   * @param rows report rows in header order
+   */
+  public void add(List<List<Object>> rows) throws IOException {
+    for (List<Object> row : rows) {
+      writer.writeNext(toLine(row));
+    }
+    writer.flush();
+    rowCount += rows.size();
+  }
+
+  /**
+   * Completes the spool file. The file is kept on {@link #close()} and has to be deleted by the
+   * upload step.
+   *
+   * @return spool file
+   */
+  public File finish() throws IOException {
+    writer.close();
+    finished = true;
+    return file;
+  }
+
+  /** Returns the number of rows written, excluding the header row. */
+  public long getRowCount() {
+    return rowCount;
+  }
+
+  /** Deletes the spool file unless it was completed by {@link #finish()}. */
+  @Override
+  public void close() throws IOException {
+    try {
+      writer.close();
+    } finally {
+      if (!finished) {
+        FileUtils.deleteQuietly(file);
+      }
+    }
+  }
+
+  /**
+   * Reads back all rows of a spool file, including the header row. Only needed for report formats
+   * which cannot be streamed, like Excel.
+   *
+   * @param file spool file
+   * @return report rows
+   */
+  public static List<List<Object>> readRows(File file) throws IOException {
+    List<List<Object>> rows = new ArrayList<>();
+    try (CSVReader reader = new CSVReader(new FileReader(file))) {
+      String[] line;
+      while ((line = reader.readNext()) != null) {
+        rows.add(new ArrayList<>(Arrays.asList((Object[]) line)));
+      }
+    }
+    return rows;
+  }
+
+  private String[] toLine(List<Object> row) {
+    String[] line = new String[columns];
+    for (int i = 0; i < columns; i++) {
+      Object value = i < row.size() ? row.get(i) : null;
+      line[i] = value == null ? "" : String.valueOf(value);
+    }
+    return line;
+  }
+
+  private static File getSpoolDir() {
+    String spoolDir = ProjectUtil.getConfigValue(REPORT_SPOOL_DIR);
+    if (StringUtils.isBlank(spoolDir)) {
+      spoolDir = System.getProperty("java.io.tmpdir");
+    }
+    return new File(spoolDir.trim());
+  }
+}
@@ -0,0 +1,133 @@
+package org.sunbird.metrics.actors;
+
+import akka.actor.ActorRef;
+import java.io.File;
+import java.text.ParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.apache.commons.lang3.StringUtils;
+import org.sunbird.actor.service.SunbirdMWService;
+import org.sunbird.cassandra.CassandraOperation;
+import org.sunbird.common.models.response.Response;
+import org.sunbird.common.models.util.ActorOperations;
+import org.sunbird.common.models.util.JsonKey;
+import org.sunbird.common.models.util.LoggerEnum;
+import org.sunbird.common.models.util.ProjectLogger;
+import org.sunbird.common.models.util.ProjectUtil;
+import org.sunbird.common.models.util.ProjectUtil.ReportTrackingStatus;
+import org.sunbird.common.request.Request;
+import org.sunbird.helper.ServiceFactory;
+import org.sunbird.learner.util.ConfigValueUtil;
+import org.sunbird.learner.util.Util;
+
+/**
+ * Uploads the metrics reports which are still in {@link ReportTrackingStatus#UPLOADING_FILE}
+ * although their upload is no longer retried, e.g. because the node was restarted while a retry
+ * was scheduled. Spool files are local to the node which generated the report, so the sweep is
+ * scheduled on every node and only sends the reports whose spool file is found on this node. A
+ * report updated within the last sweep interval is skipped, as its retry may still be scheduled.
+ */
+public final class ReportUploadSweeper implements Runnable {
+
+  public static final String REPORT_UPLOAD_SWEEP_INTERVAL =
+      "sunbird_report_upload_sweep_interval_minutes";
+
+  private final CassandraOperation cassandraOperation;
+  private final Util.DbInfo reportTrackingDbInfo = Util.dbInfoMap.get(JsonKey.REPORT_TRACKING_DB);
+  private final long maxAgeMillis;
+  private final Consumer<Request> uploader;
+
+  /**
+   * @param cassandraOperation database access
+   * @param maxAgeMillis time since the last update after which an upload is sent again
+   * @param uploader sends an upload request to {@link MetricsBackGroundJobActor}
+   */
+  ReportUploadSweeper(
+      CassandraOperation cassandraOperation, long maxAgeMillis, Consumer<Request> uploader) {
+    this.cassandraOperation = cassandraOperation;
+    this.maxAgeMillis = maxAgeMillis;
+    this.uploader = uploader;
+  }
+
+  private static class LazyInitializer {
+    private static ReportUploadSweeper INSTANCE =
+        new ReportUploadSweeper(
+            ServiceFactory.getInstance(),
+            TimeUnit.MINUTES.toMillis(getSweepInterval()),
+            request -> SunbirdMWService.tellToBGRouter(request, ActorRef.noSender()));
+  }
+
+  public static ReportUploadSweeper getInstance() {
+    return LazyInitializer.INSTANCE;
+  }
+
+  /** @return interval in minutes between two sweeps */
+  public static long getSweepInterval() {
+    return ConfigValueUtil.getLongValue(REPORT_UPLOAD_SWEEP_INTERVAL, 15);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void run() {
+    try {
+      Response response =
+          cassandraOperation.getRecordsByProperty(
+              reportTrackingDbInfo.getKeySpace(),
+              reportTrackingDbInfo.getTableName(),
+              JsonKey.STATUS,
+              ReportTrackingStatus.UPLOADING_FILE.getValue());
+      List<Map<String, Object>> reports =
+          (List<Map<String, Object>>) response.get(JsonKey.RESPONSE);
+      int sent = 0;
+      if (reports != null) {
+        for (Map<String, Object> report : reports) {
+          String spoolFile = (String) report.get(MetricsBackGroundJobActor.SPOOL_FILE);
+          if (StringUtils.isNotBlank(spoolFile)
+              && new File(spoolFile).isFile()
+              && isAbandoned((String) report.get(JsonKey.UPDATED_DATE))) {
+            uploader.accept(getUploadRequest((String) report.get(JsonKey.ID), spoolFile));
+            sent++;
+          }
+        }
+      }
+      ProjectLogger.log(
+          "ReportUploadSweeper:run: Sent "
+              + sent
+              + " of "
+              + (reports == null ? 0 : reports.size())
+              + " reports waiting for upload",
+          LoggerEnum.INFO.name());
+    } catch (Exception e) {
+      ProjectLogger.log(
+          "ReportUploadSweeper:run: Exception occurred with error message = " + e.getMessage(), e);
+    }
+  }
+
+  private boolean isAbandoned(String updatedDate) {
+    if (StringUtils.isBlank(updatedDate)) {
+      return true;
+    }
+    try {
+      long updatedOn = ProjectUtil.getDateFormatter().parse(updatedDate).getTime();
+      return System.currentTimeMillis() - updatedOn > maxAgeMillis;
+    } catch (ParseException e) {
+      return true;
+    }
+  }
+
+  private static Request getUploadRequest(String requestId, String spoolFile) {
+    String fileName = new File(spoolFile).getName();
+    if (fileName.endsWith(ReportSpoolWriter.SPOOL_FILE_SUFFIX)) {
+      fileName =
+          fileName.substring(0, fileName.length() - ReportSpoolWriter.SPOOL_FILE_SUFFIX.length());
+    }
+    Request request = new Request();
+    request.setOperation(ActorOperations.FILE_GENERATION_AND_UPLOAD.getValue());
+    request.getRequest().put(JsonKey.REQUEST_ID, requestId);
+    request.getRequest().put(JsonKey.FILE_NAME, fileName);
+    request.getRequest().put(MetricsBackGroundJobActor.SPOOL_FILE, spoolFile);
+    return request;
+  }
+}
@@ -0,0 +1,37 @@
+package org.sunbird.models.systemsetting;
+
+import java.io.Serializable;
+
+/** Invalidation message published after a system setting was written on one node. */
+public class SystemSettingChange implements Serializable {
+  private static final long serialVersionUID = 1L;
+  private final String origin;
+  private final SystemSetting setting;
+  private final long version;
+  private final long writtenAt;
+
+  public SystemSettingChange(String origin, SystemSetting setting, long version, long writtenAt) {
+    this.origin = origin;
+    this.setting = setting;
+    this.version = version;
+    this.writtenAt = writtenAt;
+  }
+
+  /** Returns the ID of the registry which wrote the setting. */
+  public String getOrigin() {
+    return origin;
+  }
+
+  public SystemSetting getSetting() {
+    return setting;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  /** Returns the time in millis at which the setting was written. */
+  public long getWrittenAt() {
+    return writtenAt;
+  }
+}
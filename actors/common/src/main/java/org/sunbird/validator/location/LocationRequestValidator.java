@@ -2,20 +2,14 @@ package org.sunbird.validator.location;
 
 import akka.actor.ActorRef;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 import org.apache.commons.collections.CollectionUtils;
-import org.apache.commons.lang3.StringUtils;
 import org.sunbird.actorutil.location.LocationClient;
 import org.sunbird.actorutil.location.impl.LocationClientImpl;
+import org.sunbird.common.cacheloader.LocationTree;
 import org.sunbird.common.exception.ProjectCommonException;
-import org.sunbird.common.models.util.GeoLocationJsonKey;
 import org.sunbird.common.models.util.JsonKey;
 import org.sunbird.common.models.util.ProjectUtil;
 import org.sunbird.common.responsecode.ResponseCode;
@@ -29,21 +23,6 @@ import org.sunbird.models.location.Location;
 public class LocationRequestValidator extends BaseLocationRequestValidator {
 
   private LocationClient locationClient = new LocationClientImpl();
-  private static Map<String, Integer> orderMap = new HashMap<>();
-
-  static {
-    List<String> subTypeList =
-        Arrays.asList(
-            ProjectUtil.getConfigValue(GeoLocationJsonKey.SUNBIRD_VALID_LOCATION_TYPES).split(";"));
-    for (String str : subTypeList) {
-      List<String> typeList =
-          (((Arrays.asList(str.split(","))).stream().map(String::toLowerCase))
-              .collect(Collectors.toList()));
-      for (int i = 0; i < typeList.size(); i++) {
-        orderMap.put(typeList.get(i), i);
-      }
-    }
-  }
 
   /**
    * This method will validate the list of location code whether its valid or not. If valid will
@@ -56,7 +35,11 @@ public class LocationRequestValidator extends BaseLocationRequestValidator {
   public List<String> getValidatedLocationIds(ActorRef actorRef, List<String> codeList) {
     Set<String> locationIds = null;
     List<String> codes = new ArrayList<>(codeList);
-    List<Location> locationList = locationClient.getLocationsByCodes(actorRef, codeList);
+    List<Location> locationList =
+        LocationTree.getInstance()
+            .getLocationsByCodes(
+                codeList,
+                missingCodes -> locationClient.getLocationsByCodes(actorRef, missingCodes));
     List<String> locationIdList = new ArrayList<>();
     if (CollectionUtils.isNotEmpty(locationList)) {
       if (locationList.size() != codes.size()) {
@@ -86,7 +69,10 @@ public class LocationRequestValidator extends BaseLocationRequestValidator {
   public List<String> getHierarchyLocationIds(ActorRef actorRef, List<String> locationIdsList) {
     Set<String> locationIds = null;
     List<String> codes = new ArrayList<>(locationIdsList);
-    List<Location> locationList = locationClient.getLocationByIds(actorRef, locationIdsList);
+    List<Location> locationList =
+        LocationTree.getInstance()
+            .getLocationsByIds(
+                locationIdsList, ids -> locationClient.getLocationByIds(actorRef, ids));
     List<String> locationIdList = new ArrayList<>();
     if (CollectionUtils.isNotEmpty(locationList)) {
       if (locationList.size() != codes.size()) {
@@ -122,59 +108,17 @@ public class LocationRequestValidator extends BaseLocationRequestValidator {
    * @return Set of locationId.
    */
   public Set<String> getValidatedLocationSet(ActorRef actorRef, List<Location> locationList) {
-    Set<Location> locationSet = new HashSet<>();
-    for (Location requestedLocation : locationList) {
-      Set<Location> parentLocnSet = getParentLocations(actorRef, requestedLocation);
-      if (CollectionUtils.sizeIsEmpty(locationSet)) {
-        locationSet.addAll(parentLocnSet);
-      } else {
-        for (Location currentLocation : parentLocnSet) {
-          String type = currentLocation.getType();
-          locationSet
-              .stream()
-              .forEach(
-                  location -> {
-                    if (type.equalsIgnoreCase(location.getType())
-                        && !(currentLocation.getId().equals(location.getId()))) {
-                      throw new ProjectCommonException(
-                          ResponseCode.conflictingOrgLocations.getErrorCode(),
-                          ProjectUtil.formatMessage(
-                              ResponseCode.conflictingOrgLocations.getErrorMessage(),
-                              requestedLocation.getCode(),
-                              location.getCode(),
-                              type),
-                          ResponseCode.CLIENT_ERROR.getResponseCode());
-                    }
-                  });
-          locationSet.add(currentLocation);
-        }
-      }
-    }
-    return locationSet.stream().map(Location::getId).collect(Collectors.toSet());
+    return LocationTree.getValidatedLocationSet(
+        locationList, location -> getParentLocations(actorRef, location));
   }
 
   private Set<Location> getParentLocations(ActorRef actorRef, Location locationObj) {
-    Set<Location> locationSet = new LinkedHashSet<>();
-    Location location = locationObj;
-    int count = getOrder(location.getType());
-    locationSet.add(location);
-    while (count > 0) {
-      Location parent = null;
-      if (getOrder(location.getType()) == 0 && StringUtils.isNotEmpty(location.getId())) {
-        parent = locationClient.getLocationById(actorRef, location.getId());
-      } else if (StringUtils.isNotEmpty(location.getParentId())) {
-        parent = locationClient.getLocationById(actorRef, location.getParentId());
-      }
-      if (null != parent) {
-        locationSet.add(parent);
-        location = parent;
-      }
-      count--;
-    }
-    return locationSet;
+    return LocationTree.getInstance()
+        .getParentLocations(
+            locationObj, locationId -> locationClient.getLocationById(actorRef, locationId));
   }
 
   public int getOrder(String type) {
-    return orderMap.get(type);
+    return LocationTree.getInstance().getOrder(type);
   }
 }
@@ -0,0 +1,143 @@
+package org.sunbird.common.cacheloader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import org.junit.Before;
+import org.junit.Test;
+import org.sunbird.cassandra.CassandraOperation;
+import org.sunbird.common.exception.ProjectCommonException;
+import org.sunbird.common.models.response.Response;
+import org.sunbird.common.models.util.GeoLocationJsonKey;
+import org.sunbird.common.models.util.JsonKey;
+import org.sunbird.models.location.Location;
+
+public class LocationTreeTest {
+
+  private LocationTree locationTree;
+  private List<List<String>> reads;
+  private List<Map<String, Object>> locations;
+
+  @Before
+  public void setUp() {
+    CassandraOperation cassandraOperation = mock(CassandraOperation.class);
+    Response response = new Response();
+    locations = new ArrayList<>();
+    locations.add(getLocation("id1", "state1", "state", null));
+    locations.add(getLocation("id2", "district1", "district", "id1"));
+    locations.add(getLocation("id3", "block1", "block", "id2"));
+    locations.add(getLocation("id4", "district2", "district", "id1"));
+    response.put(JsonKey.RESPONSE, locations);
+    when(cassandraOperation.getAllRecords("sunbird", "location")).thenReturn(response);
+    locationTree =
+        new LocationTree(cassandraOperation, LocationTree.getOrderMap("state,district,block"));
+    reads = new ArrayList<>();
+  }
+
+  @Test
+  public void testGetLocationsByCodesBeforeLoadReadsAllCodesSuccess() {
+    locationTree.getLocationsByCodes(Arrays.asList("block1", "state1"), getReader());
+    assertEquals(Arrays.asList(Arrays.asList("block1", "state1")), reads);
+  }
+
+  @Test
+  public void testGetLocationsByCodesReadsOnlyMissingCodesSuccess() {
+    locationTree.run();
+    List<Location> locations =
+        locationTree.getLocationsByCodes(Arrays.asList("block1", "unknown1"), getReader());
+    assertEquals(1, locations.size());
+    assertEquals("id3", locations.get(0).getId());
+    assertEquals(Arrays.asList(Arrays.asList("unknown1")), reads);
+  }
+
+  @Test
+  public void testGetValidatedLocationSetWithoutReadsSuccess() {
+    locationTree.run();
+    Set<String> locationIds = getValidatedLocationIds("block1", "state1");
+    assertEquals(new HashSet<>(Arrays.asList("id1", "id2", "id3")), locationIds);
+    assertTrue(reads.isEmpty());
+  }
+
+  @Test(expected = ProjectCommonException.class)
+  public void testGetValidatedLocationSetWithConflictingLocationsFailure() {
+    locationTree.run();
+    getValidatedLocationIds("block1", "district2");
+  }
+
+  @Test
+  public void testUpsertAndDeleteUpdateIndexSuccess() {
+    locationTree.run();
+    Map<String, Object> block = new HashMap<>();
+    block.put(JsonKey.ID, "id3");
+    block.put(GeoLocationJsonKey.PARENT_ID, "id4");
+    locationTree.upsert(block);
+    assertEquals(
+        new HashSet<>(Arrays.asList("id1", "id3", "id4")), getValidatedLocationIds("block1"));
+    locationTree.delete("id4");
+    locationTree.getLocationsByCodes(Arrays.asList("district2"), getReader());
+    assertEquals(Arrays.asList(Arrays.asList("district2")), reads);
+  }
+
+  @Test
+  public void testChangesOfOtherInstanceAreStaleUntilReloadSuccess() {
+    locationTree.run();
+    // another instance moves block1 to district2 and deletes district1
+    locations.remove(1);
+    locations.set(1, getLocation("id3", "block1", "block", "id4"));
+    assertEquals(
+        new HashSet<>(Arrays.asList("id1", "id2", "id3")), getValidatedLocationIds("block1"));
+
+    locationTree.run();
+    assertEquals(
+        new HashSet<>(Arrays.asList("id1", "id3", "id4")), getValidatedLocationIds("block1"));
+    assertTrue(reads.isEmpty());
+    locationTree.getLocationsByCodes(Arrays.asList("district1"), getReader());
+    assertEquals(Arrays.asList(Arrays.asList("district1")), reads);
+  }
+
+  @Test
+  public void testDefaultRefreshIntervalSuccess() {
+    assertEquals(15, LocationTree.getRefreshInterval());
+  }
+
+  private Set<String> getValidatedLocationIds(String... codes) {
+    List<Location> locations = locationTree.getLocationsByCodes(Arrays.asList(codes), getReader());
+    return LocationTree.getValidatedLocationSet(
+        locations,
+        location ->
+            locationTree.getParentLocations(
+                location,
+                locationId -> {
+                  reads.add(Collections.singletonList(locationId));
+                  return null;
+                }));
+  }
+
+  private Function<List<String>, List<Location>> getReader() {
+    return keys -> {
+      reads.add(keys);
+      return new ArrayList<>();
+    };
+  }
+
+  private Map<String, Object> getLocation(String id, String code, String type, String parentId) {
+    Map<String, Object> location = new HashMap<>();
+    location.put(JsonKey.ID, id);
+    location.put(JsonKey.CODE, code);
+    location.put(JsonKey.NAME, code);
+    location.put(JsonKey.TYPE, type);
+    location.put(GeoLocationJsonKey.PARENT_ID, parentId);
+    return location;
+  }
+}
@@ -0,0 +1,95 @@
+package org.sunbird.common.cacheloader;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.sunbird.actorutil.org.OrganisationClient;
+import org.sunbird.common.models.util.JsonKey;
+import org.sunbird.models.organisation.Organisation;
+
+public class OrgMetadataCacheTest {
+
+  private OrganisationClient orgClient;
+  private OrgMetadataCache orgMetadataCache;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    orgClient = mock(OrganisationClient.class);
+    orgMetadataCache = new OrgMetadataCache(orgClient);
+    when(orgClient.esSearchOrgByIds(Mockito.anyList(), Mockito.anyList()))
+        .thenAnswer(
+            invocation -> {
+              List<Organisation> orgs = new ArrayList<>();
+              for (String orgId : (List<String>) invocation.getArguments()[0]) {
+                if (!orgId.startsWith("unknown")) {
+                  orgs.add(getOrg(orgId, "name of " + orgId));
+                }
+              }
+              return orgs;
+            });
+  }
+
+  @Test
+  public void testGetAllReadsOnlyMissingOrgsSuccess() {
+    orgMetadataCache.getAll(Arrays.asList("org1", "org2"));
+    Map<String, Organisation> orgs =
+        orgMetadataCache.getAll(Arrays.asList("org1", "org2", "org3", "unknown1"));
+    assertEquals(3, orgs.size());
+    assertEquals("name of org3", orgs.get("org3").getOrgName());
+    verify(orgClient).esSearchOrgByIds(Arrays.asList("org1", "org2"), getFields());
+    verify(orgClient).esSearchOrgByIds(Arrays.asList("org3", "unknown1"), getFields());
+  }
+
+  @Test
+  public void testGetAllWithCachedOrgsSkipsLookupSuccess() {
+    orgMetadataCache.getAll(Arrays.asList("org1"));
+    orgMetadataCache.getAll(Arrays.asList("org1", "org1", null));
+    verify(orgClient, times(1)).esSearchOrgByIds(Mockito.anyList(), Mockito.anyList());
+  }
+
+  @Test
+  public void testRefreshUpdatesCachedNameSuccess() {
+    orgMetadataCache.getAll(Arrays.asList("org1"));
+    orgMetadataCache.refresh("org1", "new name");
+    assertEquals(
+        "new name", orgMetadataCache.getAll(Arrays.asList("org1")).get("org1").getOrgName());
+    verify(orgClient, times(1)).esSearchOrgByIds(Mockito.anyList(), Mockito.anyList());
+  }
+
+  @Test
+  public void testInvalidateReloadsOrgSuccess() {
+    orgMetadataCache.refresh("org1", "new name");
+    orgMetadataCache.invalidate("org1");
+    assertEquals(
+        "name of org1", orgMetadataCache.getAll(Arrays.asList("org1")).get("org1").getOrgName());
+  }
+
+  @Test
+  public void testGetAllWithEmptyIdsSkipsLookupSuccess() {
+    orgMetadataCache.getAll(new ArrayList<>());
+    verify(orgClient, never()).esSearchOrgByIds(Mockito.anyList(), Mockito.anyList());
+  }
+
+  private List<String> getFields() {
+    return Arrays.asList(JsonKey.ID, JsonKey.ORG_NAME);
+  }
+
+  private Organisation getOrg(String id, String name) {
+    Organisation org = new Organisation();
+    org.setId(id);
+    org.setOrgName(name);
+    return org;
+  }
+}
@@ -0,0 +1,122 @@
+package org.sunbird.common.cacheloader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+import org.sunbird.cassandra.CassandraOperation;
+import org.sunbird.common.models.response.Response;
+import org.sunbird.common.models.util.ActorOperations;
+import org.sunbird.common.models.util.JsonKey;
+import org.sunbird.learner.util.Util;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({PageCacheLoaderService.class})
+@PowerMockIgnore({"javax.management.*", "javax.net.ssl.*", "javax.security.*"})
+public class PageCacheRefresherTest {
+
+  private static final long INTERVAL = TimeUnit.HOURS.toMillis(4);
+
+  private CassandraOperation cassandraOperation;
+  private Util.DbInfo pageDbInfo;
+  private Util.DbInfo sectionDbInfo;
+  private PageCacheRefresher refresher;
+
+  @Before
+  public void setUp() {
+    PowerMockito.mockStatic(PageCacheLoaderService.class);
+    cassandraOperation = Mockito.mock(CassandraOperation.class);
+    pageDbInfo = Mockito.mock(Util.DbInfo.class);
+    sectionDbInfo = Mockito.mock(Util.DbInfo.class);
+    when(pageDbInfo.getKeySpace()).thenReturn("sunbird");
+    when(pageDbInfo.getTableName()).thenReturn("page_management");
+    when(sectionDbInfo.getKeySpace()).thenReturn("sunbird");
+    when(sectionDbInfo.getTableName()).thenReturn("page_section");
+    refresher = new PageCacheRefresher(cassandraOperation, pageDbInfo, sectionDbInfo);
+  }
+
+  @Test
+  public void testIsReconciliationDueOnFirstRunSuccess() {
+    assertTrue(PageCacheRefresher.isReconciliationDue(System.currentTimeMillis(), 0, INTERVAL));
+  }
+
+  @Test
+  public void testIsReconciliationDueAfterIntervalSuccess() {
+    long now = System.currentTimeMillis();
+    assertFalse(PageCacheRefresher.isReconciliationDue(now, now - INTERVAL + 1000, INTERVAL));
+    assertTrue(PageCacheRefresher.isReconciliationDue(now, now - INTERVAL, INTERVAL));
+  }
+
+  @Test
+  public void testDefaultReconciliationIntervalSuccess() {
+    assertEquals(INTERVAL, PageCacheRefresher.getReconciliationInterval());
+  }
+
+  @Test
+  public void testRefreshChangesReloadsOnlyChangedRowsSuccess() {
+    Map<String, Object> page = getRow("page1");
+    page.put(JsonKey.ORGANISATION_ID, "org1");
+    page.put(JsonKey.PAGE_NAME, "home");
+    mockRecord("page_management", "page1", page);
+    mockRecord("page_section", "section1", getRow("section1"));
+    PageCacheRefresher.publishPageChange("page1");
+    PageCacheRefresher.publishSectionChange("section1");
+
+    assertEquals(2, refresher.refreshChanges());
+    PowerMockito.verifyStatic(Mockito.times(1));
+    PageCacheLoaderService.putDataIntoCache(
+        ActorOperations.GET_PAGE_DATA.getValue(), "org1:home", page);
+    PowerMockito.verifyStatic(Mockito.times(1));
+    PageCacheLoaderService.putDataIntoCache(
+        ActorOperations.GET_SECTION.getValue(), "section1", getRow("section1"));
+    assertEquals(0, refresher.refreshChanges());
+    Mockito.verify(cassandraOperation, Mockito.times(2))
+        .getRecordById(Mockito.anyString(), Mockito.anyString(), Mockito.anyString());
+  }
+
+  @Test
+  public void testRefreshChangesRetriesFailedRowSuccess() {
+    when(cassandraOperation.getRecordById("sunbird", "page_section", "section2"))
+        .thenThrow(new RuntimeException("read timeout"))
+        .thenReturn(getResponse(getRow("section2")));
+    PageCacheRefresher.publishSectionChange("section2");
+
+    assertEquals(0, refresher.refreshChanges());
+    assertEquals(1, refresher.refreshChanges());
+    PowerMockito.verifyStatic(Mockito.times(1));
+    PageCacheLoaderService.putDataIntoCache(
+        ActorOperations.GET_SECTION.getValue(), "section2", getRow("section2"));
+  }
+
+  private void mockRecord(String table, String id, Map<String, Object> row) {
+    when(cassandraOperation.getRecordById("sunbird", table, id)).thenReturn(getResponse(row));
+  }
+
+  private Response getResponse(Map<String, Object> row) {
+    List<Map<String, Object>> rows = new ArrayList<>();
+    rows.add(row);
+    Response response = new Response();
+    response.put(JsonKey.RESPONSE, rows);
+    return response;
+  }
+
+  private Map<String, Object> getRow(String id) {
+    Map<String, Object> row = new HashMap<>();
+    row.put(JsonKey.ID, id);
+    return row;
+  }
+}
@@ -0,0 +1,266 @@
+package org.sunbird.common.cacheloader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import akka.dispatch.ExecutionContexts;
+import akka.dispatch.Futures;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.sunbird.cache.interfaces.Cache;
+import org.sunbird.common.models.response.Response;
+import org.sunbird.common.models.response.ResponseParams;
+import org.sunbird.common.models.util.JsonKey;
+import org.sunbird.common.responsecode.ResponseCode;
+import scala.concurrent.Await;
+import scala.concurrent.ExecutionContextExecutor;
+import scala.concurrent.Future;
+import scala.concurrent.Promise;
+import scala.concurrent.duration.Duration;
+
+public class PageResponseCacheTest {
+
+  private static final ExecutionContextExecutor ec =
+      ExecutionContexts.fromExecutor(Executors.newFixedThreadPool(2));
+  private PageResponseCache pageResponseCache = PageResponseCache.getInstance();
+
+  @Test
+  public void testGetOrAssembleCoalescesConcurrentRequestsSuccess() throws Exception {
+    AtomicInteger assemblies = new AtomicInteger();
+    Promise<Response> assembly = Futures.promise();
+    Future<Response> first =
+        pageResponseCache.getOrAssemble(
+            "coalesce",
+            () -> {
+              assemblies.incrementAndGet();
+              return assembly.future();
+            },
+            response -> true,
+            ec);
+    Future<Response> second =
+        pageResponseCache.getOrAssemble(
+            "coalesce",
+            () -> {
+              assemblies.incrementAndGet();
+              return assembly.future();
+            },
+            response -> true,
+            ec);
+    assembly.success(getPageResponse("page1"));
+    Response firstResponse = Await.result(first, Duration.create(5, TimeUnit.SECONDS));
+    Response secondResponse = Await.result(second, Duration.create(5, TimeUnit.SECONDS));
+    assertEquals(1, assemblies.get());
+    assertNotSame(firstResponse, secondResponse);
+    assertEquals("page1", getPageId(secondResponse));
+  }
+
+  @Test
+  public void testGetOrAssembleReturnsCachedResponseSuccess() throws Exception {
+    AtomicInteger assemblies = new AtomicInteger();
+    for (int i = 0; i < 3; i++) {
+      Future<Response> response =
+          pageResponseCache.getOrAssemble(
+              "cached",
+              () -> {
+                assemblies.incrementAndGet();
+                return Futures.successful(getPageResponse("page2"));
+              },
+              res -> true,
+              ec);
+      assertEquals("page2", getPageId(Await.result(response, Duration.create(5, TimeUnit.SECONDS))));
+    }
+    assertEquals(1, assemblies.get());
+  }
+
+  @Test
+  public void testGetOrAssembleSkipsIncompleteResponseSuccess() throws Exception {
+    AtomicInteger assemblies = new AtomicInteger();
+    for (int i = 0; i < 2; i++) {
+      Await.result(
+          pageResponseCache.getOrAssemble(
+              "incomplete",
+              () -> {
+                assemblies.incrementAndGet();
+                return Futures.successful(getPageResponse("page3"));
+              },
+              res -> false,
+              ec),
+          Duration.create(5, TimeUnit.SECONDS));
+    }
+    assertEquals(2, assemblies.get());
+  }
+
+  @Test
+  public void testInvalidateAllDropsCachedResponseSuccess() throws Exception {
+    AtomicInteger assemblies = new AtomicInteger();
+    for (int i = 0; i < 2; i++) {
+      Await.result(
+          pageResponseCache.getOrAssemble(
+              "invalidate",
+              () -> {
+                assemblies.incrementAndGet();
+                return Futures.successful(getPageResponse("page4"));
+              },
+              res -> true,
+              ec),
+          Duration.create(5, TimeUnit.SECONDS));
+      pageResponseCache.invalidateAll();
+    }
+    assertEquals(2, assemblies.get());
+  }
+
+  @Test
+  public void testInvalidateAllDuringAssemblyStartsNewAssemblySuccess() throws Exception {
+    AtomicInteger assemblies = new AtomicInteger();
+    Promise<Response> staleAssembly = Futures.promise();
+    Promise<Response> freshAssembly = Futures.promise();
+    Future<Response> stale =
+        pageResponseCache.getOrAssemble(
+            "inflight",
+            () -> {
+              assemblies.incrementAndGet();
+              return staleAssembly.future();
+            },
+            res -> true,
+            ec);
+    pageResponseCache.invalidateAll();
+    Future<Response> fresh =
+        pageResponseCache.getOrAssemble(
+            "inflight",
+            () -> {
+              assemblies.incrementAndGet();
+              return freshAssembly.future();
+            },
+            res -> true,
+            ec);
+    freshAssembly.success(getPageResponse("page6"));
+    assertEquals("page6", getPageId(Await.result(fresh, Duration.create(5, TimeUnit.SECONDS))));
+    staleAssembly.success(getPageResponse("page5"));
+    assertEquals("page5", getPageId(Await.result(stale, Duration.create(5, TimeUnit.SECONDS))));
+
+    Future<Response> cached =
+        pageResponseCache.getOrAssemble(
+            "inflight",
+            () -> {
+              assemblies.incrementAndGet();
+              return Futures.successful(getPageResponse("page7"));
+            },
+            res -> true,
+            ec);
+    assertEquals("page6", getPageId(Await.result(cached, Duration.create(5, TimeUnit.SECONDS))));
+    assertEquals(2, assemblies.get());
+  }
+
+  @Test
+  public void testSharedCacheRoundTripKeepsResponseSuccess() throws Exception {
+    Cache sharedCache = getJsonSharedCache();
+    Response assembled = getPageResponse("page8");
+    Map<String, Object> section = new HashMap<>();
+    section.put(JsonKey.NAME, "Popular");
+    section.put(JsonKey.COUNT, 2);
+    section.put(JsonKey.CONTENTS, Arrays.asList("do_1", "do_2"));
+    getPage(assembled).put(JsonKey.SECTIONS, Arrays.asList(section));
+    getPage(assembled).put(JsonKey.ACTIVE, true);
+    ResponseParams params = new ResponseParams();
+    params.setErr("");
+    params.setErrmsg("");
+    assembled.setParams(params);
+    assembled.setResponseCode(ResponseCode.OK);
+    Await.result(
+        new PageResponseCache(sharedCache)
+            .getOrAssemble("shared", () -> Futures.successful(assembled), res -> true, ec),
+        Duration.create(5, TimeUnit.SECONDS));
+
+    AtomicInteger assemblies = new AtomicInteger();
+    Response cached =
+        Await.result(
+            new PageResponseCache(sharedCache)
+                .getOrAssemble(
+                    "shared",
+                    () -> {
+                      assemblies.incrementAndGet();
+                      return Futures.successful(getPageResponse("page9"));
+                    },
+                    res -> true,
+                    ec),
+            Duration.create(5, TimeUnit.SECONDS));
+    assertEquals(0, assemblies.get());
+    assertEquals(assembled.getResult(), cached.getResult());
+    assertEquals(assembled.getResponseCode(), cached.getResponseCode());
+    assertEquals(assembled.getParams().getErr(), cached.getParams().getErr());
+    assertEquals(assembled.getParams().getErrmsg(), cached.getParams().getErrmsg());
+  }
+
+  @Test
+  public void testApplyInvalidationFromOtherCacheSuccess() throws Exception {
+    PageResponseCache cache = new PageResponseCache(null);
+    AtomicInteger assemblies = new AtomicInteger();
+    for (int i = 0; i < 2; i++) {
+      Await.result(
+          cache.getOrAssemble(
+              "published",
+              () -> {
+                assemblies.incrementAndGet();
+                return Futures.successful(getPageResponse("page10"));
+              },
+              res -> true,
+              ec),
+          Duration.create(5, TimeUnit.SECONDS));
+      assertTrue(cache.apply(new PageResponseInvalidation("otherCache")));
+    }
+    assertEquals(2, assemblies.get());
+  }
+
+  /** Shared cache storing values as JSON, as the Redis backed cache does. */
+  private Cache getJsonSharedCache() {
+    ObjectMapper mapper = new ObjectMapper();
+    Map<String, String> entries = new ConcurrentHashMap<>();
+    Cache sharedCache = mock(Cache.class);
+    doAnswer(
+            invocation -> {
+              Object[] args = invocation.getArguments();
+              entries.put(args[0] + ":" + args[1], mapper.writeValueAsString(args[2]));
+              return null;
+            })
+        .when(sharedCache)
+        .put(Mockito.anyString(), Mockito.anyString(), Mockito.any());
+    when(sharedCache.get(Mockito.anyString(), Mockito.anyString(), Mockito.any(Class.class)))
+        .thenAnswer(
+            invocation -> {
+              Object[] args = invocation.getArguments();
+              String json = entries.get(args[0] + ":" + args[1]);
+              return json == null ? null : mapper.readValue(json, (Class<?>) args[2]);
+            });
+    return sharedCache;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, Object> getPage(Response response) {
+    return (Map<String, Object>) response.get(JsonKey.RESPONSE);
+  }
+
+  private Response getPageResponse(String pageId) {
+    Map<String, Object> result = new HashMap<>();
+    result.put(JsonKey.ID, pageId);
+    Response response = new Response();
+    response.put(JsonKey.RESPONSE, result);
+    return response;
+  }
+
+  @SuppressWarnings("unchecked")
+  private String getPageId(Response response) {
+    return (String) ((Map<String, Object>) response.get(JsonKey.RESPONSE)).get(JsonKey.ID);
+  }
+}
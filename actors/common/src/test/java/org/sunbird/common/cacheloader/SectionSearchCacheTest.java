@@ -0,0 +1,117 @@
+package org.sunbird.common.cacheloader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import akka.dispatch.ExecutionContexts;
+import akka.dispatch.Futures;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import scala.concurrent.Await;
+import scala.concurrent.ExecutionContextExecutor;
+import scala.concurrent.Future;
+import scala.concurrent.Promise;
+import scala.concurrent.duration.Duration;
+
+public class SectionSearchCacheTest {
+
+  private static final ExecutionContextExecutor ec =
+      ExecutionContexts.fromExecutor(Executors.newFixedThreadPool(2));
+  private SectionSearchCache sectionSearchCache = SectionSearchCache.getInstance();
+
+  @Test
+  public void testGetCoalescesConcurrentSearchesSuccess() throws Exception {
+    AtomicInteger searches = new AtomicInteger();
+    Promise<Map<String, Object>> search = Futures.promise();
+    Future<Map<String, Object>> first =
+        sectionSearchCache.get(
+            "coalesce",
+            null,
+            () -> {
+              searches.incrementAndGet();
+              return search.future();
+            },
+            ec);
+    Future<Map<String, Object>> second =
+        sectionSearchCache.get(
+            "coalesce",
+            null,
+            () -> {
+              searches.incrementAndGet();
+              return search.future();
+            },
+            ec);
+    search.success(getSearchResult(5));
+    Map<String, Object> firstResult = Await.result(first, Duration.create(5, TimeUnit.SECONDS));
+    Map<String, Object> secondResult = Await.result(second, Duration.create(5, TimeUnit.SECONDS));
+    assertEquals(1, searches.get());
+    assertNotSame(firstResult, secondResult);
+    assertEquals(5, secondResult.get("count"));
+  }
+
+  @Test
+  public void testGetReturnsCachedResultSuccess() throws Exception {
+    AtomicInteger searches = new AtomicInteger();
+    for (int i = 0; i < 3; i++) {
+      Map<String, Object> result =
+          Await.result(
+              sectionSearchCache.get(
+                  "cached",
+                  null,
+                  () -> {
+                    searches.incrementAndGet();
+                    return Futures.successful(getSearchResult(3));
+                  },
+                  ec),
+              Duration.create(5, TimeUnit.SECONDS));
+      assertEquals(3, result.get("count"));
+    }
+    assertEquals(1, searches.get());
+  }
+
+  @Test
+  public void testGetWithZeroTtlOverrideServesStaleAndRefreshesSuccess() throws Exception {
+    AtomicInteger searches = new AtomicInteger();
+    for (int i = 0; i < 2; i++) {
+      Await.result(
+          sectionSearchCache.get(
+              "override",
+              "0",
+              () -> {
+                searches.incrementAndGet();
+                return Futures.successful(getSearchResult(1));
+              },
+              ec),
+          Duration.create(5, TimeUnit.SECONDS));
+    }
+    assertEquals(2, searches.get());
+  }
+
+  @Test
+  public void testGetSkipsEmptyResultSuccess() throws Exception {
+    AtomicInteger searches = new AtomicInteger();
+    for (int i = 0; i < 2; i++) {
+      Await.result(
+          sectionSearchCache.get(
+              "empty",
+              null,
+              () -> {
+                searches.incrementAndGet();
+                return Futures.successful(new HashMap<String, Object>());
+              },
+              ec),
+          Duration.create(5, TimeUnit.SECONDS));
+    }
+    assertEquals(2, searches.get());
+  }
+
+  private Map<String, Object> getSearchResult(int count) {
+    Map<String, Object> result = new HashMap<>();
+    result.put("count", count);
+    return result;
+  }
+}
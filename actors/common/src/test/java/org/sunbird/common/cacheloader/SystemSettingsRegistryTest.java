@@ -0,0 +1,152 @@
+package org.sunbird.common.cacheloader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import org.sunbird.cassandra.CassandraOperation;
+import org.sunbird.common.models.response.Response;
+import org.sunbird.common.models.util.JsonKey;
+import org.sunbird.learner.util.DataCacheHandler;
+import org.sunbird.models.systemsetting.SystemSetting;
+import org.sunbird.models.systemsetting.SystemSettingChange;
+
+public class SystemSettingsRegistryTest {
+
+  private CassandraOperation cassandraOperation;
+  private SystemSettingsRegistry registry;
+
+  @Before
+  public void setUp() {
+    cassandraOperation = mock(CassandraOperation.class);
+    mockSettings(getSetting("custodianOrgId", "org1"), getSetting(JsonKey.PHONE_UNIQUE, ""));
+    registry = new SystemSettingsRegistry(cassandraOperation);
+  }
+
+  @Test
+  public void testRunLoadsSettingsSuccess() {
+    registry.run();
+    assertTrue(registry.isLoaded());
+    assertEquals(2, registry.getAllSettings().size());
+    assertEquals("org1", registry.getSetting("custodianOrgId").getValue());
+    assertEquals("false", DataCacheHandler.getConfigSettings().get(JsonKey.PHONE_UNIQUE));
+  }
+
+  @Test
+  public void testApplyChangeFromOtherRegistrySuccess() {
+    registry.run();
+    SystemSettingsRegistry otherRegistry = new SystemSettingsRegistry(cassandraOperation);
+    SystemSettingChange change =
+        otherRegistry.put(new SystemSetting("custodianOrgId", "custodianOrgId", "org2"));
+    assertTrue(registry.apply(change));
+    assertFalse(registry.apply(change));
+    assertEquals("org2", registry.getSetting("custodianOrgId").getValue());
+    assertEquals(change.getVersion(), registry.getVersion("custodianOrgId"));
+    assertEquals("org2", DataCacheHandler.getConfigSettings().get("custodianOrgId"));
+    assertEquals(1L, (long) registry.getMetrics().get("appliedChanges"));
+    assertEquals(1L, (long) registry.getMetrics().get("ignoredChanges"));
+  }
+
+  @Test
+  public void testApplyOwnChangeIgnoredSuccess() {
+    SystemSettingChange change =
+        registry.put(new SystemSetting("custodianOrgId", "custodianOrgId", "org2"));
+    assertFalse(registry.apply(change));
+    assertEquals(0L, (long) registry.getMetrics().get("appliedChanges"));
+  }
+
+  @Test
+  public void testRunUpdatesChangedSettingSuccess() {
+    registry.run();
+    mockSettings(getSetting("custodianOrgId", "org3"));
+    registry.run();
+    assertEquals("org3", registry.getSetting("custodianOrgId").getValue());
+    assertEquals(3L, (long) registry.getMetrics().get("reloadedChanges"));
+  }
+
+  @Test
+  public void testRunKeepsWriteDuringLoadSuccess() {
+    Response response = new Response();
+    List<Map<String, Object>> records = new ArrayList<>();
+    records.add(getSetting("custodianOrgId", "org1"));
+    response.put(JsonKey.RESPONSE, records);
+    when(cassandraOperation.getAllRecords(JsonKey.SUNBIRD, JsonKey.SYSTEM_SETTINGS_DB))
+        .thenAnswer(
+            invocation -> {
+              registry.put(new SystemSetting("custodianOrgId", "custodianOrgId", "org2"));
+              return response;
+            });
+    registry.run();
+    assertEquals("org2", registry.getSetting("custodianOrgId").getValue());
+  }
+
+  @Test
+  public void testRunRemovesDeletedSettingSuccess() {
+    registry.run();
+    registry.addIfAbsent(new SystemSetting("tncConfig", "tncConfig", "{}"));
+    mockSettings(getSetting("custodianOrgId", "org1"));
+    registry.run();
+    assertEquals(1, registry.getAllSettings().size());
+    assertNull(registry.getSetting("tncConfig"));
+    assertNull(registry.getSetting(JsonKey.PHONE_UNIQUE));
+    assertFalse(DataCacheHandler.getConfigSettings().containsKey("tncConfig"));
+    assertEquals("false", DataCacheHandler.getConfigSettings().get(JsonKey.PHONE_UNIQUE));
+    assertEquals(2L, (long) registry.getMetrics().get("removedSettings"));
+  }
+
+  @Test
+  public void testRunKeepsSettingAddedDuringLoadSuccess() {
+    registry.run();
+    when(cassandraOperation.getAllRecords(JsonKey.SUNBIRD, JsonKey.SYSTEM_SETTINGS_DB))
+        .thenAnswer(
+            invocation -> {
+              registry.put(new SystemSetting("tncConfig", "tncConfig", "{}"));
+              Response response = new Response();
+              List<Map<String, Object>> records = new ArrayList<>();
+              records.add(getSetting("custodianOrgId", "org1"));
+              response.put(JsonKey.RESPONSE, records);
+              return response;
+            });
+    registry.run();
+    assertEquals("{}", registry.getSetting("tncConfig").getValue());
+    assertNull(registry.getSetting(JsonKey.PHONE_UNIQUE));
+  }
+
+  @Test
+  public void testAddIfAbsentKeepsExistingSettingSuccess() {
+    registry.run();
+    registry.addIfAbsent(new SystemSetting("tncConfig", "tncConfig", "{}"));
+    registry.addIfAbsent(new SystemSetting("custodianOrgId", "custodianOrgId", "org4"));
+    assertEquals("org1", registry.getSetting("custodianOrgId").getValue());
+    assertEquals(3, registry.getAllSettings().size());
+  }
+
+  @SafeVarargs
+  private final void mockSettings(Map<String, Object>... settings) {
+    List<Map<String, Object>> records = new ArrayList<>();
+    for (Map<String, Object> setting : settings) {
+      records.add(setting);
+    }
+    Response response = new Response();
+    response.put(JsonKey.RESPONSE, records);
+    when(cassandraOperation.getAllRecords(JsonKey.SUNBIRD, JsonKey.SYSTEM_SETTINGS_DB))
+        .thenReturn(response);
+  }
+
+  private Map<String, Object> getSetting(String field, String value) {
+    Map<String, Object> setting = new HashMap<>();
+    setting.put(JsonKey.ID, field);
+    setting.put(JsonKey.FIELD, field);
+    setting.put(JsonKey.VALUE, value);
+    return setting;
+  }
+}
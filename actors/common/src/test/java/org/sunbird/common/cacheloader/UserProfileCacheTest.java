@@ -0,0 +1,108 @@
+package org.sunbird.common.cacheloader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import akka.dispatch.ExecutionContexts;
+import akka.dispatch.Futures;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import scala.concurrent.Await;
+import scala.concurrent.ExecutionContextExecutor;
+import scala.concurrent.Future;
+import scala.concurrent.duration.Duration;
+
+public class UserProfileCacheTest {
+
+  private static final ExecutionContextExecutor ec =
+      ExecutionContexts.fromExecutor(Executors.newFixedThreadPool(2));
+  private UserProfileCache userProfileCache = UserProfileCache.getInstance();
+
+  @Test
+  public void testGetReturnsCopyOfCachedProfileSuccess() throws Exception {
+    AtomicInteger loads = new AtomicInteger();
+    Map<String, Object> first =
+        get("cachedUser", "public", () -> Futures.successful(getProfile(loads)));
+    ((List<Object>) first.get("organisations")).clear();
+    Map<String, Object> second =
+        get("cachedUser", "public", () -> Futures.successful(getProfile(loads)));
+    assertEquals(1, loads.get());
+    assertNotSame(first, second);
+    assertEquals(1, ((List<Object>) second.get("organisations")).size());
+  }
+
+  @Test
+  public void testGetCachesViewsSeparatelySuccess() throws Exception {
+    AtomicInteger loads = new AtomicInteger();
+    get("viewUser", "public", () -> Futures.successful(getProfile(loads)));
+    get("viewUser", "private", () -> Futures.successful(getProfile(loads)));
+    get("viewUser", "private", () -> Futures.successful(getProfile(loads)));
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  public void testInvalidateReloadsAllViewsSuccess() throws Exception {
+    AtomicInteger loads = new AtomicInteger();
+    get("updatedUser", "public", () -> Futures.successful(getProfile(loads)));
+    get("updatedUser", "private", () -> Futures.successful(getProfile(loads)));
+    userProfileCache.invalidate("updatedUser");
+    get("updatedUser", "public", () -> Futures.successful(getProfile(loads)));
+    get("updatedUser", "private", () -> Futures.successful(getProfile(loads)));
+    assertEquals(4, loads.get());
+  }
+
+  @Test
+  public void testGetDoesNotCacheProfileInvalidatedWhileLoadingSuccess() throws Exception {
+    AtomicInteger loads = new AtomicInteger();
+    get(
+        "racingUser",
+        "public",
+        () -> {
+          userProfileCache.invalidate("racingUser");
+          return Futures.successful(getProfile(loads));
+        });
+    get("racingUser", "public", () -> Futures.successful(getProfile(loads)));
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  public void testGetDoesNotCacheDegradedProfileSuccess() throws Exception {
+    AtomicInteger loads = new AtomicInteger();
+    Map<String, Object> degraded =
+        get(
+            "degradedUser",
+            "public",
+            () -> {
+              Map<String, Object> profile = getProfile(loads);
+              UserProfileCache.markDegraded(profile);
+              return Futures.successful(profile);
+            });
+    assertEquals(1, degraded.size());
+    get("degradedUser", "public", () -> Futures.successful(getProfile(loads)));
+    get("degradedUser", "public", () -> Futures.successful(getProfile(loads)));
+    assertEquals(2, loads.get());
+  }
+
+  private Map<String, Object> get(
+      String userId, String view, Callable<Future<Map<String, Object>>> loader)
+      throws Exception {
+    return Await.result(
+        userProfileCache.get(userId, view, loader, ec), Duration.create(5, TimeUnit.SECONDS));
+  }
+
+  private Map<String, Object> getProfile(AtomicInteger loads) {
+    loads.incrementAndGet();
+    List<Object> organisations = new ArrayList<>();
+    organisations.add(new HashMap<>());
+    Map<String, Object> profile = new HashMap<>();
+    profile.put("organisations", organisations);
+    return profile;
+  }
+}
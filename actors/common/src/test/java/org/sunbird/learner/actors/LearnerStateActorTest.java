@@ -270,9 +270,9 @@ public class LearnerStateActorTest {
     l1.add(getMapforCourse("q3", "q3", "third"));
     courses.put(JsonKey.CONTENTS, l1);
 
-    when(ContentSearchUtil.searchContentSync(
-            Mockito.anyString(), Mockito.anyString(), Mockito.anyMap()))
-        .thenReturn(courses);
+    when(ContentSearchUtil.searchContent(
+            Mockito.anyString(), Mockito.anyString(), Mockito.anyMap(), Mockito.any()))
+        .thenReturn(Futures.successful(courses));
   }
 
   private Map<String, Object> getMapforCourse(String id, String cId, String cName) {
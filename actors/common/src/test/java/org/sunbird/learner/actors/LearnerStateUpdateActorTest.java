@@ -72,20 +72,35 @@ public class LearnerStateUpdateActorTest {
             Mockito.anyString(), Mockito.anyString(), Mockito.anyString(), Mockito.anyString()))
         .thenReturn(getCassandraRecordByProperty());
 
-    when(cassandraOperation.getRecordById(
-            Mockito.anyString(), Mockito.anyString(), Mockito.anyString()))
-        .thenReturn(getCassandraRecordById());
+    mockRecordsByIds(getCassandraRecordById());
+  }
+
+  @SuppressWarnings("unchecked")
+  private void mockRecordsByIds(Map<String, Object> record) {
+    when(cassandraOperation.getRecordsByIdsWithSpecifiedColumns(
+            Mockito.anyString(), Mockito.anyString(), Mockito.anyList(), Mockito.anyList()))
+        .thenAnswer(
+            invocation -> {
+              List<Map<String, Object>> records = new ArrayList<>();
+              if (record != null) {
+                for (Object id : (List<Object>) invocation.getArguments()[3]) {
+                  Map<String, Object> copy = new HashMap<>(record);
+                  copy.put(JsonKey.ID, id);
+                  records.add(copy);
+                }
+              }
+              Response response = new Response();
+              response.put(JsonKey.RESPONSE, records);
+              return response;
+            });
   }
 
   private Response getCassandraRecordByProperty() {
     return new Response();
   }
 
-  private Response getCassandraRecordById() {
-
-    Response response = new Response();
-    List<Map> list = new ArrayList<>();
-    Map<String, Object> map = new HashMap();
+  private Map<String, Object> getCassandraRecordById() {
+    Map<String, Object> map = new HashMap<>();
     map.put(JsonKey.ID, "anyID");
     map.put(JsonKey.START_DATE, "2019-01-01");
     map.put(JsonKey.END_DATE, "2019-01-30");
@@ -93,9 +108,7 @@ public class LearnerStateUpdateActorTest {
     map.put(JsonKey.CONTENT_PROGRESS, 2);
     map.put(JsonKey.LAST_ACCESS_TIME, "2014-07-04 12:08:56:235-0700");
     map.put(JsonKey.LAST_COMPLETED_TIME, "2014-07-05 12:08:56:235-0700");
-    list.add(map);
-    response.put(JsonKey.RESPONSE, list);
-    return response;
+    return map;
   }
 
   private static Response getSuccessResponse() {
@@ -169,9 +182,7 @@ public class LearnerStateUpdateActorTest {
     req.setOperation(ActorOperations.ADD_CONTENT.getValue());
     req.setRequest(innerMap);
 
-    when(cassandraOperation.getRecordById(
-            Mockito.anyString(), Mockito.anyString(), Mockito.anyString()))
-        .thenReturn(getCassandraEmptyRecordById());
+    mockRecordsByIds(null);
 
     subject.tell(req, probe.getRef());
     Response response = probe.expectMsgClass(duration("10 second"), Response.class);
@@ -180,13 +191,6 @@ public class LearnerStateUpdateActorTest {
     Assert.assertEquals(1, list.size());
   }
 
-  private Response getCassandraEmptyRecordById() {
-    Response response = new Response();
-    List<Map<String, Object>> list = new ArrayList<>();
-    response.put(JsonKey.RESPONSE, list);
-    return response;
-  }
-
   @Test
   public void updateContentTestWithInvalidDateFormat() throws Throwable {
 
@@ -204,9 +208,7 @@ public class LearnerStateUpdateActorTest {
     req.setOperation(ActorOperations.ADD_CONTENT.getValue());
     req.setRequest(innerMap);
 
-    when(cassandraOperation.getRecordById(
-            Mockito.anyString(), Mockito.anyString(), Mockito.anyString()))
-        .thenReturn(getCassandraRecordByIdDateImproper());
+    mockRecordsByIds(getCassandraRecordByIdDateImproper());
 
     subject.tell(req, probe.getRef());
     subject.tell(req, probe.getRef());
@@ -215,11 +217,8 @@ public class LearnerStateUpdateActorTest {
     Assert.assertTrue(null != exc);
   }
 
-  private Response getCassandraRecordByIdDateImproper() {
-
-    Response response = new Response();
-    List<Map> list = new ArrayList<>();
-    Map<String, Object> map = new HashMap();
+  private Map<String, Object> getCassandraRecordByIdDateImproper() {
+    Map<String, Object> map = new HashMap<>();
     map.put(JsonKey.ID, "anyID");
     map.put(JsonKey.START_DATE, "2019-01-01");
     map.put(JsonKey.END_DATE, "2019-01-30");
@@ -227,9 +226,7 @@ public class LearnerStateUpdateActorTest {
     map.put(JsonKey.CONTENT_PROGRESS, 2);
     map.put(JsonKey.LAST_ACCESS_TIME, "2014-07-04");
     map.put(JsonKey.LAST_COMPLETED_TIME, "2014-07-05");
-    list.add(map);
-    response.put(JsonKey.RESPONSE, list);
-    return response;
+    return map;
   }
 
   private Map<String, Object> createContent() {
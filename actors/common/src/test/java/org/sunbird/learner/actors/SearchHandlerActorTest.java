@@ -1,6 +1,7 @@
 package org.sunbird.learner.actors;
 
 import static akka.testkit.JavaTestKit.duration;
+import static org.mockito.Mockito.verify;
 import static org.powermock.api.mockito.PowerMockito.mock;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
 import static org.powermock.api.mockito.PowerMockito.when;
@@ -19,6 +20,7 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PowerMockIgnore;
@@ -164,6 +166,38 @@ public class SearchHandlerActorTest {
     Assert.assertTrue(null != res.get(JsonKey.RESPONSE));
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  public void searchUserWithCursor() {
+    TestKit probe = new TestKit(system);
+    ActorRef subject = system.actorOf(props);
+
+    Request reqObj = new Request();
+    reqObj.setOperation(ActorOperations.COMPOSITE_SEARCH.getValue());
+    HashMap<String, Object> innerMap = new HashMap<>();
+    Map<String, Object> filters = new HashMap<>();
+    List<String> objectType = new ArrayList<String>();
+    objectType.add("user");
+    filters.put(JsonKey.OBJECT_TYPE, objectType);
+    innerMap.put(JsonKey.FILTERS, filters);
+    innerMap.put(JsonKey.LIMIT, 1);
+    innerMap.put(SearchHandlerActor.CURSOR, "anyUserId");
+    reqObj.setRequest(innerMap);
+    reqObj.setContext(new HashMap<>());
+
+    subject.tell(reqObj, probe.getRef());
+    Response res = probe.expectMsgClass(duration("200 second"), Response.class);
+    Map<String, Object> result = (Map<String, Object>) res.get(JsonKey.RESPONSE);
+    Assert.assertTrue(result.containsKey(SearchHandlerActor.NEXT_CURSOR));
+    ArgumentCaptor<SearchDTO> searchDto = ArgumentCaptor.forClass(SearchDTO.class);
+    verify(esService).search(searchDto.capture(), Mockito.anyVararg());
+    Assert.assertEquals(JsonKey.ASC, searchDto.getValue().getSortBy().get(JsonKey.ID));
+    Map<String, Object> searchFilters =
+        (Map<String, Object>) searchDto.getValue().getAdditionalProperties().get(JsonKey.FILTERS);
+    Assert.assertEquals(
+        "anyUserId", ((Map<String, Object>) searchFilters.get(JsonKey.ID)).get(">"));
+  }
+
   @Test
   public void testInvalidOperation() {
     TestKit probe = new TestKit(system);
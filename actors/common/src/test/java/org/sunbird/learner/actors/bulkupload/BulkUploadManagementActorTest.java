@@ -20,15 +20,18 @@ import java.util.List;
 import java.util.Map;
 import org.junit.*;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PowerMockIgnore;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 import org.sunbird.cassandraimpl.CassandraOperationImpl;
+import org.sunbird.common.Constants;
 import org.sunbird.common.exception.ProjectCommonException;
 import org.sunbird.common.models.response.Response;
 import org.sunbird.common.models.util.ActorOperations;
+import org.sunbird.common.models.util.BulkUploadJsonKey;
 import org.sunbird.common.models.util.JsonKey;
 import org.sunbird.common.models.util.ProjectLogger;
 import org.sunbird.common.models.util.ProjectUtil;
@@ -168,6 +171,73 @@ public class BulkUploadManagementActorTest {
     }
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testBulkUploadGetStatusReadsOnePageOfTasksSuccess() {
+    when(cassandraOperation.getRecordById(
+            Mockito.anyString(), Mockito.anyString(), Mockito.anyString(), Mockito.anyList()))
+        .thenReturn(getCassandraRecordByIdForBulkUploadResponse());
+    List<Map<String, Object>> tasks = new ArrayList<>();
+    tasks.add(getTaskRow(11, ProjectUtil.BulkProcessStatus.COMPLETED.getValue()));
+    tasks.add(getTaskRow(12, ProjectUtil.BulkProcessStatus.FAILED.getValue()));
+    Response taskResponse = new Response();
+    taskResponse.put(JsonKey.RESPONSE, tasks);
+    ArgumentCaptor<Map> queryCaptor = ArgumentCaptor.forClass(Map.class);
+    when(cassandraOperation.getRecordById(
+            Mockito.anyString(), Mockito.anyString(), queryCaptor.capture()))
+        .thenReturn(taskResponse);
+    TestKit probe = new TestKit(system);
+    ActorRef subject = system.actorOf(props);
+    Request reqObj = new Request();
+    reqObj.setOperation(ActorOperations.GET_BULK_OP_STATUS.getValue());
+    reqObj.getRequest().put(JsonKey.PROCESS_ID, PROCESS_ID);
+    reqObj.getRequest().put(JsonKey.OFFSET, 10);
+    reqObj.getRequest().put(JsonKey.LIMIT, 2);
+    subject.tell(reqObj, probe.getRef());
+    Response res = probe.expectMsgClass(duration("10 second"), Response.class);
+
+    Map<String, Object> range =
+        (Map<String, Object>) queryCaptor.getValue().get(BulkUploadJsonKey.SEQUENCE_ID);
+    Assert.assertEquals(10, range.get(Constants.GT));
+    Assert.assertEquals(12, range.get(Constants.LTE));
+    Map<String, Object> map = ((List<Map<String, Object>>) res.get(JsonKey.RESPONSE)).get(0);
+    Assert.assertEquals(1, ((List) map.get(JsonKey.SUCCESS_RESULT)).size());
+    Assert.assertEquals(1, ((List) map.get(JsonKey.FAILURE_RESULT)).size());
+    Assert.assertEquals(10, map.get(JsonKey.OFFSET));
+    Assert.assertEquals(2, map.get(JsonKey.LIMIT));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testBulkUploadGetStatusDefaultsInvalidPagingSuccess() {
+    when(cassandraOperation.getRecordById(
+            Mockito.anyString(), Mockito.anyString(), Mockito.anyString(), Mockito.anyList()))
+        .thenReturn(getCassandraRecordByIdForBulkUploadResponse());
+    Response taskResponse = new Response();
+    taskResponse.put(JsonKey.RESPONSE, new ArrayList<>());
+    ArgumentCaptor<Map> queryCaptor = ArgumentCaptor.forClass(Map.class);
+    when(cassandraOperation.getRecordById(
+            Mockito.anyString(), Mockito.anyString(), queryCaptor.capture()))
+        .thenReturn(taskResponse);
+    TestKit probe = new TestKit(system);
+    ActorRef subject = system.actorOf(props);
+    Request reqObj = new Request();
+    reqObj.setOperation(ActorOperations.GET_BULK_OP_STATUS.getValue());
+    reqObj.getRequest().put(JsonKey.PROCESS_ID, PROCESS_ID);
+    reqObj.getRequest().put(JsonKey.OFFSET, "-3");
+    reqObj.getRequest().put(JsonKey.LIMIT, 0);
+    subject.tell(reqObj, probe.getRef());
+    Response res = probe.expectMsgClass(duration("10 second"), Response.class);
+
+    Map<String, Object> range =
+        (Map<String, Object>) queryCaptor.getValue().get(BulkUploadJsonKey.SEQUENCE_ID);
+    Assert.assertEquals(0, range.get(Constants.GT));
+    Assert.assertEquals(1000, range.get(Constants.LTE));
+    Map<String, Object> map = ((List<Map<String, Object>>) res.get(JsonKey.RESPONSE)).get(0);
+    Assert.assertEquals(0, map.get(JsonKey.OFFSET));
+    Assert.assertEquals(1000, map.get(JsonKey.LIMIT));
+  }
+
   @Ignore
   public void testUserBulkUploadCreateUserSuccess() {
 
@@ -316,6 +386,20 @@ public class BulkUploadManagementActorTest {
     return response;
   }
 
+  private Map<String, Object> getTaskRow(int sequenceId, int status) {
+    Map<String, Object> task = new HashMap<>();
+    task.put(JsonKey.PROCESS_ID, PROCESS_ID);
+    task.put("sequenceId", sequenceId);
+    task.put(JsonKey.STATUS, status);
+    String result = "{\"" + JsonKey.NAME + "\":\"org" + sequenceId + "\"}";
+    if (ProjectUtil.BulkProcessStatus.COMPLETED.getValue() == status) {
+      task.put("successResult", result);
+    } else {
+      task.put("failureResult", result);
+    }
+    return task;
+  }
+
   private Response getCassandraRecordByIdForOrgResponse() {
     Response response = new Response();
     List<Map<String, Object>> list = new ArrayList<>();
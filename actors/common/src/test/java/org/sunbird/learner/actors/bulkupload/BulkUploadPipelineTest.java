@@ -0,0 +1,177 @@
+package org.sunbird.learner.actors.bulkupload;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.sunbird.common.Constants;
+import org.sunbird.common.models.util.BulkUploadJsonKey;
+import org.sunbird.common.models.util.ProjectUtil;
+import org.sunbird.learner.actors.bulkupload.dao.BulkUploadProcessTaskDao;
+import org.sunbird.learner.actors.bulkupload.model.BulkUploadProcess;
+import org.sunbird.learner.actors.bulkupload.model.BulkUploadProcessTask;
+
+public class BulkUploadPipelineTest {
+
+  private static final int BATCH_SIZE = 4;
+
+  private BulkUploadProcessTaskDao taskDao;
+  private List<BulkUploadProcessTask> tasks;
+  private List<Integer> statusWrites;
+  private List<Integer> results;
+  private Map<Integer, String> threads;
+  private List<Integer> processed;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    tasks = new ArrayList<>();
+    statusWrites = Collections.synchronizedList(new ArrayList<>());
+    results = new ArrayList<>();
+    threads = new ConcurrentHashMap<>();
+    processed = Collections.synchronizedList(new ArrayList<>());
+    taskDao = mock(BulkUploadProcessTaskDao.class);
+    when(taskDao.readByPrimaryKeys(Mockito.anyMap()))
+        .thenAnswer(
+            invocation -> {
+              Map<String, Object> query = (Map<String, Object>) invocation.getArguments()[0];
+              Map<String, Object> range =
+                  (Map<String, Object>) query.get(BulkUploadJsonKey.SEQUENCE_ID);
+              int from = (Integer) range.get(Constants.GT);
+              int to = Math.min((Integer) range.get(Constants.LTE), tasks.size());
+              return from < to ? new ArrayList<>(tasks.subList(from, to)) : null;
+            });
+  }
+
+  @Test
+  public void testGetLanesKeepsTasksWithSameValueTogetherSuccess() {
+    List<BulkUploadProcessTask> window =
+        Arrays.asList(
+            getTask(1, "email:a"),
+            getTask(2, "phone:1"),
+            getTask(3, "email:a", "phone:2"),
+            getTask(4, "phone:1"),
+            getTask(5),
+            getTask(6, "phone:2"));
+    List<List<BulkUploadProcessTask>> lanes = getPipeline(4).getLanes(window);
+    Assert.assertEquals(3, lanes.size());
+    Assert.assertEquals(Arrays.asList(1, 3, 6), getSequenceIds(lanes.get(0)));
+    Assert.assertEquals(Arrays.asList(2, 4), getSequenceIds(lanes.get(1)));
+    Assert.assertEquals(Arrays.asList(5), getSequenceIds(lanes.get(2)));
+  }
+
+  @Test
+  public void testGetLanesWithoutUniqueValuesSpreadsTasksSuccess() {
+    List<BulkUploadProcessTask> window =
+        Arrays.asList(getTask(1), getTask(2), getTask(3), getTask(4), getTask(5));
+    List<List<BulkUploadProcessTask>> lanes = getPipeline(2).getLanes(window);
+    Assert.assertEquals(Arrays.asList(1, 3, 5), getSequenceIds(lanes.get(0)));
+    Assert.assertEquals(Arrays.asList(2, 4), getSequenceIds(lanes.get(1)));
+  }
+
+  @Test
+  public void testRunProcessesTasksWithSameValueOnOneThreadInOrderSuccess() {
+    for (int i = 1; i <= 10; i++) {
+      tasks.add(getTask(i, i % 2 == 0 ? "email:even" : "email:odd" + i));
+    }
+    run(getPipeline(4));
+
+    Assert.assertEquals(10, processed.size());
+    Assert.assertEquals(getRange(1, 10), results);
+    Assert.assertEquals(getRange(1, 10), statusWrites);
+    // the even rows of a window share one email
+    Assert.assertEquals(threads.get(2), threads.get(4));
+    Assert.assertEquals(threads.get(6), threads.get(8));
+    Assert.assertTrue(processed.indexOf(2) < processed.indexOf(4));
+    Assert.assertTrue(processed.indexOf(6) < processed.indexOf(8));
+  }
+
+  @Test
+  public void testRunSkipsCommittedWindowsSuccess() {
+    for (int i = 1; i <= 6; i++) {
+      BulkUploadProcessTask task = getTask(i);
+      if (i <= BATCH_SIZE) {
+        task.setStatus(ProjectUtil.BulkProcessStatus.COMPLETED.getValue());
+      }
+      tasks.add(task);
+    }
+    run(getPipeline(2));
+
+    Assert.assertEquals(Arrays.asList(5, 6), sorted(processed));
+    Assert.assertEquals(Arrays.asList(5, 6), statusWrites);
+    Assert.assertEquals(getRange(1, 6), results);
+  }
+
+  private void run(BulkUploadPipeline pipeline) {
+    BulkUploadProcess process = new BulkUploadProcess();
+    process.setId("process1");
+    process.setTaskCount(tasks.size());
+    pipeline.run(
+        process,
+        lane -> {
+          for (Object task : (List<?>) lane) {
+            Integer sequenceId = ((BulkUploadProcessTask) task).getSequenceId();
+            threads.put(sequenceId, Thread.currentThread().getName());
+            processed.add(sequenceId);
+          }
+          return null;
+        },
+        window -> results.addAll(getSequenceIds(window)),
+        "BulkUploadPipelineTest: ");
+  }
+
+  private BulkUploadPipeline getPipeline(int parallelism) {
+    return new BulkUploadPipeline(
+        taskDao,
+        BATCH_SIZE,
+        parallelism,
+        this::getUniqueValues,
+        window -> statusWrites.addAll(getSequenceIds(window)));
+  }
+
+  private Collection<String> getUniqueValues(BulkUploadProcessTask task) {
+    return task.getData().isEmpty()
+        ? Collections.emptyList()
+        : Arrays.asList(task.getData().split(","));
+  }
+
+  private BulkUploadProcessTask getTask(int sequenceId, String... uniqueValues) {
+    BulkUploadProcessTask task = new BulkUploadProcessTask();
+    task.setSequenceId(sequenceId);
+    task.setStatus(ProjectUtil.BulkProcessStatus.NEW.getValue());
+    task.setData(String.join(",", uniqueValues));
+    return task;
+  }
+
+  private List<Integer> getSequenceIds(List<BulkUploadProcessTask> window) {
+    List<Integer> sequenceIds = new ArrayList<>();
+    for (BulkUploadProcessTask task : window) {
+      sequenceIds.add(task.getSequenceId());
+    }
+    return sequenceIds;
+  }
+
+  private List<Integer> getRange(int from, int to) {
+    List<Integer> range = new ArrayList<>();
+    for (int i = from; i <= to; i++) {
+      range.add(i);
+    }
+    return range;
+  }
+
+  private List<Integer> sorted(List<Integer> values) {
+    List<Integer> copy = new ArrayList<>(values);
+    Collections.sort(copy);
+    return copy;
+  }
+}
@@ -0,0 +1,99 @@
+package org.sunbird.learner.actors.bulkupload;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+import org.sunbird.common.models.util.JsonKey;
+import org.sunbird.common.models.util.ProjectUtil;
+import org.sunbird.learner.actors.bulkupload.model.BulkUploadProcessTask;
+
+public class BulkUploadResultWriterTest {
+
+  private static final int ROWS = 1000;
+  private ObjectMapper mapper = new ObjectMapper();
+
+  @Test
+  public void testWriteResultsWithFailuresAfterSuccess() throws IOException {
+    try (BulkUploadResultWriter writer = getWriter()) {
+      writer.add(getTask(ProjectUtil.BulkProcessStatus.FAILED.getValue(), "first"));
+      writer.add(getTask(ProjectUtil.BulkProcessStatus.COMPLETED.getValue(), "second"));
+      writer.add(getTask(ProjectUtil.BulkProcessStatus.NEW.getValue(), "third"));
+      File file = writer.finish();
+      try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+        Assert.assertTrue(reader.readLine().startsWith("\"Name\","));
+        Assert.assertTrue(reader.readLine().startsWith("\"second\",\"" + JsonKey.SUCCESS));
+        Assert.assertTrue(reader.readLine().startsWith("\"first\",\"" + JsonKey.FAILED));
+        Assert.assertNull(reader.readLine());
+      }
+      Assert.assertEquals(1, writer.getSuccessCount());
+      Assert.assertEquals(1, writer.getFailureCount());
+    }
+  }
+
+  @Test
+  public void testAddWritesRowWithoutKeepingTaskSuccess() throws IOException {
+    List<BulkUploadProcessTask> tasks = new ArrayList<>();
+    File file;
+    try (BulkUploadResultWriter writer = getWriter()) {
+      for (int i = 0; i < ROWS; i++) {
+        BulkUploadProcessTask task =
+            getTask(
+                i % 2 == 0
+                    ? ProjectUtil.BulkProcessStatus.COMPLETED.getValue()
+                    : ProjectUtil.BulkProcessStatus.FAILED.getValue(),
+                "name" + i);
+        writer.add(task);
+        tasks.add(task);
+      }
+      // the rows are serialised by add, later changes to the tasks do not reach the file
+      for (BulkUploadProcessTask task : tasks) {
+        task.setStatus(null);
+        task.setSuccessResult(null);
+        task.setFailureResult(null);
+      }
+      file = writer.finish();
+      try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+        Assert.assertTrue(reader.readLine().startsWith("\"Name\","));
+        for (int i = 0; i < ROWS; i += 2) {
+          Assert.assertTrue(reader.readLine().startsWith("\"name" + i + "\","));
+        }
+        for (int i = 1; i < ROWS; i += 2) {
+          Assert.assertTrue(reader.readLine().startsWith("\"name" + i + "\","));
+        }
+        Assert.assertNull(reader.readLine());
+      }
+      Assert.assertEquals(ROWS / 2, writer.getSuccessCount());
+      Assert.assertEquals(ROWS / 2, writer.getFailureCount());
+    }
+    Assert.assertFalse(file.exists());
+  }
+
+  private BulkUploadResultWriter getWriter() throws IOException {
+    Map<String, String> outputColumns = new HashMap<>();
+    outputColumns.put(JsonKey.NAME, "Name");
+    return new BulkUploadResultWriter(
+        JsonKey.USER, outputColumns, new String[] {JsonKey.NAME}, result -> {});
+  }
+
+  private BulkUploadProcessTask getTask(int status, String name) throws IOException {
+    BulkUploadProcessTask task = new BulkUploadProcessTask();
+    task.setStatus(status);
+    Map<String, Object> row = new HashMap<>();
+    row.put(JsonKey.NAME, name);
+    if (ProjectUtil.BulkProcessStatus.FAILED.getValue() == status) {
+      row.put(JsonKey.ERROR_MSG, "invalid");
+      task.setFailureResult(mapper.writeValueAsString(row));
+    } else {
+      task.setSuccessResult(mapper.writeValueAsString(row));
+    }
+    return task;
+  }
+}
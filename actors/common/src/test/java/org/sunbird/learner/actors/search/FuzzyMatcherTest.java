@@ -0,0 +1,52 @@
+package org.sunbird.learner.actors.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class FuzzyMatcherTest {
+
+  private FuzzyMatcher fuzzyMatcher = new FuzzyMatcher(0.5f);
+
+  @Test
+  public void testMatchIgnoresCaseAndAccentsSuccess() {
+    assertEquals(Arrays.asList("1"), getIndex().match("JOS\u00C9", 0));
+  }
+
+  @Test
+  public void testMatchWithMisspelledNameSuccess() {
+    assertEquals(Arrays.asList("2"), getIndex().match("Ramesh Kumarr", 0));
+  }
+
+  @Test
+  public void testMatchWithUnknownNameReturnsEmpty() {
+    assertTrue(getIndex().match("Zyx", 0).isEmpty());
+  }
+
+  @Test
+  public void testMatchReturnsTopMatchesFirstSuccess() {
+    assertEquals(Arrays.asList("3", "4"), getIndex().match("Anita Sharma", 0));
+    assertEquals(Arrays.asList("3"), getIndex().match("Anita Sharma", 1));
+  }
+
+  @Test
+  public void testSoundexSuccess() {
+    assertEquals("r163", FuzzyMatcher.soundex("robert"));
+    assertEquals("r163", FuzzyMatcher.soundex("rupert"));
+    assertEquals("a261", FuzzyMatcher.soundex("ashcraft"));
+  }
+
+  private FuzzyMatcher.Index getIndex() {
+    Map<String, String> candidates = new LinkedHashMap<>();
+    candidates.put("1", "Jose");
+    candidates.put("2", "Kumar");
+    candidates.put("3", "Anita Sharma");
+    candidates.put("4", "Anitha");
+    candidates.put("5", null);
+    return fuzzyMatcher.index(candidates);
+  }
+}
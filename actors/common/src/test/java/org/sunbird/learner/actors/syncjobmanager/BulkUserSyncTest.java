@@ -0,0 +1,85 @@
+package org.sunbird.learner.actors.syncjobmanager;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import akka.dispatch.Futures;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.sunbird.common.inf.ElasticSearchService;
+import org.sunbird.common.models.util.JsonKey;
+import org.sunbird.learner.util.UserDetailsAssembler;
+
+public class BulkUserSyncTest {
+
+  private ElasticSearchService esService;
+  private UserDetailsAssembler assembler;
+  private BulkUserSync bulkUserSync;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    esService = mock(ElasticSearchService.class);
+    assembler = mock(UserDetailsAssembler.class);
+    bulkUserSync = new BulkUserSync(esService, assembler);
+    when(assembler.getUserDetails(Mockito.anyCollection(), Mockito.any()))
+        .thenAnswer(
+            invocation -> {
+              Map<String, Map<String, Object>> documents = new HashMap<>();
+              for (String userId : (Collection<String>) invocation.getArguments()[0]) {
+                if (!userId.startsWith("missing")) {
+                  Map<String, Object> document = new HashMap<>();
+                  document.put(JsonKey.ID, userId);
+                  documents.put(userId, document);
+                }
+              }
+              return CompletableFuture.completedFuture(documents);
+            });
+  }
+
+  @Test
+  public void testSyncWithBulkSuccess() {
+    when(esService.bulkInsert(Mockito.anyString(), Mockito.anyList()))
+        .thenReturn(Futures.successful(true));
+    List<String> failedIds = bulkUserSync.sync(getUserIds(250), null);
+    Assert.assertTrue(failedIds.isEmpty());
+    verify(esService, times(3)).bulkInsert(Mockito.anyString(), Mockito.anyList());
+    verify(esService, never()).save(Mockito.anyString(), Mockito.anyString(), Mockito.anyMap());
+  }
+
+  @Test
+  public void testSyncWithBulkFailureSavesEachDocument() {
+    when(esService.bulkInsert(Mockito.anyString(), Mockito.anyList()))
+        .thenReturn(Futures.successful(false));
+    when(esService.save(Mockito.anyString(), Mockito.anyString(), Mockito.anyMap()))
+        .thenAnswer(invocation -> Futures.successful((String) invocation.getArguments()[1]));
+    when(esService.save(Mockito.anyString(), Mockito.eq("user1"), Mockito.anyMap()))
+        .thenReturn(Futures.successful(""));
+    List<Object> userIds = getUserIds(3);
+    userIds.add("missing0");
+    List<String> failedIds = bulkUserSync.sync(userIds, null);
+    Assert.assertEquals(Arrays.asList("missing0", "user1"), failedIds);
+    verify(esService, times(4))
+        .save(Mockito.anyString(), Mockito.eq("user1"), Mockito.anyMap());
+  }
+
+  private List<Object> getUserIds(int count) {
+    List<Object> userIds = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      userIds.add("user" + i);
+    }
+    return userIds;
+  }
+}
@@ -0,0 +1,117 @@
+package org.sunbird.learner.actors.syncjobmanager;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import akka.dispatch.ExecutionContexts;
+import akka.dispatch.Futures;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.sunbird.common.inf.ElasticSearchService;
+import org.sunbird.common.models.util.JsonKey;
+import scala.concurrent.ExecutionContextExecutor;
+
+public class EsReindexerTest {
+
+  private static final ExecutionContextExecutor ec =
+      ExecutionContexts.fromExecutor(Executors.newFixedThreadPool(2));
+
+  private File checkpointDir;
+  private File checkpointFile;
+  private List<String> sent;
+  private Set<String> failing;
+  private EsReindexer reindexer;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() throws IOException {
+    checkpointDir = Files.createTempDirectory("es-reindex").toFile();
+    checkpointFile = new File(checkpointDir, "es-reindex-sunbird-user");
+    sent = Collections.synchronizedList(new ArrayList<>());
+    failing = new HashSet<>();
+    ElasticSearchService esService = mock(ElasticSearchService.class);
+    when(esService.bulkInsert(Mockito.anyString(), Mockito.anyList()))
+        .thenAnswer(
+            invocation -> {
+              boolean success = true;
+              for (Map<String, Object> document :
+                  (List<Map<String, Object>>) invocation.getArguments()[1]) {
+                String id = (String) document.get(JsonKey.ID);
+                sent.add(id);
+                success &= !failing.contains(id);
+              }
+              return Futures.successful(success);
+            });
+    // one bulk request per document and a checkpoint after every page
+    reindexer = new EsReindexer(esService, ec, 1, 1, 1);
+  }
+
+  @After
+  public void tearDown() {
+    FileUtils.deleteQuietly(checkpointDir);
+  }
+
+  @Test
+  public void testReindexDeletesCheckpointSuccess() throws Exception {
+    run(null);
+    Assert.assertEquals(Arrays.asList("r0", "r1", "r2", "r3", "r4", "r5"), sent);
+    Assert.assertFalse(checkpointFile.exists());
+  }
+
+  @Test
+  public void testRerunResendsRowsOfFailedBulkSuccess() throws Exception {
+    failing.add("r2");
+    run(null);
+    Assert.assertEquals("s1", readCheckpoint());
+
+    failing.clear();
+    sent.clear();
+    run(null);
+    Assert.assertEquals(Arrays.asList("r2", "r3", "r4", "r5"), sent);
+    Assert.assertFalse(checkpointFile.exists());
+  }
+
+  @Test
+  public void testFailureBeforeFirstCheckpointKeepsStartCheckpointSuccess() throws Exception {
+    failing.add("r2");
+    run("s1");
+    Assert.assertEquals("s1", readCheckpoint());
+  }
+
+  private void run(String checkpoint) throws Exception {
+    reindexer.run(
+        "user", this::readPage, checkpointFile, "user", checkpoint, document -> document);
+  }
+
+  private EsReindexer.Page readPage(String pagingState) {
+    int page = pagingState == null ? 0 : Integer.parseInt(pagingState.substring(1));
+    List<Map<String, Object>> rows = new ArrayList<>();
+    for (int i = page * 2; i < page * 2 + 2; i++) {
+      Map<String, Object> row = new HashMap<>();
+      row.put(JsonKey.ID, "r" + i);
+      rows.add(row);
+    }
+    return new EsReindexer.Page(rows, page < 2 ? "s" + (page + 1) : null);
+  }
+
+  private String readCheckpoint() throws IOException {
+    return new String(Files.readAllBytes(checkpointFile.toPath()), StandardCharsets.UTF_8);
+  }
+}
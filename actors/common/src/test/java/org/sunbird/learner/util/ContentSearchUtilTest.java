@@ -0,0 +1,45 @@
+package org.sunbird.learner.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+import java.util.Map;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Test;
+import org.sunbird.common.models.util.JsonKey;
+
+public class ContentSearchUtilTest {
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testGetResultMapSuccess() throws Exception {
+    BasicHttpResponse response = getResponse(200, getSearchResponseBody());
+    Map<String, Object> result = ContentSearchUtil.getResultMap(response);
+    assertEquals(1, ((List<Object>) result.get(JsonKey.CONTENTS)).size());
+    assertEquals(1, result.get("count"));
+    Map<String, Object> params = (Map<String, Object>) result.get(JsonKey.PARAMS);
+    assertEquals("msgId", params.get(JsonKey.RES_MSG_ID));
+    assertEquals("api.content.search", params.get(JsonKey.API_ID));
+  }
+
+  @Test
+  public void testGetResultMapFailureWithErrorStatus() throws Exception {
+    BasicHttpResponse response = getResponse(500, "{\"id\":\"api.content.search\"}");
+    assertNull(ContentSearchUtil.getResultMap(response));
+  }
+
+  private BasicHttpResponse getResponse(int status, String body) {
+    BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, status, null);
+    response.setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
+    return response;
+  }
+
+  private String getSearchResponseBody() {
+    return "{\"id\":\"api.content.search\",\"params\":{\"resmsgid\":\"msgId\"},"
+        + "\"result\":{\"count\":1,\"content\":[{\"identifier\":\"do_1\"}]}}";
+  }
+}
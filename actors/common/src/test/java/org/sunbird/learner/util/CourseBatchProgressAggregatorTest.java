@@ -0,0 +1,262 @@
+package org.sunbird.learner.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+import org.sunbird.cassandra.CassandraOperation;
+import org.sunbird.common.factory.EsClientFactory;
+import org.sunbird.common.inf.ElasticSearchService;
+import org.sunbird.common.models.response.Response;
+import org.sunbird.common.models.util.JsonKey;
+import org.sunbird.common.models.util.ProjectUtil.ProgressStatus;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({EsClientFactory.class})
+@PowerMockIgnore({"javax.management.*", "javax.net.ssl.*", "javax.security.*"})
+public class CourseBatchProgressAggregatorTest {
+
+  private static final String BATCH_ID = "batch1";
+
+  private CassandraOperation cassandraOperation;
+  private CourseBatchProgressAggregator aggregator;
+  private List<Runnable> rebuilds;
+
+  @Before
+  public void setUp() {
+    PowerMockito.mockStatic(EsClientFactory.class);
+    when(EsClientFactory.getInstance(Mockito.anyString()))
+        .thenReturn(Mockito.mock(ElasticSearchService.class));
+    cassandraOperation = Mockito.mock(CassandraOperation.class);
+    rebuilds = new ArrayList<>();
+    aggregator = new CourseBatchProgressAggregator(cassandraOperation, rebuilds::add);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testGetAggregateRebuildsMissingAggregateInBackgroundSuccess() {
+    mockStoredAggregate(null);
+    when(cassandraOperation.getRecordsByProperty(
+            Mockito.anyString(), Mockito.anyString(), Mockito.anyString(), Mockito.anyString()))
+        .thenReturn(
+            getResponse(
+                Arrays.asList(
+                    getEnrollment(true, 0, 4, ProgressStatus.NOT_STARTED.getValue()),
+                    getEnrollment(true, 4, 4, ProgressStatus.COMPLETED.getValue()),
+                    getEnrollment(false, 2, 4, ProgressStatus.STARTED.getValue()))));
+    Map<String, Object> aggregate = aggregator.getAggregate(BATCH_ID);
+    assertEquals(true, aggregate.get(CourseBatchProgressAggregator.BUILDING));
+    assertEquals(0, aggregate.get(CourseBatchProgressAggregator.ENROLLED_COUNT));
+    // a second read does not start another rebuild
+    aggregator.getAggregate(BATCH_ID);
+    assertEquals(1, rebuilds.size());
+    Mockito.verify(cassandraOperation, Mockito.never())
+        .getRecordsByProperty(
+            Mockito.anyString(), Mockito.anyString(), Mockito.anyString(), Mockito.anyString());
+
+    rebuilds.get(0).run();
+    ArgumentCaptor<Map> captor = ArgumentCaptor.forClass(Map.class);
+    Mockito.verify(cassandraOperation)
+        .upsertRecord(
+            Mockito.anyString(), Mockito.eq(CourseBatchProgressAggregator.TABLE), captor.capture());
+    aggregate = captor.getValue();
+    assertEquals(2, aggregate.get(CourseBatchProgressAggregator.ENROLLED_COUNT));
+    assertEquals(1, aggregate.get(CourseBatchProgressAggregator.COMPLETED_COUNT));
+    assertEquals(1, getBuckets(aggregate).get("0"));
+    assertEquals(0, getBuckets(aggregate).get("26-50"));
+    assertEquals(1, getBuckets(aggregate).get("100"));
+    assertFalse(aggregate.containsKey(CourseBatchProgressAggregator.BUILDING));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testInvalidateMarksAggregateForRebuildSuccess() {
+    aggregator.invalidate(BATCH_ID);
+    ArgumentCaptor<Map> captor = ArgumentCaptor.forClass(Map.class);
+    Mockito.verify(cassandraOperation)
+        .upsertRecord(
+            Mockito.anyString(), Mockito.eq(CourseBatchProgressAggregator.TABLE), captor.capture());
+    assertEquals(BATCH_ID, captor.getValue().get(JsonKey.ID));
+    assertTrue(captor.getValue().containsKey(CourseBatchProgressAggregator.REBUILT_ON));
+    assertNull(captor.getValue().get(CourseBatchProgressAggregator.REBUILT_ON));
+    Mockito.verify(cassandraOperation, Mockito.never())
+        .deleteRecord(Mockito.anyString(), Mockito.anyString(), Mockito.anyString());
+
+    // the marked aggregate keeps its counts until it is rebuilt
+    Map<String, Object> stored = new HashMap<>();
+    stored.put(CourseBatchProgressAggregator.ENROLLED_COUNT, 2);
+    mockStoredAggregate(stored);
+    Map<String, Object> aggregate = aggregator.getAggregate(BATCH_ID);
+    assertEquals(2, aggregate.get(CourseBatchProgressAggregator.ENROLLED_COUNT));
+    assertEquals(true, aggregate.get(CourseBatchProgressAggregator.BUILDING));
+    assertEquals(1, rebuilds.size());
+  }
+
+  @Test
+  public void testRebuildWaitsForRunningFlushSuccess() throws Exception {
+    Map<String, Object> stored = new HashMap<>();
+    stored.put(CourseBatchProgressAggregator.REBUILT_ON, System.currentTimeMillis());
+    CountDownLatch flushReading = new CountDownLatch(1);
+    CountDownLatch releaseFlush = new CountDownLatch(1);
+    when(cassandraOperation.getRecordById(
+            Mockito.anyString(),
+            Mockito.eq(CourseBatchProgressAggregator.TABLE),
+            Mockito.eq(BATCH_ID)))
+        .thenAnswer(
+            invocation -> {
+              flushReading.countDown();
+              releaseFlush.await();
+              return getResponse(Arrays.asList(stored));
+            });
+    when(cassandraOperation.getRecordsByProperty(
+            Mockito.anyString(), Mockito.anyString(), Mockito.anyString(), Mockito.anyString()))
+        .thenReturn(getResponse(new ArrayList<>()));
+    aggregator.enrolled(BATCH_ID, 0, false);
+    Thread flush = new Thread(aggregator::flush);
+    flush.start();
+    flushReading.await();
+    Thread rebuild = new Thread(() -> aggregator.rebuild(BATCH_ID));
+    rebuild.start();
+    rebuild.join(200);
+    assertTrue(rebuild.isAlive());
+    Mockito.verify(cassandraOperation, Mockito.never())
+        .getRecordsByProperty(
+            Mockito.anyString(), Mockito.anyString(), Mockito.anyString(), Mockito.anyString());
+
+    releaseFlush.countDown();
+    flush.join();
+    rebuild.join();
+    // the rebuild is written after the flushed delta, so the rebuilt counts are kept
+    InOrder inOrder = Mockito.inOrder(cassandraOperation);
+    inOrder
+        .verify(cassandraOperation)
+        .upsertRecord(
+            Mockito.anyString(), Mockito.eq(CourseBatchProgressAggregator.TABLE), Mockito.anyMap());
+    inOrder
+        .verify(cassandraOperation)
+        .getRecordsByProperty(
+            Mockito.anyString(), Mockito.anyString(), Mockito.anyString(), Mockito.anyString());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testRebuildDropsDeltasRecordedDuringReadSuccess() {
+    when(cassandraOperation.getRecordsByProperty(
+            Mockito.anyString(), Mockito.anyString(), Mockito.anyString(), Mockito.anyString()))
+        .thenAnswer(
+            invocation -> {
+              // an enrollment written and recorded while its batch is rebuilt
+              aggregator.enrolled(BATCH_ID, 0, false);
+              return getResponse(
+                  Arrays.asList(getEnrollment(true, 0, 4, ProgressStatus.NOT_STARTED.getValue())));
+            });
+    aggregator.rebuild(BATCH_ID);
+    ArgumentCaptor<Map> captor = ArgumentCaptor.forClass(Map.class);
+    Mockito.verify(cassandraOperation)
+        .upsertRecord(
+            Mockito.anyString(), Mockito.eq(CourseBatchProgressAggregator.TABLE), captor.capture());
+    assertEquals(1, captor.getValue().get(CourseBatchProgressAggregator.ENROLLED_COUNT));
+    assertEquals(0, aggregator.getMetrics().get("pendingBatches"));
+  }
+
+  @Test
+  public void testFlushAddsProgressDeltaSuccess() {
+    Map<String, Object> buckets = new HashMap<>();
+    buckets.put("0", 2);
+    Map<String, Object> stored = new HashMap<>();
+    stored.put(CourseBatchProgressAggregator.ENROLLED_COUNT, 2);
+    stored.put(CourseBatchProgressAggregator.COMPLETED_COUNT, 0);
+    stored.put(CourseBatchProgressAggregator.PROGRESS_BUCKETS, buckets);
+    stored.put(CourseBatchProgressAggregator.REBUILT_ON, System.currentTimeMillis());
+    mockStoredAggregate(stored);
+    aggregator.progressed(BATCH_ID, 0, false, 100, true);
+    aggregator.progressed(BATCH_ID, 0, false, 0, false);
+    assertEquals(1, getBuckets(aggregator.getAggregate(BATCH_ID)).get("100"));
+
+    aggregator.flush();
+    ArgumentCaptor<Map> captor = ArgumentCaptor.forClass(Map.class);
+    Mockito.verify(cassandraOperation)
+        .upsertRecord(
+            Mockito.anyString(), Mockito.eq(CourseBatchProgressAggregator.TABLE), captor.capture());
+    Map<String, Object> aggregate = captor.getValue();
+    assertEquals(2, aggregate.get(CourseBatchProgressAggregator.ENROLLED_COUNT));
+    assertEquals(1, aggregate.get(CourseBatchProgressAggregator.COMPLETED_COUNT));
+    assertEquals(1, getBuckets(aggregate).get("0"));
+    assertEquals(1, getBuckets(aggregate).get("100"));
+    assertEquals(0, aggregator.getMetrics().get("pendingBatches"));
+  }
+
+  @Test
+  public void testFlushDropsDeltaWithoutAggregateSuccess() {
+    mockStoredAggregate(null);
+    aggregator.enrolled(BATCH_ID, 0, false);
+    aggregator.flush();
+    Mockito.verify(cassandraOperation, Mockito.never())
+        .upsertRecord(Mockito.anyString(), Mockito.anyString(), Mockito.anyMap());
+    assertEquals(0, aggregator.getMetrics().get("pendingBatches"));
+  }
+
+  @Test
+  public void testGetProgressPercentageAndBucketSuccess() {
+    assertEquals(33, CourseBatchProgressAggregator.getProgressPercentage(1, 3));
+    assertEquals(100, CourseBatchProgressAggregator.getProgressPercentage(5, 4));
+    assertEquals(100, CourseBatchProgressAggregator.getProgressPercentage(0, null));
+    assertEquals(0, CourseBatchProgressAggregator.getBucket(0));
+    assertEquals(1, CourseBatchProgressAggregator.getBucket(25));
+    assertEquals(2, CourseBatchProgressAggregator.getBucket(26));
+    assertEquals(4, CourseBatchProgressAggregator.getBucket(99));
+    assertEquals(5, CourseBatchProgressAggregator.getBucket(100));
+  }
+
+  private void mockStoredAggregate(Map<String, Object> stored) {
+    List<Map<String, Object>> records = new ArrayList<>();
+    if (stored != null) {
+      records.add(stored);
+    }
+    when(cassandraOperation.getRecordById(
+            Mockito.anyString(),
+            Mockito.eq(CourseBatchProgressAggregator.TABLE),
+            Mockito.eq(BATCH_ID)))
+        .thenReturn(getResponse(records));
+  }
+
+  private Response getResponse(List<Map<String, Object>> records) {
+    Response response = new Response();
+    response.put(JsonKey.RESPONSE, records);
+    return response;
+  }
+
+  private Map<String, Object> getEnrollment(
+      boolean active, int progress, int leafNodeCount, int status) {
+    Map<String, Object> enrollment = new HashMap<>();
+    enrollment.put(JsonKey.BATCH_ID, BATCH_ID);
+    enrollment.put(JsonKey.ACTIVE, active);
+    enrollment.put(JsonKey.COURSE_PROGRESS, progress);
+    enrollment.put(JsonKey.LEAF_NODE_COUNT, leafNodeCount);
+    enrollment.put(JsonKey.STATUS, status);
+    return enrollment;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, Object> getBuckets(Map<String, Object> aggregate) {
+    return (Map<String, Object>) aggregate.get(CourseBatchProgressAggregator.PROGRESS_BUCKETS);
+  }
+}
@@ -0,0 +1,195 @@
+package org.sunbird.learner.util;
+
+import static org.junit.Assert.assertEquals;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class CourseProgressBufferTest {
+
+  private File journalDir;
+  private CourseProgressUpdater updater;
+  private Map<String, Integer> written;
+  private List<String> failing;
+  private List<String> crashing;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() throws IOException {
+    journalDir = Files.createTempDirectory("course-progress").toFile();
+    written = new HashMap<>();
+    failing = new ArrayList<>();
+    crashing = new ArrayList<>();
+    updater = Mockito.mock(CourseProgressUpdater.class);
+    Mockito.doAnswer(
+            invocation -> {
+              Collection<CourseProgressUpdate> updates =
+                  (Collection<CourseProgressUpdate>) invocation.getArguments()[0];
+              Consumer<CourseProgressUpdate> beforeWrite =
+                  (Consumer<CourseProgressUpdate>) invocation.getArguments()[2];
+              Consumer<String> onDone = (Consumer<String>) invocation.getArguments()[3];
+              for (CourseProgressUpdate update : updates) {
+                if (failing.contains(update.getKey())) {
+                  throw new RuntimeException("read timeout");
+                }
+                int progress =
+                    (update.getCourseProgress() == null
+                            ? written.getOrDefault(update.getKey(), 0)
+                            : update.getCourseProgress())
+                        + update.getProgress();
+                update.setCourseProgress(progress);
+                update.setProgress(0);
+                beforeWrite.accept(update);
+                written.put(update.getKey(), progress);
+                // the process dies after the write, before the update is marked as done
+                if (crashing.contains(update.getKey())) {
+                  throw new RuntimeException("crash");
+                }
+                onDone.accept(update.getKey());
+              }
+              return null;
+            })
+        .when(updater)
+        .update(Mockito.anyCollection(), Mockito.any(), Mockito.any(), Mockito.any());
+  }
+
+  @After
+  public void tearDown() {
+    FileUtils.deleteQuietly(journalDir);
+  }
+
+  @Test
+  public void testAddMergesUpdatesOfSameEnrollmentSuccess() throws IOException {
+    CourseProgressBuffer buffer = getBuffer();
+    buffer.add(new CourseProgressUpdate("k1", 1, "do_1", 2));
+    buffer.add(new CourseProgressUpdate("k1", 2, "do_2", 2));
+    assertEquals(1, buffer.getMetrics().get("bufferDepth"));
+    buffer.flush();
+    assertEquals(Integer.valueOf(3), written.get("k1"));
+    assertEquals(0, buffer.getMetrics().get("bufferDepth"));
+  }
+
+  @Test
+  public void testJournalIsReplayedAfterRestartSuccess() throws IOException {
+    CourseProgressBuffer buffer = getBuffer();
+    buffer.add(new CourseProgressUpdate("k1", 1, "do_1", 2));
+    buffer.add(new CourseProgressUpdate("k1", 2, "do_2", 2));
+    buffer.add(new CourseProgressUpdate("k2", 1, "do_1", 1));
+
+    CourseProgressBuffer restarted = getBuffer();
+    assertEquals(2, restarted.getMetrics().get("bufferDepth"));
+    restarted.flush();
+    assertEquals(Integer.valueOf(3), written.get("k1"));
+    assertEquals(Integer.valueOf(1), written.get("k2"));
+    assertEquals(0, getBuffer().getMetrics().get("bufferDepth"));
+  }
+
+  @Test
+  public void testReplaySkipsUpdatesListedInDoneFileSuccess() throws IOException {
+    ObjectMapper mapper = new ObjectMapper();
+    CourseProgressUpdate k1 = new CourseProgressUpdate("k1", 1, "do_1", 2);
+    k1.setSequence(1);
+    CourseProgressUpdate k2 = new CourseProgressUpdate("k2", 1, "do_1", 2);
+    k2.setSequence(2);
+    File journal = new File(journalDir, "progress-1.journal");
+    FileUtils.writeLines(
+        journal,
+        StandardCharsets.UTF_8.name(),
+        Arrays.asList(mapper.writeValueAsString(k1), mapper.writeValueAsString(k2)));
+    FileUtils.writeLines(
+        new File(journal.getPath() + ".done"),
+        StandardCharsets.UTF_8.name(),
+        Arrays.asList("k1 1"));
+
+    CourseProgressBuffer buffer = getBuffer();
+    assertEquals(1, buffer.getMetrics().get("bufferDepth"));
+    buffer.flush();
+    assertEquals(1, written.size());
+    assertEquals(Integer.valueOf(1), written.get("k2"));
+  }
+
+  @Test
+  public void testFailedUpdateIsRequeuedSuccess() throws IOException {
+    CourseProgressBuffer buffer = getBuffer();
+    buffer.add(new CourseProgressUpdate("k1", 1, "do_1", 2));
+    buffer.add(new CourseProgressUpdate("k2", 1, "do_1", 2));
+    failing.add("k2");
+    buffer.flush();
+    assertEquals(Arrays.asList("k1"), new ArrayList<>(written.keySet()));
+    assertEquals(1, buffer.getMetrics().get("bufferDepth"));
+    // the requeued update is journaled again, so it also survives a restart
+    assertEquals(1, getBuffer().getMetrics().get("bufferDepth"));
+
+    failing.clear();
+    buffer.add(new CourseProgressUpdate("k2", 2, "do_2", 2));
+    buffer.flush();
+    assertEquals(Integer.valueOf(3), written.get("k2"));
+    assertEquals(0, buffer.getMetrics().get("bufferDepth"));
+  }
+
+  @Test
+  public void testReplayAfterWriteWithoutDoneDoesNotAddProgressTwiceSuccess() throws IOException {
+    written.put("k1", 5);
+    CourseProgressBuffer buffer = getBuffer();
+    buffer.add(new CourseProgressUpdate("k1", 1, "do_1", 2));
+    buffer.add(new CourseProgressUpdate("k1", 2, "do_2", 2));
+    crashing.add("k1");
+    buffer.flush();
+    assertEquals(Integer.valueOf(8), written.get("k1"));
+
+    crashing.clear();
+    CourseProgressBuffer restarted = getBuffer();
+    assertEquals(1, restarted.getMetrics().get("bufferDepth"));
+    restarted.flush();
+    assertEquals(Integer.valueOf(8), written.get("k1"));
+    assertEquals(0, getBuffer().getMetrics().get("bufferDepth"));
+  }
+
+  @Test
+  public void testReplayAfterRequeueDoesNotAddProgressTwiceSuccess() throws IOException {
+    written.put("k1", 5);
+    CourseProgressBuffer buffer = getBuffer();
+    buffer.add(new CourseProgressUpdate("k1", 1, "do_1", 2));
+    crashing.add("k1");
+    buffer.flush();
+    // the write is not known to be done, so the update is requeued with the progress written
+    assertEquals(1, buffer.getMetrics().get("bufferDepth"));
+    buffer.add(new CourseProgressUpdate("k1", 2, "do_2", 2));
+
+    crashing.clear();
+    CourseProgressBuffer restarted = getBuffer();
+    restarted.flush();
+    assertEquals(Integer.valueOf(8), written.get("k1"));
+    buffer.flush();
+    assertEquals(Integer.valueOf(8), written.get("k1"));
+  }
+
+  @Test
+  public void testShutdownFlushesPendingUpdatesSuccess() throws IOException {
+    CourseProgressBuffer buffer = getBuffer();
+    buffer.add(new CourseProgressUpdate("k1", 1, "do_1", 2));
+    buffer.shutdown();
+    assertEquals(Integer.valueOf(1), written.get("k1"));
+    assertEquals(0, buffer.getMetrics().get("bufferDepth"));
+    assertEquals(0, getBuffer().getMetrics().get("bufferDepth"));
+  }
+
+  private CourseProgressBuffer getBuffer() {
+    return new CourseProgressBuffer(updater, journalDir, 100);
+  }
+}
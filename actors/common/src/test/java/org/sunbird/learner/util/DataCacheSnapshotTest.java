@@ -0,0 +1,63 @@
+package org.sunbird.learner.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class DataCacheSnapshotTest {
+
+  @Test
+  public void testWithTablesIncrementsGenerationSuccess() {
+    DataCacheSnapshot snapshot = DataCacheSnapshot.empty();
+    Map<String, String> orgTypes = new HashMap<>();
+    orgTypes.put("school", "orgType1");
+    DataCacheSnapshot next =
+        snapshot.withTables(
+            Collections.singletonMap(DataCacheHandler.ORG_TYPE_MAP, orgTypes),
+            Collections.singletonMap(DataCacheHandler.ORG_TYPE_MAP, 5L));
+    assertEquals(0, snapshot.getGeneration());
+    assertEquals(1, next.getGeneration());
+    assertTrue(snapshot.getTable(DataCacheHandler.ORG_TYPE_MAP).isEmpty());
+    assertEquals("orgType1", next.getTable(DataCacheHandler.ORG_TYPE_MAP).get("school"));
+    assertEquals(Long.valueOf(5L), next.getRefreshTimings().get(DataCacheHandler.ORG_TYPE_MAP));
+  }
+
+  @Test
+  public void testWithTablesKeepsUnchangedTableInstanceSuccess() {
+    DataCacheSnapshot snapshot =
+        DataCacheSnapshot.empty()
+            .withTables(
+                Collections.singletonMap(
+                    DataCacheHandler.ROLE_MAP, Collections.singletonMap("PUBLIC", "Public")),
+                Collections.emptyMap());
+    DataCacheSnapshot next =
+        snapshot.withTables(
+            Collections.singletonMap(
+                DataCacheHandler.ORG_TYPE_MAP, Collections.singletonMap("school", "orgType1")),
+            Collections.emptyMap());
+    assertSame(
+        snapshot.getTable(DataCacheHandler.ROLE_MAP), next.getTable(DataCacheHandler.ROLE_MAP));
+  }
+
+  @Test
+  public void testWithEntryDoesNotModifyPublishedTableSuccess() {
+    DataCacheSnapshot snapshot =
+        DataCacheSnapshot.empty().withEntry(DataCacheHandler.CONFIG_SETTINGS, "phoneUnique", "true");
+    DataCacheSnapshot next =
+        snapshot.withEntry(DataCacheHandler.CONFIG_SETTINGS, "emailUnique", "false");
+    assertEquals(1, snapshot.getTable(DataCacheHandler.CONFIG_SETTINGS).size());
+    assertEquals(2, next.getTable(DataCacheHandler.CONFIG_SETTINGS).size());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testTableIsReadOnlyFailure() {
+    DataCacheSnapshot snapshot =
+        DataCacheSnapshot.empty().withEntry(DataCacheHandler.ORG_TYPE_MAP, "school", "orgType1");
+    snapshot.<String>getTable(DataCacheHandler.ORG_TYPE_MAP).put("board", "orgType2");
+  }
+}
@@ -0,0 +1,82 @@
+package org.sunbird.learner.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+import org.sunbird.common.models.util.JsonKey;
+import org.sunbird.common.models.util.datasecurity.DecryptionService;
+import org.sunbird.common.models.util.datasecurity.EncryptionService;
+import org.sunbird.common.models.util.datasecurity.impl.ServiceFactory;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({ServiceFactory.class})
+@PowerMockIgnore({"javax.management.*", "javax.net.ssl.*", "javax.security.*"})
+public class UserCryptoBatchTest {
+
+  private EncryptionService encryptionService;
+  private DecryptionService decryptionService;
+
+  @Before
+  public void setUp() throws Exception {
+    PowerMockito.mockStatic(ServiceFactory.class);
+    encryptionService = Mockito.mock(EncryptionService.class);
+    decryptionService = Mockito.mock(DecryptionService.class);
+    when(ServiceFactory.getEncryptionServiceInstance(null)).thenReturn(encryptionService);
+    when(ServiceFactory.getDecryptionServiceInstance(null)).thenReturn(decryptionService);
+    when(encryptionService.encryptData(Mockito.anyString()))
+        .thenAnswer(invocation -> "enc:" + invocation.getArguments()[0]);
+    when(decryptionService.decryptData(Mockito.anyString()))
+        .thenAnswer(invocation -> ((String) invocation.getArguments()[0]).substring(4));
+  }
+
+  @Test
+  public void testDecryptColumnsDecryptsRepeatedValueOnceSuccess() {
+    List<Map<String, Object>> users = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      Map<String, Object> user = new HashMap<>();
+      user.put(JsonKey.EMAIL, "enc:org@example.com");
+      user.put(JsonKey.PHONE, "enc:" + (i % 10));
+      users.add(user);
+    }
+    users.add(new HashMap<>());
+    UserCryptoBatch batch = new UserCryptoBatch();
+    batch.decryptColumns(users, Arrays.asList(JsonKey.EMAIL, JsonKey.PHONE));
+    assertEquals("org@example.com", users.get(999).get(JsonKey.EMAIL));
+    assertEquals("9", users.get(999).get(JsonKey.PHONE));
+    assertFalse(users.get(1000).containsKey(JsonKey.EMAIL));
+    assertEquals(11, batch.getServiceCalls());
+    Mockito.verify(decryptionService, Mockito.times(1)).decryptData("enc:org@example.com");
+  }
+
+  @Test
+  public void testEncryptKeepsColumnOrderSuccess() throws Exception {
+    UserCryptoBatch batch = new UserCryptoBatch();
+    assertEquals(
+        Arrays.asList("enc:a", "enc:b", "enc:a"), batch.encrypt(Arrays.asList("a", "b", "a")));
+    assertEquals(2, batch.getServiceCalls());
+  }
+
+  @Test
+  public void testDecryptSharesMemoAcrossBatchesSuccess() {
+    Map<String, String> decrypted = new HashMap<>();
+    new UserCryptoBatch(decrypted).decrypt(Collections.singletonList("enc:a"));
+    UserCryptoBatch batch = new UserCryptoBatch(decrypted);
+    assertEquals("a", batch.decrypt("enc:a"));
+    assertEquals(0, batch.getServiceCalls());
+  }
+}
@@ -0,0 +1,218 @@
+package org.sunbird.learner.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+import akka.dispatch.Futures;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+import org.sunbird.cassandra.CassandraOperation;
+import org.sunbird.common.factory.EsClientFactory;
+import org.sunbird.common.inf.ElasticSearchService;
+import org.sunbird.common.models.response.Response;
+import org.sunbird.common.models.util.JsonKey;
+import org.sunbird.helper.ServiceFactory;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({ServiceFactory.class, EsClientFactory.class, Util.class})
+@PowerMockIgnore({"javax.management.*", "javax.net.ssl.*", "javax.security.*"})
+public class UserDetailsAssemblerTest {
+
+  private CassandraOperation cassandraOperation;
+  private ElasticSearchService esService;
+  private ExecutorService executor;
+  private UserDetailsAssembler assembler;
+  private Map<String, String> tables = new HashMap<>();
+  private List<Map<String, Object>> users = new ArrayList<>();
+  private List<Map<String, Object>> userOrgs = new ArrayList<>();
+  private List<Map<String, Object>> educations = new ArrayList<>();
+  private List<Map<String, Object>> addresses = new ArrayList<>();
+  private Map<String, Map<String, Object>> esOrgs = new HashMap<>();
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() throws Exception {
+    cassandraOperation = Mockito.mock(CassandraOperation.class);
+    esService = Mockito.mock(ElasticSearchService.class);
+    PowerMockito.mockStatic(ServiceFactory.class);
+    when(ServiceFactory.getInstance()).thenReturn(cassandraOperation);
+    PowerMockito.mockStatic(EsClientFactory.class);
+    when(EsClientFactory.getInstance(Mockito.anyString())).thenReturn(esService);
+    PowerMockito.mockStatic(Util.class);
+    for (String dbKey :
+        Arrays.asList(
+            JsonKey.USER_DB,
+            JsonKey.EDUCATION_DB,
+            JsonKey.JOB_PROFILE_DB,
+            JsonKey.USER_ORG_DB,
+            JsonKey.ORG_DB,
+            JsonKey.ADDRESS_DB)) {
+      tables.put(dbKey, getTableName(dbKey));
+    }
+    when(Util.getAddressDetails(Mockito.anyString(), Mockito.anyString()))
+        .thenReturn(new ArrayList<>());
+    PowerMockito.doAnswer(
+            invocation -> {
+              Map<String, Object> user = (Map<String, Object>) invocation.getArguments()[0];
+              if ("undecryptable".equals(user.get(JsonKey.EMAIL))) {
+                throw new RuntimeException("decryption failed");
+              }
+              return null;
+            })
+        .when(Util.class);
+    Util.addMaskEmailAndPhone(Mockito.anyMap());
+
+    mockRows(JsonKey.USER_DB, users);
+    mockRows(JsonKey.ORG_DB, Arrays.asList(getRow(JsonKey.ID, "root1", JsonKey.ORG_NAME, "Root")));
+    mockRows(JsonKey.ADDRESS_DB, addresses);
+    when(cassandraOperation.getRecordsByIndexedProperty(
+            Mockito.anyString(),
+            Mockito.eq(tables.get(JsonKey.EDUCATION_DB)),
+            Mockito.anyString(),
+            Mockito.anyString()))
+        .thenAnswer(invocation -> getResponse(educations));
+    when(cassandraOperation.getRecordsByIndexedProperty(
+            Mockito.anyString(),
+            Mockito.eq(tables.get(JsonKey.JOB_PROFILE_DB)),
+            Mockito.anyString(),
+            Mockito.anyString()))
+        .thenAnswer(invocation -> getResponse(new ArrayList<>()));
+    when(cassandraOperation.getRecordsByProperties(
+            Mockito.anyString(), Mockito.eq(tables.get(JsonKey.USER_ORG_DB)), Mockito.anyMap()))
+        .thenAnswer(invocation -> getResponse(userOrgs));
+    when(esService.getEsResultByListOfIds(
+            Mockito.anyList(), Mockito.anyList(), Mockito.anyString()))
+        .thenAnswer(invocation -> Futures.successful(esOrgs));
+
+    executor = Executors.newFixedThreadPool(4);
+    assembler = new UserDetailsAssembler(cassandraOperation, esService, executor);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testGetUserDetailsAssemblesDocumentSuccess() {
+    users.add(getRow(JsonKey.ID, "user1", JsonKey.ROOT_ORG_ID, "root1"));
+    userOrgs.add(getRow(JsonKey.USER_ID, "user1", JsonKey.ORGANISATION_ID, "org1"));
+    esOrgs.put("org1", getRow(JsonKey.ID, "org1", JsonKey.ORG_NAME, "Org One"));
+    educations.add(getRow(JsonKey.USER_ID, "user1", JsonKey.ADDRESS_ID, "addr1"));
+    addresses.add(getRow(JsonKey.ID, "addr1", JsonKey.CITY, "Pune"));
+
+    Map<String, Object> user = assembler.getUserDetails("user1", null);
+    assertEquals("Root", user.get(JsonKey.ROOT_ORG_NAME));
+    List<Map<String, Object>> orgs = (List<Map<String, Object>>) user.get(JsonKey.ORGANISATIONS);
+    assertEquals(1, orgs.size());
+    assertEquals("Org One", orgs.get(0).get(JsonKey.ORG_NAME));
+    assertEquals("org1", orgs.get(0).get(JsonKey.ORGANISATION_ID));
+    List<Map<String, Object>> education = (List<Map<String, Object>>) user.get(JsonKey.EDUCATION);
+    Map<String, Object> address = (Map<String, Object>) education.get(0).get(JsonKey.ADDRESS);
+    assertEquals("Pune", address.get(JsonKey.CITY));
+    assertNull(assembler.getUserDetails("user2", null));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testGetUserDetailsKeepsOrgMissingInEsSuccess() {
+    users.add(getRow(JsonKey.ID, "user1", JsonKey.ROOT_ORG_ID, "root1"));
+    userOrgs.add(getRow(JsonKey.USER_ID, "user1", JsonKey.ORGANISATION_ID, "org1"));
+    userOrgs.add(getRow(JsonKey.USER_ID, "user1", JsonKey.ORGANISATION_ID, "org2"));
+    esOrgs.put("org1", getRow(JsonKey.ID, "org1", JsonKey.ORG_NAME, "Org One"));
+
+    Map<String, Object> user = assembler.getUserDetails("user1", null);
+    List<Map<String, Object>> orgs = (List<Map<String, Object>>) user.get(JsonKey.ORGANISATIONS);
+    assertEquals(2, orgs.size());
+    assertEquals("Org One", orgs.get(0).get(JsonKey.ORG_NAME));
+    assertEquals("org2", orgs.get(1).get(JsonKey.ORGANISATION_ID));
+    assertFalse(orgs.get(1).containsKey(JsonKey.ORG_NAME));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testGetUserDetailsWithMissingAddressAndRootOrgSuccess() {
+    users.add(getRow(JsonKey.ID, "user1", JsonKey.ROOT_ORG_ID, "deletedRoot"));
+    educations.add(getRow(JsonKey.USER_ID, "user1", JsonKey.ADDRESS_ID, "deletedAddr"));
+
+    Map<String, Object> user = assembler.getUserDetails("user1", null);
+    assertEquals("", user.get(JsonKey.ROOT_ORG_NAME));
+    List<Map<String, Object>> education = (List<Map<String, Object>>) user.get(JsonKey.EDUCATION);
+    assertEquals(1, education.size());
+    assertFalse(education.get(0).containsKey(JsonKey.ADDRESS));
+    assertTrue(((List) user.get(JsonKey.ORGANISATIONS)).isEmpty());
+  }
+
+  @Test
+  public void testGetUserDetailsLeavesOutUserWithDecryptFailureSuccess() {
+    users.add(getRow(JsonKey.ID, "user1", JsonKey.EMAIL, "encrypted"));
+    users.add(getRow(JsonKey.ID, "user2", JsonKey.EMAIL, "undecryptable"));
+
+    Map<String, Map<String, Object>> documents =
+        assembler.getUserDetails(Arrays.asList("user1", "user2"), null).join();
+    assertEquals(1, documents.size());
+    assertTrue(documents.containsKey("user1"));
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void testGetUserDetailsOfSingleUserWithDecryptFailure() {
+    users.add(getRow(JsonKey.ID, "user2", JsonKey.EMAIL, "undecryptable"));
+    assembler.getUserDetails("user2", null);
+  }
+
+  private String getTableName(String dbKey) {
+    Util.DbInfo dbInfo = Util.dbInfoMap.get(dbKey);
+    if (dbInfo == null) {
+      dbInfo = Mockito.mock(Util.DbInfo.class);
+      when(dbInfo.getKeySpace()).thenReturn("sunbird");
+      when(dbInfo.getTableName()).thenReturn(dbKey);
+      Util.dbInfoMap.put(dbKey, dbInfo);
+    }
+    return dbInfo.getTableName();
+  }
+
+  private void mockRows(String dbKey, List<Map<String, Object>> rows) {
+    when(cassandraOperation.getRecordsByIdsWithSpecifiedColumns(
+            Mockito.anyString(),
+            Mockito.eq(tables.get(dbKey)),
+            Mockito.anyList(),
+            Mockito.anyList()))
+        .thenAnswer(invocation -> getResponse(rows));
+  }
+
+  private Response getResponse(List<Map<String, Object>> rows) {
+    List<Map<String, Object>> copy = new ArrayList<>();
+    for (Map<String, Object> row : rows) {
+      copy.add(new HashMap<>(row));
+    }
+    Response response = new Response();
+    response.put(JsonKey.RESPONSE, copy);
+    return response;
+  }
+
+  private Map<String, Object> getRow(String... keyValues) {
+    Map<String, Object> row = new HashMap<>();
+    for (int i = 0; i < keyValues.length; i += 2) {
+      row.put(keyValues[i], keyValues[i + 1]);
+    }
+    return row;
+  }
+}
@@ -31,6 +31,7 @@ import org.junit.BeforeClass;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PowerMockIgnore;
@@ -48,7 +49,9 @@ import org.sunbird.common.models.util.ProjectUtil.EsType;
 import org.sunbird.common.request.Request;
 import org.sunbird.common.responsecode.ResponseCode;
 import org.sunbird.common.util.CloudStorageUtil;
+import org.sunbird.dto.SearchDTO;
 import org.sunbird.helper.ServiceFactory;
+import org.sunbird.learner.actors.search.SearchHandlerActor;
 import scala.concurrent.Promise;
 
 /**
@@ -99,6 +102,14 @@ public class CourseMetricsActorTest {
     mockESGetDataByIdentifier();
     PowerMockito.mockStatic(ServiceFactory.class);
     when(ServiceFactory.getInstance()).thenReturn(cassandraOperation);
+    Response cassandraResponse = new Response();
+    cassandraResponse.put(JsonKey.RESPONSE, new ArrayList<>());
+    when(cassandraOperation.getRecordById(
+            Mockito.anyString(), Mockito.anyString(), Mockito.anyString()))
+        .thenReturn(cassandraResponse);
+    when(cassandraOperation.getRecordsByProperty(
+            Mockito.anyString(), Mockito.anyString(), Mockito.anyString(), Mockito.anyString()))
+        .thenReturn(cassandraResponse);
   }
 
   @Test
@@ -118,6 +129,32 @@ public class CourseMetricsActorTest {
     Assert.assertTrue(null != res.get(JsonKey.PERIOD));
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testCourseProgressMetricsWithCursorSuccess() {
+    TestKit probe = new TestKit(system);
+    ActorRef subject = system.actorOf(props);
+
+    Request actorMessage = new Request();
+    actorMessage.put(JsonKey.REQUESTED_BY, userId);
+    actorMessage.put(JsonKey.BATCH_ID, batchId);
+    actorMessage.put(JsonKey.PERIOD, "fromBegining");
+    actorMessage.put(JsonKey.LIMIT, 1);
+    actorMessage.put(SearchHandlerActor.CURSOR, "100");
+    actorMessage.setOperation(ActorOperations.COURSE_PROGRESS_METRICS.getValue());
+
+    subject.tell(actorMessage, probe.getRef());
+    Response res = probe.expectMsgClass(duration("100 second"), Response.class);
+    Assert.assertEquals("123", res.get(SearchHandlerActor.NEXT_CURSOR));
+    ArgumentCaptor<SearchDTO> searchDTO = ArgumentCaptor.forClass(SearchDTO.class);
+    Mockito.verify(esService, Mockito.atLeastOnce())
+        .search(searchDTO.capture(), Mockito.eq(EsType.usercourses.getTypeName()));
+    Map<String, Object> filters =
+        (Map<String, Object>) searchDTO.getValue().getAdditionalProperties().get(JsonKey.FILTERS);
+    Assert.assertEquals("100", ((Map<String, Object>) filters.get(JsonKey.ID)).get(">"));
+    Assert.assertEquals(0, (int) searchDTO.getValue().getOffset());
+  }
+
   @Ignore
   public void testWithUnsupportedMessageType() {
 
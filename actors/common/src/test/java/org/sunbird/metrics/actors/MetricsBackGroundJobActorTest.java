@@ -0,0 +1,174 @@
+package org.sunbird.metrics.actors;
+
+import static akka.testkit.JavaTestKit.duration;
+import static org.powermock.api.mockito.PowerMockito.mock;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.testkit.javadsl.TestKit;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+import org.sunbird.cassandra.CassandraOperation;
+import org.sunbird.common.exception.ProjectCommonException;
+import org.sunbird.common.models.response.Response;
+import org.sunbird.common.models.util.ActorOperations;
+import org.sunbird.common.models.util.JsonKey;
+import org.sunbird.common.models.util.ProjectUtil.ReportTrackingStatus;
+import org.sunbird.common.models.util.azure.CloudService;
+import org.sunbird.common.models.util.azure.CloudServiceFactory;
+import org.sunbird.common.request.Request;
+import org.sunbird.common.responsecode.ResponseCode;
+import org.sunbird.helper.ServiceFactory;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({ServiceFactory.class, CloudServiceFactory.class})
+@PowerMockIgnore("javax.management.*")
+public class MetricsBackGroundJobActorTest {
+
+  private static final String REQUEST_ID = "request1";
+
+  private ActorSystem system;
+  private CassandraOperation cassandraOperation;
+  private CloudService cloudService;
+  private Map<String, Object> reportRow;
+  private List<Map<String, Object>> updates;
+  private File spoolDir;
+  private File spoolFile;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() throws IOException {
+    system = ActorSystem.create("system");
+    cassandraOperation = mock(CassandraOperation.class);
+    PowerMockito.mockStatic(ServiceFactory.class);
+    when(ServiceFactory.getInstance()).thenReturn(cassandraOperation);
+    cloudService = mock(CloudService.class);
+    PowerMockito.mockStatic(CloudServiceFactory.class);
+    when(CloudServiceFactory.get(Mockito.anyString())).thenReturn(cloudService);
+    when(cloudService.uploadFile(Mockito.anyString(), Mockito.any(File.class)))
+        .thenThrow(
+            new ProjectCommonException(
+                ResponseCode.SERVER_ERROR.getErrorCode(),
+                ResponseCode.SERVER_ERROR.getErrorMessage(),
+                ResponseCode.SERVER_ERROR.getResponseCode()));
+
+    reportRow = new HashMap<>();
+    reportRow.put(JsonKey.ID, REQUEST_ID);
+    reportRow.put(JsonKey.FORMAT, "csv");
+    updates = Collections.synchronizedList(new ArrayList<>());
+    when(cassandraOperation.getRecordById(
+            Mockito.anyString(), Mockito.anyString(), Mockito.eq(REQUEST_ID)))
+        .thenAnswer(
+            invocation -> {
+              Response response = new Response();
+              response.put(JsonKey.RESPONSE, Arrays.asList(new HashMap<>(reportRow)));
+              return response;
+            });
+    when(cassandraOperation.updateRecord(
+            Mockito.anyString(), Mockito.anyString(), Mockito.anyMap()))
+        .thenAnswer(
+            invocation -> {
+              Map<String, Object> update = (Map<String, Object>) invocation.getArguments()[2];
+              reportRow.putAll(update);
+              updates.add(new HashMap<>(update));
+              return new Response();
+            });
+
+    spoolDir = Files.createTempDirectory("report-spool").toFile();
+    try (ReportSpoolWriter writer =
+        new ReportSpoolWriter(spoolDir, "ConsumptionReport_org1", Arrays.asList("userId"))) {
+      writer.add(Arrays.asList(Arrays.asList("u1")));
+      spoolFile = writer.finish();
+    }
+  }
+
+  @After
+  public void tearDown() {
+    TestKit.shutdownActorSystem(system);
+    FileUtils.deleteQuietly(spoolDir);
+  }
+
+  @Test
+  public void testFailedUploadKeepsSpoolFileForRetrySuccess() {
+    // the retry is scheduled after the test ends
+    upload(600);
+
+    Assert.assertEquals(1, updates.size());
+    Assert.assertEquals(0, updates.get(0).get(JsonKey.TRY_COUNT));
+    Assert.assertEquals(
+        ReportTrackingStatus.UPLOADING_FILE.getValue(), updates.get(0).get(JsonKey.STATUS));
+    Assert.assertEquals(
+        spoolFile.getAbsolutePath(), updates.get(0).get(MetricsBackGroundJobActor.SPOOL_FILE));
+    Assert.assertTrue(spoolFile.exists());
+  }
+
+  @Test
+  public void testUploadIsRetriedUntilFinalFailureSuccess() throws Exception {
+    reportRow.put(JsonKey.TRY_COUNT, 2);
+    upload(0);
+
+    for (int i = 0; i < 100 && (updates.size() < 2 || spoolFile.exists()); i++) {
+      Thread.sleep(100);
+    }
+    Assert.assertEquals(2, updates.size());
+    Assert.assertEquals(3, updates.get(0).get(JsonKey.TRY_COUNT));
+    Assert.assertEquals(
+        ReportTrackingStatus.UPLOADING_FILE.getValue(), updates.get(0).get(JsonKey.STATUS));
+    Assert.assertEquals(4, updates.get(1).get(JsonKey.TRY_COUNT));
+    Assert.assertEquals(
+        ReportTrackingStatus.FAILED.getValue(), updates.get(1).get(JsonKey.STATUS));
+    Assert.assertNull(updates.get(1).get(MetricsBackGroundJobActor.SPOOL_FILE));
+    Assert.assertFalse(spoolFile.exists());
+    Mockito.verify(cloudService, Mockito.times(2))
+        .uploadFile(Mockito.anyString(), Mockito.any(File.class));
+  }
+
+  @Test
+  public void testUploadWithoutSpoolFileOrDataFailure() {
+    upload(0, null);
+
+    Assert.assertEquals(1, updates.size());
+    Assert.assertEquals(
+        ReportTrackingStatus.FAILED.getValue(), updates.get(0).get(JsonKey.STATUS));
+    Mockito.verify(cloudService, Mockito.never())
+        .uploadFile(Mockito.anyString(), Mockito.any(File.class));
+  }
+
+  private void upload(int retryDelay) {
+    upload(retryDelay, spoolFile.getAbsolutePath());
+  }
+
+  private void upload(int retryDelay, String spoolFilePath) {
+    TestKit probe = new TestKit(system);
+    ActorRef subject =
+        system.actorOf(
+            Props.create(MetricsBackGroundJobActor.class, cassandraOperation, retryDelay));
+    Request request = new Request();
+    request.setOperation(ActorOperations.FILE_GENERATION_AND_UPLOAD.getValue());
+    request.getRequest().put(JsonKey.REQUEST_ID, REQUEST_ID);
+    request.getRequest().put(JsonKey.FILE_NAME, "ConsumptionReport_org1");
+    request.getRequest().put(MetricsBackGroundJobActor.SPOOL_FILE, spoolFilePath);
+    subject.tell(request, probe.getRef());
+    probe.expectMsgClass(duration("10 second"), ProjectCommonException.class);
+  }
+}
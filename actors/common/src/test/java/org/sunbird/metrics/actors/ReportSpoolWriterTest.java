@@ -0,0 +1,91 @@
+package org.sunbird.metrics.actors;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReportSpoolWriterTest {
+
+  private static final int ROWS = 10000;
+  private static final int CHUNK_SIZE = 500;
+
+  private File spoolDir;
+
+  @Before
+  public void setUp() throws IOException {
+    spoolDir = Files.createTempDirectory("report-spool").toFile();
+  }
+
+  @After
+  public void tearDown() {
+    FileUtils.deleteQuietly(spoolDir);
+  }
+
+  @Test
+  public void testFinishKeepsSpoolFileSuccess() throws IOException {
+    File file;
+    try (ReportSpoolWriter writer = getWriter()) {
+      writer.add(Arrays.asList(getRow("u1", "user one"), Arrays.asList("u2", null)));
+      file = writer.finish();
+      Assert.assertEquals(2, writer.getRowCount());
+    }
+    Assert.assertTrue(file.exists());
+    Assert.assertEquals("CreationReport_org1.csv", file.getName());
+    List<List<Object>> rows = ReportSpoolWriter.readRows(file);
+    Assert.assertEquals(getRow("userId", "userName"), rows.get(0));
+    Assert.assertEquals(getRow("u1", "user one"), rows.get(1));
+    Assert.assertEquals(getRow("u2", ""), rows.get(2));
+  }
+
+  @Test
+  public void testCloseWithoutFinishDeletesSpoolFileSuccess() throws IOException {
+    try (ReportSpoolWriter writer = getWriter()) {
+      writer.add(Arrays.asList(getRow("u1", "user one")));
+    }
+    Assert.assertEquals(0, spoolDir.list().length);
+  }
+
+  @Test
+  public void testAddWritesChunkWithoutKeepingRowsSuccess() throws IOException {
+    try (ReportSpoolWriter writer = getWriter()) {
+      for (int i = 0; i < ROWS; i += CHUNK_SIZE) {
+        List<List<Object>> chunk = new ArrayList<>();
+        for (int j = i; j < i + CHUNK_SIZE; j++) {
+          chunk.add(getRow("u" + j, "user " + j));
+        }
+        writer.add(chunk);
+        // rows changed after add must not end up in the file
+        for (List<Object> row : chunk) {
+          row.set(1, "changed");
+        }
+        chunk.clear();
+      }
+      File file = writer.finish();
+      Assert.assertEquals(ROWS, writer.getRowCount());
+      try (Stream<String> lines = Files.lines(file.toPath())) {
+        Assert.assertEquals(ROWS + 1, lines.count());
+      }
+      List<List<Object>> rows = ReportSpoolWriter.readRows(file);
+      for (int i = 0; i < ROWS; i++) {
+        Assert.assertEquals(getRow("u" + i, "user " + i), rows.get(i + 1));
+      }
+    }
+  }
+
+  private ReportSpoolWriter getWriter() throws IOException {
+    return new ReportSpoolWriter(spoolDir, "CreationReport_org1", getRow("userId", "userName"));
+  }
+
+  private List<Object> getRow(String userId, String userName) {
+    return new ArrayList<>(Arrays.asList(userId, userName));
+  }
+}
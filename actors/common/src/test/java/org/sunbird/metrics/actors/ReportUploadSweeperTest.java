@@ -0,0 +1,117 @@
+package org.sunbird.metrics.actors;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.sunbird.cassandra.CassandraOperation;
+import org.sunbird.common.models.response.Response;
+import org.sunbird.common.models.util.ActorOperations;
+import org.sunbird.common.models.util.JsonKey;
+import org.sunbird.common.models.util.ProjectUtil;
+import org.sunbird.common.models.util.ProjectUtil.ReportTrackingStatus;
+import org.sunbird.common.request.Request;
+
+public class ReportUploadSweeperTest {
+
+  private static final long MAX_AGE = TimeUnit.MINUTES.toMillis(15);
+
+  private CassandraOperation cassandraOperation;
+  private List<Map<String, Object>> reports;
+  private List<Request> sent;
+  private ReportUploadSweeper sweeper;
+  private File spoolDir;
+  private File spoolFile;
+
+  @Before
+  public void setUp() throws IOException {
+    cassandraOperation = Mockito.mock(CassandraOperation.class);
+    reports = new ArrayList<>();
+    Mockito.when(
+            cassandraOperation.getRecordsByProperty(
+                Mockito.anyString(),
+                Mockito.anyString(),
+                Mockito.eq(JsonKey.STATUS),
+                Mockito.eq(ReportTrackingStatus.UPLOADING_FILE.getValue())))
+        .thenAnswer(
+            invocation -> {
+              Response response = new Response();
+              response.put(JsonKey.RESPONSE, reports);
+              return response;
+            });
+    sent = new ArrayList<>();
+    sweeper = new ReportUploadSweeper(cassandraOperation, MAX_AGE, sent::add);
+
+    spoolDir = Files.createTempDirectory("report-spool").toFile();
+    try (ReportSpoolWriter writer =
+        new ReportSpoolWriter(spoolDir, "ConsumptionReport_org1", Arrays.asList("userId"))) {
+      writer.add(Arrays.asList(Arrays.asList("u1")));
+      spoolFile = writer.finish();
+    }
+  }
+
+  @After
+  public void tearDown() {
+    FileUtils.deleteQuietly(spoolDir);
+  }
+
+  @Test
+  public void testRunSendsAbandonedUploadSuccess() {
+    reports.add(report("request1", spoolFile.getAbsolutePath(), 2 * MAX_AGE));
+
+    sweeper.run();
+
+    Assert.assertEquals(1, sent.size());
+    Request request = sent.get(0);
+    Assert.assertEquals(
+        ActorOperations.FILE_GENERATION_AND_UPLOAD.getValue(), request.getOperation());
+    Assert.assertEquals("request1", request.getRequest().get(JsonKey.REQUEST_ID));
+    Assert.assertEquals("ConsumptionReport_org1", request.getRequest().get(JsonKey.FILE_NAME));
+    Assert.assertEquals(
+        spoolFile.getAbsolutePath(),
+        request.getRequest().get(MetricsBackGroundJobActor.SPOOL_FILE));
+  }
+
+  @Test
+  public void testRunSkipsRecentlyUpdatedUploadSuccess() {
+    reports.add(report("request1", spoolFile.getAbsolutePath(), 0));
+
+    sweeper.run();
+
+    Assert.assertTrue(sent.isEmpty());
+  }
+
+  @Test
+  public void testRunSkipsUploadWithoutLocalSpoolFileSuccess() {
+    File otherNode = new File(spoolDir, "ConsumptionReport_org2.csv");
+    reports.add(report("request1", otherNode.getAbsolutePath(), 2 * MAX_AGE));
+    reports.add(report("request2", null, 2 * MAX_AGE));
+
+    sweeper.run();
+
+    Assert.assertTrue(sent.isEmpty());
+  }
+
+  private static Map<String, Object> report(String id, String spoolFile, long age) {
+    Map<String, Object> report = new HashMap<>();
+    report.put(JsonKey.ID, id);
+    report.put(JsonKey.STATUS, ReportTrackingStatus.UPLOADING_FILE.getValue());
+    report.put(MetricsBackGroundJobActor.SPOOL_FILE, spoolFile);
+    report.put(
+        JsonKey.UPDATED_DATE,
+        ProjectUtil.getDateFormatter().format(new Date(System.currentTimeMillis() - age)));
+    return report;
+  }
+}
@@ -0,0 +1,134 @@
+package org.sunbird.content.textbook;
+
+import static org.sunbird.common.models.util.LoggerEnum.ERROR;
+import static org.sunbird.common.models.util.ProjectLogger.log;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.apache.commons.lang3.StringUtils;
+import org.sunbird.learner.util.ConfigValueUtil;
+
+/**
+ * Local index of generated textbook TOC files by textbook ID and version key. A textbook has at
+ * most one entry, so a new version replaces the URL of the previous one. Concurrent requests for a
+ * TOC which is not indexed yet share one generation.
+ */
+public final class TextBookTocCache {
+
+  public static final String TEXTBOOK_TOC_CACHE_TTL = "sunbird_textbook_toc_cache_ttl_seconds";
+  public static final String TEXTBOOK_TOC_CACHE_MAX_ENTRIES =
+      "sunbird_textbook_toc_cache_max_entries";
+  public static final String TEXTBOOK_TOC_PREGENERATE_THREADS =
+      "sunbird_textbook_toc_pregenerate_threads";
+
+  private final Cache<String, TocArtifact> artifacts =
+      CacheBuilder.newBuilder()
+          .maximumSize(ConfigValueUtil.getLongValue(TEXTBOOK_TOC_CACHE_MAX_ENTRIES, 10000))
+          .expireAfterWrite(
+              ConfigValueUtil.getLongValue(TEXTBOOK_TOC_CACHE_TTL, 3600), TimeUnit.SECONDS)
+          .build();
+  private final ConcurrentMap<String, CompletableFuture<String>> inProgress =
+      new ConcurrentHashMap<>();
+  private final ExecutorService preGenerator =
+      Executors.newFixedThreadPool(
+          Math.max(1, ConfigValueUtil.getIntValue(TEXTBOOK_TOC_PREGENERATE_THREADS, 2)),
+          runnable -> {
+            Thread thread = new Thread(runnable, "textbook-toc-pregenerate");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  TextBookTocCache() {}
+
+  private static class LazyInitializer {
+    private static TextBookTocCache INSTANCE = new TextBookTocCache();
+  }
+
+  public static TextBookTocCache getInstance() {
+    return LazyInitializer.INSTANCE;
+  }
+
+  /**
+   * Returns the URL of the TOC file of the given textbook version, generating it if not indexed.
+   *
+   * @param textbookId ID of the textbook
+   * @param versionKey version key of the textbook
+   * @param generator finds or generates the TOC file and returns its URL
+   * @return URL of the TOC file
+   */
+  public String getTocUrl(String textbookId, String versionKey, Supplier<String> generator) {
+    if (versionKey == null) {
+      return generator.get();
+    }
+    TocArtifact artifact = artifacts.getIfPresent(textbookId);
+    if (artifact != null && artifact.versionKey.equals(versionKey)) {
+      return artifact.url;
+    }
+    String key = textbookId + "_" + versionKey;
+    CompletableFuture<String> generation = new CompletableFuture<>();
+    CompletableFuture<String> running = inProgress.putIfAbsent(key, generation);
+    if (running != null) {
+      try {
+        return running.join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw e;
+      }
+    }
+    try {
+      String url = generator.get();
+      if (StringUtils.isNotBlank(url)) {
+        artifacts.put(textbookId, new TocArtifact(versionKey, url));
+      }
+      generation.complete(url);
+      return url;
+    } catch (RuntimeException e) {
+      generation.completeExceptionally(e);
+      throw e;
+    } finally {
+      inProgress.remove(key, generation);
+    }
+  }
+
+  /**
+   * Generates a TOC file in the background, e.g. after the textbook hierarchy was changed.
+   *
+   * @param textbookId ID of the textbook
+   * @param task reads the textbook and calls {@link #getTocUrl(String, String, Supplier)}
+   */
+  public void preGenerate(String textbookId, Runnable task) {
+    preGenerator.execute(
+        () -> {
+          try {
+            task.run();
+          } catch (Exception e) {
+            log(
+                "TextBookTocCache:preGenerate: TOC generation failed for textbook "
+                    + textbookId
+                    + " with error message = "
+                    + e.getMessage(),
+                ERROR.name());
+          }
+        });
+  }
+
+  private static class TocArtifact {
+    private final String versionKey;
+    private final String url;
+
+    private TocArtifact(String versionKey, String url) {
+      this.versionKey = versionKey;
+      this.url = url;
+    }
+  }
+}
@@ -0,0 +1,180 @@
+package org.sunbird.content.textbook;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.sunbird.learner.util.ConfigValueUtil;
+
+/**
+ * Validates keys referenced by an uploaded TOC file, e.g. linked content IDs or DIAL codes, while
+ * the file is still being parsed. Distinct keys are collected into chunks and every full chunk is
+ * looked up asynchronously, so the lookups overlap with parsing and invalid keys can be reported
+ * before the whole file is read. Keys are added and results read by the thread parsing the file.
+ */
+public final class TextBookTocLookup {
+
+  public static final String TEXTBOOK_TOC_LOOKUP_CHUNK_SIZE =
+      "sunbird_textbook_toc_lookup_chunk_size";
+  public static final String TEXTBOOK_TOC_LOOKUP_THREADS = "sunbird_textbook_toc_lookup_threads";
+
+  private static final ExecutorService executor =
+      Executors.newFixedThreadPool(
+          Math.max(1, ConfigValueUtil.getIntValue(TEXTBOOK_TOC_LOOKUP_THREADS, 4)),
+          runnable -> {
+            Thread thread = new Thread(runnable, "textbook-toc-lookup");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  private final Function<List<String>, CompletableFuture<Set<String>>> lookup;
+  private final int chunkSize;
+  private final Map<String, List<Integer>> rowsByKey = new LinkedHashMap<>();
+  private final List<Chunk> running = new ArrayList<>();
+  private final Set<String> missing = new LinkedHashSet<>();
+  private List<String> pending = new ArrayList<>();
+
+  /**
+   * @param lookup looks up a chunk of keys and returns the keys which were found, e.g. {@code ids
+   *     -> TextBookTocLookup.supplyAsync(() -> search(ids))}
+   */
+  public TextBookTocLookup(Function<List<String>, CompletableFuture<Set<String>>> lookup) {
+    this(lookup, ConfigValueUtil.getIntValue(TEXTBOOK_TOC_LOOKUP_CHUNK_SIZE, 100));
+  }
+
+  TextBookTocLookup(
+      Function<List<String>, CompletableFuture<Set<String>>> lookup, int chunkSize) {
+    this.lookup = lookup;
+    this.chunkSize = Math.max(1, chunkSize);
+  }
+
+  /** Runs the given task on the lookup threads. */
+  public static <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier) {
+    return CompletableFuture.supplyAsync(supplier, executor);
+  }
+
+  public static Executor getExecutor() {
+    return executor;
+  }
+
+  /**
+   * Waits for the given future and rethrows its failure, e.g. a {@code ProjectCommonException},
+   * without the {@link CompletionException} wrapper.
+   */
+  public static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Adds a key referenced by the given row. The key is looked up once its chunk is full.
+   *
+   * @param key referenced key
+   * @param rowNumber number of the row in the file
+   */
+  public void add(String key, int rowNumber) {
+    List<Integer> rows = rowsByKey.get(key);
+    if (rows == null) {
+      rows = new ArrayList<>();
+      rowsByKey.put(key, rows);
+      pending.add(key);
+      if (pending.size() >= chunkSize) {
+        submitPending();
+      }
+    }
+    rows.add(rowNumber);
+  }
+
+  /**
+   * Returns the keys not found by the lookups completed so far, without waiting for the others.
+   * The failure of a lookup is rethrown.
+   */
+  public Set<String> pollMissing() {
+    Iterator<Chunk> chunks = running.iterator();
+    while (chunks.hasNext()) {
+      Chunk chunk = chunks.next();
+      if (chunk.found.isDone()) {
+        chunks.remove();
+        collect(chunk);
+      }
+    }
+    return Collections.unmodifiableSet(missing);
+  }
+
+  /**
+   * Looks up the remaining keys and returns all keys which were not found. The failure of a lookup
+   * is rethrown.
+   */
+  public Set<String> awaitMissing() {
+    submitPending();
+    Iterator<Chunk> chunks = running.iterator();
+    while (chunks.hasNext()) {
+      Chunk chunk = chunks.next();
+      chunks.remove();
+      collect(chunk);
+    }
+    return Collections.unmodifiableSet(missing);
+  }
+
+  /** Cancels the lookups which did not start yet, e.g. after the file was found invalid. */
+  public void cancel() {
+    pending = new ArrayList<>();
+    running.forEach(chunk -> chunk.found.cancel(false));
+    running.clear();
+  }
+
+  /** Returns the numbers of the rows referencing each key added so far. */
+  public Map<String, List<Integer>> getRowsByKey() {
+    return Collections.unmodifiableMap(rowsByKey);
+  }
+
+  private void submitPending() {
+    if (!pending.isEmpty()) {
+      List<String> keys = pending;
+      pending = new ArrayList<>();
+      running.add(new Chunk(keys, lookup.apply(keys)));
+    }
+  }
+
+  private void collect(Chunk chunk) {
+    Set<String> found;
+    try {
+      found = join(chunk.found);
+    } catch (RuntimeException e) {
+      cancel();
+      throw e;
+    }
+    for (String key : chunk.keys) {
+      if (!found.contains(key)) {
+        missing.add(key);
+      }
+    }
+  }
+
+  private static class Chunk {
+    private final List<String> keys;
+    private final CompletableFuture<Set<String>> found;
+
+    private Chunk(List<String> keys, CompletableFuture<Set<String>> found) {
+      this.keys = keys;
+      this.found = found;
+    }
+  }
+}
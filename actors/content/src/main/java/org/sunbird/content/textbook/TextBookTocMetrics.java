@@ -0,0 +1,109 @@
+package org.sunbird.content.textbook;
+
+import static org.sunbird.common.models.util.LoggerEnum.INFO;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.sunbird.common.models.util.ProjectLogger;
+
+/**
+ * Per-stage timings of textbook TOC operations. A {@link Timer} measures one request and logs its
+ * breakdown once, while the durations of all requests are aggregated per operation and stage.
+ */
+public final class TextBookTocMetrics {
+
+  private static final String TOTAL = "total";
+
+  private static final ConcurrentMap<String, StageStats> stages = new ConcurrentHashMap<>();
+
+  private TextBookTocMetrics() {}
+
+  /**
+   * Starts timing a request.
+   *
+   * @param operation name of the requested operation, e.g. textbookTocUpload
+   * @return timer of the request
+   */
+  public static Timer start(String operation) {
+    return new Timer(operation);
+  }
+
+  /**
+   * Returns count, total and max duration in milliseconds per operation and stage, keyed by
+   * "operation.stage".
+   */
+  public static Map<String, Map<String, Long>> getMetrics() {
+    Map<String, Map<String, Long>> metrics = new HashMap<>();
+    stages.forEach((stage, stats) -> metrics.put(stage, stats.toMap()));
+    return metrics;
+  }
+
+  private static void record(String operation, String stage, long nanos) {
+    stages.computeIfAbsent(operation + "." + stage, key -> new StageStats()).add(nanos);
+  }
+
+  /** Measures the stages of one request. Not thread-safe, a request is handled by one actor. */
+  public static final class Timer {
+    private final String operation;
+    private final long startTime = System.nanoTime();
+    private final Map<String, Long> durations = new LinkedHashMap<>();
+    private long lastMark = startTime;
+
+    private Timer(String operation) {
+      this.operation = operation;
+    }
+
+    /**
+     * Ends the current stage, which started at the previous mark or at the start of the request.
+     *
+     * @param stage name of the stage
+     */
+    public void mark(String stage) {
+      long now = System.nanoTime();
+      long nanos = now - lastMark;
+      lastMark = now;
+      durations.merge(stage, TimeUnit.NANOSECONDS.toMillis(nanos), Long::sum);
+      record(operation, stage, nanos);
+    }
+
+    /** Records the total duration of the request and logs the breakdown of its stages. */
+    public void finish() {
+      long nanos = System.nanoTime() - startTime;
+      record(operation, TOTAL, nanos);
+      ProjectLogger.log(
+          "Timed:TextBookTocMetrics: "
+              + operation
+              + " took "
+              + TimeUnit.NANOSECONDS.toMillis(nanos)
+              + " ms, stages in ms "
+              + durations,
+          INFO);
+    }
+  }
+
+  private static class StageStats {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    private void add(long nanos) {
+      count.increment();
+      totalNanos.add(nanos);
+      maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private Map<String, Long> toMap() {
+      Map<String, Long> map = new HashMap<>();
+      map.put("count", count.sum());
+      map.put("totalMillis", TimeUnit.NANOSECONDS.toMillis(totalNanos.sum()));
+      map.put("maxMillis", TimeUnit.NANOSECONDS.toMillis(maxNanos.get()));
+      return map;
+    }
+  }
+}
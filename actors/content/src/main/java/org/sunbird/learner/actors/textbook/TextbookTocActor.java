@@ -47,18 +47,19 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.text.MessageFormat;
-import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.collections.CollectionUtils;
@@ -82,6 +83,9 @@ import org.sunbird.common.models.util.ProjectUtil;
 import org.sunbird.common.request.Request;
 import org.sunbird.common.responsecode.ResponseCode;
 import org.sunbird.content.textbook.FileExtension;
+import org.sunbird.content.textbook.TextBookTocCache;
+import org.sunbird.content.textbook.TextBookTocLookup;
+import org.sunbird.content.textbook.TextBookTocMetrics;
 import org.sunbird.content.textbook.TextBookTocUploader;
 import org.sunbird.content.util.TextBookTocUtil;
 import org.sunbird.services.sso.SSOManager;
@@ -94,26 +98,30 @@ import org.sunbird.services.sso.SSOServiceFactory;
 public class TextbookTocActor extends BaseActor {
 
   private SSOManager ssoManager = SSOServiceFactory.getInstance();
-  private Instant startTime = null;
+  private TextBookTocMetrics.Timer timer = null;
   private Map<String, Object> frameCategories = null;
   private ObjectMapper mapper = new ObjectMapper();
 
   @Override
   public void onReceive(Request request) throws Throwable {
-    startTime = Instant.now();
+    timer = TextBookTocMetrics.start(request.getOperation());
     Map<String, Object> outputMapping =
         getObjectFrom(getConfigValue(JsonKey.TEXTBOOK_TOC_OUTPUT_MAPPING), Map.class);
     frameCategories = (Map<String, Object>) outputMapping.get("frameworkCategories");
-    if (request
-        .getOperation()
-        .equalsIgnoreCase(TextbookActorOperation.TEXTBOOK_TOC_UPLOAD.getValue())) {
-      upload(request);
-    } else if (request
-        .getOperation()
-        .equalsIgnoreCase(TextbookActorOperation.TEXTBOOK_TOC_URL.getValue())) {
-      getTocUrl(request);
-    } else {
-      onReceiveUnsupportedOperation(request.getOperation());
+    try {
+      if (request
+          .getOperation()
+          .equalsIgnoreCase(TextbookActorOperation.TEXTBOOK_TOC_UPLOAD.getValue())) {
+        upload(request);
+      } else if (request
+          .getOperation()
+          .equalsIgnoreCase(TextbookActorOperation.TEXTBOOK_TOC_URL.getValue())) {
+        getTocUrl(request);
+      } else {
+        onReceiveUnsupportedOperation(request.getOperation());
+      }
+    } finally {
+      timer.finish();
     }
   }
 
@@ -121,27 +129,45 @@ public class TextbookTocActor extends BaseActor {
   private void upload(Request request) throws Exception {
     byte[] byteArray = (byte[]) request.getRequest().get(JsonKey.DATA);
     ProjectLogger.log("Sized:TextbookTocActor:upload size of request " + byteArray.length, INFO);
-    InputStream inputStream = new ByteArrayInputStream(byteArray);
-    Map<String, Object> resultMap = readAndValidateCSV(inputStream);
-    ProjectLogger.log(
-        "Timed:TextbookTocActor:upload duration for read and validate csv: "
-            + (Instant.now().toEpochMilli() - startTime.toEpochMilli()),
-        INFO);
-    Set<String> dialCodes = (Set<String>) resultMap.get(JsonKey.DIAL_CODES);
-    resultMap.remove(JsonKey.DIAL_CODES);
+    String tbId = (String) request.get(TEXTBOOK_ID);
+    // The hierarchy is read and the linked contents and DIAL codes are looked up in chunks while
+    // the file is parsed, so invalid entries are reported before the whole file is read.
+    CompletableFuture<Map<String, Object>> hierarchyFuture =
+        TextBookTocLookup.supplyAsync(() -> getHierarchy(tbId));
+    TextBookTocLookup contentLookup =
+        new TextBookTocLookup(
+            contentIds ->
+                TextBookTocLookup.supplyAsync(
+                    () -> callSearchApiForContentIdsValidation(contentIds)));
+    TextBookTocLookup dialCodeLookup =
+        new TextBookTocLookup(
+            dialCodes ->
+                hierarchyFuture.thenApplyAsync(
+                    textbookData -> callDialcodeSearchApi(dialCodes, textbookData),
+                    TextBookTocLookup.getExecutor()));
+    Map<String, Object> resultMap;
+    Map<String, Object> hierarchy;
+    try {
+      resultMap =
+          readAndValidateCSV(new ByteArrayInputStream(byteArray), contentLookup, dialCodeLookup);
+      timer.mark("readAndValidateCsv");
+      validateLinkedContents(contentLookup);
+      timer.mark("validateLinkedContent");
+      hierarchy = TextBookTocLookup.join(hierarchyFuture);
+      timer.mark("getHierarchy");
+      Set<String> topics = (Set<String>) resultMap.remove(JsonKey.TOPICS);
+      validateTopics(topics, (String) hierarchy.get(JsonKey.FRAMEWORK));
+      validateDialCodesWithReservedDialCodes(dialCodeLookup);
+    } catch (Exception e) {
+      hierarchyFuture.cancel(false);
+      contentLookup.cancel();
+      dialCodeLookup.cancel();
+      throw e;
+    }
     Map<String, List<String>> reqDialCodeIdentifierMap =
-        (Map<String, List<String>>) resultMap.get(JsonKey.DIAL_CODE_IDENTIFIER_MAP);
-    resultMap.remove(JsonKey.DIAL_CODE_IDENTIFIER_MAP);
-    Set<String> topics = (Set<String>) resultMap.get(JsonKey.TOPICS);
-    resultMap.remove(JsonKey.TOPICS);
+        (Map<String, List<String>>) resultMap.remove(JsonKey.DIAL_CODE_IDENTIFIER_MAP);
     Map<Integer, List<String>> rowNumVsContentIdsMap =
         (Map<Integer, List<String>>) resultMap.get(JsonKey.LINKED_CONTENT);
-    resultMap.remove(JsonKey.LINKED_CONTENT);
-    validateLinkedContents(rowNumVsContentIdsMap);
-    ProjectLogger.log(
-        "Timed:TextbookTocActor:upload duration for validate linked content: "
-            + (Instant.now().toEpochMilli() - startTime.toEpochMilli()),
-        INFO);
     resultMap.put(JsonKey.LINKED_CONTENT, false);
     for (Entry<Integer, List<String>> entry : rowNumVsContentIdsMap.entrySet()) {
       if (CollectionUtils.isNotEmpty(entry.getValue())) {
@@ -149,27 +175,12 @@ public class TextbookTocActor extends BaseActor {
         break;
       }
     }
-    String tbId = (String) request.get(TEXTBOOK_ID);
-
-    Map<String, Object> hierarchy = getHierarchy(tbId);
-    ProjectLogger.log(
-        "Timed:TextbookTocActor:upload duration for get hirearchy data: "
-            + (Instant.now().toEpochMilli() - startTime.toEpochMilli()),
-        INFO);
-    validateTopics(topics, (String) hierarchy.get(JsonKey.FRAMEWORK));
-    validateDialCodesWithReservedDialCodes(dialCodes, hierarchy);
     checkDialCodeUniquenessInTextBookHierarchy(reqDialCodeIdentifierMap, hierarchy);
     request.getRequest().put(JsonKey.DATA, resultMap);
     String mode = ((Map<String, Object>) request.get(JsonKey.DATA)).get(JsonKey.MODE).toString();
-    ProjectLogger.log(
-        "Timed:TextbookTocActor:upload duration for validate topic and dial codes: "
-            + (Instant.now().toEpochMilli() - startTime.toEpochMilli()),
-        INFO);
+    timer.mark("validateTopicAndDialCodes");
     validateRequest(request, mode, hierarchy);
-    ProjectLogger.log(
-        "Timed:TextbookTocActor:upload duration for validate request: "
-            + (Instant.now().toEpochMilli() - startTime.toEpochMilli()),
-        INFO);
+    timer.mark("validateRequest");
     Response response = new Response();
     if (StringUtils.equalsIgnoreCase(mode, JsonKey.CREATE)) {
       response = createTextbook(request, hierarchy);
@@ -178,48 +189,48 @@ public class TextbookTocActor extends BaseActor {
     } else {
       unSupportedMessage();
     }
-    ProjectLogger.log(
-        "Timed:TextbookTocActor:upload duration for textbook "
-            + mode
-            + " :"
-            + (Instant.now().toEpochMilli() - startTime.toEpochMilli()),
-        INFO);
     sender().tell(response, sender());
+    if (ResponseCode.OK.equals(response.getResponseCode())) {
+      preGenerateToc(tbId);
+    }
   }
 
-  private void validateLinkedContents(Map<Integer, List<String>> rowNumVsContentIdsMap)
-      throws Exception {
-    // rowNumVsContentIdsMap convert to contentIdVsrowListMap
-    if (MapUtils.isNotEmpty(rowNumVsContentIdsMap)) {
-      Map<String, List<Integer>> contentIdVsRowNumMap = new HashMap<>();
-      rowNumVsContentIdsMap.forEach(
-          (k, v) -> {
-            v.forEach(
-                contentId -> {
-                  if (contentIdVsRowNumMap.containsKey(contentId)) {
-                    contentIdVsRowNumMap.get(contentId).add(k);
-                  } else {
-                    List<Integer> rowNumList = new ArrayList<>();
-                    rowNumList.add(k);
-                    contentIdVsRowNumMap.put(contentId, rowNumList);
-                  }
-                });
-          });
-      callSearchApiForContentIdsValidation(contentIdVsRowNumMap);
+  private void validateLinkedContents(TextBookTocLookup contentLookup) {
+    Set<String> invalidContentIds = contentLookup.awaitMissing();
+    if (CollectionUtils.isNotEmpty(invalidContentIds)) {
+      throwInvalidLinkedContentError(contentLookup, invalidContentIds);
     }
   }
 
-  @SuppressWarnings("unchecked")
-  private void callSearchApiForContentIdsValidation(Map<String, List<Integer>> contentIdVsRowNumMap)
-      throws Exception {
-    if (MapUtils.isEmpty(contentIdVsRowNumMap)) {
-      ProjectLogger.log(
-          "TextbookTocActor:callSearchApiForContentIdsValidation : Content id map is Empty.",
-          LoggerEnum.INFO.name());
-      return;
+  /** Reports invalid linked contents or DIAL codes found by the lookups completed so far. */
+  private void checkCompletedLookups(
+      TextBookTocLookup contentLookup, TextBookTocLookup dialCodeLookup) {
+    Set<String> invalidContentIds = contentLookup.pollMissing();
+    if (CollectionUtils.isNotEmpty(invalidContentIds)) {
+      throwInvalidLinkedContentError(contentLookup, invalidContentIds);
     }
-    List<String> contentIds = new ArrayList<>();
-    contentIds.addAll(contentIdVsRowNumMap.keySet());
+    Set<String> invalidDialCodes = dialCodeLookup.pollMissing();
+    if (CollectionUtils.isNotEmpty(invalidDialCodes)) {
+      throwInvalidDialCodeError(invalidDialCodes);
+    }
+  }
+
+  private void throwInvalidLinkedContentError(
+      TextBookTocLookup contentLookup, Set<String> invalidContentIds) {
+    ProjectCommonException.throwClientErrorException(
+        ResponseCode.errorInvalidLinkedContentId,
+        prepareErrorMsg(contentLookup.getRowsByKey(), invalidContentIds));
+  }
+
+  /**
+   * Searches the given linked contents.
+   *
+   * @param contentIds IDs of the linked contents
+   * @return IDs of the linked contents which are live
+   */
+  @SuppressWarnings("unchecked")
+  private Set<String> callSearchApiForContentIdsValidation(List<String> contentIds) {
+    Set<String> searchedContentIds = new HashSet<>();
     Map<String, Object> requestMap = new HashMap<>();
     Map<String, Object> request = new HashMap<>();
     Map<String, Object> filters = new HashMap<>();
@@ -252,35 +263,30 @@ public class TextbookTocActor extends BaseActor {
             LoggerEnum.INFO.name());
         if (response.getResponseCode().getResponseCode() == ResponseCode.OK.getResponseCode()) {
           Map<String, Object> result = response.getResult();
-          Set<String> searchedContentIds = new HashSet<>();
-          if (MapUtils.isNotEmpty(result)) {
-            int count = (int) result.get(JsonKey.COUNT);
-            if (0 == count) {
-              ProjectLogger.log(
-                  "TextbookTocActor:callSearchApiForContentIdsValidation : Content id count in response is zero.",
-                  LoggerEnum.INFO.name());
-              String errorMsg = prepareErrorMsg(contentIdVsRowNumMap, searchedContentIds);
-              ProjectCommonException.throwClientErrorException(
-                  ResponseCode.errorInvalidLinkedContentId, errorMsg);
-            }
-            List<Map<String, Object>> content =
-                (List<Map<String, Object>>) result.get(JsonKey.CONTENT);
-            if (CollectionUtils.isNotEmpty(content)) {
-              content.forEach(
-                  contentMap -> {
-                    searchedContentIds.add((String) contentMap.get(JsonKey.IDENTIFIER));
-                  });
-              if (searchedContentIds.size() != contentIds.size()) {
-                String errorMsg = prepareErrorMsg(contentIdVsRowNumMap, searchedContentIds);
-                ProjectCommonException.throwClientErrorException(
-                    ResponseCode.errorInvalidLinkedContentId, errorMsg);
-              }
-            } else {
-              ProjectLogger.log(
-                  "TextbookTocActor:callSearchApiForContentIdsValidation : Content is Empty.",
-                  LoggerEnum.INFO.name());
-              throwCompositeSearchFailureError();
-            }
+          if (MapUtils.isEmpty(result)) {
+            // Nothing to validate against.
+            searchedContentIds.addAll(contentIds);
+            return searchedContentIds;
+          }
+          int count = (int) result.get(JsonKey.COUNT);
+          if (0 == count) {
+            ProjectLogger.log(
+                "TextbookTocActor:callSearchApiForContentIdsValidation : Content id count in response is zero.",
+                LoggerEnum.INFO.name());
+            return searchedContentIds;
+          }
+          List<Map<String, Object>> content =
+              (List<Map<String, Object>>) result.get(JsonKey.CONTENT);
+          if (CollectionUtils.isNotEmpty(content)) {
+            content.forEach(
+                contentMap -> {
+                  searchedContentIds.add((String) contentMap.get(JsonKey.IDENTIFIER));
+                });
+          } else {
+            ProjectLogger.log(
+                "TextbookTocActor:callSearchApiForContentIdsValidation : Content is Empty.",
+                LoggerEnum.INFO.name());
+            throwCompositeSearchFailureError();
           }
         } else {
           ProjectLogger.log(
@@ -299,29 +305,26 @@ public class TextbookTocActor extends BaseActor {
           "TextbookTocActor:validateLinkedContents : Error occurred with message " + e.getMessage(),
           e);
       if (e instanceof ProjectCommonException) {
-        throw e;
+        throw (ProjectCommonException) e;
       }
       throwCompositeSearchFailureError();
     }
+    return searchedContentIds;
   }
 
   private String prepareErrorMsg(
-      Map<String, List<Integer>> contentIdVsRowNumMap, Set<String> searchedContentIds) {
+      Map<String, List<Integer>> contentIdVsRowNumMap, Set<String> invalidContentIds) {
     StringBuilder errorMsg = new StringBuilder();
-    contentIdVsRowNumMap
-        .keySet()
-        .forEach(
-            contentId -> {
-              if (!searchedContentIds.contains(contentId)) {
-                String message =
-                    MessageFormat.format(
-                        ResponseCode.errorInvalidLinkedContentId.getErrorMessage(),
-                        contentId,
-                        contentIdVsRowNumMap.get(contentId));
-                errorMsg.append(message);
-                errorMsg.append(" ");
-              }
-            });
+    invalidContentIds.forEach(
+        contentId -> {
+          String message =
+              MessageFormat.format(
+                  ResponseCode.errorInvalidLinkedContentId.getErrorMessage(),
+                  contentId,
+                  contentIdVsRowNumMap.get(contentId));
+          errorMsg.append(message);
+          errorMsg.append(" ");
+        });
     return errorMsg.toString();
   }
 
@@ -463,43 +466,36 @@ public class TextbookTocActor extends BaseActor {
     return topics;
   }
 
-  private void validateDialCodesWithReservedDialCodes(
-      Set<String> dialCodes, Map<String, Object> textbookData) {
-    String channel = (String) textbookData.get(JsonKey.CHANNEL);
-    if (CollectionUtils.isNotEmpty(dialCodes)) {
-      Set<String> invalidDialCodes = new HashSet<>();
-      List<String> searchedDialcodes = callDialcodeSearchApi(dialCodes, channel);
-      if (CollectionUtils.isNotEmpty(searchedDialcodes)) {
-        dialCodes.forEach(
-            dialCode -> {
-              if (!searchedDialcodes.contains(dialCode)) {
-                invalidDialCodes.add(dialCode);
-              }
-            });
-        if (CollectionUtils.isNotEmpty(invalidDialCodes)) {
-          throwInvalidDialCodeError(invalidDialCodes);
-        }
-      } else if (CollectionUtils.isNotEmpty(dialCodes)) {
-        throwInvalidDialCodeError(dialCodes);
-      }
+  private void validateDialCodesWithReservedDialCodes(TextBookTocLookup dialCodeLookup) {
+    Set<String> invalidDialCodes = dialCodeLookup.awaitMissing();
+    if (CollectionUtils.isNotEmpty(invalidDialCodes)) {
+      throwInvalidDialCodeError(invalidDialCodes);
     }
   }
 
-  private List<String> callDialcodeSearchApi(Set<String> dialCodes, String channel) {
+  /**
+   * Searches the given DIAL codes in the channel of the textbook.
+   *
+   * @param dialCodes DIAL codes used in the uploaded file
+   * @param textbookData hierarchy of the textbook
+   * @return DIAL codes which were found
+   */
+  @SuppressWarnings("unchecked")
+  private Set<String> callDialcodeSearchApi(
+      List<String> dialCodes, Map<String, Object> textbookData) {
+    String channel = (String) textbookData.get(JsonKey.CHANNEL);
     Map<String, Object> requestMap = new HashMap<>();
     Map<String, Object> request = new HashMap<>();
     requestMap.put(JsonKey.REQUEST, request);
     Map<String, Object> search = new HashMap<>();
     request.put(JsonKey.SEARCH, search);
-    List<String> identifier = new ArrayList<>();
-    identifier.addAll(dialCodes);
-    search.put(JsonKey.IDENTIFIER, identifier);
+    search.put(JsonKey.IDENTIFIER, dialCodes);
 
     String requestUrl =
         getConfigValue(JsonKey.SUNBIRD_CS_BASE_URL)
             + getConfigValue(JsonKey.SUNBIRD_DIALCODE_SEARCH_API);
     HttpResponse<String> updateResponse = null;
-    List<String> resDialcodes = new ArrayList<>();
+    Set<String> resDialcodes = new HashSet<>();
     try {
       Map<String, String> headers = new HashMap<>();
       headers.putAll(getDefaultHeaders());
@@ -562,7 +558,9 @@ public class TextbookTocActor extends BaseActor {
   }
 
   @SuppressWarnings("unchecked")
-  private Map<String, Object> readAndValidateCSV(InputStream inputStream) throws IOException {
+  private Map<String, Object> readAndValidateCSV(
+      InputStream inputStream, TextBookTocLookup contentLookup, TextBookTocLookup dialCodeLookup)
+      throws IOException {
     ObjectMapper mapper = new ObjectMapper();
     Map<String, Object> result = new HashMap<>();
     Map<Integer, List<String>> rowNumVsContentIdsMap = new HashMap<>();
@@ -636,16 +634,27 @@ public class TextbookTocActor extends BaseActor {
                 String.join(", ", new ArrayList<>(missingColumns))));
       }
 
-      List<CSVRecord> csvRecords = csvFileParser.getRecords();
-      validateCSV(csvRecords);
+      // Rows are validated while they are read, instead of reading all records first.
+      Iterator<CSVRecord> csvRecords = csvFileParser.iterator();
+      if (!csvRecords.hasNext()) {
+        throwClientErrorException(
+            ResponseCode.blankCsvData, ResponseCode.blankCsvData.getErrorMessage());
+      }
+      int allowedNumberOfRecord =
+          Integer.valueOf(ProjectUtil.getConfigValue(JsonKey.TEXTBOOK_TOC_MAX_CSV_ROWS));
       Set<String> dialCodes = new HashSet<>();
       Set<String> duplicateDialCodes = new LinkedHashSet<>();
       Map<String, List<String>> dialCodeIdentifierMap = new HashMap<>();
       Set<String> topics = new HashSet<>();
       Map<String, Object> bgms = new HashMap<>();
       StringBuilder exceptionMsgs = new StringBuilder();
-      for (int i = 0; i < csvRecords.size(); i++) {
-        CSVRecord record = csvRecords.get(i);
+      for (int i = 0; csvRecords.hasNext(); i++) {
+        CSVRecord record = csvRecords.next();
+        if (i >= allowedNumberOfRecord) {
+          throwClientErrorException(
+              ResponseCode.csvRowsExceeds,
+              ResponseCode.csvRowsExceeds.getErrorMessage() + allowedNumberOfRecord);
+        }
         Map<String, String> trimMappingRecord = new HashMap<>();
         record
             .toMap()
@@ -676,6 +685,8 @@ public class TextbookTocActor extends BaseActor {
             for (String dCode : dialCodeList) {
               if (!dialCodes.add(dCode.trim())) {
                 duplicateDialCodes.add(dCode.trim());
+              } else {
+                dialCodeLookup.add(dCode.trim(), i + 1);
               }
             }
           }
@@ -703,6 +714,9 @@ public class TextbookTocActor extends BaseActor {
                 validateLinkedContentAndGetContentIds(
                     max_allowed_content_size, linkedContentKey, record, i + 1);
             rowNumVsContentIdsMap.put(i + 1, contentIds);
+            for (String contentId : contentIds) {
+              contentLookup.add(contentId, i + 1);
+            }
           } catch (Exception ex) {
             exceptionMsgs.append(ex.getMessage());
             exceptionMsgs.append(" ");
@@ -712,6 +726,7 @@ public class TextbookTocActor extends BaseActor {
           map.put(JsonKey.CHILDREN, contentIds);
           rows.add(map);
         }
+        checkCompletedLookups(contentLookup, dialCodeLookup);
       }
       if (CollectionUtils.isNotEmpty(duplicateDialCodes)) {
         throwClientErrorException(
@@ -725,7 +740,6 @@ public class TextbookTocActor extends BaseActor {
             ResponseCode.customClientError, exceptionMsgs.toString());
       }
       result.put(JsonKey.FILE_DATA, rows);
-      result.put(JsonKey.DIAL_CODES, dialCodes);
       result.put(JsonKey.TOPICS, topics);
       result.put(JsonKey.DIAL_CODE_IDENTIFIER_MAP, dialCodeIdentifierMap);
       result.put(JsonKey.LINKED_CONTENT, rowNumVsContentIdsMap);
@@ -849,20 +863,6 @@ public class TextbookTocActor extends BaseActor {
     }
   }
 
-  private void validateCSV(List<CSVRecord> records) {
-    if (CollectionUtils.isEmpty(records)) {
-      throwClientErrorException(
-          ResponseCode.blankCsvData, ResponseCode.blankCsvData.getErrorMessage());
-    }
-    Integer allowedNumberOfRecord =
-        Integer.valueOf(ProjectUtil.getConfigValue(JsonKey.TEXTBOOK_TOC_MAX_CSV_ROWS));
-    if (CollectionUtils.isNotEmpty(records) && records.size() > allowedNumberOfRecord) {
-      throwClientErrorException(
-          ResponseCode.csvRowsExceeds,
-          ResponseCode.csvRowsExceeds.getErrorMessage() + allowedNumberOfRecord);
-    }
-  }
-
   private void getTocUrl(Request request) {
     String textbookId = (String) request.get(TEXTBOOK_ID);
     if (isBlank(textbookId)) {
@@ -870,11 +870,30 @@ public class TextbookTocActor extends BaseActor {
       throwClientErrorException(invalidTextbook, invalidTextbook.getErrorMessage());
     }
     log("Reading Content for TextBook | Id: " + textbookId, INFO.name());
-    Map<String, Object> contentHierarchy = getHierarchy(textbookId);
-    ProjectLogger.log(
-        "Timed:TextbookTocActor:getTocUrl duration for get textbook: "
-            + (Instant.now().toEpochMilli() - startTime.toEpochMilli()),
-        INFO);
+    // Only the metadata is read here, the hierarchy is read if the TOC is not indexed yet.
+    Map<String, Object> textbook = getTextbook(textbookId);
+    timer.mark("getTextbook");
+    validateTextBook(textbook, null);
+    String cloudPath =
+        TextBookTocCache.getInstance()
+            .getTocUrl(
+                textbookId,
+                (String) textbook.get(VERSION_KEY),
+                () -> getOrCreateToc(textbookId, getHierarchy(textbookId)));
+    timer.mark("getTocUrl");
+
+    log("Sending Response for Toc Download API for TextBook | Id: " + textbookId, INFO.name());
+    Map<String, Object> textbookToc = new HashMap<>();
+    textbookToc.put(TOC_URL, cloudPath);
+    textbookToc.put(TTL, getConfigValue(TEXTBOOK_TOC_CSV_TTL));
+    Response response = new Response();
+    response.put(TEXTBOOK, textbookToc);
+
+    sender().tell(response, sender());
+  }
+
+  /** Returns the URL of the TOC file of the hierarchy version, uploading the file if missing. */
+  private String getOrCreateToc(String textbookId, Map<String, Object> contentHierarchy) {
     validateTextBook(contentHierarchy, DOWNLOAD);
     FileExtension fileExtension = CSV.getFileExtension();
     String contentVersionKey = (String) contentHierarchy.get(VERSION_KEY);
@@ -885,34 +904,27 @@ public class TextbookTocActor extends BaseActor {
     log("Fetching TextBook Toc URL from Cloud", INFO.name());
 
     String cloudPath = getUri(prefix, false);
-    ProjectLogger.log(
-        "Timed:TextbookTocActor:getTocUrl duration for get cloud path url: "
-            + (Instant.now().toEpochMilli() - startTime.toEpochMilli()),
-        INFO);
     if (isBlank(cloudPath)) {
-      log("Reading Hierarchy for TextBook | Id: " + textbookId, INFO.name());
-      ProjectLogger.log(
-          "Timed:TextbookTocActor:getTocUrl duration for get hirearchy: "
-              + (Instant.now().toEpochMilli() - startTime.toEpochMilli()),
-          INFO);
-      String hierarchyVersionKey = (String) contentHierarchy.get(VERSION_KEY);
+      log("Generating TOC for TextBook | Id: " + textbookId, INFO.name());
       cloudPath =
           new TextBookTocUploader(textBookTocFileName, fileExtension)
-              .execute(contentHierarchy, textbookId, hierarchyVersionKey);
-      ProjectLogger.log(
-          "Timed:TextbookTocActor:getTocUrl duration for processing preparing and uploading: "
-              + (Instant.now().toEpochMilli() - startTime.toEpochMilli()),
-          INFO);
+              .execute(contentHierarchy, textbookId, contentVersionKey);
     }
+    return cloudPath;
+  }
 
-    log("Sending Response for Toc Download API for TextBook | Id: " + textbookId, INFO.name());
-    Map<String, Object> textbook = new HashMap<>();
-    textbook.put(TOC_URL, cloudPath);
-    textbook.put(TTL, getConfigValue(TEXTBOOK_TOC_CSV_TTL));
-    Response response = new Response();
-    response.put(TEXTBOOK, textbook);
-
-    sender().tell(response, sender());
+  /** Generates the TOC file of the new textbook version, so that the next download finds it. */
+  private void preGenerateToc(String textbookId) {
+    TextBookTocCache tocCache = TextBookTocCache.getInstance();
+    tocCache.preGenerate(
+        textbookId,
+        () -> {
+          Map<String, Object> contentHierarchy = getHierarchy(textbookId);
+          tocCache.getTocUrl(
+              textbookId,
+              (String) contentHierarchy.get(VERSION_KEY),
+              () -> getOrCreateToc(textbookId, contentHierarchy));
+        });
   }
 
   @SuppressWarnings("unchecked")
@@ -1038,10 +1050,7 @@ public class TextbookTocActor extends BaseActor {
       requestMap.put(JsonKey.DATA, dataMap);
       updateRequest.put(JsonKey.REQUEST, requestMap);
 
-      ProjectLogger.log(
-          "Timed:TextbookTocActor:createTextbook duration for processing create textbook: "
-              + (Instant.now().toEpochMilli() - startTime.toEpochMilli()),
-          INFO);
+      timer.mark("processCreate");
       log(
           "Create Textbook - UpdateHierarchy Request : " + mapper.writeValueAsString(updateRequest),
           INFO.name());
@@ -1058,16 +1067,10 @@ public class TextbookTocActor extends BaseActor {
       throws Exception {
     Response response = new Response();
     updateHierarchy(tbId, updateRequest);
-    ProjectLogger.log(
-        "Timed:TextbookTocActor:callUpdateHierarchyAndLinkDialCodeApi duration for update hirearchy data: "
-            + (Instant.now().toEpochMilli() - startTime.toEpochMilli()),
-        INFO);
+    timer.mark("updateHierarchy");
     try {
       linkDialCode(nodesModified, channel, tbId);
-      ProjectLogger.log(
-          "Timed:TextbookTocActor:callUpdateHierarchyAndLinkDialCodeApi duration for link dial code: "
-              + (Instant.now().toEpochMilli() - startTime.toEpochMilli()),
-          INFO);
+      timer.mark("linkDialCode");
     } catch (Exception ex) {
       ProjectLogger.log(
           "TextbookTocActor:callUpdateHierarchyAndLinkDialCodeApi : Exception occurred while linking dial code : ",
@@ -1272,10 +1275,7 @@ public class TextbookTocActor extends BaseActor {
       dataMap.put(JsonKey.HIERARCHY, hierarchyData);
       requestMap.put(JsonKey.DATA, dataMap);
       updateRequest.put(JsonKey.REQUEST, requestMap);
-      ProjectLogger.log(
-          "Timed:TextbookTocActor:updateTextbook duration for processing update: "
-              + (Instant.now().toEpochMilli() - startTime.toEpochMilli()),
-          INFO);
+      timer.mark("processUpdate");
       log(
           "Update Textbook - UpdateHierarchy Request : " + mapper.writeValueAsString(updateRequest),
           INFO.name());
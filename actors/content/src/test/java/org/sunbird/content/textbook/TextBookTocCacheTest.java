@@ -0,0 +1,76 @@
+package org.sunbird.content.textbook;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class TextBookTocCacheTest {
+
+  private TextBookTocCache tocCache = new TextBookTocCache();
+
+  @Test
+  public void testGetTocUrlWithSameVersionSkipsGenerationSuccess() {
+    AtomicInteger generations = new AtomicInteger();
+    tocCache.getTocUrl("textbook1", "1", () -> "url" + generations.incrementAndGet());
+    String url = tocCache.getTocUrl("textbook1", "1", () -> "url" + generations.incrementAndGet());
+    assertEquals("url1", url);
+    assertEquals(1, generations.get());
+  }
+
+  @Test
+  public void testGetTocUrlWithNewVersionGeneratesSuccess() {
+    AtomicInteger generations = new AtomicInteger();
+    tocCache.getTocUrl("textbook2", "1", () -> "url" + generations.incrementAndGet());
+    String url = tocCache.getTocUrl("textbook2", "2", () -> "url" + generations.incrementAndGet());
+    assertEquals("url2", url);
+    assertEquals(2, generations.get());
+  }
+
+  @Test
+  public void testGetTocUrlCoalescesConcurrentRequestsSuccess() throws Exception {
+    AtomicInteger generations = new AtomicInteger();
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<String> first =
+          executor.submit(
+              () ->
+                  tocCache.getTocUrl(
+                      "textbook3",
+                      "1",
+                      () -> {
+                        started.countDown();
+                        await(release);
+                        return "url" + generations.incrementAndGet();
+                      }));
+      started.await(5, TimeUnit.SECONDS);
+      Future<String> second =
+          executor.submit(
+              () ->
+                  tocCache.getTocUrl(
+                      "textbook3", "1", () -> "url" + generations.incrementAndGet()));
+      Thread.sleep(100);
+      release.countDown();
+      assertEquals("url1", first.get(5, TimeUnit.SECONDS));
+      assertEquals("url1", second.get(5, TimeUnit.SECONDS));
+      assertEquals(1, generations.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package org.sunbird.content.textbook;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import org.junit.Test;
+import org.sunbird.common.exception.ProjectCommonException;
+import org.sunbird.common.responsecode.ResponseCode;
+
+public class TextBookTocLookupTest {
+
+  private static final Set<String> VALID_IDS = new HashSet<>(Arrays.asList("do_1", "do_2"));
+
+  @Test
+  public void testAddLooksUpFullChunksSuccess() {
+    List<List<String>> chunks = new ArrayList<>();
+    TextBookTocLookup lookup =
+        new TextBookTocLookup(
+            keys -> {
+              chunks.add(keys);
+              return CompletableFuture.completedFuture(VALID_IDS);
+            },
+            2);
+    lookup.add("do_1", 1);
+    lookup.add("do_1", 2);
+    assertTrue(chunks.isEmpty());
+    lookup.add("do_2", 2);
+    lookup.add("do_3", 3);
+    assertEquals(Arrays.asList(Arrays.asList("do_1", "do_2")), chunks);
+    assertTrue(lookup.pollMissing().isEmpty());
+    assertEquals(new HashSet<>(Arrays.asList("do_3")), lookup.awaitMissing());
+    assertEquals(2, chunks.size());
+    assertEquals(Arrays.asList(1, 2), lookup.getRowsByKey().get("do_1"));
+  }
+
+  @Test
+  public void testPollMissingSkipsRunningLookupsSuccess() {
+    CompletableFuture<Set<String>> found = new CompletableFuture<>();
+    TextBookTocLookup lookup = new TextBookTocLookup(keys -> found, 1);
+    lookup.add("do_3", 1);
+    assertTrue(lookup.pollMissing().isEmpty());
+    found.complete(VALID_IDS);
+    assertEquals(new HashSet<>(Arrays.asList("do_3")), lookup.pollMissing());
+  }
+
+  @Test(expected = ProjectCommonException.class)
+  public void testAwaitMissingRethrowsLookupFailure() {
+    TextBookTocLookup lookup =
+        new TextBookTocLookup(
+            keys ->
+                TextBookTocLookup.supplyAsync(
+                    () -> {
+                      throw new ProjectCommonException(
+                          ResponseCode.SERVER_ERROR.getErrorCode(),
+                          ResponseCode.SERVER_ERROR.getErrorMessage(),
+                          ResponseCode.SERVER_ERROR.getResponseCode());
+                    }),
+            10);
+    lookup.add("do_1", 1);
+    lookup.awaitMissing();
+  }
+}
@@ -6,6 +6,7 @@ import java.util.stream.Collectors;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.sunbird.actor.router.ActorConfig;
+import org.sunbird.common.cacheloader.LocationTree;
 import org.sunbird.common.exception.ProjectCommonException;
 import org.sunbird.common.models.response.Response;
 import org.sunbird.common.models.util.*;
@@ -36,7 +37,6 @@ import org.sunbird.models.location.apirequest.UpsertLocationRequest;
   asyncTasks = {}
 )
 public class LocationActor extends BaseLocationActor {
-  private Map<String, Integer> orderMap;
   private ObjectMapper mapper = new ObjectMapper();
   private LocationDao locationDao = LocationDaoFactory.getInstance();
  
@@ -44,7 +44,6 @@ public class LocationActor extends BaseLocationActor {
   public void onReceive(Request request) throws Throwable {
     Util.initializeContext(request, TelemetryEnvKey.LOCATION);
     ExecutionContext.setRequestId(request.getRequestId());
-    initOrderMap();
 
     String operation = request.getOperation();
     switch (operation) {
@@ -68,25 +67,6 @@ public class LocationActor extends BaseLocationActor {
     }
   }
 
-  private void initOrderMap() {
-    if (orderMap == null) {
-      orderMap = new HashMap<>();
-
-      List<String> subTypeList =
-          Arrays.asList(
-              ProjectUtil.getConfigValue(GeoLocationJsonKey.SUNBIRD_VALID_LOCATION_TYPES)
-                  .split(";"));
-      for (String str : subTypeList) {
-        List<String> typeList =
-            (((Arrays.asList(str.split(","))).stream().map(String::toLowerCase))
-                .collect(Collectors.toList()));
-        for (int i = 0; i < typeList.size(); i++) {
-          orderMap.put(typeList.get(i), i);
-        }
-      }
-    }
-  }
-
   private void getRelatedLocationIds(Request request) {
     Response response = new Response();
     List<String> relatedLocationIds =
@@ -164,6 +144,8 @@ public class LocationActor extends BaseLocationActor {
   private void saveDataToES(Map<String, Object> locData, String opType) {
     if (isEventSyncEnabled()) {
       ProjectLogger.log("LocationActor:saveDataToES: Event sync is enabled", LoggerEnum.INFO);
+      // LocationBackgroundActor is not called, so the location tree is updated here.
+      LocationTree.getInstance().upsert(locData);
       return;
     }
     Request request = new Request();
@@ -185,6 +167,7 @@ public class LocationActor extends BaseLocationActor {
   private void deleteDataFromES(String locId) {
     if (isEventSyncEnabled()) {
       ProjectLogger.log("LocationActor:deleteDataFromES: Event sync is enabled", LoggerEnum.INFO);
+      LocationTree.getInstance().delete(locId);
       return;
     }
     Request request = new Request();
@@ -207,7 +190,10 @@ public class LocationActor extends BaseLocationActor {
   public List<String> getValidatedRelatedLocationIds(List<String> codeList) {
     Set<String> locationIds = null;
     List<String> codes = new ArrayList<>(codeList);
-    List<Location> locationList = getSearchResult(JsonKey.CODE, codeList);
+    List<Location> locationList =
+        LocationTree.getInstance()
+            .getLocationsByCodes(
+                codeList, missingCodes -> getSearchResult(JsonKey.CODE, missingCodes));
     List<String> locationIdList = new ArrayList<>();
     if (CollectionUtils.isNotEmpty(locationList)) {
       if (locationList.size() != codes.size()) {
@@ -260,59 +246,14 @@ public class LocationActor extends BaseLocationActor {
   }
 
   public Set<String> getValidatedRelatedLocationSet(List<Location> locationList) {
-    Set<Location> locationSet = new HashSet<>();
-    for (Location requestedLocation : locationList) {
-      Set<Location> parentLocnSet = getParentLocations(requestedLocation);
-      if (CollectionUtils.sizeIsEmpty(locationSet)) {
-        locationSet.addAll(parentLocnSet);
-      } else {
-        for (Location currentLocation : parentLocnSet) {
-          String type = currentLocation.getType();
-          locationSet
-              .stream()
-              .forEach(
-                  location -> {
-                    if (type.equalsIgnoreCase(location.getType())
-                        && !(currentLocation.getId().equals(location.getId()))) {
-                      throw new ProjectCommonException(
-                          ResponseCode.conflictingOrgLocations.getErrorCode(),
-                          ProjectUtil.formatMessage(
-                              ResponseCode.conflictingOrgLocations.getErrorMessage(),
-                              requestedLocation.getCode(),
-                              location.getCode(),
-                              type),
-                          ResponseCode.CLIENT_ERROR.getResponseCode());
-                    }
-                  });
-          locationSet.add(currentLocation);
-        }
-      }
-    }
-    return locationSet.stream().map(Location::getId).collect(Collectors.toSet());
+    return LocationTree.getValidatedLocationSet(locationList, this::getParentLocations);
   }
 
   private Set<Location> getParentLocations(Location locationObj) {
-    Set<Location> locationSet = new LinkedHashSet<>();
-    Location location = locationObj;
-    int count = getOrder(location.getType());
-    locationSet.add(location);
-    while (count > 0) {
-      Location parent = null;
-      if (getOrder(location.getType()) == 0 && StringUtils.isNotEmpty(location.getId())) {
-        parent = getLocation(location.getId());
-      } else if (StringUtils.isNotEmpty(location.getParentId())) {
-        parent = getLocation(location.getParentId());
-      }
-      if (null != parent) {
-        locationSet.add(parent);
-        location = parent;
-      }
-      count--;
-    }
-    return locationSet;
+    return LocationTree.getInstance().getParentLocations(locationObj, this::getLocation);
   }
 
   public int getOrder(String type) {
-    return orderMap.get(type);
+    return LocationTree.getInstance().getOrder(type);
   }
 }
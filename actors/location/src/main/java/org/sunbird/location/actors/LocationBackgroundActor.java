@@ -2,6 +2,7 @@ package org.sunbird.location.actors;
 
 import java.util.Map;
 import org.sunbird.actor.router.ActorConfig;
+import org.sunbird.common.cacheloader.LocationTree;
 import org.sunbird.common.factory.EsClientFactory;
 import org.sunbird.common.inf.ElasticSearchService;
 import org.sunbird.common.models.util.JsonKey;
@@ -41,11 +42,13 @@ public class LocationBackgroundActor extends BaseLocationActor {
   private void deleteLocationDataFromES(Request request) {
     String locationId = (String) request.get(JsonKey.LOCATION_ID);
     esService.delete(ProjectUtil.EsType.location.getTypeName(), locationId);
+    LocationTree.getInstance().delete(locationId);
   }
 
   private void upsertLocationDataToES(Request request) {
     Map<String, Object> location = (Map<String, Object>) request.getRequest().get(JsonKey.LOCATION);
     esService.upsert(
         ProjectUtil.EsType.location.getTypeName(), (String) location.get(JsonKey.ID), location);
+    LocationTree.getInstance().upsert(location);
   }
 }
@@ -1,14 +1,12 @@
 package org.sunbird.systemsettings.actors;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.apache.commons.collections.CollectionUtils;
 import org.sunbird.actor.core.BaseActor;
 import org.sunbird.actor.router.ActorConfig;
 import org.sunbird.actorutil.user.UserClient;
 import org.sunbird.actorutil.user.impl.UserClientImpl;
-import org.sunbird.cache.CacheFactory;
-import org.sunbird.cache.interfaces.Cache;
 import org.sunbird.cassandra.CassandraOperation;
+import org.sunbird.common.cacheloader.SystemSettingsRegistry;
 import org.sunbird.common.exception.ProjectCommonException;
 import org.sunbird.common.models.response.Response;
 import org.sunbird.common.models.util.*;
@@ -23,7 +21,6 @@ import org.sunbird.systemsettings.dao.impl.SystemSettingDaoImpl;
 import java.text.MessageFormat;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @ActorConfig(
   tasks = {"getSystemSetting", "getAllSystemSettings", "setSystemSetting"},
@@ -34,23 +31,14 @@ public class SystemSettingsActor extends BaseActor {
   private CassandraOperation cassandraOperation = ServiceFactory.getInstance();
   private final SystemSettingDaoImpl systemSettingDaoImpl =
       new SystemSettingDaoImpl(cassandraOperation);
-  private Cache cache = CacheFactory.getInstance();
+  private final SystemSettingsRegistry registry = SystemSettingsRegistry.getInstance();
 
   @Override
   public void preStart() throws Exception {
     super.preStart();
-    try {
-      List<SystemSetting> settings = systemSettingDaoImpl.readAll();
-      if (CollectionUtils.isNotEmpty(settings)) {
-        settings
-            .stream()
-            .map(f -> cache.put(ActorOperations.GET_SYSTEM_SETTING.getValue(), f.getField(), f))
-            .collect(Collectors.toList());
-      }
-    } catch (Exception e) {
-      ProjectLogger.log(
-          "SystemSettingsActor:getSystemSetting: Error occurred = " + e.getMessage(),
-          LoggerEnum.ERROR.name());
+    registry.subscribe(context().system());
+    if (!registry.isLoaded()) {
+      registry.run();
     }
   }
 
@@ -81,21 +69,11 @@ public class SystemSettingsActor extends BaseActor {
     ProjectLogger.log(
         "SystemSettingsActor:getSystemSetting: request is " + actorMessage.getRequest(),
         LoggerEnum.INFO.name());
-    SystemSetting setting =
-        (SystemSetting)
-            cache.get(
-                ActorOperations.GET_SYSTEM_SETTING.getValue(),
-                (String) actorMessage.getContext().get(JsonKey.FIELD),
-                SystemSetting.class);
+    String field = (String) actorMessage.getContext().get(JsonKey.FIELD);
+    SystemSetting setting = registry.getSetting(field);
     if (setting == null) {
-      setting =
-          systemSettingDaoImpl.readByField((String) actorMessage.getContext().get(JsonKey.FIELD));
-      if (setting != null) {
-        cache.put(
-            ActorOperations.GET_SYSTEM_SETTING.getValue(),
-            (String) actorMessage.getContext().get(JsonKey.FIELD),
-            setting);
-      }
+      setting = systemSettingDaoImpl.readByField(field);
+      registry.addIfAbsent(setting);
     }
     if (setting == null) {
       throw new ProjectCommonException(
@@ -112,7 +90,8 @@ public class SystemSettingsActor extends BaseActor {
   @SuppressWarnings("unchecked")
   private void getAllSystemSettings() {
     ProjectLogger.log("SystemSettingsActor: getAllSystemSettings called", LoggerEnum.DEBUG.name());
-    List<SystemSetting> allSystemSettings = systemSettingDaoImpl.readAll();
+    List<SystemSetting> allSystemSettings =
+        registry.isLoaded() ? registry.getAllSettings() : systemSettingDaoImpl.readAll();
     Response response = new Response();
     response.put(JsonKey.RESPONSE, allSystemSettings);
     sender().tell(response, self());
@@ -136,7 +115,7 @@ public class SystemSettingsActor extends BaseActor {
     SystemSetting systemSetting = mapper.convertValue(request, SystemSetting.class);
     Response response = systemSettingDaoImpl.write(systemSetting);
     if (response != null) {
-      cache.put(ActorOperations.GET_SYSTEM_SETTING.getValue(), field, systemSetting);
+      registry.publish(context().system(), registry.put(systemSetting));
     }
     sender().tell(response, self());
   }
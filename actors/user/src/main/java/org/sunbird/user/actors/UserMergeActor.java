@@ -9,6 +9,7 @@ import org.apache.kafka.clients.producer.ProducerRecord;
 import org.sunbird.actor.router.ActorConfig;
 import org.sunbird.actorutil.systemsettings.SystemSettingClient;
 import org.sunbird.actorutil.systemsettings.impl.SystemSettingClientImpl;
+import org.sunbird.common.cacheloader.UserProfileCache;
 import org.sunbird.common.exception.ProjectCommonException;
 import org.sunbird.common.models.response.Response;
 import org.sunbird.common.models.util.*;
@@ -92,6 +93,8 @@ public class UserMergeActor extends UserBaseActor {
       prepareMergeeAccountData(mergee, mergeeDBMap);
       userRequest.put(JsonKey.USER_MERGEE_ACCOUNT, mergeeDBMap);
       Response mergeeResponse = getUserDao().updateUser(mergeeDBMap);
+      UserProfileCache.getInstance().invalidate(mergeeId);
+      UserProfileCache.getInstance().invalidate(mergerId);
       String mergeeResponseStr = (String) mergeeResponse.get(JsonKey.RESPONSE);
       ProjectLogger.log(
           "UserMergeActor: updateUserMergeDetails: mergeeResponseStr = " + mergeeResponseStr,
@@ -138,7 +141,8 @@ public class UserMergeActor extends UserBaseActor {
                 getActorRef(ActorOperations.GET_SYSTEM_SETTING.getValue()),
                 JsonKey.CUSTODIAN_ORG_ID);
         if (custodianIdSetting != null) {
-          configSettingMap.put(custodianIdSetting.getId(), custodianIdSetting.getValue());
+          DataCacheHandler.updateConfigSettings(
+              custodianIdSetting.getId(), custodianIdSetting.getValue());
           custodianId = custodianIdSetting.getValue();
         }
       }
@@ -6,6 +6,7 @@ import java.util.Map;
 import org.apache.commons.lang3.StringUtils;
 import org.sunbird.actor.core.BaseActor;
 import org.sunbird.actor.router.ActorConfig;
+import org.sunbird.common.cacheloader.UserProfileCache;
 import org.sunbird.common.models.response.Response;
 import org.sunbird.common.models.util.JsonKey;
 import org.sunbird.common.models.util.ProjectUtil;
@@ -59,6 +60,7 @@ public class UserOrgManagementActor extends BaseActor {
       requestMap.put(JsonKey.HASHTAGID, hashTagId);
       Util.registerUserToOrg(requestMap);
     }
+    UserProfileCache.getInstance().invalidate((String) requestMap.get(JsonKey.ID));
     Response response = new Response();
     response.put(JsonKey.RESPONSE, JsonKey.SUCCESS);
     sender().tell(response, self());
@@ -82,6 +84,7 @@ public class UserOrgManagementActor extends BaseActor {
       addPublicRole(requestMap);
       Util.upsertUserOrgData(requestMap);
     }
+    UserProfileCache.getInstance().invalidate((String) requestMap.get(JsonKey.ID));
     Response response = new Response();
     response.put(JsonKey.RESPONSE, JsonKey.SUCCESS);
     sender().tell(response, self());
@@ -3,7 +3,12 @@ package org.sunbird.user.actors;
 import static org.sunbird.learner.util.Util.isNotNull;
 
 import akka.actor.ActorRef;
+import akka.actor.Scheduler;
+import akka.dispatch.ExecutionContexts;
+import akka.dispatch.Futures;
 import akka.dispatch.Mapper;
+import akka.dispatch.Recover;
+import akka.pattern.Patterns;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
@@ -16,16 +21,24 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.sunbird.actor.core.BaseActor;
 import org.sunbird.actor.router.ActorConfig;
 import org.sunbird.actorutil.systemsettings.SystemSettingClient;
 import org.sunbird.actorutil.systemsettings.impl.SystemSettingClientImpl;
 import org.sunbird.cassandra.CassandraOperation;
 import org.sunbird.common.ElasticSearchHelper;
+import org.sunbird.common.cacheloader.UserProfileCache;
 import org.sunbird.common.exception.ProjectCommonException;
 import org.sunbird.common.factory.EsClientFactory;
 import org.sunbird.common.inf.ElasticSearchService;
@@ -45,6 +58,7 @@ import org.sunbird.common.request.Request;
 import org.sunbird.common.responsecode.ResponseCode;
 import org.sunbird.dto.SearchDTO;
 import org.sunbird.helper.ServiceFactory;
+import org.sunbird.learner.util.ConfigValueUtil;
 import org.sunbird.learner.util.DataCacheHandler;
 import org.sunbird.learner.util.UserUtility;
 import org.sunbird.learner.util.Util;
@@ -55,9 +69,10 @@ import org.sunbird.services.sso.SSOServiceFactory;
 import org.sunbird.user.dao.UserDao;
 import org.sunbird.user.dao.impl.UserDaoImpl;
 import org.sunbird.user.dao.impl.UserExternalIdentityDaoImpl;
-import scala.concurrent.Await;
+import scala.concurrent.ExecutionContextExecutor;
 import scala.concurrent.Future;
 import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
 
 @ActorConfig(
   tasks = {"getUserDetailsByLoginId", "getUserProfile", "getUserProfileV2", "getUserByKey"},
@@ -65,6 +80,30 @@ import scala.concurrent.duration.Duration;
 )
 public class UserProfileReadActor extends BaseActor {
 
+  public static final String USER_PROFILE_READ_STAGE_TIMEOUT =
+      "sunbird_user_profile_read_stage_timeout_millis";
+  public static final String USER_PROFILE_READ_IO_THREADS = "sunbird_user_profile_read_io_threads";
+
+  private static final Consumer<Map<String, Object>> NO_CHANGE = user -> {};
+  private static final AtomicInteger ioThreadCount = new AtomicInteger();
+  /** Cassandra, Keycloak and system setting lookups block, so they run on a separate pool. */
+  private static final ExecutionContextExecutor ioContext =
+      ExecutionContexts.fromExecutorService(
+          Executors.newFixedThreadPool(
+              ConfigValueUtil.getIntValue(USER_PROFILE_READ_IO_THREADS, 32),
+              runnable -> {
+                Thread thread =
+                    new Thread(runnable, "user-profile-read-io-" + ioThreadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+              }));
+
+  private final FiniteDuration stageTimeout =
+      Duration.create(
+          ConfigValueUtil.getLongValue(USER_PROFILE_READ_STAGE_TIMEOUT, 5000),
+          TimeUnit.MILLISECONDS);
+  private final ExecutionContextExecutor ec = getContext().dispatcher();
+  private final Scheduler scheduler = getContext().system().scheduler();
   private CassandraOperation cassandraOperation = ServiceFactory.getInstance();
   private DecryptionService decryptionService =
       org.sunbird.common.models.util.datasecurity.impl.ServiceFactory.getDecryptionServiceInstance(
@@ -111,65 +150,136 @@ public class UserProfileReadActor extends BaseActor {
    * @param actorMessage Request containing user ID
    */
   private void getUserProfile(Request actorMessage) {
-    Response response = getUserProfileData(actorMessage);
-    sender().tell(response, self());
+    reply(getUserProfileData(actorMessage));
   }
 
-  private Response getUserProfileData(Request actorMessage){
+  private Future<Response> getUserProfileData(Request actorMessage) {
     Map<String, Object> userMap = actorMessage.getRequest();
     String id = (String) userMap.get(JsonKey.USER_ID);
-    String userId;
     String provider = (String) actorMessage.getContext().get(JsonKey.PROVIDER);
     String idType = (String) actorMessage.getContext().get(JsonKey.ID_TYPE);
-    boolean showMaskedData = false;
-    if (!StringUtils.isEmpty(provider)) {
-      if (StringUtils.isEmpty(idType)) {
-        userId = null;
-        ProjectCommonException.throwClientErrorException(
-            ResponseCode.mandatoryParamsMissing,
-            MessageFormat.format(
-                ResponseCode.mandatoryParamsMissing.getErrorMessage(), JsonKey.ID_TYPE));
-      } else {
-        userId = userExternalIdentityDao.getUserIdByExternalId(id, provider, idType);
-        if (userId == null) {
-          ProjectCommonException.throwClientErrorException(
-              ResponseCode.externalIdNotFound,
-              ProjectUtil.formatMessage(
-                  ResponseCode.externalIdNotFound.getErrorMessage(), id, idType, provider));
-        }
-        showMaskedData = true;
-      }
-
-    } else {
-      userId = id;
-      showMaskedData = false;
+    if (StringUtils.isEmpty(provider)) {
+      return getUserProfileData(actorMessage, id, false);
     }
+    if (StringUtils.isEmpty(idType)) {
+      ProjectCommonException.throwClientErrorException(
+          ResponseCode.mandatoryParamsMissing,
+          MessageFormat.format(
+              ResponseCode.mandatoryParamsMissing.getErrorMessage(), JsonKey.ID_TYPE));
+    }
+    Future<String> userIdF =
+        withTimeout(
+            "externalId",
+            blocking(() -> userExternalIdentityDao.getUserIdByExternalId(id, provider, idType)));
+    return userIdF.flatMap(
+        new Mapper<String, Future<Response>>() {
+          @Override
+          public Future<Response> apply(String userId) {
+            if (userId == null) {
+              ProjectCommonException.throwClientErrorException(
+                  ResponseCode.externalIdNotFound,
+                  ProjectUtil.formatMessage(
+                      ResponseCode.externalIdNotFound.getErrorMessage(), id, idType, provider));
+            }
+            return getUserProfileData(actorMessage, userId, true);
+          }
+        },
+        ec);
+  }
+
+  private Future<Response> getUserProfileData(
+      Request actorMessage, String userId, boolean showMaskedData) {
     boolean isPrivate = (boolean) actorMessage.getContext().get(JsonKey.PRIVATE);
-    Map<String, Object> result=null;
-    if (!isPrivate) {
-      Future<Map<String, Object>> resultF = esUtil.getDataByIdentifier(ProjectUtil.EsType.user.getTypeName(), userId);
-      try {
-        Object object  =  Await.result(resultF, ElasticSearchHelper.timeout.duration());
-        if(object != null) {
-          result = (Map<String, Object>) object;
-        }
-      } catch (Exception e) {
-        ProjectLogger.log(String.format("%s:%s:User not found with provided id == %s and error %s",this.getClass().getSimpleName(),"getUserProfileData",e.getMessage()), LoggerEnum.ERROR.name());
-      }
-    } else {
-      UserDao userDao = new UserDaoImpl();
-      User foundUser = userDao.getUserById(userId);
-      if (foundUser == null) {
-        throw new ProjectCommonException(
-            ResponseCode.userNotFound.getErrorCode(),
-            ResponseCode.userNotFound.getErrorMessage(),
-            ResponseCode.RESOURCE_NOT_FOUND.getResponseCode());
-      }
-      ObjectMapper objectMapper = new ObjectMapper();
-      objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-      result = objectMapper.convertValue(foundUser, Map.class);
-      result.put(JsonKey.ORGANISATIONS, Util.getUserOrgDetails(userId));
+    String requestedById =
+        (String) actorMessage.getContext().getOrDefault(JsonKey.REQUESTED_BY, "");
+    boolean isSelfView = userId.equalsIgnoreCase(requestedById) || showMaskedData;
+    String fields = (String) actorMessage.getContext().get(JsonKey.FIELDS);
+    String view = (isSelfView ? JsonKey.PRIVATE : JsonKey.PUBLIC) + ":" + isPrivate + ":" + fields;
+    return UserProfileCache.getInstance()
+        .get(userId, view, () -> buildUserProfile(userId, isPrivate, isSelfView, fields), ec)
+        .map(
+            new Mapper<Map<String, Object>, Response>() {
+              @Override
+              public Response apply(Map<String, Object> result) {
+                Response response = new Response();
+                response.put(JsonKey.RESPONSE, result);
+                return response;
+              }
+            },
+            ec);
+  }
+
+  private Future<Map<String, Object>> buildUserProfile(
+      String userId, boolean isPrivate, boolean isSelfView, String fields) {
+    return fetchUser(userId, isPrivate)
+        .flatMap(
+            new Mapper<Map<String, Object>, Future<Map<String, Object>>>() {
+              @Override
+              public Future<Map<String, Object>> apply(Map<String, Object> result) {
+                checkUserStatus(result);
+                return completeProfile(result, userId, isSelfView, fields);
+              }
+            },
+            ec)
+        .map(
+            new Mapper<Map<String, Object>, Map<String, Object>>() {
+              @Override
+              public Map<String, Object> apply(Map<String, Object> result) {
+                UserUtility.decryptUserDataFrmES(result);
+                updateSkillWithEndoresmentCount(result);
+                // loginId is used internally for checking the duplicate user
+                result.remove(JsonKey.LOGIN_ID);
+                result.remove(JsonKey.ENC_EMAIL);
+                result.remove(JsonKey.ENC_PHONE);
+                return result;
+              }
+            },
+            ec);
+  }
+
+  @SuppressWarnings("unchecked")
+  private Future<Map<String, Object>> fetchUser(String userId, boolean isPrivate) {
+    if (isPrivate) {
+      return withTimeout(
+          "user",
+          blocking(
+              () -> {
+                UserDao userDao = new UserDaoImpl();
+                User foundUser = userDao.getUserById(userId);
+                if (foundUser == null) {
+                  return null;
+                }
+                ObjectMapper objectMapper = new ObjectMapper();
+                objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+                Map<String, Object> result = objectMapper.convertValue(foundUser, Map.class);
+                result.put(JsonKey.ORGANISATIONS, Util.getUserOrgDetails(userId));
+                return result;
+              }));
     }
+    return withTimeout(
+            "user", esUtil.getDataByIdentifier(ProjectUtil.EsType.user.getTypeName(), userId))
+        .recover(
+            new Recover<Map<String, Object>>() {
+              @Override
+              public Map<String, Object> recover(Throwable failure) throws Throwable {
+                if (failure instanceof TimeoutException) {
+                  throw failure;
+                }
+                ProjectLogger.log(
+                    String.format(
+                        "%s:%s:User not found with provided id == %s and error %s",
+                        UserProfileReadActor.class.getSimpleName(),
+                        "fetchUser",
+                        userId,
+                        failure.getMessage()),
+                    LoggerEnum.ERROR.name());
+                return null;
+              }
+            },
+            ec);
+  }
+
+  private void checkUserStatus(Map<String, Object> result) {
     // check user found or not
     if (result == null || result.size() == 0) {
       throw new ProjectCommonException(
@@ -178,70 +288,134 @@ public class UserProfileReadActor extends BaseActor {
           ResponseCode.RESOURCE_NOT_FOUND.getResponseCode());
     }
     // check whether is_deletd true or false
-    if (ProjectUtil.isNotNull(result)
-        && result.containsKey(JsonKey.IS_DELETED)
+    if (result.containsKey(JsonKey.IS_DELETED)
         && ProjectUtil.isNotNull(result.get(JsonKey.IS_DELETED))
         && (Boolean) result.get(JsonKey.IS_DELETED)) {
-      ProjectCommonException.throwClientErrorException(ResponseCode.userAccountlocked);
-    }
-    fetchRootAndRegisterOrganisation(result);
-    // having check for removing private filed from user , if call user and response
-    // user data id is not same.
-    String requestedById =
-        (String) actorMessage.getContext().getOrDefault(JsonKey.REQUESTED_BY, "");
-    ProjectLogger.log(
-        "requested By and requested user id == " + requestedById + "  " + (String) userId);
-    try {
-      if (!(userId).equalsIgnoreCase(requestedById) && !showMaskedData) {
-        result = removeUserPrivateField(result);
-      } else {
-        // These values are set to ensure backward compatibility post introduction of global
-        // settings in user profile visibility
-        setCompleteProfileVisibilityMap(result);
-        setDefaultUserProfileVisibility(result);
-
-        // If the user requests his data then we are fetching the private data from
-        // userprofilevisibility index
-        // and merge it with user index data
-        Future<Map<String, Object>> privateResultF =
-            esUtil.getDataByIdentifier(
-                ProjectUtil.EsType.userprofilevisibility.getTypeName(), userId);
-        Map<String, Object> privateResult =
-            (Map<String, Object>) ElasticSearchHelper.getResponseFromFuture(privateResultF);
-        // fetch user external identity
-        List<Map<String, String>> dbResExternalIds = fetchUserExternalIdentity(userId);
-        result.put(JsonKey.EXTERNAL_IDS, dbResExternalIds);
-        result.putAll(privateResult);
-      }
-    } catch (Exception e) {
-      ProjectCommonException.throwServerErrorException(ResponseCode.userDataEncryptionError);
-    }
-    if (null != actorMessage.getContext().get(JsonKey.FIELDS)) {
-      String requestFields = (String) actorMessage.getContext().get(JsonKey.FIELDS);
-      addExtraFieldsInUserProfileResponse(result, requestFields, userId);
-    } else {
-      result.remove(JsonKey.MISSING_FIELDS);
-      result.remove(JsonKey.COMPLETENESS);
+      throw new ProjectCommonException(
+          ResponseCode.userAccountlocked.getErrorCode(),
+          ResponseCode.userAccountlocked.getErrorMessage(),
+          ResponseCode.CLIENT_ERROR.getResponseCode());
     }
+  }
 
-    Response response = new Response();
-
-    if (null != result) {
-      UserUtility.decryptUserDataFrmES(result);
-      updateSkillWithEndoresmentCount(result);
-      updateTncInfo(result);
-      // loginId is used internally for checking the duplicate user
-      result.remove(JsonKey.LOGIN_ID);
-      result.remove(JsonKey.ENC_EMAIL);
-      result.remove(JsonKey.ENC_PHONE);
-      // String username = ssoManager.getUsernameById(userId);
-      //  result.put(JsonKey.USERNAME, username);
-      response.put(JsonKey.RESPONSE, result);
+  /**
+   * Adds root org, TnC info, the private data for the user's own profile and the requested extra
+   * fields to the user. Lookups which do not depend on each other run concurrently, each one
+   * returns the change to apply to the user, and the changes are applied in a fixed order once all
+   * lookups are done.
+   */
+  private Future<Map<String, Object>> completeProfile(
+      Map<String, Object> result, String userId, boolean isSelfView, String fields) {
+    Future<Consumer<Map<String, Object>>> rootOrgF =
+        fetchRootAndRegisterOrganisation((String) result.get(JsonKey.ROOT_ORG_ID));
+    Future<Consumer<Map<String, Object>>> tncF = fetchTncInfo();
+    Future<Consumer<Map<String, Object>>> viewF;
+    if (isSelfView) {
+      viewF = fetchPrivateProfile(result, userId);
     } else {
-      result = new HashMap<>();
-      response.put(JsonKey.RESPONSE, result);
+      // having check for removing private filed from user , if call user and response
+      // user data id is not same.
+      viewF = Futures.<Consumer<Map<String, Object>>>successful(this::removeUserPrivateField);
     }
-    return response;
+    return viewF.flatMap(
+        new Mapper<Consumer<Map<String, Object>>, Future<Map<String, Object>>>() {
+          @Override
+          public Future<Map<String, Object>> apply(Consumer<Map<String, Object>> view) {
+            // Extra fields are looked up after the private data is merged, as they may be
+            // private.
+            view.accept(result);
+            List<Future<Consumer<Map<String, Object>>>> changes = new ArrayList<>();
+            changes.add(rootOrgF);
+            changes.add(tncF);
+            changes.addAll(addExtraFieldsInUserProfileResponse(result, fields, userId));
+            return Futures.sequence(changes, ec)
+                .map(
+                    new Mapper<Iterable<Consumer<Map<String, Object>>>, Map<String, Object>>() {
+                      @Override
+                      public Map<String, Object> apply(
+                          Iterable<Consumer<Map<String, Object>>> lookedUpChanges) {
+                        lookedUpChanges.forEach(change -> change.accept(result));
+                        return result;
+                      }
+                    },
+                    ec);
+          }
+        },
+        ec);
+  }
+
+  @SuppressWarnings("unchecked")
+  private Future<Consumer<Map<String, Object>>> fetchPrivateProfile(
+      Map<String, Object> result, String userId) {
+    // These values are set to ensure backward compatibility post introduction of global
+    // settings in user profile visibility
+    Map<String, String> profileVisibilityMap =
+        (Map<String, String>) result.get(JsonKey.PROFILE_VISIBILITY);
+    Future<Map<String, String>> completeVisibilityF =
+        withTimeout(
+            "profileVisibility",
+            blocking(
+                () ->
+                    Util.getCompleteProfileVisibilityMap(
+                        profileVisibilityMap, systemSettingActorRef)));
+    // If the user requests his data then we are fetching the private data from
+    // userprofilevisibility index
+    // and merge it with user index data
+    Future<Map<String, Object>> privateResultF =
+        withTimeout(
+            "privateFields",
+            esUtil.getDataByIdentifier(
+                ProjectUtil.EsType.userprofilevisibility.getTypeName(), userId));
+    // fetch user external identity
+    Future<List<Map<String, String>>> externalIdsF =
+        withTimeout("externalIds", blocking(() -> fetchUserExternalIdentity(userId)));
+    return completeVisibilityF
+        .flatMap(
+            new Mapper<Map<String, String>, Future<Consumer<Map<String, Object>>>>() {
+              @Override
+              public Future<Consumer<Map<String, Object>>> apply(
+                  Map<String, String> completeVisibilityMap) {
+                return privateResultF.flatMap(
+                    new Mapper<Map<String, Object>, Future<Consumer<Map<String, Object>>>>() {
+                      @Override
+                      public Future<Consumer<Map<String, Object>>> apply(
+                          Map<String, Object> privateResult) {
+                        return externalIdsF.map(
+                            new Mapper<List<Map<String, String>>, Consumer<Map<String, Object>>>() {
+                              @Override
+                              public Consumer<Map<String, Object>> apply(
+                                  List<Map<String, String>> externalIds) {
+                                return user -> {
+                                  user.put(JsonKey.PROFILE_VISIBILITY, completeVisibilityMap);
+                                  setDefaultUserProfileVisibility(user);
+                                  user.put(JsonKey.EXTERNAL_IDS, externalIds);
+                                  user.putAll(privateResult);
+                                };
+                              }
+                            },
+                            ec);
+                      }
+                    },
+                    ec);
+              }
+            },
+            ec)
+        .recover(
+            new Recover<Consumer<Map<String, Object>>>() {
+              @Override
+              public Consumer<Map<String, Object>> recover(Throwable failure) {
+                ProjectLogger.log(
+                    "UserProfileReadActor:fetchPrivateProfile: Exception occurred with error "
+                        + "message = "
+                        + failure.getMessage(),
+                    LoggerEnum.ERROR.name());
+                throw new ProjectCommonException(
+                    ResponseCode.userDataEncryptionError.getErrorCode(),
+                    ResponseCode.userDataEncryptionError.getErrorMessage(),
+                    ResponseCode.SERVER_ERROR.getResponseCode());
+              }
+            },
+            ec);
   }
 
   @SuppressWarnings("unchecked")
@@ -284,15 +458,6 @@ public class UserProfileReadActor extends BaseActor {
     return dbResExternalIds;
   }
 
-  @SuppressWarnings("unchecked")
-  private void setCompleteProfileVisibilityMap(Map<String, Object> userMap) {
-    Map<String, String> profileVisibilityMap =
-        (Map<String, String>) userMap.get(JsonKey.PROFILE_VISIBILITY);
-    Map<String, String> completeProfileVisibilityMap =
-        Util.getCompleteProfileVisibilityMap(profileVisibilityMap, systemSettingActorRef);
-    userMap.put(JsonKey.PROFILE_VISIBILITY, completeProfileVisibilityMap);
-  }
-
   private void setDefaultUserProfileVisibility(Map<String, Object> userMap) {
     userMap.put(
         JsonKey.DEFAULT_PROFILE_FIELD_VISIBILITY,
@@ -313,56 +478,93 @@ public class UserProfileReadActor extends BaseActor {
     return responseMap;
   }
 
-  private void fetchRootAndRegisterOrganisation(Map<String, Object> result) {
-    try {
-      if (isNotNull(result.get(JsonKey.ROOT_ORG_ID))) {
-
-        String rootOrgId = (String) result.get(JsonKey.ROOT_ORG_ID);
-        Future<Map<String, Object>> esResultF =
-            esUtil.getDataByIdentifier(ProjectUtil.EsType.organisation.getTypeName(), rootOrgId);
-        Map<String, Object> esResult =
-            (Map<String, Object>) ElasticSearchHelper.getResponseFromFuture(esResultF);
-        result.put(JsonKey.ROOT_ORG, esResult);
-      }
-    } catch (Exception ex) {
-      ProjectLogger.log(ex.getMessage(), ex);
+  private Future<Consumer<Map<String, Object>>> fetchRootAndRegisterOrganisation(
+      String rootOrgId) {
+    if (!isNotNull(rootOrgId)) {
+      return Futures.successful(NO_CHANGE);
     }
+    Future<Map<String, Object>> esResultF =
+        esUtil.getDataByIdentifier(ProjectUtil.EsType.organisation.getTypeName(), rootOrgId);
+    return optional(
+        "rootOrg",
+        esResultF.map(
+            new Mapper<Map<String, Object>, Consumer<Map<String, Object>>>() {
+              @Override
+              public Consumer<Map<String, Object>> apply(Map<String, Object> esResult) {
+                return user -> user.put(JsonKey.ROOT_ORG, esResult);
+              }
+            },
+            ec));
   }
 
+  /**
+   * Starts the lookups of the requested extra fields.
+   *
+   * @return changes to apply to the user, optional lookups which fail are skipped
+   */
   @SuppressWarnings({"unchecked", "rawtypes"})
-  private void addExtraFieldsInUserProfileResponse(
+  private List<Future<Consumer<Map<String, Object>>>> addExtraFieldsInUserProfileResponse(
       Map<String, Object> result, String fields, String userId) {
-    if (!StringUtils.isBlank(fields)) {
-      if (!fields.contains(JsonKey.COMPLETENESS)) {
-        result.remove(JsonKey.COMPLETENESS);
-      }
-      if (!fields.contains(JsonKey.MISSING_FIELDS)) {
-        result.remove(JsonKey.MISSING_FIELDS);
-      }
-      if (fields.contains(JsonKey.LAST_LOGIN_TIME)) {
-        result.put(
-            JsonKey.LAST_LOGIN_TIME,
-            Long.parseLong(getLastLoginTime(userId, (String) result.get(JsonKey.LAST_LOGIN_TIME))));
-      } else {
-        result.remove(JsonKey.LAST_LOGIN_TIME);
-      }
-      if (fields.contains(JsonKey.TOPIC)) {
-        // fetch the topic details of all user associated orgs and append in the result
-        fetchTopicOfAssociatedOrgs(result);
-      }
-      if (fields.contains(JsonKey.ORGANISATIONS)) {
-        updateUserOrgInfo((List) result.get(JsonKey.ORGANISATIONS));
-      }
-      if (fields.contains(JsonKey.ROLES)) {
-        updateRoleMasterInfo(result);
-      }
-      if (fields.contains(JsonKey.LOCATIONS)) {
-        result.put(
-            JsonKey.USER_LOCATIONS,
-            getUserLocations((List<String>) result.get(JsonKey.LOCATION_IDS)));
-        result.remove(JsonKey.LOCATION_IDS);
-      }
+    List<Future<Consumer<Map<String, Object>>>> changes = new ArrayList<>();
+    if (fields == null) {
+      result.remove(JsonKey.MISSING_FIELDS);
+      result.remove(JsonKey.COMPLETENESS);
+      return changes;
+    }
+    if (StringUtils.isBlank(fields)) {
+      return changes;
     }
+    if (!fields.contains(JsonKey.COMPLETENESS)) {
+      result.remove(JsonKey.COMPLETENESS);
+    }
+    if (!fields.contains(JsonKey.MISSING_FIELDS)) {
+      result.remove(JsonKey.MISSING_FIELDS);
+    }
+    if (fields.contains(JsonKey.LAST_LOGIN_TIME)) {
+      String storedLoginTime = (String) result.get(JsonKey.LAST_LOGIN_TIME);
+      changes.add(
+          optional(
+              "lastLoginTime",
+              this.<Consumer<Map<String, Object>>>blocking(
+                  () -> {
+                    long lastLoginTime = Long.parseLong(getLastLoginTime(userId, storedLoginTime));
+                    return user -> user.put(JsonKey.LAST_LOGIN_TIME, lastLoginTime);
+                  }),
+              user -> user.put(JsonKey.LAST_LOGIN_TIME, NumberUtils.toLong(storedLoginTime))));
+    } else {
+      result.remove(JsonKey.LAST_LOGIN_TIME);
+    }
+    if (fields.contains(JsonKey.TOPIC)) {
+      // fetch the topic details of all user associated orgs and append in the result
+      String id = (String) result.get(JsonKey.ID);
+      changes.add(
+          optional(
+              "topics",
+              this.<Consumer<Map<String, Object>>>blocking(
+                  () -> {
+                    Set<String> topics = fetchTopicOfAssociatedOrgs(id);
+                    return user -> user.put(JsonKey.TOPICS, topics);
+                  }),
+              user -> user.put(JsonKey.TOPICS, new HashSet<>())));
+    }
+    if (fields.contains(JsonKey.ORGANISATIONS)) {
+      changes.add(
+          optional("organisations", updateUserOrgInfo((List) result.get(JsonKey.ORGANISATIONS))));
+    }
+    if (fields.contains(JsonKey.ROLES)) {
+      changes.add(Futures.<Consumer<Map<String, Object>>>successful(this::updateRoleMasterInfo));
+    }
+    if (fields.contains(JsonKey.LOCATIONS)) {
+      changes.add(
+          optional(
+              "locations",
+              getUserLocations((List<String>) result.get(JsonKey.LOCATION_IDS)),
+              user -> {
+                user.put(JsonKey.USER_LOCATIONS, new ArrayList<>());
+                user.remove(JsonKey.LOCATION_IDS);
+              }));
+    }
+    return changes;
   }
 
   @SuppressWarnings("unchecked")
@@ -395,9 +597,7 @@ public class UserProfileReadActor extends BaseActor {
   }
 
   @SuppressWarnings("unchecked")
-  private void fetchTopicOfAssociatedOrgs(Map<String, Object> result) {
-
-    String userId = (String) result.get(JsonKey.ID);
+  private Set<String> fetchTopicOfAssociatedOrgs(String userId) {
     Map<String, Object> locationCache = new HashMap<>();
     Set<String> topicSet = new HashSet<>();
 
@@ -465,16 +665,40 @@ public class UserProfileReadActor extends BaseActor {
         }
       }
     }
-    result.put(JsonKey.TOPICS, topicSet);
+    return topicSet;
   }
 
-  private void updateUserOrgInfo(List<Map<String, Object>> userOrgs) {
-    Map<String, Map<String, Object>> orgInfoMap = fetchAllOrgsById(userOrgs);
-    Map<String, Map<String, Object>> locationInfoMap = fetchAllLocationsById(orgInfoMap);
-    prepUserOrgInfoWithAdditionalData(userOrgs, orgInfoMap, locationInfoMap);
+  private Future<Consumer<Map<String, Object>>> updateUserOrgInfo(
+      List<Map<String, Object>> userOrgs) {
+    if (userOrgs == null) {
+      return Futures.successful(NO_CHANGE);
+    }
+    return fetchAllOrgsById(userOrgs)
+        .flatMap(
+            new Mapper<Map<String, Map<String, Object>>, Future<Consumer<Map<String, Object>>>>() {
+              @Override
+              public Future<Consumer<Map<String, Object>>> apply(
+                  Map<String, Map<String, Object>> orgInfoMap) {
+                return fetchAllLocationsById(orgInfoMap)
+                    .map(
+                        new Mapper<
+                            Map<String, Map<String, Object>>, Consumer<Map<String, Object>>>() {
+                          @Override
+                          public Consumer<Map<String, Object>> apply(
+                              Map<String, Map<String, Object>> locationInfoMap) {
+                            return user ->
+                                prepUserOrgInfoWithAdditionalData(
+                                    userOrgs, orgInfoMap, locationInfoMap);
+                          }
+                        },
+                        ec);
+              }
+            },
+            ec);
   }
 
-  private Map<String, Map<String, Object>> fetchAllOrgsById(List<Map<String, Object>> userOrgs) {
+  private Future<Map<String, Map<String, Object>>> fetchAllOrgsById(
+      List<Map<String, Object>> userOrgs) {
     List<String> orgIds =
         userOrgs
             .stream()
@@ -484,14 +708,11 @@ public class UserProfileReadActor extends BaseActor {
     List<String> fields =
         Arrays.asList(
             JsonKey.ORG_NAME, JsonKey.CHANNEL, JsonKey.HASHTAGID, JsonKey.LOCATION_IDS, JsonKey.ID);
-
-    Map<String, Map<String, Object>> orgInfoMap =
-        getEsResultByListOfIds(orgIds, fields, EsType.organisation);
-    return orgInfoMap;
+    return getEsResultByListOfIds(orgIds, fields, EsType.organisation);
   }
 
   @SuppressWarnings("unchecked")
-  private Map<String, Map<String, Object>> fetchAllLocationsById(
+  private Future<Map<String, Map<String, Object>>> fetchAllLocationsById(
       Map<String, Map<String, Object>> orgInfoMap) {
     List<String> searchLocations = new ArrayList<>();
     for (Map<String, Object> org : orgInfoMap.values()) {
@@ -506,9 +727,7 @@ public class UserProfileReadActor extends BaseActor {
     }
     List<String> locationFields =
         Arrays.asList(JsonKey.CODE, JsonKey.NAME, JsonKey.TYPE, JsonKey.PARENT_ID, JsonKey.ID);
-    Map<String, Map<String, Object>> locationInfoMap =
-        getEsResultByListOfIds(searchLocations, locationFields, EsType.location);
-    return locationInfoMap;
+    return getEsResultByListOfIds(searchLocations, locationFields, EsType.location);
   }
 
   @SuppressWarnings("unchecked")
@@ -540,9 +759,11 @@ public class UserProfileReadActor extends BaseActor {
   }
 
   @SuppressWarnings("unchecked")
-  private Map<String, Map<String, Object>> getEsResultByListOfIds(
+  private Future<Map<String, Map<String, Object>>> getEsResultByListOfIds(
       List<String> orgIds, List<String> fields, EsType typeToSearch) {
-
+    if (CollectionUtils.isEmpty(orgIds)) {
+      return Futures.successful(new HashMap<>());
+    }
     Map<String, Object> filters = new HashMap<>();
     filters.put(JsonKey.ID, orgIds);
 
@@ -551,25 +772,30 @@ public class UserProfileReadActor extends BaseActor {
     searchDTO.setFields(fields);
 
     Future<Map<String, Object>> resultF = esUtil.search(searchDTO, typeToSearch.getTypeName());
-    Map<String, Object> result =
-        (Map<String, Object>) ElasticSearchHelper.getResponseFromFuture(resultF);
-
-    List<Map<String, Object>> esContent = (List<Map<String, Object>>) result.get(JsonKey.CONTENT);
-    return esContent
-        .stream()
-        .collect(
-            Collectors.toMap(
-                obj -> {
-                  return (String) obj.get("id");
-                },
-                val -> val));
+    return resultF.map(
+        new Mapper<Map<String, Object>, Map<String, Map<String, Object>>>() {
+          @Override
+          public Map<String, Map<String, Object>> apply(Map<String, Object> result) {
+            List<Map<String, Object>> esContent =
+                (List<Map<String, Object>>) result.get(JsonKey.CONTENT);
+            return esContent
+                .stream()
+                .collect(
+                    Collectors.toMap(
+                        obj -> {
+                          return (String) obj.get("id");
+                        },
+                        val -> val));
+          }
+        },
+        ec);
   }
 
   private void updateRoleMasterInfo(Map<String, Object> result) {
     Set<Entry<String, Object>> roleSet = DataCacheHandler.getRoleMap().entrySet();
     List<Map<String, String>> roleList = new ArrayList<>();
     roleSet
-        .parallelStream()
+        .stream()
         .forEach(
             (roleSetItem) -> {
               Map<String, String> roleMap = new HashMap<>();
@@ -587,23 +813,45 @@ public class UserProfileReadActor extends BaseActor {
    */
   @SuppressWarnings("unchecked")
   private void getUserProfileV2(Request actorMessage) {
-    Response response = getUserProfileData(actorMessage);
     SystemSettingClient systemSetting = new SystemSettingClientImpl();
-    Object excludedFieldList =
-        systemSetting.getSystemSettingByFieldAndKey(
-            systemSettingActorRef,
-            JsonKey.USER_PROFILE_CONFIG,
-            JsonKey.SUNBIRD_USER_PROFILE_READ_EXCLUDED_FIELDS,
-            new TypeReference<List<String>>() {});
-    if (excludedFieldList != null) {
-      removeExcludedFieldsFromUserProfileResponse(
-          (Map<String, Object>) response.get(JsonKey.RESPONSE), (List<String>) excludedFieldList);
-    } else {
-      ProjectLogger.log(
-          "UserProfileReadActor:getUserProfileV2: System setting userProfileConfig.read.excludedFields not configured.",
-          LoggerEnum.INFO.name());
-    }
-    sender().tell(response, self());
+    Future<List<String>> excludedFieldListF =
+        withFallback(
+            "excludedFields",
+            blocking(
+                () ->
+                    systemSetting.getSystemSettingByFieldAndKey(
+                        systemSettingActorRef,
+                        JsonKey.USER_PROFILE_CONFIG,
+                        JsonKey.SUNBIRD_USER_PROFILE_READ_EXCLUDED_FIELDS,
+                        new TypeReference<List<String>>() {})),
+            null);
+    Future<Response> responseF =
+        getUserProfileData(actorMessage)
+            .flatMap(
+                new Mapper<Response, Future<Response>>() {
+                  @Override
+                  public Future<Response> apply(Response response) {
+                    return excludedFieldListF.map(
+                        new Mapper<List<String>, Response>() {
+                          @Override
+                          public Response apply(List<String> excludedFieldList) {
+                            if (excludedFieldList != null) {
+                              removeExcludedFieldsFromUserProfileResponse(
+                                  (Map<String, Object>) response.get(JsonKey.RESPONSE),
+                                  excludedFieldList);
+                            } else {
+                              ProjectLogger.log(
+                                  "UserProfileReadActor:getUserProfileV2: System setting userProfileConfig.read.excludedFields not configured.",
+                                  LoggerEnum.INFO.name());
+                            }
+                            return response;
+                          }
+                        },
+                        ec);
+                  }
+                },
+                ec);
+    reply(responseF);
   }
 
   private void removeExcludedFieldsFromUserProfileResponse(
@@ -638,23 +886,25 @@ public class UserProfileReadActor extends BaseActor {
       filter.put(JsonKey.LOGIN_ID, loginId);
       searchDto.getAdditionalProperties().put(JsonKey.FILTERS, filter);
       Future<Map<String, Object>> esResponseF =
-          esUtil.search(searchDto, ProjectUtil.EsType.user.getTypeName());
-      Map<String, Object> esResponse =
-          (Map<String, Object>) ElasticSearchHelper.getResponseFromFuture(esResponseF);
-      List<Map<String, Object>> userList =
-          (List<Map<String, Object>>) esResponse.get(JsonKey.CONTENT);
-      Map<String, Object> result = null;
-      if (null != userList && !userList.isEmpty()) {
-        result = userList.get(0);
-      } else {
-        throw new ProjectCommonException(
-            ResponseCode.userNotFound.getErrorCode(),
-            ResponseCode.userNotFound.getErrorMessage(),
-            ResponseCode.RESOURCE_NOT_FOUND.getResponseCode());
-      }
-      // String username = ssoManager.getUsernameById((String) result.get(JsonKey.USER_ID));
-      // result.put(JsonKey.USERNAME, username);
-      sendResponse(actorMessage, result);
+          withTimeout("user", esUtil.search(searchDto, ProjectUtil.EsType.user.getTypeName()));
+      Future<Response> responseF =
+          esResponseF.flatMap(
+              new Mapper<Map<String, Object>, Future<Response>>() {
+                @Override
+                public Future<Response> apply(Map<String, Object> esResponse) {
+                  List<Map<String, Object>> userList =
+                      (List<Map<String, Object>>) esResponse.get(JsonKey.CONTENT);
+                  if (null == userList || userList.isEmpty()) {
+                    throw new ProjectCommonException(
+                        ResponseCode.userNotFound.getErrorCode(),
+                        ResponseCode.userNotFound.getErrorMessage(),
+                        ResponseCode.RESOURCE_NOT_FOUND.getResponseCode());
+                  }
+                  return getUserResponse(actorMessage, userList.get(0));
+                }
+              },
+              ec);
+      reply(responseF);
 
     } else {
       ProjectCommonException exception =
@@ -667,6 +917,7 @@ public class UserProfileReadActor extends BaseActor {
     }
   }
 
+  @SuppressWarnings("unchecked")
   private void getUserByKey(Request actorMessage) {
     String key = (String) actorMessage.getRequest().get(JsonKey.KEY);
     String value = (String) actorMessage.getRequest().get(JsonKey.VALUE);
@@ -687,134 +938,77 @@ public class UserProfileReadActor extends BaseActor {
       sender().tell(exception, self());
       return;
     }
-    UserDao userDao = new UserDaoImpl();
     Map<String, Object> searchMap = new HashMap();
     searchMap.put(key, encryptedValue);
-    List<User> foundUsers = userDao.getUsersByProperties(searchMap);
-    if (foundUsers == null || foundUsers.size() == 0) {
-      throw new ProjectCommonException(
-          ResponseCode.userNotFound.getErrorCode(),
-          ResponseCode.userNotFound.getErrorMessage(),
-          ResponseCode.RESOURCE_NOT_FOUND.getResponseCode());
-    }
-    User foundUser = foundUsers.get(0);
+    Future<List<User>> foundUsersF =
+        withTimeout("user", blocking(() -> new UserDaoImpl().getUsersByProperties(searchMap)));
+    Future<Response> responseF =
+        foundUsersF.flatMap(
+            new Mapper<List<User>, Future<Response>>() {
+              @Override
+              public Future<Response> apply(List<User> foundUsers) {
+                if (foundUsers == null || foundUsers.size() == 0) {
+                  throw new ProjectCommonException(
+                      ResponseCode.userNotFound.getErrorCode(),
+                      ResponseCode.userNotFound.getErrorMessage(),
+                      ResponseCode.RESOURCE_NOT_FOUND.getResponseCode());
+                }
+                User foundUser = foundUsers.get(0);
 
-    ObjectMapper objectMapper = new ObjectMapper();
-    objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-    Map<String, Object> result = objectMapper.convertValue(foundUser, Map.class);
-    if (result != null) {
-      result.put(JsonKey.EMAIL, result.get(JsonKey.MASKED_EMAIL));
-      result.put(JsonKey.PHONE, result.get(JsonKey.MASKED_PHONE));
-    }
-    // String username = ssoManager.getUsernameById(foundUser.getId());
-    // result.put(JsonKey.USERNAME, username);
-    sendResponse(actorMessage, result);
+                ObjectMapper objectMapper = new ObjectMapper();
+                objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+                Map<String, Object> result = objectMapper.convertValue(foundUser, Map.class);
+                if (result != null) {
+                  result.put(JsonKey.EMAIL, result.get(JsonKey.MASKED_EMAIL));
+                  result.put(JsonKey.PHONE, result.get(JsonKey.MASKED_PHONE));
+                }
+                return getUserResponse(actorMessage, result);
+              }
+            },
+            ec);
+    reply(responseF);
   }
 
-  private void sendResponse(Request actorMessage, Map<String, Object> result) {
-    if (result == null || result.size() == 0) {
-      throw new ProjectCommonException(
-          ResponseCode.userNotFound.getErrorCode(),
-          ResponseCode.userNotFound.getErrorMessage(),
-          ResponseCode.RESOURCE_NOT_FOUND.getResponseCode());
-    }
-
-    // check whether is_deletd true or false
-    if (ProjectUtil.isNotNull(result)
-        && result.containsKey(JsonKey.IS_DELETED)
-        && ProjectUtil.isNotNull(result.get(JsonKey.IS_DELETED))
-        && (Boolean) result.get(JsonKey.IS_DELETED)) {
-      throw new ProjectCommonException(
-          ResponseCode.userAccountlocked.getErrorCode(),
-          ResponseCode.userAccountlocked.getErrorMessage(),
-          ResponseCode.CLIENT_ERROR.getResponseCode());
-    }
-    fetchRootAndRegisterOrganisation(result);
-    // having check for removing private filed from user , if call user and response
-    // user data id is not same.
+  @SuppressWarnings("unchecked")
+  private Future<Response> getUserResponse(Request actorMessage, Map<String, Object> result) {
+    checkUserStatus(result);
     String requestedById =
         (String) actorMessage.getContext().getOrDefault(JsonKey.REQUESTED_BY, "");
-    ProjectLogger.log(
-        "requested By and requested user id == "
-            + requestedById
-            + "  "
-            + (String) result.get(JsonKey.USER_ID));
-
-    try {
-      if (!(((String) result.get(JsonKey.USER_ID)).equalsIgnoreCase(requestedById))) {
-        result = removeUserPrivateField(result);
-      } else {
-        // These values are set to ensure backward compatibility post introduction of global
-        // settings in user profile visibility
-        setCompleteProfileVisibilityMap(result);
-        setDefaultUserProfileVisibility(result);
-
-        // If the user requests his data then we are fetching the private data from
-        // userprofilevisibility index
-        // and merge it with user index data
-        Future<Map<String, Object>> privateResultF =
-            esUtil.getDataByIdentifier(
-                ProjectUtil.EsType.userprofilevisibility.getTypeName(),
-                (String) result.get(JsonKey.USER_ID));
-        Map<String, Object> privateResult =
-            (Map<String, Object>) ElasticSearchHelper.getResponseFromFuture(privateResultF);
-        // fetch user external identity
-        List<Map<String, String>> dbResExternalIds = fetchUserExternalIdentity(requestedById);
-        result.put(JsonKey.EXTERNAL_IDS, dbResExternalIds);
-        result.putAll(privateResult);
-      }
-    } catch (Exception e) {
-      ProjectCommonException exception =
-          new ProjectCommonException(
-              ResponseCode.userDataEncryptionError.getErrorCode(),
-              ResponseCode.userDataEncryptionError.getErrorMessage(),
-              ResponseCode.SERVER_ERROR.getResponseCode());
-      sender().tell(exception, self());
-      return;
-    }
-
-    Response response = new Response();
-    if (null != result) {
-      // remove email and phone no from response
-      result.remove(JsonKey.ENC_EMAIL);
-      result.remove(JsonKey.ENC_PHONE);
-      updateTncInfo(result);
-      if (null != actorMessage.getRequest().get(JsonKey.FIELDS)) {
-        List<String> requestFields = (List<String>) actorMessage.getRequest().get(JsonKey.FIELDS);
-        if (requestFields != null) {
-          addExtraFieldsInUserProfileResponse(
-              result, String.join(",", requestFields), (String) result.get(JsonKey.USER_ID));
-        } else {
-          result.remove(JsonKey.MISSING_FIELDS);
-          result.remove(JsonKey.COMPLETENESS);
-        }
-      } else {
-        result.remove(JsonKey.MISSING_FIELDS);
-        result.remove(JsonKey.COMPLETENESS);
-      }
-      response.put(JsonKey.RESPONSE, result);
-      UserUtility.decryptUserDataFrmES(result);
-    } else {
-      result = new HashMap<>();
-      response.put(JsonKey.RESPONSE, result);
-    }
-    sender().tell(response, self());
+    String userId = (String) result.get(JsonKey.USER_ID);
+    ProjectLogger.log("requested By and requested user id == " + requestedById + "  " + userId);
+    List<String> requestFields = (List<String>) actorMessage.getRequest().get(JsonKey.FIELDS);
+    String fields = requestFields != null ? String.join(",", requestFields) : null;
+    return completeProfile(result, userId, userId.equalsIgnoreCase(requestedById), fields)
+        .map(
+            new Mapper<Map<String, Object>, Response>() {
+              @Override
+              public Response apply(Map<String, Object> result) {
+                // remove email and phone no from response
+                result.remove(JsonKey.ENC_EMAIL);
+                result.remove(JsonKey.ENC_PHONE);
+                UserUtility.decryptUserDataFrmES(result);
+                Response response = new Response();
+                response.put(JsonKey.RESPONSE, result);
+                return response;
+              }
+            },
+            ec);
   }
 
-  private void updateTncInfo(Map<String, Object> result) {
+  private Future<Consumer<Map<String, Object>>> fetchTncInfo() {
     SystemSettingClient systemSettingClient = new SystemSettingClientImpl();
-    SystemSetting tncSystemSetting = null;
-    try {
-      tncSystemSetting =
-          systemSettingClient.getSystemSettingByField(
-              getActorRef(ActorOperations.GET_SYSTEM_SETTING.getValue()), JsonKey.TNC_CONFIG);
-    } catch (Exception e) {
-      ProjectLogger.log(
-          "UserManagementActor:updateTncInfo: Exception occurred while getting system setting for"
-              + JsonKey.TNC_CONFIG
-              + e.getMessage(),
-          LoggerEnum.ERROR.name());
-    }
+    return optional(
+        "tncConfig",
+        this.<Consumer<Map<String, Object>>>blocking(
+            () -> {
+              SystemSetting tncSystemSetting =
+                  systemSettingClient.getSystemSettingByField(
+                      systemSettingActorRef, JsonKey.TNC_CONFIG);
+              return user -> updateTncInfo(user, tncSystemSetting);
+            }));
+  }
+
+  private void updateTncInfo(Map<String, Object> result, SystemSetting tncSystemSetting) {
     if (tncSystemSetting != null) {
       try {
         ObjectMapper mapper = new ObjectMapper();
@@ -851,15 +1045,110 @@ public class UserProfileReadActor extends BaseActor {
     }
   }
 
-  private List<Map<String, Object>> getUserLocations(List<String> locationIds) {
-    if (CollectionUtils.isNotEmpty(locationIds)) {
-      List<String> locationFields =
-          Arrays.asList(JsonKey.CODE, JsonKey.NAME, JsonKey.TYPE, JsonKey.PARENT_ID, JsonKey.ID);
-      Map<String, Map<String, Object>> locationInfoMap =
-          getEsResultByListOfIds(locationIds, locationFields, EsType.location);
+  private Future<Consumer<Map<String, Object>>> getUserLocations(List<String> locationIds) {
+    List<String> locationFields =
+        Arrays.asList(JsonKey.CODE, JsonKey.NAME, JsonKey.TYPE, JsonKey.PARENT_ID, JsonKey.ID);
+    return getEsResultByListOfIds(locationIds, locationFields, EsType.location)
+        .map(
+            new Mapper<Map<String, Map<String, Object>>, Consumer<Map<String, Object>>>() {
+              @Override
+              public Consumer<Map<String, Object>> apply(
+                  Map<String, Map<String, Object>> locationInfoMap) {
+                List<Map<String, Object>> locations =
+                    locationInfoMap.values().stream().collect(Collectors.toList());
+                return user -> {
+                  user.put(JsonKey.USER_LOCATIONS, locations);
+                  user.remove(JsonKey.LOCATION_IDS);
+                };
+              }
+            },
+            ec);
+  }
 
-      return locationInfoMap.values().stream().collect(Collectors.toList());
-    }
-    return new ArrayList<>();
+  /** Runs a blocking lookup (Cassandra, Keycloak, system settings) off the actor dispatcher. */
+  private <T> Future<T> blocking(Callable<T> lookup) {
+    return Futures.future(lookup, ioContext);
+  }
+
+  /** Fails the stage if it does not complete within the stage timeout. */
+  private <T> Future<T> withTimeout(String stage, Future<T> future) {
+    Future<T> timeout =
+        Patterns.after(
+            stageTimeout,
+            scheduler,
+            ec,
+            () ->
+                Futures.failed(
+                    new TimeoutException(
+                        "UserProfileReadActor: " + stage + " not completed in " + stageTimeout)));
+    return Futures.firstCompletedOf(Arrays.asList(future, timeout), ec);
+  }
+
+  private Future<Consumer<Map<String, Object>>> optional(
+      String stage, Future<Consumer<Map<String, Object>>> change) {
+    return optional(stage, change, NO_CHANGE);
+  }
+
+  /**
+   * Optional profile enrichments fall back to the given change if they fail or time out. The
+   * profile is then marked as degraded, so that it is not cached and the next read retries.
+   */
+  private Future<Consumer<Map<String, Object>>> optional(
+      String stage,
+      Future<Consumer<Map<String, Object>>> change,
+      Consumer<Map<String, Object>> fallback) {
+    return withFallback(stage, change, fallback.andThen(UserProfileCache::markDegraded));
+  }
+
+  /** Optional lookups fall back to the given value if they fail or time out. */
+  private <T> Future<T> withFallback(String stage, Future<T> future, T fallback) {
+    return withTimeout(stage, future)
+        .recover(
+            new Recover<T>() {
+              @Override
+              public T recover(Throwable failure) {
+                ProjectLogger.log(
+                    "UserProfileReadActor:optional: Skipped "
+                        + stage
+                        + " with error message = "
+                        + failure.getMessage(),
+                    LoggerEnum.WARN.name());
+                return fallback;
+              }
+            },
+            ec);
+  }
+
+  /** Replies with the response, or with the error the response failed with. */
+  private void reply(Future<Response> responseF) {
+    Future<Object> reply =
+        responseF
+            .map(
+                new Mapper<Response, Object>() {
+                  @Override
+                  public Object apply(Response response) {
+                    return response;
+                  }
+                },
+                ec)
+            .recover(
+                new Recover<Object>() {
+                  @Override
+                  public Object recover(Throwable failure) {
+                    if (failure instanceof ProjectCommonException) {
+                      return failure;
+                    }
+                    ProjectLogger.log(
+                        "UserProfileReadActor:reply: Exception occurred with error message = "
+                            + failure.getMessage(),
+                        failure);
+                    return new ProjectCommonException(
+                        ResponseCode.SERVER_ERROR.getErrorCode(),
+                        ResponseCode.SERVER_ERROR.getErrorMessage(),
+                        ResponseCode.SERVER_ERROR.getResponseCode());
+                  }
+                },
+                ec);
+    Patterns.pipe(reply, ec).to(sender());
   }
 }
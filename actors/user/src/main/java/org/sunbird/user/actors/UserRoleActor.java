@@ -11,6 +11,7 @@ import org.sunbird.actor.router.ActorConfig;
 import org.sunbird.actorutil.org.OrganisationClient;
 import org.sunbird.actorutil.org.impl.OrganisationClientImpl;
 import org.sunbird.cassandra.CassandraOperation;
+import org.sunbird.common.cacheloader.UserProfileCache;
 import org.sunbird.common.exception.ProjectCommonException;
 import org.sunbird.common.models.response.Response;
 import org.sunbird.common.models.util.*;
@@ -95,6 +96,7 @@ public class UserRoleActor extends UserBaseActor {
     UserOrgDao userOrgDao = UserOrgDaoImpl.getInstance();
 
     Response response = userOrgDao.updateUserOrg(userOrg);
+    UserProfileCache.getInstance().invalidate(userId);
     sender().tell(response, self());
     if (((String) response.get(JsonKey.RESPONSE)).equalsIgnoreCase(JsonKey.SUCCESS)) {
       syncUserRoles(requestMap, JsonKey.ORGANISATION, userId, organisationId);
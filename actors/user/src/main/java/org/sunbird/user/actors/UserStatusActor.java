@@ -5,6 +5,7 @@ import java.text.MessageFormat;
 import java.util.HashMap;
 import java.util.Map;
 import org.sunbird.actor.router.ActorConfig;
+import org.sunbird.common.cacheloader.UserProfileCache;
 import org.sunbird.common.exception.ProjectCommonException;
 import org.sunbird.common.models.response.Response;
 import org.sunbird.common.models.util.*;
@@ -87,6 +88,7 @@ public class UserStatusActor extends UserBaseActor {
     }
 
     Response response = getUserDao().updateUser(updatedUser);
+    UserProfileCache.getInstance().invalidate(userId);
     sender().tell(response, self());
 
     // Update status in ES
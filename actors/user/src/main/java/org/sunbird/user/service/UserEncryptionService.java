@@ -8,4 +8,10 @@ public interface UserEncryptionService {
   List<String> getDecryptedFields(Map<String, Object> userMap);
 
   List<String> getEncryptedFields(Map<String, Object> userMap);
+
+  /** Returns the encrypted fields of an address which are not encrypted. */
+  List<String> getDecryptedAddressFields(Map<String, Object> addressMap);
+
+  /** Returns the encrypted fields of an address which are encrypted. */
+  List<String> getEncryptedAddressFields(Map<String, Object> addressMap);
 }
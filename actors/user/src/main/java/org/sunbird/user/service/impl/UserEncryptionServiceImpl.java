@@ -14,6 +14,7 @@ import org.sunbird.common.models.util.ProjectUtil;
 import org.sunbird.common.models.util.datasecurity.DecryptionService;
 import org.sunbird.common.models.util.datasecurity.EncryptionService;
 import org.sunbird.common.models.util.datasecurity.impl.ServiceFactory;
+import org.sunbird.learner.util.UserUtility;
 import org.sunbird.user.service.UserEncryptionService;
 
 public class UserEncryptionServiceImpl implements UserEncryptionService {
@@ -43,7 +44,7 @@ public class UserEncryptionServiceImpl implements UserEncryptionService {
     if (PhoneValidator.validatePhoneNumber((String) userMap.get(JsonKey.PHONE))) {
       decryptedFields.add(JsonKey.PHONE);
     }
-    List<String> otherDecryptedFields = getOtherDecryptedFields(userMap);
+    List<String> otherDecryptedFields = getOtherDecryptedFields(userMap, userEncryptedFieldList);
     decryptedFields.addAll(otherDecryptedFields);
     return decryptedFields;
   }
@@ -61,14 +62,24 @@ public class UserEncryptionServiceImpl implements UserEncryptionService {
       encryptedFields.add(JsonKey.PHONE);
     }
 
-    List<String> otherEncryptedFields = getOtherEncryptedFields(userMap);
+    List<String> otherEncryptedFields = getOtherEncryptedFields(userMap, userEncryptedFieldList);
     encryptedFields.addAll(otherEncryptedFields);
     return encryptedFields;
   }
 
-  private List<String> getOtherEncryptedFields(Map<String, Object> userMap) {
+  @Override
+  public List<String> getDecryptedAddressFields(Map<String, Object> addressMap) {
+    return getOtherDecryptedFields(addressMap, UserUtility.getAddressKeysToEncrypt());
+  }
+
+  @Override
+  public List<String> getEncryptedAddressFields(Map<String, Object> addressMap) {
+    return getOtherEncryptedFields(addressMap, UserUtility.getAddressKeysToEncrypt());
+  }
+
+  private List<String> getOtherEncryptedFields(Map<String, Object> userMap, List<String> fields) {
     List<String> decryptedFields = new ArrayList<>();
-    for (String field : userEncryptedFieldList) {
+    for (String field : fields) {
       try {
         if (StringUtils.isNotBlank((String) userMap.get(field))) {
           decryptionService.decryptData((String) userMap.get(field), true);
@@ -83,9 +94,9 @@ public class UserEncryptionServiceImpl implements UserEncryptionService {
     return decryptedFields;
   }
 
-  private List<String> getOtherDecryptedFields(Map<String, Object> userMap) {
+  private List<String> getOtherDecryptedFields(Map<String, Object> userMap, List<String> fields) {
     List<String> decryptedFields = new ArrayList<>();
-    for (String field : userEncryptedFieldList) {
+    for (String field : fields) {
       try {
         if (StringUtils.isNotBlank((String) userMap.get(field))
             && ((String) userMap.get(field))
@@ -14,6 +14,7 @@ import org.sunbird.actorutil.systemsettings.SystemSettingClient;
 import org.sunbird.actorutil.systemsettings.impl.SystemSettingClientImpl;
 import org.sunbird.cassandra.CassandraOperation;
 import org.sunbird.common.ElasticSearchHelper;
+import org.sunbird.common.cacheloader.UserProfileCache;
 import org.sunbird.common.exception.ProjectCommonException;
 import org.sunbird.common.factory.EsClientFactory;
 import org.sunbird.common.inf.ElasticSearchService;
@@ -115,6 +116,7 @@ public class UserServiceImpl implements UserService {
       String userId, Map<String, Object> userDataMap, Map<String, Object> userPrivateDataMap) {
     esUtil.save(ProjectUtil.EsType.userprofilevisibility.getTypeName(), userId, userPrivateDataMap);
     esUtil.save(ProjectUtil.EsType.user.getTypeName(), userId, userDataMap);
+    UserProfileCache.getInstance().invalidate(userId);
   }
 
   @Override
@@ -269,7 +271,8 @@ public class UserServiceImpl implements UserService {
                           actorRef,
                           JsonKey.CUSTODIAN_ORG_CHANNEL);
           if (custodianOrgChannelSetting != null &&  StringUtils.isNotBlank(custodianOrgChannelSetting.getValue())) {
-            configSettingMap.put(custodianOrgChannelSetting.getId(), custodianOrgChannelSetting.getValue());
+            DataCacheHandler.updateConfigSettings(
+                custodianOrgChannelSetting.getId(), custodianOrgChannelSetting.getValue());
             channel = custodianOrgChannelSetting.getValue();
           }
         }
@@ -0,0 +1,570 @@
+package org.sunbird.user.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import org.apache.commons.collections.CollectionUtils;
+import org.sunbird.cassandra.CassandraOperation;
+import org.sunbird.common.exception.ProjectCommonException;
+import org.sunbird.common.models.response.Response;
+import org.sunbird.common.models.util.JsonKey;
+import org.sunbird.common.models.util.LoggerEnum;
+import org.sunbird.common.models.util.ProjectLogger;
+import org.sunbird.common.models.util.ProjectUtil;
+import org.sunbird.common.models.util.datasecurity.OneWayHashing;
+import org.sunbird.common.responsecode.ResponseCode;
+import org.sunbird.learner.util.ConfigValueUtil;
+import org.sunbird.learner.util.Util;
+
+/**
+ * Encrypts or decrypts the sensitive data of a list of users, e.g. after a key rotation. The users
+ * are processed in chunks which run through four stages: the users of a chunk are read with one
+ * query, their data and addresses are transformed on a worker pool, the changed rows are written
+ * in size capped batches while the next chunk is read and transformed, and the changed users are
+ * synced to ES with one request per chunk. The number of completed chunks and the users which
+ * could not be transformed are saved after every chunk, so a job run again for the same users
+ * retries these users and resumes after the last completed chunk. The checkpoint is deleted once
+ * all users are done, so that the same job can be run again later, e.g. to encrypt users again.
+ */
+public final class UserDataCryptoJob {
+
+  public static final String USER_CRYPTO_JOB_CHUNK_SIZE = "sunbird_user_crypto_job_chunk_size";
+  public static final String USER_CRYPTO_JOB_THREADS = "sunbird_user_crypto_job_threads";
+  public static final String USER_CRYPTO_JOB_MAX_ROWS_PER_SECOND =
+      "sunbird_user_crypto_job_max_rows_per_second";
+  /**
+   * Maximum estimated size of a write batch, kept below the batch_size_fail_threshold_in_kb of
+   * Cassandra (50 by default) since the rows of a batch belong to different partitions.
+   */
+  public static final String USER_CRYPTO_JOB_MAX_BATCH_SIZE_KB =
+      "sunbird_user_crypto_job_max_batch_size_kb";
+
+  static final String CHECKPOINT_TABLE = "user_crypto_job_checkpoint";
+  static final String COMPLETED = "completed";
+  static final String TOTAL = "total";
+  static final String FAILED = "failed";
+
+  static final String READ = "read";
+  static final String TRANSFORM = "transform";
+  static final String WRITE = "write";
+  static final String SYNC = "sync";
+
+  private static final ExecutorService workers =
+      Executors.newFixedThreadPool(
+          Math.max(
+              1,
+              ConfigValueUtil.getIntValue(
+                  USER_CRYPTO_JOB_THREADS, Runtime.getRuntime().availableProcessors())),
+          runnable -> newDaemonThread(runnable, "user-crypto-job"));
+
+  private static final ExecutorService writer =
+      Executors.newSingleThreadExecutor(
+          runnable -> newDaemonThread(runnable, "user-crypto-job-writer"));
+
+  private static final Map<String, Stage> stages = new LinkedHashMap<>();
+
+  static {
+    for (String stage : new String[] {READ, TRANSFORM, WRITE, SYNC}) {
+      stages.put(stage, new Stage());
+    }
+  }
+
+  /** Changes the sensitive data of a user, e.g. encrypts it. */
+  public interface Transform {
+
+    /** Returns the fields of the given user to be changed, empty if there is nothing to do. */
+    List<String> getFields(Map<String, Object> user);
+
+    /** Returns the fields of the given address to be changed, empty if there is nothing to do. */
+    List<String> getAddressFields(Map<String, Object> address);
+
+    void apply(Map<String, Object> user, List<String> fields) throws Exception;
+
+    void applyToAddresses(List<Map<String, Object>> addresses) throws Exception;
+  }
+
+  private final String operation;
+  private final Transform transform;
+  private final CassandraOperation cassandraOperation;
+  private final Consumer<List<String>> esSync;
+  private final int chunkSize;
+  private final long maxRowsPerSecond;
+  private final long maxBatchBytes;
+  private final Util.DbInfo usrDbInfo = Util.dbInfoMap.get(JsonKey.USER_DB);
+  private final Util.DbInfo addrDbInfo = Util.dbInfoMap.get(JsonKey.ADDRESS_DB);
+
+  /**
+   * @param operation name of the operation, e.g. backgroundEncryption
+   * @param transform changes the data of a user
+   * @param cassandraOperation database access
+   * @param esSync syncs the given user IDs to ES, called on the thread running the job
+   */
+  public UserDataCryptoJob(
+      String operation,
+      Transform transform,
+      CassandraOperation cassandraOperation,
+      Consumer<List<String>> esSync) {
+    this(
+        operation,
+        transform,
+        cassandraOperation,
+        esSync,
+        ConfigValueUtil.getIntValue(USER_CRYPTO_JOB_CHUNK_SIZE, 100),
+        ConfigValueUtil.getLongValue(USER_CRYPTO_JOB_MAX_ROWS_PER_SECOND, 0),
+        ConfigValueUtil.getIntValue(USER_CRYPTO_JOB_MAX_BATCH_SIZE_KB, 40));
+  }
+
+  UserDataCryptoJob(
+      String operation,
+      Transform transform,
+      CassandraOperation cassandraOperation,
+      Consumer<List<String>> esSync,
+      int chunkSize,
+      long maxRowsPerSecond,
+      int maxBatchSizeKb) {
+    this.operation = operation;
+    this.transform = transform;
+    this.cassandraOperation = cassandraOperation;
+    this.esSync = esSync;
+    this.chunkSize = Math.max(1, chunkSize);
+    this.maxRowsPerSecond = maxRowsPerSecond;
+    this.maxBatchBytes = Math.max(1, maxBatchSizeKb) * 1024L;
+  }
+
+  /**
+   * Processes the given users, starting with the users which failed and after the last chunk
+   * completed by an earlier run for the same users. A chunk which cannot be written stops the job,
+   * so that it is retried on the next run.
+   *
+   * @param userIds IDs of the users
+   * @return number of users changed by this run
+   */
+  public int run(List<String> userIds) {
+    long startTime = System.currentTimeMillis();
+    List<List<String>> chunks = partition(userIds);
+    String jobId = OneWayHashing.encryptVal(operation + "_" + String.join(",", userIds));
+    Checkpoint checkpoint = readCheckpoint(jobId);
+    if (checkpoint.completed > 0 || !checkpoint.failed.isEmpty()) {
+      ProjectLogger.log(
+          "UserDataCryptoJob:run: Resuming "
+              + operation
+              + " job "
+              + jobId
+              + " after chunk "
+              + checkpoint.completed
+              + " of "
+              + chunks.size()
+              + " with "
+              + checkpoint.failed.size()
+              + " failed users",
+          LoggerEnum.INFO.name());
+    }
+    // failed users of completed chunks are retried first, without moving the checkpoint
+    List<List<String>> work = partition(checkpoint.failed);
+    List<Integer> completedAfter = new ArrayList<>(Collections.nCopies(work.size(), 0));
+    for (int index = checkpoint.completed; index < chunks.size(); index++) {
+      work.add(chunks.get(index));
+      completedAfter.add(index + 1);
+    }
+    int completed = checkpoint.completed;
+    // failed users to save with the checkpoint, the users still to retry included
+    List<String> failed = new ArrayList<>(checkpoint.failed);
+    int changed = 0;
+    long rows = 0;
+    PendingWrite pendingWrite = null;
+    for (int index = 0; index < work.size(); index++) {
+      rows = throttle(startTime, rows, work.get(index).size());
+      List<String> chunkFailed = Collections.synchronizedList(new ArrayList<>());
+      List<Map<String, Object>> users = transform(read(work.get(index)), chunkFailed);
+      if (pendingWrite != null) {
+        changed += complete(jobId, pendingWrite, failed, chunks.size());
+      }
+      boolean retry = completedAfter.get(index) == 0;
+      completed = Math.max(completed, completedAfter.get(index));
+      pendingWrite =
+          new PendingWrite(
+              CompletableFuture.supplyAsync(() -> write(users), writer),
+              retry ? work.get(index) : Collections.emptyList(),
+              chunkFailed,
+              completed);
+    }
+    if (pendingWrite != null) {
+      changed += complete(jobId, pendingWrite, failed, chunks.size());
+    }
+    if (failed.isEmpty()) {
+      deleteCheckpoint(jobId);
+    }
+    ProjectLogger.log(
+        "UserDataCryptoJob:run: "
+            + operation
+            + " changed "
+            + changed
+            + " of "
+            + userIds.size()
+            + " users in "
+            + (System.currentTimeMillis() - startTime)
+            + " ms, "
+            + failed.size()
+            + " users failed, stages "
+            + getMetrics(),
+        LoggerEnum.INFO.name());
+    return changed;
+  }
+
+  /**
+   * Returns the rows processed, the time spent in millis and the throughput in rows per second of
+   * each stage since startup, keyed by e.g. "transform.rowsPerSecond".
+   */
+  public static Map<String, Long> getMetrics() {
+    Map<String, Long> metrics = new LinkedHashMap<>();
+    stages.forEach(
+        (name, stage) -> {
+          long rows = stage.rows.get();
+          long millis = stage.nanos.get() / 1000000;
+          metrics.put(name + ".rows", rows);
+          metrics.put(name + ".millis", millis);
+          metrics.put(name + ".rowsPerSecond", millis == 0 ? 0 : rows * 1000 / millis);
+        });
+    return metrics;
+  }
+
+  /**
+   * Waits for the write of a chunk, syncs its users to ES and saves the checkpoint. The users of a
+   * retried chunk are removed from the failed users, and the users of the chunk which could not be
+   * transformed are added.
+   */
+  private int complete(String jobId, PendingWrite pendingWrite, List<String> failed, int total) {
+    List<String> userIds;
+    try {
+      userIds = pendingWrite.write.join();
+    } catch (CompletionException e) {
+      ProjectLogger.log(
+          "UserDataCryptoJob:complete: Stopping "
+              + operation
+              + " job "
+              + jobId
+              + " at chunk "
+              + pendingWrite.completed
+              + " with error message = "
+              + e.getCause().getMessage(),
+          e.getCause());
+      throw e.getCause() instanceof RuntimeException
+          ? (RuntimeException) e.getCause()
+          : new ProjectCommonException(
+              ResponseCode.SERVER_ERROR.getErrorCode(),
+              ResponseCode.SERVER_ERROR.getErrorMessage(),
+              ResponseCode.SERVER_ERROR.getResponseCode());
+    }
+    if (CollectionUtils.isNotEmpty(userIds)) {
+      long start = System.nanoTime();
+      esSync.accept(userIds);
+      stages.get(SYNC).record(userIds.size(), start);
+    }
+    failed.removeAll(pendingWrite.retried);
+    failed.addAll(pendingWrite.failed);
+    saveCheckpoint(jobId, pendingWrite.completed, total, failed);
+    return userIds.size();
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<Map<String, Object>> read(List<String> userIds) {
+    long start = System.nanoTime();
+    Response response =
+        cassandraOperation.getRecordsByIdsWithSpecifiedColumns(
+            usrDbInfo.getKeySpace(), usrDbInfo.getTableName(), null, userIds);
+    List<Map<String, Object>> users = (List<Map<String, Object>>) response.get(JsonKey.RESPONSE);
+    stages.get(READ).record(userIds.size(), start);
+    return users == null ? Collections.emptyList() : users;
+  }
+
+  /**
+   * Transforms the users of a chunk on the worker pool. Returns the users which were changed, the
+   * IDs of users which could not be transformed are added to the given list.
+   */
+  private List<Map<String, Object>> transform(
+      List<Map<String, Object>> users, List<String> failed) {
+    long start = System.nanoTime();
+    List<CompletableFuture<Map<String, Object>>> futures =
+        users
+            .stream()
+            .map(user -> CompletableFuture.supplyAsync(() -> transform(user, failed), workers))
+            .collect(Collectors.toList());
+    List<Map<String, Object>> changed =
+        futures
+            .stream()
+            .map(CompletableFuture::join)
+            .filter(user -> user != null)
+            .collect(Collectors.toList());
+    stages.get(TRANSFORM).record(users.size(), start);
+    return changed;
+  }
+
+  /**
+   * Changes the data and addresses of a user. Only the addresses which still need the change are
+   * changed, as the addresses of a user may have been written by an earlier run which failed to
+   * write the user. The addresses are kept under {@link JsonKey#ADDRESS} until they are written.
+   *
+   * @return the changed user, or null if there was nothing to change or the change failed
+   */
+  private Map<String, Object> transform(Map<String, Object> user, List<String> failed) {
+    String userId = (String) user.get(JsonKey.ID);
+    List<String> fields = transform.getFields(user);
+    if (CollectionUtils.isEmpty(fields)) {
+      ProjectLogger.log(
+          "UserDataCryptoJob:transform: Nothing to " + operation + " for userId = " + userId,
+          LoggerEnum.INFO.name());
+      return null;
+    }
+    try {
+      user.remove(JsonKey.ADDRESS);
+      transform.apply(user, fields);
+      List<Map<String, Object>> addresses = new ArrayList<>();
+      List<Map<String, Object>> storedAddresses = readAddresses(userId);
+      if (storedAddresses != null) {
+        for (Map<String, Object> address : storedAddresses) {
+          if (CollectionUtils.isNotEmpty(transform.getAddressFields(address))) {
+            addresses.add(address);
+          }
+        }
+      }
+      if (!addresses.isEmpty()) {
+        transform.applyToAddresses(addresses);
+        user.put(JsonKey.ADDRESS, addresses);
+      }
+      return user;
+    } catch (Exception e) {
+      ProjectLogger.log(
+          "UserDataCryptoJob:transform: Exception occurred for userId = "
+              + userId
+              + " with error message = "
+              + e.getMessage(),
+          e);
+      failed.add(userId);
+      return null;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<Map<String, Object>> readAddresses(String userId) {
+    Response response =
+        cassandraOperation.getRecordsByProperty(
+            addrDbInfo.getKeySpace(), addrDbInfo.getTableName(), JsonKey.USER_ID, userId);
+    return (List<Map<String, Object>>) response.get(JsonKey.RESPONSE);
+  }
+
+  /**
+   * Writes the addresses and then the users of a chunk. A user is only written after its
+   * addresses, so a user found changed by a later run has its addresses changed as well. Returns
+   * the user IDs.
+   */
+  @SuppressWarnings("unchecked")
+  private List<String> write(List<Map<String, Object>> users) {
+    long start = System.nanoTime();
+    List<String> userIds = new ArrayList<>();
+    List<Map<String, Object>> addresses = new ArrayList<>();
+    for (Map<String, Object> user : users) {
+      userIds.add((String) user.get(JsonKey.ID));
+      Object userAddresses = user.remove(JsonKey.ADDRESS);
+      if (userAddresses != null) {
+        addresses.addAll((List<Map<String, Object>>) userAddresses);
+      }
+    }
+    write(addrDbInfo, addresses);
+    write(usrDbInfo, users);
+    stages.get(WRITE).record(users.size() + addresses.size(), start);
+    return userIds;
+  }
+
+  /**
+   * Writes the rows in batches whose estimated size stays below the configured maximum. A row
+   * larger than the maximum is written in a batch of its own.
+   */
+  private void write(Util.DbInfo dbInfo, List<Map<String, Object>> rows) {
+    List<Map<String, Object>> batch = new ArrayList<>();
+    long batchBytes = 0;
+    for (Map<String, Object> row : rows) {
+      long rowBytes = getSize(row);
+      if (!batch.isEmpty() && batchBytes + rowBytes > maxBatchBytes) {
+        cassandraOperation.batchUpdateById(dbInfo.getKeySpace(), dbInfo.getTableName(), batch);
+        batch = new ArrayList<>();
+        batchBytes = 0;
+      }
+      batch.add(row);
+      batchBytes += rowBytes;
+    }
+    if (!batch.isEmpty()) {
+      cassandraOperation.batchUpdateById(dbInfo.getKeySpace(), dbInfo.getTableName(), batch);
+    }
+  }
+
+  /** Estimates the size of a row in a batch from the string length of its names and values. */
+  static long getSize(Map<String, Object> row) {
+    long size = 0;
+    for (Map.Entry<String, Object> entry : row.entrySet()) {
+      size += entry.getKey().length();
+      if (entry.getValue() != null) {
+        size += String.valueOf(entry.getValue()).length();
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Reads the checkpoint of a job. A checkpoint of a finished job, left behind by a failed delete,
+   * is ignored.
+   */
+  @SuppressWarnings("unchecked")
+  private Checkpoint readCheckpoint(String jobId) {
+    Checkpoint checkpoint = new Checkpoint();
+    try {
+      Response response =
+          cassandraOperation.getRecordById(usrDbInfo.getKeySpace(), CHECKPOINT_TABLE, jobId);
+      List<Map<String, Object>> checkpoints =
+          (List<Map<String, Object>>) response.get(JsonKey.RESPONSE);
+      if (CollectionUtils.isEmpty(checkpoints)) {
+        return checkpoint;
+      }
+      Map<String, Object> record = checkpoints.get(0);
+      int completed = getInt(record.get(COMPLETED));
+      int total = getInt(record.get(TOTAL));
+      List<String> failed =
+          record.get(FAILED) instanceof List ? (List<String>) record.get(FAILED) : null;
+      if (completed < total || CollectionUtils.isNotEmpty(failed)) {
+        checkpoint.completed = completed;
+        if (failed != null) {
+          checkpoint.failed.addAll(failed);
+        }
+      }
+    } catch (Exception e) {
+      ProjectLogger.log(
+          "UserDataCryptoJob:readCheckpoint: Starting job "
+              + jobId
+              + " from the first chunk, error message = "
+              + e.getMessage(),
+          LoggerEnum.WARN.name());
+    }
+    return checkpoint;
+  }
+
+  /**
+   * Saves the number of completed chunks and the failed users. A failed save is logged, the job
+   * goes on.
+   */
+  private void saveCheckpoint(String jobId, int completed, int total, List<String> failed) {
+    Map<String, Object> checkpoint = new HashMap<>();
+    checkpoint.put(JsonKey.ID, jobId);
+    checkpoint.put(JsonKey.OPERATION, operation);
+    checkpoint.put(COMPLETED, completed);
+    checkpoint.put(TOTAL, total);
+    checkpoint.put(FAILED, new ArrayList<>(failed));
+    checkpoint.put(JsonKey.UPDATED_DATE, ProjectUtil.getFormattedDate());
+    try {
+      cassandraOperation.upsertRecord(usrDbInfo.getKeySpace(), CHECKPOINT_TABLE, checkpoint);
+    } catch (Exception e) {
+      ProjectLogger.log(
+          "UserDataCryptoJob:saveCheckpoint: Cannot save chunk "
+              + completed
+              + " of job "
+              + jobId
+              + ", error message = "
+              + e.getMessage(),
+          LoggerEnum.WARN.name());
+    }
+  }
+
+  /** Deletes the checkpoint of a finished job. A failed delete is logged. */
+  private void deleteCheckpoint(String jobId) {
+    try {
+      cassandraOperation.deleteRecord(usrDbInfo.getKeySpace(), CHECKPOINT_TABLE, jobId);
+    } catch (Exception e) {
+      ProjectLogger.log(
+          "UserDataCryptoJob:deleteCheckpoint: Cannot delete checkpoint of job "
+              + jobId
+              + ", error message = "
+              + e.getMessage(),
+          LoggerEnum.WARN.name());
+    }
+  }
+
+  /**
+   * Waits until the given number of rows can be processed without exceeding the configured rows
+   * per second since the start of the job.
+   *
+   * @return number of rows processed including the given rows
+   */
+  private long throttle(long startTime, long rows, int chunkRows) {
+    if (maxRowsPerSecond > 0) {
+      long delay = startTime + rows * 1000 / maxRowsPerSecond - System.currentTimeMillis();
+      if (delay > 0) {
+        try {
+          Thread.sleep(delay);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+    return rows + chunkRows;
+  }
+
+  private List<List<String>> partition(List<String> userIds) {
+    List<List<String>> chunks = new ArrayList<>();
+    for (int from = 0; from < userIds.size(); from += chunkSize) {
+      chunks.add(userIds.subList(from, Math.min(userIds.size(), from + chunkSize)));
+    }
+    return chunks;
+  }
+
+  private static int getInt(Object value) {
+    return value instanceof Integer ? (Integer) value : 0;
+  }
+
+  private static Thread newDaemonThread(Runnable runnable, String name) {
+    Thread thread = new Thread(runnable, name);
+    thread.setDaemon(true);
+    return thread;
+  }
+
+  private static class Checkpoint {
+    private int completed;
+    private final List<String> failed = new ArrayList<>();
+  }
+
+  /** Write of a chunk in progress, with the checkpoint to save once it is done. */
+  private static class PendingWrite {
+    private final CompletableFuture<List<String>> write;
+    private final List<String> retried;
+    private final List<String> failed;
+    private final int completed;
+
+    private PendingWrite(
+        CompletableFuture<List<String>> write,
+        List<String> retried,
+        List<String> failed,
+        int completed) {
+      this.write = write;
+      this.retried = retried;
+      this.failed = failed;
+      this.completed = completed;
+    }
+  }
+
+  private static class Stage {
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong nanos = new AtomicLong();
+
+    private void record(long count, long start) {
+      rows.addAndGet(count);
+      nanos.addAndGet(System.nanoTime() - start);
+    }
+  }
+}
@@ -37,6 +37,7 @@ import org.sunbird.common.models.util.datasecurity.impl.DefaultDecryptionService
 import org.sunbird.common.models.util.datasecurity.impl.DefaultEncryptionServivceImpl;
 import org.sunbird.common.request.Request;
 import org.sunbird.common.responsecode.ResponseCode;
+import org.sunbird.dto.SearchDTO;
 import org.sunbird.helper.ServiceFactory;
 import org.sunbird.learner.util.DataCacheHandler;
 import org.sunbird.learner.util.Util;
@@ -157,6 +158,31 @@ public class UserProfileReadActorTest {
     assertTrue(result);
   }
 
+  @Test
+  public void testGetUserProfileSuccessWhenOptionalLookupFails() {
+    reqMap = getUserProfileRequest("USER-WITH-ORGS");
+    Map<String, Object> user = getUserResponseMap();
+    List<Map<String, Object>> organisations = new ArrayList<>();
+    Map<String, Object> organisation = new HashMap<>();
+    organisation.put(JsonKey.ORGANISATION_ID, "orgId");
+    organisations.add(organisation);
+    user.put(JsonKey.ORGANISATIONS, organisations);
+    setEsResponse(user);
+    when(esService.search(Mockito.any(SearchDTO.class), Mockito.anyString()))
+        .thenReturn(Futures.<Map<String, Object>>failed(new Exception("search failed")));
+    Request request = getRequest(reqMap, ActorOperations.GET_USER_PROFILE);
+    request.getContext().put(JsonKey.FIELDS, JsonKey.ORGANISATIONS);
+    boolean result = testScenario(request, null);
+    assertTrue(result);
+
+    // the profile built without organisations is not cached, the next read retries the lookup
+    Request retry = getRequest(reqMap, ActorOperations.GET_USER_PROFILE);
+    retry.getContext().put(JsonKey.FIELDS, JsonKey.ORGANISATIONS);
+    assertTrue(testScenario(retry, null));
+    Mockito.verify(esService, Mockito.times(2))
+        .search(Mockito.any(SearchDTO.class), Mockito.anyString());
+  }
+
   @Test
   public void testGetUserByEmailKeyFailureWithInvalidEmail() {
     reqMap = getUserProfileByKeyRequest(JsonKey.EMAIL, INVALID_EMAIL);
@@ -0,0 +1,292 @@
+package org.sunbird.user.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Matchers.anyMap;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.sunbird.cassandra.CassandraOperation;
+import org.sunbird.common.exception.ProjectCommonException;
+import org.sunbird.common.models.response.Response;
+import org.sunbird.common.models.util.JsonKey;
+import org.sunbird.common.responsecode.ResponseCode;
+import org.sunbird.learner.util.Util;
+
+public class UserDataCryptoJobTest {
+
+  private static final List<String> USER_IDS = Arrays.asList("u1", "u2", "u3", "u4", "u5");
+
+  private CassandraOperation cassandraOperation;
+  private List<List<String>> syncedUserIds;
+  private Encryption encryption;
+  private UserDataCryptoJob job;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    cassandraOperation = mock(CassandraOperation.class);
+    when(cassandraOperation.getRecordsByIdsWithSpecifiedColumns(
+            anyString(), anyString(), anyList(), anyList()))
+        .thenAnswer(
+            invocation -> {
+              List<Map<String, Object>> users = new ArrayList<>();
+              for (String userId : (List<String>) invocation.getArguments()[3]) {
+                Map<String, Object> user = new HashMap<>();
+                user.put(JsonKey.ID, userId);
+                user.put(JsonKey.EMAIL, userId + "@example.com");
+                users.add(user);
+              }
+              return getResponse(users);
+            });
+    when(cassandraOperation.getRecordsByProperty(
+            anyString(), anyString(), eq(JsonKey.USER_ID), anyString()))
+        .thenReturn(getResponse(new ArrayList<>()));
+    when(cassandraOperation.getRecordById(
+            anyString(), eq(UserDataCryptoJob.CHECKPOINT_TABLE), anyString()))
+        .thenReturn(getResponse(new ArrayList<>()));
+    syncedUserIds = new ArrayList<>();
+    encryption = new Encryption();
+    job =
+        new UserDataCryptoJob(
+            "backgroundEncryption",
+            encryption,
+            cassandraOperation,
+            syncedUserIds::add,
+            2,
+            0,
+            40);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testRunWritesAndSyncsEachChunkSuccess() {
+    assertEquals(4, job.run(USER_IDS));
+    assertEquals(
+        Arrays.asList(Arrays.asList("u1", "u2"), Arrays.asList("u3", "u4")), syncedUserIds);
+    ArgumentCaptor<Map> checkpoint = ArgumentCaptor.forClass(Map.class);
+    verify(cassandraOperation, times(3))
+        .upsertRecord(anyString(), eq(UserDataCryptoJob.CHECKPOINT_TABLE), checkpoint.capture());
+    assertEquals(3, checkpoint.getValue().get(UserDataCryptoJob.COMPLETED));
+    assertEquals("u1@example.com#", getEmail("u1"));
+    verify(cassandraOperation)
+        .deleteRecord(anyString(), eq(UserDataCryptoJob.CHECKPOINT_TABLE), anyString());
+  }
+
+  @Test
+  public void testRunAfterFinishedRunStartsOverSuccess() {
+    Map<String, Object> checkpoint = new HashMap<>();
+    checkpoint.put(UserDataCryptoJob.COMPLETED, 3);
+    checkpoint.put(UserDataCryptoJob.TOTAL, 3);
+    when(cassandraOperation.getRecordById(
+            anyString(), eq(UserDataCryptoJob.CHECKPOINT_TABLE), anyString()))
+        .thenReturn(getResponse(Arrays.asList(checkpoint)));
+    assertEquals(4, job.run(USER_IDS));
+    assertEquals(4, job.run(USER_IDS));
+    verify(cassandraOperation, times(2))
+        .deleteRecord(anyString(), eq(UserDataCryptoJob.CHECKPOINT_TABLE), anyString());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testRunRetriesFailedUsersSuccess() {
+    encryption.failing.add("u2");
+    assertEquals(3, job.run(USER_IDS));
+    ArgumentCaptor<Map> checkpoint = ArgumentCaptor.forClass(Map.class);
+    verify(cassandraOperation, times(3))
+        .upsertRecord(anyString(), eq(UserDataCryptoJob.CHECKPOINT_TABLE), checkpoint.capture());
+    assertEquals(3, checkpoint.getValue().get(UserDataCryptoJob.COMPLETED));
+    assertEquals(Arrays.asList("u2"), checkpoint.getValue().get(UserDataCryptoJob.FAILED));
+    verify(cassandraOperation, never())
+        .deleteRecord(anyString(), eq(UserDataCryptoJob.CHECKPOINT_TABLE), anyString());
+
+    encryption.failing.clear();
+    when(cassandraOperation.getRecordById(
+            anyString(), eq(UserDataCryptoJob.CHECKPOINT_TABLE), anyString()))
+        .thenReturn(getResponse(Arrays.asList(checkpoint.getValue())));
+    assertEquals(1, job.run(USER_IDS));
+    verify(cassandraOperation)
+        .getRecordsByIdsWithSpecifiedColumns(
+            anyString(), anyString(), anyList(), eq(Arrays.asList("u2")));
+    verify(cassandraOperation)
+        .deleteRecord(anyString(), eq(UserDataCryptoJob.CHECKPOINT_TABLE), anyString());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testRunWritesUnchangedAddressesBeforeUsersSuccess() {
+    Map<String, Object> changed = new HashMap<>();
+    changed.put(JsonKey.ID, "a1");
+    changed.put(JsonKey.CITY, "city");
+    Map<String, Object> unchanged = new HashMap<>();
+    unchanged.put(JsonKey.ID, "a2");
+    unchanged.put(JsonKey.CITY, "city#");
+    when(cassandraOperation.getRecordsByProperty(
+            anyString(), anyString(), eq(JsonKey.USER_ID), eq("u1")))
+        .thenReturn(getResponse(new ArrayList<>(Arrays.asList(changed, unchanged))));
+    String addressTable = Util.dbInfoMap.get(JsonKey.ADDRESS_DB).getTableName();
+    String userTable = Util.dbInfoMap.get(JsonKey.USER_DB).getTableName();
+
+    assertEquals(4, job.run(USER_IDS));
+    ArgumentCaptor<List> addresses = ArgumentCaptor.forClass(List.class);
+    InOrder order = inOrder(cassandraOperation);
+    order
+        .verify(cassandraOperation)
+        .batchUpdateById(anyString(), eq(addressTable), addresses.capture());
+    order.verify(cassandraOperation).batchUpdateById(anyString(), eq(userTable), anyList());
+    assertEquals(1, addresses.getValue().size());
+    assertEquals("city#", ((Map<String, Object>) addresses.getValue().get(0)).get(JsonKey.CITY));
+  }
+
+  @Test
+  public void testRunResumesAfterCheckpointSuccess() {
+    Map<String, Object> checkpoint = new HashMap<>();
+    checkpoint.put(UserDataCryptoJob.COMPLETED, 2);
+    checkpoint.put(UserDataCryptoJob.TOTAL, 3);
+    when(cassandraOperation.getRecordById(
+            anyString(), eq(UserDataCryptoJob.CHECKPOINT_TABLE), anyString()))
+        .thenReturn(getResponse(Arrays.asList(checkpoint)));
+    assertEquals(0, job.run(USER_IDS));
+    verify(cassandraOperation)
+        .getRecordsByIdsWithSpecifiedColumns(
+            anyString(), anyString(), anyList(), eq(Arrays.asList("u5")));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testRunCapsBatchSizeSuccess() {
+    Map<String, Object> user = new HashMap<>();
+    user.put(JsonKey.ID, "u1");
+    user.put(JsonKey.EMAIL, "u1@example.com#");
+    long userSize = UserDataCryptoJob.getSize(user);
+    // a batch of at most 1 KB, which takes two of the users below
+    String padding = new String(new char[(int) (1024 / 2 - userSize)]).replace('\0', 'x');
+    when(cassandraOperation.getRecordsByIdsWithSpecifiedColumns(
+            anyString(), anyString(), anyList(), anyList()))
+        .thenAnswer(
+            invocation -> {
+              List<Map<String, Object>> users = new ArrayList<>();
+              for (String userId : (List<String>) invocation.getArguments()[3]) {
+                Map<String, Object> row = new HashMap<>();
+                row.put(JsonKey.ID, userId);
+                row.put(JsonKey.EMAIL, userId + "@example.com" + padding);
+                users.add(row);
+              }
+              return getResponse(users);
+            });
+    job =
+        new UserDataCryptoJob(
+            "backgroundEncryption",
+            new Encryption(),
+            cassandraOperation,
+            syncedUserIds::add,
+            5,
+            0,
+            1);
+
+    assertEquals(4, job.run(USER_IDS));
+    ArgumentCaptor<List> batches = ArgumentCaptor.forClass(List.class);
+    verify(cassandraOperation, times(2))
+        .batchUpdateById(anyString(), anyString(), batches.capture());
+    for (List<Map<String, Object>> batch : batches.getAllValues()) {
+      assertEquals(2, batch.size());
+      long size = 0;
+      for (Map<String, Object> row : batch) {
+        size += UserDataCryptoJob.getSize(row);
+      }
+      assertTrue(size <= 1024);
+    }
+  }
+
+  @Test(expected = ProjectCommonException.class)
+  public void testRunStopsOnWriteFailure() {
+    when(cassandraOperation.batchUpdateById(anyString(), anyString(), anyList()))
+        .thenThrow(
+            new ProjectCommonException(
+                ResponseCode.SERVER_ERROR.getErrorCode(),
+                ResponseCode.SERVER_ERROR.getErrorMessage(),
+                ResponseCode.SERVER_ERROR.getResponseCode()));
+    try {
+      job.run(USER_IDS);
+    } finally {
+      verify(cassandraOperation, never())
+          .upsertRecord(anyString(), eq(UserDataCryptoJob.CHECKPOINT_TABLE), anyMap());
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private String getEmail(String userId) {
+    ArgumentCaptor<List> users = ArgumentCaptor.forClass(List.class);
+    verify(cassandraOperation, atLeastOnce())
+        .batchUpdateById(anyString(), anyString(), users.capture());
+    for (List<Map<String, Object>> batch : users.getAllValues()) {
+      for (Map<String, Object> user : batch) {
+        if (userId.equals(user.get(JsonKey.ID))) {
+          return (String) user.get(JsonKey.EMAIL);
+        }
+      }
+    }
+    return null;
+  }
+
+  private static Response getResponse(List<Map<String, Object>> records) {
+    Response response = new Response();
+    response.put(JsonKey.RESPONSE, records);
+    return response;
+  }
+
+  /**
+   * Marks the email of every user except u5, which has nothing to encrypt, and the city of every
+   * address. Fails for the users in {@code failing}.
+   */
+  private static class Encryption implements UserDataCryptoJob.Transform {
+
+    private final Set<String> failing = new HashSet<>();
+
+    @Override
+    public List<String> getFields(Map<String, Object> user) {
+      return "u5".equals(user.get(JsonKey.ID))
+          ? new ArrayList<>()
+          : Arrays.asList(JsonKey.EMAIL);
+    }
+
+    @Override
+    public List<String> getAddressFields(Map<String, Object> address) {
+      return String.valueOf(address.get(JsonKey.CITY)).endsWith("#")
+          ? new ArrayList<>()
+          : Arrays.asList(JsonKey.CITY);
+    }
+
+    @Override
+    public void apply(Map<String, Object> user, List<String> fields) {
+      if (failing.contains(user.get(JsonKey.ID))) {
+        throw new IllegalStateException("Failed to encrypt " + user.get(JsonKey.ID));
+      }
+      fields.forEach(field -> user.put(field, user.get(field) + "#"));
+    }
+
+    @Override
+    public void applyToAddresses(List<Map<String, Object>> addresses) {
+      addresses.forEach(address -> address.put(JsonKey.CITY, address.get(JsonKey.CITY) + "#"));
+    }
+  }
+}